@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.apivalidation.exceptions;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Exception means that the service is temporarily unable to handle the request, for example because it is overloaded.
+ * The client may retry the request after the given number of seconds.
+ */
+public final class ApiServiceUnavailableException extends ApiException {
+    private final int retryAfterSecs;
+
+    public ApiServiceUnavailableException(final int retryAfterSecs) {
+        super();
+        assert retryAfterSecs >= 0 : retryAfterSecs;
+        this.retryAfterSecs = retryAfterSecs;
+    }
+
+    public ApiServiceUnavailableException(@Nonnull final String message, final int retryAfterSecs) {
+        super(message);
+        assert message != null;
+        assert retryAfterSecs >= 0 : retryAfterSecs;
+        this.retryAfterSecs = retryAfterSecs;
+    }
+
+    /**
+     * Return the number of seconds after which the client may retry the request.
+     *
+     * @return Number of seconds, &gt;= 0.
+     */
+    public int getRetryAfterSecs() {
+        return retryAfterSecs;
+    }
+}
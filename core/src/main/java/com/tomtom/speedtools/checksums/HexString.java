@@ -23,6 +23,10 @@ import javax.annotation.Nonnull;
  */
 public final class HexString {
 
+    // Lowercase hex digits, indexed by nibble value.
+    @Nonnull
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     // Utility class only has private constructor.
     private HexString() {
         assert false;
@@ -54,14 +58,58 @@ public final class HexString {
     public static String getHexString(@Nonnull final byte[] bytes) {
         assert bytes != null;
         assert bytes.length > 0;
+        return getHexString(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Convert a range of an array of bytes to a hex value string.
+     *
+     * @param bytes  Input bytes. Cannot be null.
+     * @param offset Offset of first byte to convert.
+     * @param length Number of bytes to convert, must be &gt; 0.
+     * @return Hexadecimal representation of the bytes; the length of the string is always 2 * length.
+     */
+    @Nonnull
+    public static String getHexString(@Nonnull final byte[] bytes, final int offset, final int length) {
+        assert bytes != null;
+        assert length > 0;
+        assert (offset >= 0) && ((offset + length) <= bytes.length) : offset + ", " + length;
+
+        final char[] chars = new char[length * 2];
+        getHexChars(bytes, offset, length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Write the hex representation of a range of bytes into a preallocated array of characters. This method does not
+     * allocate any memory, so callers can reuse the destination array.
+     *
+     * @param bytes      Input bytes. Cannot be null.
+     * @param offset     Offset of first byte to convert.
+     * @param length     Number of bytes to convert.
+     * @param dest       Destination characters, must be able to hold 2 * length characters from destOffset.
+     * @param destOffset Offset of first character to write in dest.
+     * @return Number of characters written, always 2 * length.
+     */
+    public static int getHexChars(
+            @Nonnull final byte[] bytes,
+            final int offset,
+            final int length,
+            @Nonnull final char[] dest,
+            final int destOffset) {
+        assert bytes != null;
+        assert dest != null;
+        assert (offset >= 0) && (length >= 0) && ((offset + length) <= bytes.length) : offset + ", " + length;
+        assert (destOffset >= 0) && ((destOffset + (length * 2)) <= dest.length) : destOffset + ", " + length;
 
-        // Create a string of 2-char hex values.
-        final StringBuilder result = new StringBuilder();
-        for (final byte b : bytes) {
-            final String hex = Integer.toString((b & 0xff) + 0x100, 16);
-            result.append(hex.substring(1));
+        int j = destOffset;
+        for (int i = offset; i < (offset + length); ++i) {
+            final int b = bytes[i] & 0xff;
+            dest[j] = HEX_DIGITS[b >>> 4];
+            dest[j + 1] = HEX_DIGITS[b & 0x0f];
+            j = j + 2;
         }
-        return result.toString();
+        return length * 2;
     }
 
     /**
@@ -16,13 +16,15 @@
 
 package com.tomtom.speedtools.checksums;
 
+import com.tomtom.speedtools.crypto.DigestPool;
 import com.tomtom.speedtools.objects.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -30,17 +32,19 @@ import java.security.SecureRandom;
 
 /**
  * Class for SHA1 hashes.
+ *
+ * The message digests and secure random generators are taken from the thread-local {@link DigestPool}, so hashing
+ * does not look up security providers on every call.
  */
 public final class SHA1Hash {
     @Nonnull
     private static final Logger LOG = LoggerFactory.getLogger(SHA1Hash.class);
 
     @Nonnull
-    private static final String SHA1_ALGORITHM = "SHA-1";
-    @Nonnull
-    private static final String SHA1PRNG_ALGORITHM = "SHA1PRNG";
+    private static final String SHA1_ALGORITHM = DigestPool.SHA1_ALGORITHM;
     @Nonnull
-    private static final String UTF8_ENCODING = "UTF-8";
+    private static final String SHA1PRNG_ALGORITHM = DigestPool.SHA1PRNG_ALGORITHM;
+    private static final int SALT_LENGTH = 8;
 
     @Nonnull
     private final String hash;
@@ -87,6 +91,32 @@ public final class SHA1Hash {
         return doHash(value, null);
     }
 
+    /**
+     * Hashes the given bytes without salt. This avoids converting a string to bytes if the caller already has them.
+     *
+     * @param value The bytes to hash.
+     * @return The hashed {@code value}.
+     */
+    @Nonnull
+    public static SHA1Hash hash(@Nonnull final byte[] value) {
+        assert value != null;
+
+        return doHash(ByteBuffer.wrap(value), null);
+    }
+
+    /**
+     * Hashes the remaining bytes of the given buffer without salt. The buffer position is moved to its limit.
+     *
+     * @param value The bytes to hash.
+     * @return The hashed {@code value}.
+     */
+    @Nonnull
+    public static SHA1Hash hash(@Nonnull final ByteBuffer value) {
+        assert value != null;
+
+        return doHash(value, null);
+    }
+
     /**
      * Hashes the given {@code value} using a salt generated during the hash operation. Each invocation of this method,
      * even for the same {@code value}, will use a different salt.
@@ -104,18 +134,20 @@ public final class SHA1Hash {
     public static SHA1Hash saltedHash(@Nonnull final String value) {
         assert value != null;
 
-        // See https://www.owasp.org/index.php/Hashing_Java for implementing secure password hashing in Java.
-        byte[] salt = null;
-        try {
-            // Generate 64 random bits using a cryptographically strong random number generator.
-            final SecureRandom random = SecureRandom.getInstance(SHA1PRNG_ALGORITHM);
-            salt = new byte[8];
-            random.nextBytes(salt);
-        } catch (final NoSuchAlgorithmException e) {
-            LOG.error("saltedHash: Serious failure: No algorithm found for salt generation use {}. Proceeding " +
-                    "without salting the input. {}", SHA1PRNG_ALGORITHM, e.getMessage());
-        }
-        return doHash(value, salt);
+        return doHash(value, generateSalt());
+    }
+
+    /**
+     * Hashes the given bytes using a salt generated during the hash operation. See {@link #saltedHash(String)}.
+     *
+     * @param value The bytes to hash using salt.
+     * @return The hashed {@code value} using salt.
+     */
+    @Nonnull
+    public static SHA1Hash saltedHash(@Nonnull final byte[] value) {
+        assert value != null;
+
+        return doHash(ByteBuffer.wrap(value), generateSalt());
     }
 
     /**
@@ -140,6 +172,23 @@ public final class SHA1Hash {
         return doHash(value, saltBytes);
     }
 
+    /**
+     * Hashes the given bytes using the provided {@code salt}. See {@link #saltedHash(String, String)}.
+     *
+     * @param value The bytes to hash using the given {@code salt}.
+     * @param salt  The salt to use, hex-encoded. Can be an empty string, in which case no salt will be used.
+     * @return The hashed {@code value} using the given {@code salt}.
+     * @throws IllegalArgumentException If the {@code salt} string contains non-hex characters.
+     */
+    @Nonnull
+    public static SHA1Hash saltedHash(@Nonnull final byte[] value, @Nonnull final String salt) {
+        assert value != null;
+        assert salt != null;
+
+        final byte[] saltBytes = salt.isEmpty() ? null : HexString.getHexByteArray(salt);
+        return doHash(ByteBuffer.wrap(value), saltBytes);
+    }
+
     /**
      * Returns the salt used during hashing as a hex-encoded string. Can be an empty string if no salt was used, or salt
      * generation failed.
@@ -151,10 +200,34 @@ public final class SHA1Hash {
         return salt;
     }
 
+    /**
+     * Generate 64 random bits using a cryptographically strong random number generator.
+     *
+     * @return Salt, or null if no random number generator is available.
+     */
+    @Nullable
+    private static byte[] generateSalt() {
+
+        // See https://www.owasp.org/index.php/Hashing_Java for implementing secure password hashing in Java.
+        try {
+            final SecureRandom random = DigestPool.getSHA1PRNGRandom();
+            final byte[] salt = new byte[SALT_LENGTH];
+            random.nextBytes(salt);
+            return salt;
+        } catch (final NoSuchAlgorithmException e) {
+            LOG.error("saltedHash: Serious failure: No algorithm found for salt generation use {}. Proceeding " +
+                    "without salting the input. {}", SHA1PRNG_ALGORITHM, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Hashes the given {@code value}. If {@code saltBytes} are provided, then they will be used during the hashing
      * process.
      *
+     * <em>Note</em> that for compatibility with previously stored hashes, only the first {@code value.length()} bytes
+     * of the UTF-8 encoding of {@code value} are hashed. This makes no difference for ASCII strings.
+     *
      * @param value     The string to hash, using {@code saltBytes} if not {@code null}.
      * @param saltBytes The salt to use during hashing. Can be {@code null} if no salt should be used.
      * @return An object providing access to the hash and the salt.
@@ -163,20 +236,33 @@ public final class SHA1Hash {
     private static SHA1Hash doHash(@Nonnull final String value, @Nullable final byte[] saltBytes) {
         assert value != null;
 
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return doHash(ByteBuffer.wrap(bytes, 0, value.length()), saltBytes);
+    }
+
+    /**
+     * Hashes the remaining bytes of {@code value}. If {@code saltBytes} are provided, then they will be used during
+     * the hashing process.
+     *
+     * @param value     The bytes to hash, using {@code saltBytes} if not {@code null}.
+     * @param saltBytes The salt to use during hashing. Can be {@code null} if no salt should be used.
+     * @return An object providing access to the hash and the salt.
+     */
+    @Nonnull
+    private static SHA1Hash doHash(@Nonnull final ByteBuffer value, @Nullable final byte[] saltBytes) {
+        assert value != null;
+
         String hash = "";
         String salt = "";
 
         try {
-            final MessageDigest digest = MessageDigest.getInstance(SHA1_ALGORITHM);
+            final MessageDigest digest = DigestPool.getSHA1Digest();
             if (saltBytes != null) {
                 digest.update(saltBytes);
                 salt = HexString.getHexString(saltBytes);
             }
-            digest.update(value.getBytes(UTF8_ENCODING), 0, value.length());
+            digest.update(value);
             hash = HexString.getHexString(digest.digest());
-        } catch (final UnsupportedEncodingException e) {
-            LOG.error("doHash: Serious failure: Unsupported encoding for {}. Resulting hash will be the empty " +
-                    "string. {}", UTF8_ENCODING, e.getMessage());
         } catch (final NoSuchAlgorithmException e) {
             LOG.error("doHash: Serious failure: No algorithm found for hashing use {}. Resulting hash will be the " +
                     "empty string. {}", SHA1_ALGORITHM, e.getMessage());
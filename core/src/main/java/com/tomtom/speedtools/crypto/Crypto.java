@@ -16,10 +16,12 @@
 
 package com.tomtom.speedtools.crypto;
 
+import com.tomtom.speedtools.checksums.HexString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -35,7 +37,7 @@ public final class Crypto {
      */
     static {
         try {
-            MessageDigest.getInstance("SHA-256");
+            DigestPool.getSHA256Digest();
         } catch (final NoSuchAlgorithmException e) {
             LOG.error("Crypto: Cannot get SHA-256 message digest.", e);
         }
@@ -55,19 +57,40 @@ public final class Crypto {
     public static String hash(@Nonnull final String value) {
         assert value != null;
         assert !value.isEmpty();
+        return hash(value.getBytes());
+    }
+
+    /**
+     * Convert bytes into a password hash. A password hash is defined as a SHA-256 hash.
+     *
+     * @param value Non-empty array of bytes.
+     * @return Hash of bytes.
+     */
+    @Nonnull
+    public static String hash(@Nonnull final byte[] value) {
+        assert value != null;
+        assert value.length > 0;
+        return hash(ByteBuffer.wrap(value));
+    }
+
+    /**
+     * Convert the remaining bytes of a buffer into a password hash. A password hash is defined as a SHA-256 hash.
+     * The buffer position is moved to its limit.
+     *
+     * @param value Buffer with remaining bytes.
+     * @return Hash of bytes.
+     */
+    @Nonnull
+    public static String hash(@Nonnull final ByteBuffer value) {
+        assert value != null;
+        assert value.hasRemaining();
 
         final MessageDigest messageDigest;
         try {
-            messageDigest = MessageDigest.getInstance("SHA-256");
-            messageDigest.update(value.getBytes());
+            messageDigest = DigestPool.getSHA256Digest();
+            messageDigest.update(value);
             final byte[] bytes = messageDigest.digest();
-
-            // Convert the byte to hex format method 1
-            final StringBuilder stringBuffer = new StringBuilder();
-            for (final byte b : bytes) {
-                stringBuffer.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
-            }
-            return stringBuffer.toString();
+            return HexString.getHexString(bytes);
         } catch (final NoSuchAlgorithmException e) {
             LOG.error("Crypto: Cannot get SHA-256 message digest.", e);
 
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.crypto;
+
+import javax.annotation.Nonnull;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Pool of thread-local message digests and secure random generators. Looking up a provider with
+ * {@link MessageDigest#getInstance(String)} or {@link SecureRandom#getInstance(String)} is relatively expensive and
+ * these objects are not thread-safe, so every thread gets its own, reusable instance.
+ *
+ * The returned objects must only be used by the calling thread and must not be stored: they are returned to the
+ * pool implicitly on the next call on the same thread.
+ */
+public final class DigestPool {
+
+    @Nonnull
+    public static final String SHA1_ALGORITHM = "SHA-1";
+    @Nonnull
+    public static final String SHA256_ALGORITHM = "SHA-256";
+    @Nonnull
+    public static final String SHA1PRNG_ALGORITHM = "SHA1PRNG";
+
+    @Nonnull
+    private static final ThreadLocal<MessageDigest> SHA1_DIGEST = new ThreadLocal<>();
+    @Nonnull
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = new ThreadLocal<>();
+    @Nonnull
+    private static final ThreadLocal<SecureRandom> SHA1PRNG_RANDOM = new ThreadLocal<>();
+
+    private DigestPool() {
+        // Prevent instantiation.
+    }
+
+    /**
+     * Get the SHA-1 message digest of the current thread, reset to its initial state.
+     *
+     * @return Message digest.
+     * @throws NoSuchAlgorithmException If the algorithm is not available.
+     */
+    @Nonnull
+    public static MessageDigest getSHA1Digest() throws NoSuchAlgorithmException {
+        return getDigest(SHA1_DIGEST, SHA1_ALGORITHM);
+    }
+
+    /**
+     * Get the SHA-256 message digest of the current thread, reset to its initial state.
+     *
+     * @return Message digest.
+     * @throws NoSuchAlgorithmException If the algorithm is not available.
+     */
+    @Nonnull
+    public static MessageDigest getSHA256Digest() throws NoSuchAlgorithmException {
+        return getDigest(SHA256_DIGEST, SHA256_ALGORITHM);
+    }
+
+    /**
+     * Get the SHA1PRNG secure random generator of the current thread. The generator is seeded by the provider
+     * on first use.
+     *
+     * @return Secure random generator.
+     * @throws NoSuchAlgorithmException If the algorithm is not available.
+     */
+    @Nonnull
+    public static SecureRandom getSHA1PRNGRandom() throws NoSuchAlgorithmException {
+        SecureRandom random = SHA1PRNG_RANDOM.get();
+        if (random == null) {
+            random = SecureRandom.getInstance(SHA1PRNG_ALGORITHM);
+            SHA1PRNG_RANDOM.set(random);
+        }
+        return random;
+    }
+
+    @Nonnull
+    private static MessageDigest getDigest(
+            @Nonnull final ThreadLocal<MessageDigest> pool,
+            @Nonnull final String algorithm) throws NoSuchAlgorithmException {
+        assert pool != null;
+        assert algorithm != null;
+        MessageDigest digest = pool.get();
+        if (digest == null) {
+            digest = MessageDigest.getInstance(algorithm);
+            pool.set(digest);
+        } else {
+
+            // Make sure a digest which was abandoned halfway does not influence the result.
+            digest.reset();
+        }
+        return digest;
+    }
+}
@@ -161,6 +161,17 @@ public class HexStringTest {
         }
     }
 
+    @Test
+    public void testHexChars() {
+        LOG.info("testHexChars");
+        final byte[] bytes = {(byte) 0x00, (byte) 0x7f, (byte) 0x80, (byte) 0xff, (byte) 0x1a};
+        final char[] chars = {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'};
+        Assert.assertEquals(6, HexString.getHexChars(bytes, 1, 3, chars, 1));
+        Assert.assertEquals("x7f80ffx", new String(chars));
+        Assert.assertEquals("807f", HexString.getHexString(new byte[]{(byte) 0x80, (byte) 0x7f}));
+        Assert.assertEquals("ff1a", HexString.getHexString(bytes, 3, 2));
+    }
+
     @Test
     public void testEmptyArray() {
         LOG.info("testEmptyArray");
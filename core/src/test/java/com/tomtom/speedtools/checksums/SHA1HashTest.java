@@ -22,6 +22,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class SHA1HashTest {
     private static final Logger LOG = LoggerFactory.getLogger(SHA1HashTest.class);
 
@@ -114,4 +117,18 @@ public class SHA1HashTest {
         final String referenceSalt = "78G0";
         SHA1Hash.saltedHash(token, referenceSalt);
     }
+
+    @Test
+    public void testHashBytes() {
+        LOG.info("testHashBytes");
+
+        final byte[] bytes = "abc".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", SHA1Hash.hash(bytes).toString());
+        Assert.assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", SHA1Hash.hash(ByteBuffer.wrap(bytes)).toString());
+        Assert.assertEquals(SHA1Hash.saltedHash("abc", "7890"), SHA1Hash.saltedHash(bytes, "7890"));
+
+        final SHA1Hash salted = SHA1Hash.saltedHash(bytes);
+        Assert.assertEquals(salted, SHA1Hash.saltedHash("abc", salted.getSalt()));
+        Assert.assertNotEquals(salted.getSalt(), SHA1Hash.saltedHash(bytes).getSalt());
+    }
 }
@@ -21,6 +21,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class CryptoTest {
     private static final Logger LOG = LoggerFactory.getLogger(CryptoTest.class);
 
@@ -32,4 +35,16 @@ public class CryptoTest {
         LOG.info("hash(" + code + ") = {}", Crypto.hash(code));
         Assert.assertEquals("8d969eef6ecad3c29a3a629280e686cf0c3f5d5a86aff3ca12020c923adc6c92", hash);
     }
+
+    @Test
+    public void testCryptoBytes() {
+        LOG.info("testCryptoBytes");
+        final String expected = "8d969eef6ecad3c29a3a629280e686cf0c3f5d5a86aff3ca12020c923adc6c92";
+        final byte[] code = "123456".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(expected, Crypto.hash(code));
+        Assert.assertEquals(expected, Crypto.hash(ByteBuffer.wrap(code)));
+
+        // The pooled digest must be reusable.
+        Assert.assertEquals(expected, Crypto.hash(code));
+    }
 }
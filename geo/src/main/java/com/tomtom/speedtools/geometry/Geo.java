@@ -44,6 +44,39 @@ public final class Geo {
     // Almost, but not quite longitude 180 (which wraps to -180).
     public static final double LON180 = 179.999999999999;
 
+    // Mean radius of Earth (IUGG definition), used for great-circle distances.
+    public static final double EARTH_MEAN_RADIUS_METERS = ((2.0 * EARTH_RADIUS_X_METERS) + EARTH_RADIUS_Y_METERS) / 3.0;
+
+    // Flattening of the WGS84 ellipsoid, used for geodesic distances.
+    public static final double EARTH_FLATTENING = 1.0 / 298.257223563;
+
+    // Maximum number of iterations and precision (in radians) of Vincenty's formula.
+    private static final int VINCENTY_MAX_ITERATIONS = 200;
+    private static final double VINCENTY_PRECISION = 1.0e-12;
+
+    /**
+     * Method used to calculate distances.
+     */
+    public enum DistanceMode {
+
+        /**
+         * Flat-earth approximation, see {@link #distanceInMeters(GeoPoint, GeoPoint)}. Fastest, but only accurate for
+         * relatively short distances, say up to 200km.
+         */
+        APPROXIMATE,
+
+        /**
+         * Great-circle distance on a sphere, using the haversine formula. Accurate to about 0.5%.
+         */
+        HAVERSINE,
+
+        /**
+         * Geodesic distance on the WGS84 ellipsoid, using Vincenty's inverse formula. Accurate to well within a
+         * millimeter, but slowest.
+         */
+        VINCENTY
+    }
+
     /**
      * Private constructor. Utility class cannot be instantiated.
      */
@@ -121,12 +154,34 @@ public final class Geo {
      * @return Distance, always &gt;= 0.
      */
     public static double distanceInMeters(@Nonnull final GeoPoint p1, @Nonnull final GeoPoint p2) {
-        final boolean wrappedOnLongSide = p1.getLon() > p2.getLon();
+        assert p1 != null;
+        assert p2 != null;
+        return distanceInMeters(
+                p1.getLatValue(), p1.getLonValue(), p1.getElevationMetersValue(),
+                p2.getLatValue(), p2.getLonValue(), p2.getElevationMetersValue());
+    }
+
+    /**
+     * Same as {@link #distanceInMeters(GeoPoint, GeoPoint)}, for primitive coordinates. If either elevation is NaN, the
+     * difference in elevation is ignored.
+     *
+     * @param lat1             Latitude of point 1.
+     * @param lon1             Longitude of point 1.
+     * @param elevationMeters1 Elevation of point 1, or NaN if absent.
+     * @param lat2             Latitude of point 2.
+     * @param lon2             Longitude of point 2.
+     * @param elevationMeters2 Elevation of point 2, or NaN if absent.
+     * @return Distance, always &gt;= 0.
+     */
+    public static double distanceInMeters(
+            final double lat1, final double lon1, final double elevationMeters1,
+            final double lat2, final double lon2, final double elevationMeters2) {
+        final boolean wrappedOnLongSide = lon1 > lon2;
         double deltaLonDegrees;
         if (wrappedOnLongSide) {
-            deltaLonDegrees = 360.0 - (p1.getLon() - p2.getLon());
+            deltaLonDegrees = 360.0 - (lon1 - lon2);
         } else {
-            deltaLonDegrees = p2.getLon() - p1.getLon();
+            deltaLonDegrees = lon2 - lon1;
         }
         if (deltaLonDegrees > 180.0) {
             deltaLonDegrees = 360.0 - deltaLonDegrees;
@@ -135,18 +190,18 @@ public final class Geo {
         assert MathUtils.isBetween(deltaLonDegrees, 0.0, 180.0) :
                 "|p1.lon - p2.lon| should be be in [0, 180], but is " + deltaLonDegrees;
 
-        final double deltaLatDegrees = Math.abs(p1.getLat() - p2.getLat());
+        final double deltaLatDegrees = Math.abs(lat1 - lat2);
         assert MathUtils.isBetween(deltaLatDegrees, 0.0, 180.0) :
                 "|p1.lat - p2.lat| should be be in [0, 180], but is " + deltaLatDegrees;
 
         // Calculate mid point of 2 latitudes.
-        final double avgLat = p1.getLat() + ((p2.getLat() - p1.getLat()) / 2.0);
+        final double avgLat = lat1 + ((lat2 - lat1) / 2.0);
 
         // Meters per longitude is fixed; per latitude requires * cos(avg(lat)).
         final double deltaXMeters = degreesLonToMetersAtLat(deltaLonDegrees, avgLat);
         final double deltaYMeters = degreesLatToMeters(deltaLatDegrees);
-        Double deltaElevationMeters = p1.getElevationMetersOrNaN() - p2.getElevationMetersOrNaN();
-        if (deltaElevationMeters.isNaN()) {
+        double deltaElevationMeters = elevationMeters1 - elevationMeters2;
+        if (Double.isNaN(deltaElevationMeters)) {
             deltaElevationMeters = 0.0;
         }
 
@@ -157,6 +212,267 @@ public final class Geo {
         return len;
     }
 
+    /**
+     * Calculate the distance between 2 points, ignoring elevation, using a specific method.
+     *
+     * @param mode Method to calculate the distance.
+     * @param lat1 Latitude of point 1.
+     * @param lon1 Longitude of point 1.
+     * @param lat2 Latitude of point 2.
+     * @param lon2 Longitude of point 2.
+     * @return Distance, always &gt;= 0.
+     */
+    public static double distanceInMeters(
+            @Nonnull final DistanceMode mode,
+            final double lat1, final double lon1,
+            final double lat2, final double lon2) {
+        assert mode != null;
+        switch (mode) {
+            case APPROXIMATE:
+                return distanceInMeters(lat1, lon1, Double.NaN, lat2, lon2, Double.NaN);
+
+            case HAVERSINE:
+                return haversineDistanceInMeters(lat1, lon1, lat2, lon2);
+
+            case VINCENTY:
+                return vincentyDistanceInMeters(lat1, lon1, lat2, lon2);
+
+            default:
+                assert false : "Unknown mode: " + mode;
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * Calculate the great-circle distance between 2 points on a sphere with radius {@link
+     * #EARTH_MEAN_RADIUS_METERS}, using the haversine formula.
+     *
+     * @param lat1 Latitude of point 1.
+     * @param lon1 Longitude of point 1.
+     * @param lat2 Latitude of point 2.
+     * @param lon2 Longitude of point 2.
+     * @return Distance, always &gt;= 0.
+     */
+    public static double haversineDistanceInMeters(
+            final double lat1, final double lon1,
+            final double lat2, final double lon2) {
+        final double sinHalfDeltaLat = Math.sin(Math.toRadians(lat2 - lat1) / 2.0);
+        final double sinHalfDeltaLon = Math.sin(Math.toRadians(lon2 - lon1) / 2.0);
+        final double a = (sinHalfDeltaLat * sinHalfDeltaLat) +
+                (Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinHalfDeltaLon * sinHalfDeltaLon);
+        return 2.0 * EARTH_MEAN_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+
+    /**
+     * Calculate the geodesic distance between 2 points on the WGS84 ellipsoid, using Vincenty's inverse formula.
+     * For nearly antipodal points, for which the formula does not converge, the haversine distance is returned.
+     *
+     * @param lat1 Latitude of point 1.
+     * @param lon1 Longitude of point 1.
+     * @param lat2 Latitude of point 2.
+     * @param lon2 Longitude of point 2.
+     * @return Distance, always &gt;= 0.
+     */
+    public static double vincentyDistanceInMeters(
+            final double lat1, final double lon1,
+            final double lat2, final double lon2) {
+        final double a = EARTH_RADIUS_X_METERS;
+        final double f = EARTH_FLATTENING;
+        final double b = a * (1.0 - f);
+        final double deltaLon = Math.toRadians(lon2 - lon1);
+        final double u1 = Math.atan((1.0 - f) * Math.tan(Math.toRadians(lat1)));
+        final double u2 = Math.atan((1.0 - f) * Math.tan(Math.toRadians(lat2)));
+        final double sinU1 = Math.sin(u1);
+        final double cosU1 = Math.cos(u1);
+        final double sinU2 = Math.sin(u2);
+        final double cosU2 = Math.cos(u2);
+
+        double lambda = deltaLon;
+        double sinSigma;
+        double cosSigma;
+        double sigma;
+        double cosSqAlpha;
+        double cos2SigmaM;
+        int iterations = 0;
+        double previousLambda;
+        do {
+            final double sinLambda = Math.sin(lambda);
+            final double cosLambda = Math.cos(lambda);
+            final double x = cosU2 * sinLambda;
+            final double y = (cosU1 * sinU2) - (sinU1 * cosU2 * cosLambda);
+            sinSigma = Math.sqrt((x * x) + (y * y));
+            if (sinSigma == 0.0) {
+
+                // Coincident points.
+                return 0.0;
+            }
+            cosSigma = (sinU1 * sinU2) + (cosU1 * cosU2 * cosLambda);
+            sigma = Math.atan2(sinSigma, cosSigma);
+            final double sinAlpha = (cosU1 * cosU2 * sinLambda) / sinSigma;
+            cosSqAlpha = 1.0 - (sinAlpha * sinAlpha);
+
+            // On the equator, cosSqAlpha is 0.
+            cos2SigmaM = (cosSqAlpha == 0.0) ? 0.0 : (cosSigma - ((2.0 * sinU1 * sinU2) / cosSqAlpha));
+            final double c = (f / 16.0) * cosSqAlpha * (4.0 + (f * (4.0 - (3.0 * cosSqAlpha))));
+            previousLambda = lambda;
+            lambda = deltaLon + ((1.0 - c) * f * sinAlpha *
+                    (sigma + (c * sinSigma * (cos2SigmaM + (c * cosSigma * (-1.0 + (2.0 * cos2SigmaM * cos2SigmaM)))))));
+            ++iterations;
+        } while ((Math.abs(lambda - previousLambda) > VINCENTY_PRECISION) && (iterations < VINCENTY_MAX_ITERATIONS));
+
+        if (iterations >= VINCENTY_MAX_ITERATIONS) {
+            return haversineDistanceInMeters(lat1, lon1, lat2, lon2);
+        }
+        final double uSq = (cosSqAlpha * ((a * a) - (b * b))) / (b * b);
+        final double bigA = 1.0 + ((uSq / 16384.0) * (4096.0 + (uSq * (-768.0 + (uSq * (320.0 - (175.0 * uSq)))))));
+        final double bigB = (uSq / 1024.0) * (256.0 + (uSq * (-128.0 + (uSq * (74.0 - (47.0 * uSq))))));
+        final double deltaSigma = bigB * sinSigma * (cos2SigmaM + ((bigB / 4.0) *
+                ((cosSigma * (-1.0 + (2.0 * cos2SigmaM * cos2SigmaM))) -
+                        ((bigB / 6.0) * cos2SigmaM * (-3.0 + (4.0 * sinSigma * sinSigma)) *
+                                (-3.0 + (4.0 * cos2SigmaM * cos2SigmaM))))));
+        return b * bigA * (sigma - deltaSigma);
+    }
+
+    /**
+     * Calculate the distances from 1 point to a number of points (1-to-N), ignoring elevation. The points are
+     * passed as arrays of coordinates, so no objects are created.
+     *
+     * @param mode  Method to calculate the distances.
+     * @param lat   Latitude of the point.
+     * @param lon   Longitude of the point.
+     * @param lats  Latitudes of the other points.
+     * @param lons  Longitudes of the other points.
+     * @param out   Output: out[i] is the distance from the point to point i.
+     * @param count Number of points, &lt;= length of each array.
+     */
+    public static void distancesInMeters(
+            @Nonnull final DistanceMode mode,
+            final double lat, final double lon,
+            @Nonnull final double[] lats, @Nonnull final double[] lons,
+            @Nonnull final double[] out, final int count) {
+        assert mode != null;
+        assert lats != null;
+        assert lons != null;
+        assert out != null;
+        assert (count <= lats.length) && (count <= lons.length) && (count <= out.length) : count;
+
+        // Select the method outside the loops, so the loops are simple enough to be inlined and unrolled.
+        switch (mode) {
+            case APPROXIMATE:
+                for (int i = 0; i < count; ++i) {
+                    out[i] = distanceInMeters(lat, lon, Double.NaN, lats[i], lons[i], Double.NaN);
+                }
+                break;
+
+            case HAVERSINE:
+                for (int i = 0; i < count; ++i) {
+                    out[i] = haversineDistanceInMeters(lat, lon, lats[i], lons[i]);
+                }
+                break;
+
+            case VINCENTY:
+                for (int i = 0; i < count; ++i) {
+                    out[i] = vincentyDistanceInMeters(lat, lon, lats[i], lons[i]);
+                }
+                break;
+
+            default:
+                assert false : "Unknown mode: " + mode;
+        }
+    }
+
+    /**
+     * Calculate the distances between pairs of points, ignoring elevation: out[i] is the distance from (lats1[i],
+     * lons1[i]) to (lats2[i], lons2[i]).
+     *
+     * @param mode  Method to calculate the distances.
+     * @param lats1 Latitudes of the first points.
+     * @param lons1 Longitudes of the first points.
+     * @param lats2 Latitudes of the second points.
+     * @param lons2 Longitudes of the second points.
+     * @param out   Output: distances.
+     * @param count Number of pairs, &lt;= length of each array.
+     */
+    public static void distancesInMeters(
+            @Nonnull final DistanceMode mode,
+            @Nonnull final double[] lats1, @Nonnull final double[] lons1,
+            @Nonnull final double[] lats2, @Nonnull final double[] lons2,
+            @Nonnull final double[] out, final int count) {
+        assert mode != null;
+        assert lats1 != null;
+        assert lons1 != null;
+        assert lats2 != null;
+        assert lons2 != null;
+        assert out != null;
+        assert (count <= lats1.length) && (count <= lons1.length) && (count <= lats2.length) &&
+                (count <= lons2.length) && (count <= out.length) : count;
+        switch (mode) {
+            case APPROXIMATE:
+                for (int i = 0; i < count; ++i) {
+                    out[i] = distanceInMeters(lats1[i], lons1[i], Double.NaN, lats2[i], lons2[i], Double.NaN);
+                }
+                break;
+
+            case HAVERSINE:
+                for (int i = 0; i < count; ++i) {
+                    out[i] = haversineDistanceInMeters(lats1[i], lons1[i], lats2[i], lons2[i]);
+                }
+                break;
+
+            case VINCENTY:
+                for (int i = 0; i < count; ++i) {
+                    out[i] = vincentyDistanceInMeters(lats1[i], lons1[i], lats2[i], lons2[i]);
+                }
+                break;
+
+            default:
+                assert false : "Unknown mode: " + mode;
+        }
+    }
+
+    /**
+     * Calculate the distances between consecutive points of a line, ignoring elevation: out[i] is the distance from
+     * point i to point i + 1.
+     *
+     * @param mode  Method to calculate the distances.
+     * @param lats  Latitudes of the points.
+     * @param lons  Longitudes of the points.
+     * @param out   Output: distances.
+     * @param count Number of points, &lt;= length of lats and lons. The output receives count - 1 distances.
+     */
+    public static void segmentDistancesInMeters(
+            @Nonnull final DistanceMode mode,
+            @Nonnull final double[] lats, @Nonnull final double[] lons,
+            @Nonnull final double[] out, final int count) {
+        assert mode != null;
+        assert lats != null;
+        assert lons != null;
+        assert out != null;
+        assert (count <= lats.length) && (count <= lons.length) && ((count - 1) <= out.length) : count;
+        switch (mode) {
+            case APPROXIMATE:
+                for (int i = 0; i < (count - 1); ++i) {
+                    out[i] = distanceInMeters(lats[i], lons[i], Double.NaN, lats[i + 1], lons[i + 1], Double.NaN);
+                }
+                break;
+
+            case HAVERSINE:
+                for (int i = 0; i < (count - 1); ++i) {
+                    out[i] = haversineDistanceInMeters(lats[i], lons[i], lats[i + 1], lons[i + 1]);
+                }
+                break;
+
+            case VINCENTY:
+                for (int i = 0; i < (count - 1); ++i) {
+                    out[i] = vincentyDistanceInMeters(lats[i], lons[i], lats[i + 1], lons[i + 1]);
+                }
+                break;
+
+            default:
+                assert false : "Unknown mode: " + mode;
+        }
+    }
+
     /**
      * Constrain a value to legal values of latitude, -90..90.
      *
@@ -31,6 +31,7 @@ import java.util.Collection;
  *
  *     Primitive    := GeoRectangle
  *                  |  GeoCircle
+ *                  |  GeoPolygon
  *
  *     Inverse      := invert(GeoArea)
  *
@@ -0,0 +1,511 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.geometry;
+
+import com.tomtom.speedtools.utils.MathUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Spatial index over a collection of geo areas, to find the areas that contain or overlap a point or area, or
+ * the areas nearest to a point, without checking every area.
+ *
+ * The index is an R-tree, which is built in bulk using Sort-Tile-Recursive (STR) packing of the bounding boxes of
+ * the areas. The tree is stored in flat primitive arrays and is traversed without creating objects per node.
+ * Bounding boxes which are wrapped around the 180th meridian are stored as 2 non-wrapped boxes, just like
+ * {@link GeoRectangle#pixelate()} does; query areas may be wrapped.
+ *
+ * The index filters candidates by bounding box. Candidates are then checked with the methods of the areas
+ * themselves, like {@link GeoArea#contains(GeoPoint)}, so the results are the same as those of a linear scan.
+ *
+ * This class is immutable and thread-safe, provided the areas are.
+ *
+ * Constructor: {@link #GeoAreaIndex}
+ *
+ * @param <T> Type of area.
+ */
+@Immutable
+public final class GeoAreaIndex<T extends GeoArea> {
+
+    /**
+     * Maximum number of children of a node.
+     */
+    private static final int NODE_CAPACITY = 16;
+
+    @Nonnull
+    private final List<T> areas;
+
+    // Boxes of entries (index < nrOfEntries) and nodes (index >= nrOfEntries). The root is the last box.
+    private final int nrOfEntries;
+    @Nonnull
+    private final double[] minLat;
+    @Nonnull
+    private final double[] minLon;
+    @Nonnull
+    private final double[] maxLat;
+    @Nonnull
+    private final double[] maxLon;
+
+    // Entries: index of area, for the second box of a wrapped area the index of the first box (else -1), and whether
+    // the area is wrapped.
+    @Nonnull
+    private final int[] entryArea;
+    @Nonnull
+    private final int[] entryFirstBox;
+    @Nonnull
+    private final boolean[] entryWrapped;
+
+    // Nodes: children are stored consecutively.
+    @Nonnull
+    private final int[] firstChild;
+    @Nonnull
+    private final int[] childCount;
+
+    private final int root;     // -1 if empty.
+    private final int height;   // Number of levels, including the entries.
+
+    /**
+     * Create an index.
+     *
+     * @param areas Areas to index. The bounding boxes of the areas are indexed.
+     */
+    public GeoAreaIndex(@Nonnull final Collection<? extends T> areas) {
+        super();
+        assert areas != null;
+        this.areas = new ArrayList<>(areas);
+
+        // Collect the entries: 1 box per area, or 2 if the bounding box is wrapped.
+        final List<GeoRectangle> boxes = new ArrayList<>(this.areas.size());
+        final List<Integer> boxAreas = new ArrayList<>(this.areas.size());
+        for (int i = 0; i < this.areas.size(); ++i) {
+            for (final GeoRectangle box : this.areas.get(i).boundingBox().pixelate()) {
+                boxes.add(box);
+                boxAreas.add(i);
+            }
+        }
+        nrOfEntries = boxes.size();
+
+        // Calculate number of levels and nodes.
+        int total = nrOfEntries;
+        int levels = (nrOfEntries == 0) ? 0 : 1;
+        int count = nrOfEntries;
+        while (count > 1) {
+            count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            total = total + count;
+            ++levels;
+        }
+        height = levels;
+        minLat = new double[total];
+        minLon = new double[total];
+        maxLat = new double[total];
+        maxLon = new double[total];
+        entryArea = new int[nrOfEntries];
+        entryFirstBox = new int[nrOfEntries];
+        entryWrapped = new boolean[nrOfEntries];
+        firstChild = new int[total];
+        childCount = new int[total];
+
+        // Store the entries in STR order.
+        final double[] centerLat = new double[nrOfEntries];
+        final double[] centerLon = new double[nrOfEntries];
+        for (int i = 0; i < nrOfEntries; ++i) {
+            final GeoRectangle box = boxes.get(i);
+            centerLat[i] = (box.getSouthWest().getLatValue() + box.getNorthEast().getLatValue()) / 2.0;
+            centerLon[i] = (box.getSouthWest().getLonValue() + box.getNorthEast().getLonValue()) / 2.0;
+        }
+        final int[] order = sortTileRecursive(centerLat, centerLon);
+        final int[] position = new int[nrOfEntries];
+        for (int i = 0; i < nrOfEntries; ++i) {
+            position[order[i]] = i;
+        }
+        for (int i = 0; i < nrOfEntries; ++i) {
+            final GeoRectangle box = boxes.get(order[i]);
+            minLat[i] = box.getSouthWest().getLatValue();
+            minLon[i] = box.getSouthWest().getLonValue();
+            maxLat[i] = box.getNorthEast().getLatValue();
+            maxLon[i] = box.getNorthEast().getLonValue();
+            entryArea[i] = boxAreas.get(order[i]);
+            final boolean secondBox = (order[i] > 0) && boxAreas.get(order[i] - 1).equals(entryArea[i]);
+            entryFirstBox[i] = secondBox ? position[order[i] - 1] : -1;
+            if (secondBox) {
+                entryWrapped[i] = true;
+                entryWrapped[entryFirstBox[i]] = true;
+            }
+        }
+
+        // Build the tree bottom-up. Each level is sorted before it is grouped into parent nodes.
+        int levelStart = 0;
+        int levelCount = nrOfEntries;
+        int next = nrOfEntries;
+        while (levelCount > 1) {
+            if (levelStart > 0) {
+                sortNodes(levelStart, levelCount);
+            }
+            for (int i = 0; i < levelCount; i = i + NODE_CAPACITY) {
+                final int node = next;
+                ++next;
+                firstChild[node] = levelStart + i;
+                childCount[node] = Math.min(NODE_CAPACITY, levelCount - i);
+                minLat[node] = Double.POSITIVE_INFINITY;
+                minLon[node] = Double.POSITIVE_INFINITY;
+                maxLat[node] = Double.NEGATIVE_INFINITY;
+                maxLon[node] = Double.NEGATIVE_INFINITY;
+                for (int child = firstChild[node]; child < (firstChild[node] + childCount[node]); ++child) {
+                    minLat[node] = Math.min(minLat[node], minLat[child]);
+                    minLon[node] = Math.min(minLon[node], minLon[child]);
+                    maxLat[node] = Math.max(maxLat[node], maxLat[child]);
+                    maxLon[node] = Math.max(maxLon[node], maxLon[child]);
+                }
+            }
+            levelStart = levelStart + levelCount;
+            levelCount = next - levelStart;
+        }
+        assert next == total;
+        root = (total == 0) ? -1 : (total - 1);
+    }
+
+    /**
+     * Get number of indexed areas.
+     *
+     * @return Number of areas.
+     */
+    public int size() {
+        return areas.size();
+    }
+
+    /**
+     * Find the areas that contain a point. Same as checking {@link GeoArea#contains(GeoPoint)} for all areas.
+     *
+     * @param point Point.
+     * @return Areas that contain the point, in no particular order.
+     */
+    @Nonnull
+    public List<T> findContaining(@Nonnull final GeoPoint point) {
+        assert point != null;
+        final double lat = point.getLatValue();
+        final double lon = point.getLonValue();
+        final List<T> result = new ArrayList<>();
+        if (root < 0) {
+            return result;
+        }
+        final int[] stack = new int[(height * NODE_CAPACITY) + 1];
+        int top = 0;
+        stack[top] = root;
+        ++top;
+        while (top > 0) {
+            --top;
+            final int box = stack[top];
+            if ((lat >= minLat[box]) && (lat <= maxLat[box]) && (lon >= minLon[box]) && (lon <= maxLon[box])) {
+                if (box < nrOfEntries) {
+
+                    // The boxes of a wrapped area are disjoint, so an area is found only once.
+                    final T area = areas.get(entryArea[box]);
+                    if (area.contains(point)) {
+                        result.add(area);
+                    }
+                } else {
+                    top = push(stack, top, box);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the areas that contain another area. Same as checking {@link GeoArea#contains(GeoArea)} for all areas.
+     *
+     * @param area Area.
+     * @return Areas that contain the area, in no particular order.
+     */
+    @Nonnull
+    public List<T> findContaining(@Nonnull final GeoArea area) {
+        assert area != null;
+        return find(area, true);
+    }
+
+    /**
+     * Find the areas that overlap another area. Same as checking {@link GeoArea#overlaps(GeoArea)} for all areas.
+     *
+     * @param area Area.
+     * @return Areas that overlap the area, in no particular order.
+     */
+    @Nonnull
+    public List<T> findOverlapping(@Nonnull final GeoArea area) {
+        assert area != null;
+        return find(area, false);
+    }
+
+    /**
+     * Find the areas nearest to a point. The distance to an area is the distance to its bounding box, which is 0 if
+     * the point is within the bounding box.
+     *
+     * @param point Point.
+     * @param k     Maximum number of areas to return, &gt;= 0.
+     * @return At most k areas, nearest first.
+     */
+    @Nonnull
+    public List<T> findNearest(@Nonnull final GeoPoint point, final int k) {
+        assert point != null;
+        assert k >= 0 : k;
+        final double lat = point.getLatValue();
+        final double lon = point.getLonValue();
+        final List<T> result = new ArrayList<>(Math.min(k, areas.size()));
+        if ((root < 0) || (k == 0)) {
+            return result;
+        }
+
+        // Best-first search: boxes are visited in order of distance, so the first k areas found are the nearest.
+        final Set<Integer> foundWrapped = new HashSet<>();
+        final BoxQueue queue = new BoxQueue((height * NODE_CAPACITY) + 1);
+        queue.add(distanceInMeters(root, lat, lon), root);
+        while (!queue.isEmpty() && (result.size() < k)) {
+            final int box = queue.removeFirst();
+            if (box < nrOfEntries) {
+
+                // Only wrapped areas have 2 boxes: skip the second one found.
+                final int index = entryArea[box];
+                if (!entryWrapped[box] || foundWrapped.add(index)) {
+                    result.add(areas.get(index));
+                }
+            } else {
+                for (int child = firstChild[box]; child < (firstChild[box] + childCount[box]); ++child) {
+                    queue.add(distanceInMeters(child, lat, lon), child);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Nonnull
+    private List<T> find(@Nonnull final GeoArea area, final boolean containing) {
+        assert area != null;
+        final GeoRectangle boundingBox = area.boundingBox();
+        final double south = boundingBox.getSouthWest().getLatValue();
+        final double west = boundingBox.getSouthWest().getLonValue();
+        final double north = boundingBox.getNorthEast().getLatValue();
+        final double east = boundingBox.getNorthEast().getLonValue();
+        final List<T> result = new ArrayList<>();
+        if (root < 0) {
+            return result;
+        }
+
+        // Containing areas overlap the area as well, so both queries traverse overlapping boxes.
+        final int[] stack = new int[(height * NODE_CAPACITY) + 1];
+        int top = 0;
+        stack[top] = root;
+        ++top;
+        while (top > 0) {
+            --top;
+            final int box = stack[top];
+            if (overlaps(box, south, west, north, east)) {
+                if (box < nrOfEntries) {
+
+                    // The second box of a wrapped area is skipped if the area was checked for its first box already.
+                    final int first = entryFirstBox[box];
+                    if ((first < 0) || !overlaps(first, south, west, north, east)) {
+                        final T candidate = areas.get(entryArea[box]);
+                        if (containing ? candidate.contains(area) : candidate.overlaps(area)) {
+                            result.add(candidate);
+                        }
+                    }
+                } else {
+                    top = push(stack, top, box);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int push(@Nonnull final int[] stack, final int top, final int node) {
+        assert stack != null;
+        assert node >= nrOfEntries;
+        int newTop = top;
+        for (int child = firstChild[node]; child < (firstChild[node] + childCount[node]); ++child) {
+            stack[newTop] = child;
+            ++newTop;
+        }
+        return newTop;
+    }
+
+    /**
+     * Return whether a (non-wrapped) box overlaps a (possibly wrapped) rectangle.
+     */
+    private boolean overlaps(
+            final int box,
+            final double south, final double west, final double north, final double east) {
+        return GeoRectangle.overlaps(minLat[box], minLon[box], maxLat[box], maxLon[box], south, west, north, east);
+    }
+
+    /**
+     * Return the distance from a point to the nearest point of a box.
+     */
+    private double distanceInMeters(final int box, final double lat, final double lon) {
+        final double nearestLat = MathUtils.limitTo(lat, minLat[box], maxLat[box]);
+        final double nearestLon;
+        if ((lon >= minLon[box]) && (lon <= maxLon[box])) {
+            nearestLon = lon;
+        } else {
+            nearestLon = (degreesLon(lon, minLon[box]) <= degreesLon(lon, maxLon[box])) ? minLon[box] : maxLon[box];
+        }
+        return Geo.distanceInMeters(lat, lon, Double.NaN, nearestLat, nearestLon, Double.NaN);
+    }
+
+    /**
+     * Return the number of degrees between longitudes, along the short side of the Earth.
+     */
+    private static double degreesLon(final double lon1, final double lon2) {
+        final double degrees = Math.abs(lon1 - lon2);
+        return (degrees > 180.0) ? (360.0 - degrees) : degrees;
+    }
+
+    /**
+     * Sort nodes of a level in STR order, moving their boxes and children.
+     */
+    private void sortNodes(final int start, final int count) {
+        final double[] centerLat = new double[count];
+        final double[] centerLon = new double[count];
+        for (int i = 0; i < count; ++i) {
+            centerLat[i] = (minLat[start + i] + maxLat[start + i]) / 2.0;
+            centerLon[i] = (minLon[start + i] + maxLon[start + i]) / 2.0;
+        }
+        final int[] order = sortTileRecursive(centerLat, centerLon);
+        final int end = start + count;
+        final double[] oldMinLat = Arrays.copyOfRange(minLat, start, end);
+        final double[] oldMinLon = Arrays.copyOfRange(minLon, start, end);
+        final double[] oldMaxLat = Arrays.copyOfRange(maxLat, start, end);
+        final double[] oldMaxLon = Arrays.copyOfRange(maxLon, start, end);
+        final int[] oldFirstChild = Arrays.copyOfRange(firstChild, start, end);
+        final int[] oldChildCount = Arrays.copyOfRange(childCount, start, end);
+        for (int i = 0; i < count; ++i) {
+            minLat[start + i] = oldMinLat[order[i]];
+            minLon[start + i] = oldMinLon[order[i]];
+            maxLat[start + i] = oldMaxLat[order[i]];
+            maxLon[start + i] = oldMaxLon[order[i]];
+            firstChild[start + i] = oldFirstChild[order[i]];
+            childCount[start + i] = oldChildCount[order[i]];
+        }
+    }
+
+    /**
+     * Return the STR order of a number of (non-wrapped) boxes, given their centers: the boxes are sorted into
+     * vertical slices by longitude and each slice is sorted by latitude, so consecutive groups of boxes are close
+     * together.
+     */
+    @Nonnull
+    private static int[] sortTileRecursive(@Nonnull final double[] centerLat, @Nonnull final double[] centerLon) {
+        assert centerLat != null;
+        assert centerLon != null;
+        assert centerLat.length == centerLon.length;
+        final int count = centerLat.length;
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; ++i) {
+            order[i] = i;
+        }
+        final int nrOfNodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        final int sliceSize = ((int) Math.ceil(Math.sqrt(nrOfNodes))) * NODE_CAPACITY;
+        Arrays.sort(order, Comparator.comparingDouble(i -> centerLon[i]));
+        for (int i = 0; i < count; i = i + sliceSize) {
+            Arrays.sort(order, i, Math.min(count, i + sliceSize), Comparator.comparingDouble(j -> centerLat[j]));
+        }
+        final int[] result = new int[count];
+        for (int i = 0; i < count; ++i) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Priority queue of boxes, ordered by distance, stored in primitive arrays (binary heap).
+     */
+    private static final class BoxQueue {
+        @Nonnull
+        private double[] distances;
+        @Nonnull
+        private int[] boxes;
+        private int size;
+
+        private BoxQueue(final int capacity) {
+            assert capacity > 0;
+            distances = new double[capacity];
+            boxes = new int[capacity];
+            size = 0;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void add(final double distance, final int box) {
+            if (size == boxes.length) {
+                distances = Arrays.copyOf(distances, size * 2);
+                boxes = Arrays.copyOf(boxes, size * 2);
+            }
+
+            // Sift up.
+            int i = size;
+            ++size;
+            while (i > 0) {
+                final int parent = (i - 1) / 2;
+                if (distances[parent] <= distance) {
+                    break;
+                }
+                distances[i] = distances[parent];
+                boxes[i] = boxes[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            boxes[i] = box;
+        }
+
+        private int removeFirst() {
+            assert size > 0;
+            final int first = boxes[0];
+            --size;
+            final double distance = distances[size];
+            final int box = boxes[size];
+
+            // Sift down.
+            int i = 0;
+            while (true) {
+                int child = (2 * i) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (((child + 1) < size) && (distances[child + 1] < distances[child])) {
+                    ++child;
+                }
+                if (distance <= distances[child]) {
+                    break;
+                }
+                distances[i] = distances[child];
+                boxes[i] = boxes[child];
+                i = child;
+            }
+            distances[i] = distance;
+            boxes[i] = box;
+            return first;
+        }
+    }
+}
@@ -137,7 +137,7 @@ public final class GeoCircle extends Primitive {
 
     @Override
     public boolean contains(@Nonnull final GeoPoint point) {
-        return contains(new GeoRectangle(point, point));
+        return boundingBox().contains(point);
     }
 
     /**
@@ -21,36 +21,62 @@ import com.tomtom.speedtools.objects.Objects;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.BitSet;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * This class deals with GeoHash functionality. Base source taken from LBS team (thanks Eric Bowman).
  *
  * See http://en.wikipedia.org/wiki/Geohash and http://geospatialweb.googlecode.com.
+ *
+ * Hashes are computed by interleaving the bits of the quantized longitude and latitude directly in a long, so no
+ * intermediate strings or bit sets are created. The long-valued hashes are available as well, for example to store
+ * hashes as numbers and query prefix cells as number ranges.
  */
 public final class GeoHash {
     final private String hash;
     final private GeoPoint point;
 
+    /**
+     * Number of bits per coordinate (latitude or longitude) in a full resolution hash.
+     */
     private static final int NUMBER_OF_BITS = 30;
 
+    /**
+     * Number of bits per base32 character and maximum number of characters in a hash. Characters beyond
+     * MAX_LENGTH are ignored when a hash is decoded.
+     */
+    private static final int BITS_PER_CHAR = 5;
+    public static final int MAX_LENGTH = (NUMBER_OF_BITS * 2) / BITS_PER_CHAR;
+
+    /**
+     * Number of bits in a long-valued hash. Long-valued hashes are left-aligned: bit 59 is the first (longitude)
+     * bit, bit 58 the first latitude bit, etc. A hash of n characters uses the top 5n bits; the other bits are 0.
+     */
+    public static final int NUMBER_OF_LONG_BITS = NUMBER_OF_BITS * 2;
+
+    private static final long COORDINATE_MASK = (1L << NUMBER_OF_BITS) - 1L;
+    private static final double COORDINATE_SCALE = (double) (1L << NUMBER_OF_BITS);
+
     private final static char[] digits = {
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
             'b', 'c', 'd', 'e', 'f', 'g', 'h', 'j', 'k', 'm', 'n',
             'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'
     };
 
+    /**
+     * Lookup table from character to base32 value, -1 for invalid characters.
+     */
     @Nonnull
-    private final static HashMap<Character, Integer> lookup = new HashMap<>();
+    private final static int[] lookup = new int[128];
 
     /**
      * Static initialization of class. Fill 'lookup' table.
      */
     static {
+        Arrays.fill(lookup, -1);
         int value = 0;
         for (final char c : digits) {
-            lookup.put(c, value);
+            lookup[c] = value;
             ++value;
         }
     }
@@ -218,6 +244,28 @@ public final class GeoHash {
         return hash.length();
     }
 
+    /**
+     * Return the long-valued representation of this hash. See {@link #NUMBER_OF_LONG_BITS}.
+     *
+     * @return Left-aligned, bit-interleaved hash value.
+     */
+    public long toLong() {
+        return decodeToLong(hash);
+    }
+
+    /**
+     * Return the neighbouring GeoHash of the same resolution. Longitudes wrap around the date line.
+     *
+     * @param deltaLat Number of cells to move north (positive) or south (negative).
+     * @param deltaLon Number of cells to move east (positive) or west (negative).
+     * @return Neighbouring GeoHash, or null if the neighbour would lie beyond a pole.
+     */
+    @Nullable
+    public GeoHash getNeighbour(final int deltaLat, final int deltaLon) {
+        final String neighbour = neighbour(hash, deltaLat, deltaLon);
+        return (neighbour == null) ? null : new GeoHash(neighbour);
+    }
+
     /**
      * Encodes a GeoPoint into a geoHash string.
      *
@@ -232,18 +280,72 @@ public final class GeoHash {
 
     @Nonnull
     public static String encode(final double lat, final double lon) {
-        final BitSet latBits = getBits(lat, -90.0, 90.0);
-        final BitSet lonBits = getBits(lon, -180.0, 180.0);
-        final StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < NUMBER_OF_BITS; ++i) {
-            sb.append((lonBits.get(i)) ? '1' : '0');
-            sb.append((latBits.get(i)) ? '1' : '0');
+        return toHashString(encodeToLong(lat, lon), MAX_LENGTH);
+    }
+
+    /**
+     * Encodes a coordinate into a long-valued, full resolution hash. See {@link #NUMBER_OF_LONG_BITS}.
+     *
+     * @param lat Latitude.
+     * @param lon Longitude.
+     * @return Long-valued hash.
+     */
+    public static long encodeToLong(final double lat, final double lon) {
+        final long latBits = quantize(lat, -90.0, 180.0);
+        final long lonBits = quantize(lon, -180.0, 360.0);
+        return (spread(lonBits) << 1) | spread(latBits);
+    }
+
+    /**
+     * Converts a long-valued hash into a geoHash string.
+     *
+     * @param hash   Long-valued hash.
+     * @param length Number of characters, 1..{@link #MAX_LENGTH}.
+     * @return Hash string.
+     */
+    @Nonnull
+    public static String toHashString(final long hash, final int length) {
+        assert (0 < length) && (length <= MAX_LENGTH) : length;
+        final char[] chars = new char[length];
+        int shift = NUMBER_OF_LONG_BITS - BITS_PER_CHAR;
+        for (int i = 0; i < length; ++i) {
+            //noinspection NumericCastThatLosesPrecision
+            chars[i] = digits[(int) ((hash >>> shift) & 0x1f)];
+            shift = shift - BITS_PER_CHAR;
         }
-        return base32(Long.parseLong(sb.toString(), 2));
+        return new String(chars);
     }
 
     /**
-     * Decodes a geoHash string into a GeoPoint.
+     * Converts a geoHash string into a long-valued hash. The missing bits of shorter hashes are 0.
+     *
+     * @param hash String representation of a GeoHash.
+     * @return Long-valued hash.
+     * @throws IllegalArgumentException when an invalid hash was given.
+     */
+    public static long decodeToLong(@Nonnull final String hash) throws IllegalArgumentException {
+        assert hash != null;
+        if (hash.isEmpty()) {
+            throw new IllegalArgumentException("Invalid GeoHash value.");
+        }
+        final int length = Math.min(hash.length(), MAX_LENGTH);
+        long value = 0;
+        int shift = NUMBER_OF_LONG_BITS - BITS_PER_CHAR;
+        for (int i = 0; i < hash.length(); ++i) {
+            final int digit = digitValue(hash.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid GeoHash value.");
+            }
+            if (i < length) {
+                value = value | (((long) digit) << shift);
+                shift = shift - BITS_PER_CHAR;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a geoHash string into a GeoPoint. The point is the south-west corner of the hash cell.
      *
      * @param hash String representation of a GeoHash.
      * @return The created GeoPoint.
@@ -252,46 +354,108 @@ public final class GeoHash {
     @Nonnull
     public static GeoPoint decode(@Nonnull final String hash) throws IllegalArgumentException {
         assert hash != null;
+        final long value = decodeToLong(hash);
+        return new GeoPoint(decodeLat(value), decodeLon(value));
+    }
 
-        if (!isValid(hash)) {
-            throw new IllegalArgumentException("Invalid GeoHash value.");
-        }
-
-        final StringBuilder sb = new StringBuilder();
-        for (final char c : hash.toCharArray()) {
+    /**
+     * Decodes the latitude of the south-west corner of a long-valued hash.
+     *
+     * @param hash Long-valued hash.
+     * @return Latitude.
+     */
+    public static double decodeLat(final long hash) {
+        return -90.0 + ((compact(hash) * 180.0) / COORDINATE_SCALE);
+    }
 
-            final int i = lookup.get(c) + 32; // Should not return null, already checked.
-            sb.append(Integer.toString(i, 2).substring(1));
-        }
+    /**
+     * Decodes the longitude of the south-west corner of a long-valued hash.
+     *
+     * @param hash Long-valued hash.
+     * @return Longitude.
+     */
+    public static double decodeLon(final long hash) {
+        return -180.0 + ((compact(hash >>> 1) * 360.0) / COORDINATE_SCALE);
+    }
 
-        final BitSet lonSet = new BitSet();
-        final BitSet latSet = new BitSet();
+    /**
+     * Return the smallest long-valued hash which starts with the given prefix. Together with
+     * {@link #prefixRangeMax(long, int)}, this defines the range of all full resolution hashes within the prefix
+     * cell, which can be used for range queries on stored long-valued hashes.
+     *
+     * @param hash   Long-valued hash.
+     * @param length Prefix length in characters, 0..{@link #MAX_LENGTH}.
+     * @return Minimum long-valued hash with prefix (inclusive).
+     */
+    public static long prefixRangeMin(final long hash, final int length) {
+        assert (0 <= length) && (length <= MAX_LENGTH) : length;
+        return hash & ~suffixMask(length);
+    }
 
-        // Even bits.
-        int j = 0;
-        for (int i = 0; i < (NUMBER_OF_BITS * 2); i += 2) {
-            boolean isSet = false;
-            if (i < sb.length()) {
-                isSet = (sb.charAt(i) == '1');
-            }
-            lonSet.set(j, isSet);
-            ++j;
-        }
+    /**
+     * Return the largest long-valued hash which starts with the given prefix. See {@link #prefixRangeMin(long, int)}.
+     *
+     * @param hash   Long-valued hash.
+     * @param length Prefix length in characters, 0..{@link #MAX_LENGTH}.
+     * @return Maximum long-valued hash with prefix (inclusive).
+     */
+    public static long prefixRangeMax(final long hash, final int length) {
+        assert (0 <= length) && (length <= MAX_LENGTH) : length;
+        return (hash & ~suffixMask(length)) | suffixMask(length);
+    }
 
-        // Odd bits.
-        j = 0;
-        for (int i = 1; i < (NUMBER_OF_BITS * 2); i += 2) {
-            boolean isSet = false;
-            if (i < sb.length()) {
-                isSet = (sb.charAt(i) == '1');
-            }
-            latSet.set(j, isSet);
-            ++j;
+    /**
+     * Return the neighbouring geoHash string of the same length. Longitudes wrap around the date line.
+     *
+     * @param hash     String representation of a GeoHash.
+     * @param deltaLat Number of cells to move north (positive) or south (negative).
+     * @param deltaLon Number of cells to move east (positive) or west (negative).
+     * @return Neighbouring hash, or null if the neighbour would lie beyond a pole.
+     * @throws IllegalArgumentException when an invalid hash was given.
+     */
+    @Nullable
+    public static String neighbour(@Nonnull final String hash, final int deltaLat, final int deltaLon)
+            throws IllegalArgumentException {
+        assert hash != null;
+        final int length = Math.min(hash.length(), MAX_LENGTH);
+        final long value = decodeToLong(hash);
+
+        // Compute cell indices at this resolution.
+        final int nrOfBits = length * BITS_PER_CHAR;
+        final int nrOfLonBits = (nrOfBits + 1) / 2;
+        final int nrOfLatBits = nrOfBits / 2;
+        final long latIndex = (compact(value) >>> (NUMBER_OF_BITS - nrOfLatBits)) + deltaLat;
+        final long lonIndex = ((compact(value >>> 1) >>> (NUMBER_OF_BITS - nrOfLonBits)) + deltaLon) &
+                ((1L << nrOfLonBits) - 1L);
+        if ((latIndex < 0) || (latIndex >= (1L << nrOfLatBits))) {
+            return null;
         }
-        final double lon = decode(lonSet, -180.0, 180.0);
-        final double lat = decode(latSet, -90.0, 90.0);
+        final long neighbour = (spread(lonIndex << (NUMBER_OF_BITS - nrOfLonBits)) << 1) |
+                spread(latIndex << (NUMBER_OF_BITS - nrOfLatBits));
+        return toHashString(neighbour, length);
+    }
 
-        return new GeoPoint(lat, lon);
+    /**
+     * Return the 8 neighbours of a geoHash string, in the order N, NE, E, SE, S, SW, W, NW. Neighbours beyond a pole
+     * are null.
+     *
+     * @param hash String representation of a GeoHash.
+     * @return Array of 8 neighbours.
+     * @throws IllegalArgumentException when an invalid hash was given.
+     */
+    @Nonnull
+    public static String[] neighbours(@Nonnull final String hash) throws IllegalArgumentException {
+        assert hash != null;
+        return new String[]{
+                neighbour(hash, 1, 0),
+                neighbour(hash, 1, 1),
+                neighbour(hash, 0, 1),
+                neighbour(hash, -1, 1),
+                neighbour(hash, -1, 0),
+                neighbour(hash, -1, -1),
+                neighbour(hash, 0, -1),
+                neighbour(hash, 1, -1)
+        };
     }
 
     /**
@@ -304,8 +468,8 @@ public final class GeoHash {
         if (hash == null) {
             return false;
         }
-        for (final char c : hash.toCharArray()) {
-            if (lookup.get(c) == null) {
+        for (int i = 0; i < hash.length(); ++i) {
+            if (digitValue(hash.charAt(i)) < 0) {
                 return false;
             }
         }
@@ -313,85 +477,61 @@ public final class GeoHash {
         return !hash.isEmpty();
     }
 
+    private static int digitValue(final char c) {
+        return (c < lookup.length) ? lookup[c] : -1;
+    }
+
+    private static long suffixMask(final int length) {
+        final int nrOfSuffixBits = NUMBER_OF_LONG_BITS - (length * BITS_PER_CHAR);
+        return (nrOfSuffixBits == 0) ? 0L : ((1L << nrOfSuffixBits) - 1L);
+    }
+
     /**
-     * Decodes a given bitSet.
+     * Converts a latitude or longitude within a range into a 30-bit cell index. This equals the bits produced by
+     * repeatedly bisecting the range.
      *
-     * @param bitSet The BitSet to be decoded.
-     * @return True if this GeoHash contains the other one.
+     * @param degrees Latitude or longitude.
+     * @param min     Bottom value of the degree range.
+     * @param range   Size of the degree range.
+     * @return Cell index, 0..2^30-1.
      */
-    private static double decode(@Nonnull final BitSet bitSet, final double min, final double max) {
-        assert bitSet != null;
-        double floor = min;
-        double ceil = max;
-        double mid = 0;
-        for (int i = 0; i < bitSet.length(); ++i) {
-            mid = (floor + ceil) / 2;
-            if (bitSet.get(i)) {
-                floor = mid;
-            } else {
-                ceil = mid;
-            }
-        }
-        return mid;
+    private static long quantize(final double degrees, final double min, final double range) {
+        //noinspection NumericCastThatLosesPrecision
+        final long index = (long) Math.floor(((degrees - min) / range) * COORDINATE_SCALE);
+        return Math.max(0L, Math.min(COORDINATE_MASK, index));
     }
 
     /**
-     * Converts a latitude or longitude within a range into a BitSet.
+     * Spreads the lower 30 bits of a value over the even bit positions of a long (bit i moves to bit 2i).
      *
-     * @param degrees Double representation of the latitude or longitude.
-     * @param min     Bottom value of the degree range.
-     * @param max     Top value of the degree range.
-     * @return The created BitSet.
+     * @param value Value, only lower 30 bits are used.
+     * @return Spread value.
      */
-    @Nonnull
-    private static BitSet getBits(final double degrees, final double min, final double max) {
-        double floor = min;
-        double ceil = max;
-        final BitSet bitSet = new BitSet(NUMBER_OF_BITS);
-        for (int i = 0; i < NUMBER_OF_BITS; i++) {
-            final double mid = (floor + ceil) / 2;
-            if (degrees >= mid) {
-                bitSet.set(i);
-                floor = mid;
-            } else {
-                ceil = mid;
-            }
-        }
-        return bitSet;
+    private static long spread(final long value) {
+        long x = value & COORDINATE_MASK;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
     }
 
     /**
-     * Converts a long value into a base32 string.
+     * Compacts the even bit positions of a long into the lower 30 bits (bit 2i moves to bit i). Inverse of
+     * {@link #spread(long)}.
      *
-     * @param value Value to be encoded.
-     * @return The created base32 string.
+     * @param value Value, only even bits are used.
+     * @return Compacted value.
      */
-    @Nonnull
-    private static String base32(final long value) {
-        long nr = value;
-        final char[] buf = new char[65];
-        int charPos = 64;
-        final boolean negative = (nr < 0);
-        if (!negative) {
-            nr = -nr;
-        }
-        while (nr <= -32) {
-            // Note: nr % 32 is always in the range of int; hence the noinspection.
-            //noinspection NumericCastThatLosesPrecision
-            buf[charPos] = digits[(int) (-(nr % 32))];
-            --charPos;
-            nr /= 32;
-        }
-        assert (-32 < nr) && (nr <= 0);
-        // Note: nr is always in the range of int; hence the noinspection.
-        //noinspection NumericCastThatLosesPrecision
-        buf[charPos] = digits[(int) (-nr)];
-
-        if (negative) {
-            --charPos;
-            buf[charPos] = '-';
-        }
-        return new String(buf, charPos, (65 - charPos));
+    private static long compact(final long value) {
+        long x = value & 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return x & COORDINATE_MASK;
     }
 
     /**
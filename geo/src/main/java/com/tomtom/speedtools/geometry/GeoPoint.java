@@ -16,6 +16,10 @@
 
 package com.tomtom.speedtools.geometry;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.Nulls;
 import com.tomtom.speedtools.utils.MathUtils;
 
 import javax.annotation.Nonnull;
@@ -28,17 +32,20 @@ import javax.annotation.concurrent.Immutable;
  * but it is assumed to be really absent (and will, for example, not be output in
  * string conversions either).
  *
+ * The coordinates are stored as primitive doubles, with NaN representing an absent elevation, so a point
+ * is a single object. Use the primitive getters, like {@link #getLatValue()}, in inner loops to avoid boxing.
+ * For large numbers of points, consider a {@link GeoPointArray}.
+ *
  * Constructor: {@link #GeoPoint}
  */
 @Immutable
 public final class GeoPoint extends GeoObject {
 
-    @Nonnull
-    private final Double lat;
-    @Nonnull
-    private final Double lon;
-    @Nullable
-    private final Double elevationMeters;   // Null if absent.
+    private final double lat;
+    private final double lon;
+    @JsonInclude(value = Include.CUSTOM, valueFilter = NaNFilter.class)
+    @JsonSetter(nulls = Nulls.SKIP)         // An explicit null keeps NaN, rather than 0.0.
+    private final double elevationMeters;   // NaN if absent.
 
     /**
      * Create a 2D or 3D point.
@@ -57,7 +64,7 @@ public final class GeoPoint extends GeoObject {
         assert MathUtils.isBetween(lat, -90.0, 90.0) : "Latitude not in [-90, 90]: " + lat;
         this.lat = lat;
         this.lon = Geo.mapToLon(lon);
-        this.elevationMeters = (elevationMeters == null) ? null : ((elevationMeters.equals(Double.NaN)) ? null : elevationMeters);
+        this.elevationMeters = (elevationMeters == null) ? Double.NaN : elevationMeters;
     }
 
     /**
@@ -79,9 +86,9 @@ public final class GeoPoint extends GeoObject {
     @Deprecated
     private GeoPoint() {
         super();
-        lat = null;
-        lon = null;
-        elevationMeters = null;
+        lat = 0.0;
+        lon = 0.0;
+        elevationMeters = Double.NaN;
     }
 
     /**
@@ -126,6 +133,42 @@ public final class GeoPoint extends GeoObject {
         return lon;
     }
 
+    /**
+     * Get latitude as a primitive, without boxing. Same as {@link #getLat()}.
+     *
+     * @return Latitude (North-South angle).
+     */
+    public double getLatValue() {
+        return lat;
+    }
+
+    /**
+     * Get longitude as a primitive, without boxing. Same as {@link #getLon()}.
+     *
+     * @return Longitude (West-East angle).
+     */
+    public double getLonValue() {
+        return lon;
+    }
+
+    /**
+     * Get elevation as a primitive, without boxing. Same as {@link #getElevationMetersOrNaN()}.
+     *
+     * @return Elevation in meters, or NaN if absent.
+     */
+    public double getElevationMetersValue() {
+        return elevationMeters;
+    }
+
+    /**
+     * Return whether the point has an elevation.
+     *
+     * @return True if the elevation is present.
+     */
+    public boolean hasElevation() {
+        return !Double.isNaN(elevationMeters);
+    }
+
     /**
      * Get elevation (in meters), or NaN if the elevation is absent.
      * Note that the return cannot be null (but it can be NaN)!
@@ -147,7 +190,7 @@ public final class GeoPoint extends GeoObject {
      */
     @Nonnull
     public Double getElevationMetersOrNaN() {
-        return (elevationMeters == null) ? Double.NaN : elevationMeters;
+        return elevationMeters;
     }
 
     /**
@@ -158,7 +201,7 @@ public final class GeoPoint extends GeoObject {
      */
     @Nullable
     public Double getElevationMeters() {
-        return elevationMeters;
+        return Double.isNaN(elevationMeters) ? null : elevationMeters;
     }
 
     /**
@@ -206,7 +249,7 @@ public final class GeoPoint extends GeoObject {
                 newLon -= 360.0;
             }
         }
-        final double newElevationMeters = getElevationMetersOrNaN() + vector.getElevationMeters();
+        final double newElevationMeters = elevationMeters + vector.getElevationMeters();
         return new GeoPoint(newLat, newLon, newElevationMeters);
     }
 
@@ -248,13 +291,9 @@ public final class GeoPoint extends GeoObject {
             final GeoPoint that = (GeoPoint) obj;
             eq = that.canEqual(this);
             // Top-level entity, so don't: super.equals(that)
-            eq = eq && lat.equals(that.lat);
-            eq = eq && lon.equals(that.lon);
-            if (elevationMeters == null) {
-                eq = eq && (that.elevationMeters == null);
-            } else {
-                eq = eq && elevationMeters.equals(that.elevationMeters);
-            }
+            eq = eq && (Double.compare(lat, that.lat) == 0);
+            eq = eq && (Double.compare(lon, that.lon) == 0);
+            eq = eq && (Double.compare(elevationMeters, that.elevationMeters) == 0);
         } else {
             eq = false;
         }
@@ -264,6 +303,28 @@ public final class GeoPoint extends GeoObject {
 
     @Override
     public int hashCode() {
-        return hashCodeSuper((Object[]) new Double[]{lat, lon, elevationMeters});
+
+        // Same as hashCodeSuper(lat, lon, elevationMeters), with an absent elevation as null, but without boxing.
+        int hash = 31 + Double.hashCode(lat);
+        hash = (31 * hash) + Double.hashCode(lon);
+        hash = (31 * hash) + (Double.isNaN(elevationMeters) ? 0 : Double.hashCode(elevationMeters));
+        return hash;
+    }
+
+    /**
+     * Json value filter to omit an absent (NaN) elevation, like a null value would be omitted.
+     */
+    @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+    private static final class NaNFilter {
+
+        @Override
+        public boolean equals(@Nullable final Object obj) {
+            return (obj instanceof Double) && ((Double) obj).isNaN();
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
     }
 }
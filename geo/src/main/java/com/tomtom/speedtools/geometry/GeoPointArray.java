@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.geometry;
+
+import com.tomtom.speedtools.utils.MathUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Columnar array of points. The latitudes, longitudes and elevations are stored in separate primitive arrays,
+ * so a large number of points can be stored and processed without creating a {@link GeoPoint} per point.
+ * An absent elevation is stored as NaN.
+ *
+ * Constructor: {@link #GeoPointArray}
+ */
+@Immutable
+public final class GeoPointArray {
+
+    @Nonnull
+    public static final GeoPointArray EMPTY = new GeoPointArray(new double[0], new double[0], null);
+
+    @Nonnull
+    private final double[] lats;
+    @Nonnull
+    private final double[] lons;
+    @Nonnull
+    private final double[] elevationsMeters;
+
+    /**
+     * Create a point array. The arrays are copied.
+     *
+     * @param lats             Latitudes, must be in [-90, 90].
+     * @param lons             Longitudes, any range, will be wrapped to [-180, 180).
+     * @param elevationsMeters Elevations in meters, NaN if absent. If null, all elevations are absent.
+     *                         All arrays must have the same length.
+     */
+    public GeoPointArray(
+            @Nonnull final double[] lats,
+            @Nonnull final double[] lons,
+            @Nullable final double[] elevationsMeters) {
+        super();
+        assert lats != null;
+        assert lons != null;
+        assert lats.length == lons.length : "Different lengths: " + lats.length + ", " + lons.length;
+        assert (elevationsMeters == null) || (elevationsMeters.length == lats.length) :
+                "Different lengths: " + lats.length + ", " + elevationsMeters.length;
+        final int size = lats.length;
+        this.lats = Arrays.copyOf(lats, size);
+        this.lons = new double[size];
+        for (int i = 0; i < size; ++i) {
+            assert MathUtils.isBetween(lats[i], -90.0, 90.0) : "Latitude not in [-90, 90]: " + lats[i];
+            this.lons[i] = Geo.mapToLon(lons[i]);
+        }
+        if (elevationsMeters == null) {
+            this.elevationsMeters = new double[size];
+            Arrays.fill(this.elevationsMeters, Double.NaN);
+        } else {
+            this.elevationsMeters = Arrays.copyOf(elevationsMeters, size);
+        }
+    }
+
+    /**
+     * Create a point array from a collection of points.
+     *
+     * @param points Points.
+     * @return Point array, with the points in iteration order.
+     */
+    @Nonnull
+    public static GeoPointArray fromPoints(@Nonnull final Collection<GeoPoint> points) {
+        assert points != null;
+        final int size = points.size();
+        final double[] lats = new double[size];
+        final double[] lons = new double[size];
+        final double[] elevationsMeters = new double[size];
+        int i = 0;
+        for (final GeoPoint point : points) {
+            lats[i] = point.getLatValue();
+            lons[i] = point.getLonValue();
+            elevationsMeters[i] = point.getElevationMetersValue();
+            ++i;
+        }
+        assert i == size;
+        return new GeoPointArray(lats, lons, elevationsMeters);
+    }
+
+    /**
+     * Get number of points.
+     *
+     * @return Number of points, &gt;= 0.
+     */
+    public int size() {
+        return lats.length;
+    }
+
+    /**
+     * Return whether the array is empty.
+     *
+     * @return True if the array contains no points.
+     */
+    public boolean isEmpty() {
+        return lats.length == 0;
+    }
+
+    /**
+     * Get latitude of a point.
+     *
+     * @param i Index, must be in [0, size - 1].
+     * @return Latitude.
+     */
+    public double getLat(final int i) {
+        assert (0 <= i) && (i < lats.length) : i;
+        return lats[i];
+    }
+
+    /**
+     * Get longitude of a point.
+     *
+     * @param i Index, must be in [0, size - 1].
+     * @return Longitude.
+     */
+    public double getLon(final int i) {
+        assert (0 <= i) && (i < lons.length) : i;
+        return lons[i];
+    }
+
+    /**
+     * Get elevation of a point.
+     *
+     * @param i Index, must be in [0, size - 1].
+     * @return Elevation in meters, or NaN if absent.
+     */
+    public double getElevationMetersOrNaN(final int i) {
+        assert (0 <= i) && (i < elevationsMeters.length) : i;
+        return elevationsMeters[i];
+    }
+
+    /**
+     * Get a point. This creates a new {@link GeoPoint}.
+     *
+     * @param i Index, must be in [0, size - 1].
+     * @return Point.
+     */
+    @Nonnull
+    public GeoPoint get(final int i) {
+        assert (0 <= i) && (i < lats.length) : i;
+        return new GeoPoint(lats[i], lons[i], elevationsMeters[i]);
+    }
+
+    /**
+     * Get all points as a list. This creates a new {@link GeoPoint} per point.
+     *
+     * @return Points.
+     */
+    @Nonnull
+    public List<GeoPoint> toList() {
+        final List<GeoPoint> points = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; ++i) {
+            points.add(get(i));
+        }
+        return points;
+    }
+
+    /**
+     * Return the distance between a point and the next point.
+     *
+     * @param i Index, must be in [0, size - 2].
+     * @return Length in meters of the line segment from point i to point i + 1. This is the same as
+     * the length of the {@link GeoLine} between the points.
+     */
+    public double getSegmentLengthMeters(final int i) {
+        assert (0 <= i) && (i < (lats.length - 1)) : i;
+        final int j = i + 1;
+
+        // Just like GeoLine, use the southern latitude first, which gives identical results.
+        return Geo.distanceInMeters(
+                Math.min(lats[i], lats[j]), lons[i], elevationsMeters[i],
+                Math.max(lats[i], lats[j]), lons[j], elevationsMeters[j]);
+    }
+
+    /**
+     * Return length of the line through all points in meters (approximation).
+     *
+     * @return Length in meters, 0 if there are fewer than 2 points.
+     */
+    public double getLengthMeters() {
+        double meters = 0.0;
+        for (int i = 0; i < (lats.length - 1); ++i) {
+            meters += getSegmentLengthMeters(i);
+        }
+        return meters;
+    }
+
+    /**
+     * Copy the latitudes to an array.
+     *
+     * @param dest       Destination array.
+     * @param destOffset Offset in destination array.
+     */
+    public void copyLats(@Nonnull final double[] dest, final int destOffset) {
+        assert dest != null;
+        System.arraycopy(lats, 0, dest, destOffset, lats.length);
+    }
+
+    /**
+     * Copy the longitudes to an array.
+     *
+     * @param dest       Destination array.
+     * @param destOffset Offset in destination array.
+     */
+    public void copyLons(@Nonnull final double[] dest, final int destOffset) {
+        assert dest != null;
+        System.arraycopy(lons, 0, dest, destOffset, lons.length);
+    }
+
+    /**
+     * Copy the elevations to an array. Absent elevations are NaN.
+     *
+     * @param dest       Destination array.
+     * @param destOffset Offset in destination array.
+     */
+    public void copyElevationsMeters(@Nonnull final double[] dest, final int destOffset) {
+        assert dest != null;
+        System.arraycopy(elevationsMeters, 0, dest, destOffset, elevationsMeters.length);
+    }
+
+    public boolean canEqual(@Nonnull final Object obj) {
+        assert obj != null;
+        return obj instanceof GeoPointArray;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        boolean eq;
+        if (this == obj) {
+            eq = true;
+        } else if ((obj != null) && (obj instanceof GeoPointArray)) {
+            final GeoPointArray that = (GeoPointArray) obj;
+            eq = that.canEqual(this);
+            // Top-level entity, don't check for super.equals(that).
+            eq = eq && Arrays.equals(lats, that.lats);
+            eq = eq && Arrays.equals(lons, that.lons);
+            eq = eq && Arrays.equals(elevationsMeters, that.elevationsMeters);
+        } else {
+            eq = false;
+        }
+        return eq;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode(lats);
+        hash = (31 * hash) + Arrays.hashCode(lons);
+        hash = (31 * hash) + Arrays.hashCode(elevationsMeters);
+        return hash;
+    }
+}
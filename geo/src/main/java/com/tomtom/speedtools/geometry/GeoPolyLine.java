@@ -35,6 +35,10 @@ public final class GeoPolyLine extends GeoObject {
     @Nonnull
     private final List<GeoPoint> points;
 
+    // Columnar copy of the points for bulk operations, created on first use.
+    @Nullable
+    private transient volatile GeoPointArray pointArray;
+
     /**
      * Create a polyline. A polyline is defined as a series of (shortest) lines between consecutive points.
      *
@@ -82,6 +86,15 @@ public final class GeoPolyLine extends GeoObject {
         this.points = Immutables.listOf(elevatedPoints);
     }
 
+    /**
+     * Create a polyline from a point array. See {@link #GeoPolyLine(List)}.
+     *
+     * @param points Points. Must contain at least 2 points.
+     */
+    public GeoPolyLine(@Nonnull final GeoPointArray points) {
+        this(points.toList());
+    }
+
     /**
      * Default constructor, used for deserialization only.
      */
@@ -155,25 +168,30 @@ public final class GeoPolyLine extends GeoObject {
      */
     @Nonnull
     public GeoPoint getPointAtOffset(final double offsetInMeters) {
-        final List<GeoLine> lines = asLines();
-        assert !lines.isEmpty();
+
+        // Find the segment using the point array, so only the line of that segment is created.
+        final GeoPointArray pointArray = asPointArray();
+        final double lengthMeters = pointArray.getLengthMeters();
+        final int nrOfLines = points.size() - 1;
+        assert nrOfLines > 0;
         int index = 0;
-        GeoLine line;
+        double lineLengthMeters;
         double nextOffset;
         if (offsetInMeters < 0.0) {
-            nextOffset = Math.max(0.0, getLengthMeters() + offsetInMeters);
+            nextOffset = Math.max(0.0, lengthMeters + offsetInMeters);
         } else {
-            nextOffset = Math.min(getLengthMeters(), offsetInMeters);
+            nextOffset = Math.min(lengthMeters, offsetInMeters);
         }
         double offset;
         do {
             offset = nextOffset;
-            line = lines.get(index);
-            nextOffset = offset - line.getLengthMeters();
+            lineLengthMeters = pointArray.getSegmentLengthMeters(index);
+            nextOffset = offset - lineLengthMeters;
             ++index;
-        } while ((nextOffset > 0.0) && (index < lines.size()));
-        assert (0.0 <= offset) && (offset <= line.getLengthMeters());
-        final double ratio = offset / line.getLengthMeters();
+        } while ((nextOffset > 0.0) && (index < nrOfLines));
+        assert (0.0 <= offset) && (offset <= lineLengthMeters);
+        final GeoLine line = getLine(index - 1);
+        final double ratio = offset / lineLengthMeters;
         final double northing = line.getNorthing() * ratio;
         final double easting = line.getEasting() * ratio;
         final GeoPoint point = line.getOrigin().translate(new GeoVector(northing, easting));
@@ -201,6 +219,24 @@ public final class GeoPolyLine extends GeoObject {
         return points.get(i);
     }
 
+    /**
+     * Get the points of the polyline as a point array, for bulk operations which should not allocate
+     * objects per point.
+     *
+     * @return Point array.
+     */
+    @Nonnull
+    public GeoPointArray asPointArray() {
+        GeoPointArray result = pointArray;
+        if (result == null) {
+
+            // Benign race: at worst, the array is created more than once.
+            result = GeoPointArray.fromPoints(points);
+            pointArray = result;
+        }
+        return result;
+    }
+
     /**
      * Get the polyline as a series of connected lines.
      *
@@ -258,13 +294,7 @@ public final class GeoPolyLine extends GeoObject {
      * @return Length in meters.
      */
     public double getLengthMeters() {
-        double meters = 0.0;
-        GeoPoint prevPoint = points.get(0);
-        for (final GeoPoint point : points) {
-            meters += new GeoLine(prevPoint, point).getLengthMeters();
-            prevPoint = point;
-        }
-        return meters;
+        return asPointArray().getLengthMeters();
     }
 
     @Override
@@ -0,0 +1,616 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.geometry;
+
+import com.tomtom.speedtools.objects.Immutables;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a polygon primitive, defined by an outer ring of points and an optional list of holes. The rings are
+ * implicitly closed: the last point is connected to the first point. Consecutive points are connected via the
+ * shortest line, so a polygon may cross the 180th meridian. A polygon may not contain one of the poles.
+ *
+ * Holes are polygons themselves (without holes), which must lie within the outer ring and must not overlap each
+ * other.
+ *
+ * Point-in-polygon tests use an edge index, which is created on first use. The edges are bucketed into horizontal
+ * slabs of equal height, so a test only needs to check the edges in a single slab, rather than all edges.
+ *
+ * Constructor: {@link #GeoPolygon}
+ */
+@Immutable
+public final class GeoPolygon extends Primitive {
+
+    // Average number of edges per slab in the edge index.
+    private static final int EDGES_PER_SLAB = 4;
+
+    // Maximum number of slabs in the edge index.
+    private static final int MAX_SLABS = 4096;
+
+    @Nonnull
+    private final List<GeoPoint> points;
+    @Nonnull
+    private final List<GeoPolygon> holes;
+
+    // Edge index, created on first use.
+    @Nullable
+    private transient volatile EdgeIndex edgeIndex;
+
+    /**
+     * Create a polygon geo area.
+     *
+     * @param points Points of the outer ring. Must contain at least 3 points. If the last point equals the first
+     *               point, the last point is ignored.
+     * @param holes  Holes in the polygon. Holes must not have holes themselves.
+     */
+    public GeoPolygon(
+            @Nonnull final List<GeoPoint> points,
+            @Nonnull final List<GeoPolygon> holes) {
+        super();
+        assert points != null;
+        assert holes != null;
+        final int size = isClosed(points) ? (points.size() - 1) : points.size();
+        assert size >= 3 : "Polygon must have at least 3 points: " + points;
+        assert holes.stream().allMatch(x -> x.holes.isEmpty()) : "Holes must not have holes: " + holes;
+        this.points = Immutables.listOf(points.subList(0, size));
+        this.holes = Immutables.listOf(holes);
+    }
+
+    /**
+     * Create a polygon geo area without holes.
+     *
+     * @param points Points of the outer ring. Must contain at least 3 points.
+     */
+    public GeoPolygon(@Nonnull final List<GeoPoint> points) {
+        this(points, Collections.emptyList());
+    }
+
+    /**
+     * Default constructor, used for deserialization only.
+     */
+    @SuppressWarnings({"ConstantConditions", "UnusedDeclaration"})
+    @Deprecated
+    private GeoPolygon() {
+        super();
+        points = null;
+        holes = null;
+    }
+
+    /**
+     * Get the points of the outer ring.
+     *
+     * @return Points, at least 3. The ring is implicitly closed.
+     */
+    @Nonnull
+    public List<GeoPoint> getPoints() {
+        return points;
+    }
+
+    /**
+     * Get the holes.
+     *
+     * @return Holes, may be empty.
+     */
+    @Nonnull
+    public List<GeoPolygon> getHoles() {
+        return holes;
+    }
+
+    /**
+     * Setter for {@link #getPoints()}.
+     *
+     * @param points Points.
+     * @return New polygon.
+     */
+    @Nonnull
+    public GeoPolygon withPoints(@Nonnull final List<GeoPoint> points) {
+        return new GeoPolygon(points, holes);
+    }
+
+    /**
+     * Setter for {@link #getHoles()}.
+     *
+     * @param holes Holes.
+     * @return New polygon.
+     */
+    @Nonnull
+    public GeoPolygon withHoles(@Nonnull final List<GeoPolygon> holes) {
+        return new GeoPolygon(points, holes);
+    }
+
+    /**
+     * Get the number of edges of the polygon, including the edges of the holes.
+     *
+     * @return Number of edges.
+     */
+    public int getNrOfEdges() {
+        return getEdgeIndex().size;
+    }
+
+    /**
+     * Returns whether the polygon overlaps another area. The other area is approximated by its bounding box, but the
+     * polygon itself is not, so a rectangle which lies in a hole of the polygon does not overlap it.
+     *
+     * @param area Area to check if overlaps.
+     * @return True if overlaps.
+     */
+    @Override
+    public boolean overlaps(@Nonnull final GeoArea area) {
+        assert area != null;
+        final EdgeIndex index = getEdgeIndex();
+        for (final GeoRectangle rect : area.boundingBox().pixelate()) {
+            final double south = rect.getSouthWest().getLatValue();
+            final double north = rect.getNorthEast().getLatValue();
+            final double west = rect.getSouthWest().getLonValue();
+            final double east = rect.getNorthEast().getLonValue();
+            for (double shift = -360.0; shift <= 360.0; shift += 360.0) {
+                if (index.overlaps(south, west + shift, north, east + shift)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the polygon contains another area. The other area is approximated by its bounding box, which
+     * must lie inside the outer ring and must not overlap any of the holes.
+     *
+     * @param area Area to check if it is contained.
+     * @return True if contains.
+     */
+    @Override
+    public boolean contains(@Nonnull final GeoArea area) {
+        assert area != null;
+        final EdgeIndex index = getEdgeIndex();
+        for (final GeoRectangle rect : area.boundingBox().pixelate()) {
+            final double south = rect.getSouthWest().getLatValue();
+            final double north = rect.getNorthEast().getLatValue();
+            final double west = rect.getSouthWest().getLonValue();
+            final double east = rect.getNorthEast().getLonValue();
+            boolean contained = false;
+            for (double shift = -360.0; !contained && (shift <= 360.0); shift += 360.0) {
+                contained = index.contains(south, west + shift, north, east + shift);
+            }
+            if (!contained) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(@Nonnull final GeoPoint point) {
+        assert point != null;
+        return getEdgeIndex().containsPoint(point.getLatValue(), point.getLonValue());
+    }
+
+    /**
+     * Returns whether the polygon contains a point. This is the allocation-free equivalent of {@link
+     * #contains(GeoPoint)}.
+     *
+     * @param lat Latitude of point.
+     * @param lon Longitude of point, in [-180, 180).
+     * @return True if the polygon contains the point.
+     */
+    public boolean contains(final double lat, final double lon) {
+        return getEdgeIndex().containsPoint(lat, lon);
+    }
+
+    /**
+     * The bounding box of the outer ring. The bounding box is wrapped if the polygon crosses the 180th meridian.
+     *
+     * @return Bounding box.
+     */
+    @Override
+    @Nonnull
+    public GeoRectangle boundingBox() {
+        final EdgeIndex index = getEdgeIndex();
+        return new GeoRectangle(
+                new GeoPoint(index.minLat, index.minLon),
+                new GeoPoint(index.maxLat, index.maxLon));
+    }
+
+    @Nonnull
+    @Override
+    public GeoPolygon translate(@Nonnull final GeoVector vector) {
+        assert vector != null;
+        final List<GeoPolygon> translatedHoles = new ArrayList<>(holes.size());
+        for (final GeoPolygon hole : holes) {
+            translatedHoles.add(hole.translate(vector));
+        }
+        return new GeoPolygon(translatePoints(points, vector), translatedHoles);
+    }
+
+    /**
+     * Move the polygon, such that the south-west corner of its bounding box is at the given origin.
+     *
+     * @param origin New origin of polygon.
+     * @return New polygon.
+     */
+    @Nonnull
+    @Override
+    public GeoPolygon moveTo(@Nonnull final GeoPoint origin) {
+        assert origin != null;
+        final double northing = origin.getLat() - boundingBox().getSouthWest().getLat();
+        final double easting = origin.getLon() - boundingBox().getSouthWest().getLon();
+        return translate(new GeoVector(northing, easting));
+    }
+
+    @Override
+    @Nonnull
+    public Collection<GeoRectangle> pixelate() {
+        final Collection<GeoRectangle> rects = new ArrayList<>();
+        rects.addAll(boundingBox().pixelate());
+        assert rects.size() >= 1;
+        return rects;
+    }
+
+    @Override
+    public boolean canEqual(@Nonnull final Object obj) {
+        assert obj != null;
+        return obj instanceof GeoPolygon;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        boolean eq;
+        if (this == obj) {
+            eq = true;
+        } else if ((obj != null) && (obj instanceof GeoPolygon)) {
+            final GeoPolygon that = (GeoPolygon) obj;
+            eq = that.canEqual(this);
+            // Top-level entity, so don't: super.equals(that)
+            eq = eq && points.equals(that.points);
+            eq = eq && holes.equals(that.holes);
+        } else {
+            eq = false;
+        }
+
+        return eq;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCodeSuper(points, holes);
+    }
+
+    @Nonnull
+    private EdgeIndex getEdgeIndex() {
+        EdgeIndex index = edgeIndex;
+        if (index == null) {
+
+            // Creating the index more than once is harmless: the result is always the same.
+            index = new EdgeIndex(this);
+            edgeIndex = index;
+        }
+        return index;
+    }
+
+    private static boolean isClosed(@Nonnull final List<GeoPoint> points) {
+        assert points != null;
+        if (points.size() < 2) {
+            return false;
+        }
+        final GeoPoint first = points.get(0);
+        final GeoPoint last = points.get(points.size() - 1);
+        return (Double.compare(first.getLatValue(), last.getLatValue()) == 0) &&
+                (Double.compare(first.getLonValue(), last.getLonValue()) == 0);
+    }
+
+    @Nonnull
+    private static List<GeoPoint> translatePoints(@Nonnull final List<GeoPoint> points, @Nonnull final GeoVector vector) {
+        assert points != null;
+        assert vector != null;
+        final List<GeoPoint> translated = new ArrayList<>(points.size());
+        for (final GeoPoint point : points) {
+            translated.add(point.translate(vector));
+        }
+        return translated;
+    }
+
+    /**
+     * Return the longitude difference from lon1 to lon2, via the shortest way.
+     *
+     * @param lon1 From longitude.
+     * @param lon2 To longitude.
+     * @return Difference, in [-180, 180).
+     */
+    private static double deltaLon(final double lon1, final double lon2) {
+        double delta = lon2 - lon1;
+        if (delta < -180.0) {
+            delta += 360.0;
+        } else if (delta >= 180.0) {
+            delta -= 360.0;
+        }
+        return delta;
+    }
+
+    /**
+     * Edge index of a polygon. The edges of all rings are stored in primitive arrays, with the longitudes "unwrapped":
+     * consecutive longitudes never differ more than 180 degrees, so an edge which crosses the 180th meridian is not
+     * split. The minimum longitude of the polygon is in [-180, 180), the maximum longitude may exceed 180.
+     *
+     * The edges are bucketed into horizontal slabs. An edge is added to every slab its latitude range overlaps.
+     * Holes are simply additional rings: the even-odd rule makes points inside holes lie outside the polygon.
+     */
+    private static final class EdgeIndex {
+        private final int size;
+        @Nonnull
+        private final double[] lats1;
+        @Nonnull
+        private final double[] lons1;
+        @Nonnull
+        private final double[] lats2;
+        @Nonnull
+        private final double[] lons2;
+
+        // Bounds of the outer ring, with unwrapped longitudes.
+        private final double minLat;
+        private final double maxLat;
+        private final double minLon;
+        private final double maxLon;
+
+        // The edges of slab i are slabEdges[slabStart[i]] .. slabEdges[slabStart[i + 1] - 1].
+        private final int nrOfSlabs;
+        private final double slabHeight;
+        @Nonnull
+        private final int[] slabStart;
+        @Nonnull
+        private final int[] slabEdges;
+
+        private EdgeIndex(@Nonnull final GeoPolygon polygon) {
+            assert polygon != null;
+            int nrOfEdges = polygon.points.size();
+            for (final GeoPolygon hole : polygon.holes) {
+                nrOfEdges += hole.points.size();
+            }
+            size = nrOfEdges;
+            lats1 = new double[size];
+            lons1 = new double[size];
+            lats2 = new double[size];
+            lons2 = new double[size];
+
+            // Add outer ring and move it such that its minimum longitude is in [-180, 180).
+            addRing(polygon.points, 0, Double.NaN);
+            final int n = polygon.points.size();
+            double south = Double.MAX_VALUE;
+            double north = -Double.MAX_VALUE;
+            double west = Double.MAX_VALUE;
+            double east = -Double.MAX_VALUE;
+            for (int i = 0; i < n; ++i) {
+                south = Math.min(south, lats1[i]);
+                north = Math.max(north, lats1[i]);
+                west = Math.min(west, lons1[i]);
+                east = Math.max(east, lons1[i]);
+            }
+            if (west < -180.0) {
+                for (int i = 0; i < n; ++i) {
+                    lons1[i] += 360.0;
+                    lons2[i] += 360.0;
+                }
+                west += 360.0;
+                east += 360.0;
+            }
+            assert (east - west) < 360.0 : "Polygon spans all longitudes: " + polygon.points;
+            minLat = south;
+            maxLat = north;
+            minLon = west;
+            maxLon = east;
+
+            // Add holes, in the same longitude range as the outer ring.
+            int offset = n;
+            for (final GeoPolygon hole : polygon.holes) {
+                addRing(hole.points, offset, minLon);
+                offset += hole.points.size();
+            }
+            assert offset == size;
+
+            // Bucket edges into slabs, using counting sort.
+            nrOfSlabs = Math.max(1, Math.min(MAX_SLABS, size / EDGES_PER_SLAB));
+            slabHeight = (maxLat - minLat) / nrOfSlabs;
+            slabStart = new int[nrOfSlabs + 1];
+            for (int i = 0; i < size; ++i) {
+                final int last = slabOf(Math.max(lats1[i], lats2[i]));
+                for (int slab = slabOf(Math.min(lats1[i], lats2[i])); slab <= last; ++slab) {
+                    ++slabStart[slab + 1];
+                }
+            }
+            for (int slab = 0; slab < nrOfSlabs; ++slab) {
+                slabStart[slab + 1] += slabStart[slab];
+            }
+            slabEdges = new int[slabStart[nrOfSlabs]];
+            final int[] next = new int[nrOfSlabs];
+            System.arraycopy(slabStart, 0, next, 0, nrOfSlabs);
+            for (int i = 0; i < size; ++i) {
+                final int last = slabOf(Math.max(lats1[i], lats2[i]));
+                for (int slab = slabOf(Math.min(lats1[i], lats2[i])); slab <= last; ++slab) {
+                    slabEdges[next[slab]] = i;
+                    ++next[slab];
+                }
+            }
+        }
+
+        /**
+         * Add the edges of a ring, with unwrapped longitudes.
+         *
+         * @param ring    Points of ring.
+         * @param offset  Index of first edge.
+         * @param fromLon If not NaN, the ring is moved such that its first longitude is in [fromLon, fromLon + 360).
+         */
+        private void addRing(@Nonnull final List<GeoPoint> ring, final int offset, final double fromLon) {
+            assert ring != null;
+            final int n = ring.size();
+            double lon = ring.get(0).getLonValue();
+            if (!Double.isNaN(fromLon) && (lon < fromLon)) {
+                lon += 360.0;
+            }
+            for (int i = 0; i < n; ++i) {
+                final GeoPoint from = ring.get(i);
+                final GeoPoint to = ring.get((i + 1) % n);
+                lats1[offset + i] = from.getLatValue();
+                lons1[offset + i] = lon;
+                lon += deltaLon(from.getLonValue(), to.getLonValue());
+                lats2[offset + i] = to.getLatValue();
+                lons2[offset + i] = lon;
+            }
+            assert Math.abs(lon - lons1[offset]) < 1.0e-6 : "Ring contains a pole: " + ring;
+        }
+
+        private int slabOf(final double lat) {
+            if (slabHeight <= 0.0) {
+                return 0;
+            }
+            final int slab = (int) ((lat - minLat) / slabHeight);
+            return Math.max(0, Math.min(nrOfSlabs - 1, slab));
+        }
+
+        /**
+         * Map a longitude in [-180, 180) to the unwrapped longitude range of the polygon.
+         *
+         * @param lon Longitude.
+         * @return Longitude in [minLon, minLon + 360).
+         */
+        private double unwrap(final double lon) {
+            return (lon < minLon) ? (lon + 360.0) : lon;
+        }
+
+        private boolean containsPoint(final double lat, final double lon) {
+            if ((lat < minLat) || (lat > maxLat)) {
+                return false;
+            }
+            final double x = unwrap(lon);
+            if (x > maxLon) {
+                return false;
+            }
+            return isInside(lat, x);
+        }
+
+        /**
+         * Even-odd test, counting the edges that cross a ray to the east of the point. Only the edges of the slab
+         * which contains the point can cross the ray.
+         *
+         * @param lat Latitude of point.
+         * @param lon Unwrapped longitude of point.
+         * @return True if inside.
+         */
+        private boolean isInside(final double lat, final double lon) {
+            final int slab = slabOf(lat);
+            boolean inside = false;
+            for (int j = slabStart[slab]; j < slabStart[slab + 1]; ++j) {
+                final int i = slabEdges[j];
+                final double lat1 = lats1[i];
+                final double lat2 = lats2[i];
+                if ((lat1 > lat) != (lat2 > lat)) {
+                    final double crossLon = lons1[i] + (((lat - lat1) * (lons2[i] - lons1[i])) / (lat2 - lat1));
+                    if (lon < crossLon) {
+                        inside = !inside;
+                    }
+                }
+            }
+            return inside;
+        }
+
+        /**
+         * Return whether a rectangle, with unwrapped longitudes, overlaps the polygon. This is the case if an edge
+         * intersects the rectangle, or if the rectangle lies completely inside the polygon.
+         */
+        private boolean overlaps(final double south, final double west, final double north, final double east) {
+            if ((north < minLat) || (south > maxLat) || (east < minLon) || (west > maxLon)) {
+                return false;
+            }
+            final int last = slabOf(north);
+            for (int slab = slabOf(south); slab <= last; ++slab) {
+                for (int j = slabStart[slab]; j < slabStart[slab + 1]; ++j) {
+                    if (clipEdge(slabEdges[j], south, west, north, east) != null) {
+                        return true;
+                    }
+                }
+            }
+            return isInside(south, west);
+        }
+
+        /**
+         * Return whether a rectangle, with unwrapped longitudes, is contained in the polygon. This is the case if
+         * no edge passes through the interior of the rectangle and the center of the rectangle is inside the polygon.
+         */
+        private boolean contains(final double south, final double west, final double north, final double east) {
+            if ((south < minLat) || (north > maxLat) || (west < minLon) || (east > maxLon)) {
+                return false;
+            }
+            final int last = slabOf(north);
+            for (int slab = slabOf(south); slab <= last; ++slab) {
+                for (int j = slabStart[slab]; j < slabStart[slab + 1]; ++j) {
+                    final double[] clipped = clipEdge(slabEdges[j], south, west, north, east);
+                    if (clipped != null) {
+
+                        // The edge passes through the interior if the middle of the clipped part is in the interior.
+                        final double lat = (clipped[0] + clipped[2]) / 2.0;
+                        final double lon = (clipped[1] + clipped[3]) / 2.0;
+                        if ((south < lat) && (lat < north) && (west < lon) && (lon < east)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return isInside((south + north) / 2.0, (west + east) / 2.0);
+        }
+
+        /**
+         * Clip an edge to a rectangle (Liang-Barsky).
+         *
+         * @return Clipped edge as {lat1, lon1, lat2, lon2}, or null if the edge does not intersect the rectangle.
+         */
+        @Nullable
+        private double[] clipEdge(final int i, final double south, final double west, final double north,
+                                  final double east) {
+            final double lat = lats1[i];
+            final double lon = lons1[i];
+            final double dLat = lats2[i] - lat;
+            final double dLon = lons2[i] - lon;
+            final double[] p = {-dLon, dLon, -dLat, dLat};
+            final double[] q = {lon - west, east - lon, lat - south, north - lat};
+            double t0 = 0.0;
+            double t1 = 1.0;
+            for (int k = 0; k < 4; ++k) {
+                if (p[k] == 0.0) {
+                    if (q[k] < 0.0) {
+                        return null;
+                    }
+                } else {
+                    final double t = q[k] / p[k];
+                    if (p[k] < 0.0) {
+                        t0 = Math.max(t0, t);
+                    } else {
+                        t1 = Math.min(t1, t);
+                    }
+                }
+            }
+            if (t0 > t1) {
+                return null;
+            }
+            return new double[]{lat + (t0 * dLat), lon + (t0 * dLon), lat + (t1 * dLat), lon + (t1 * dLon)};
+        }
+    }
+}
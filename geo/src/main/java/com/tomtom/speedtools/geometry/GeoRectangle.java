@@ -35,6 +35,9 @@ public final class GeoRectangle extends Primitive {
     public static final GeoRectangle WORLD =
             new GeoRectangle(new GeoPoint(-90.0, -180.0), new GeoPoint(90.0, Geo.LON180));
 
+    // East longitude of the eastern part of a wrapped rectangle: Geo.LON180, as it is stored in a GeoPoint.
+    private static final double EAST_LON = Geo.mapToLon(Geo.LON180);
+
     @Nonnull
     private final GeoPoint southWest;
     @Nonnull
@@ -162,52 +165,14 @@ public final class GeoRectangle extends Primitive {
 
     @Override
     public boolean overlaps(@Nonnull final GeoArea area) {
+        assert area != null;
         final GeoRectangle other = area.boundingBox();
 
         // Compare bounding boxes.
-        final boolean overlap;
-        if (isWrapped()) {
-            final GeoRectangle t1 = new GeoRectangle(
-                    new GeoPoint(southWest.getLat(), -180.0),
-                    new GeoPoint(northEast.getLat(), northEast.getLon())
-            );
-            final GeoRectangle t2 = new GeoRectangle(
-                    new GeoPoint(southWest.getLat(), southWest.getLon()),
-                    new GeoPoint(northEast.getLat(), Geo.LON180)
-            );
-
-            if (other.isWrapped()) {
-                final GeoRectangle o1 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), -180.0),
-                        new GeoPoint(other.northEast.getLat(), other.northEast.getLon())
-                );
-                final GeoRectangle o2 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), other.southWest.getLon()),
-                        new GeoPoint(other.northEast.getLat(), Geo.LON180)
-                );
-                overlap = t1.overlaps(o1) || t2.overlaps(o2);
-            } else {
-                overlap = t1.overlaps(other) || t2.overlaps(other);
-            }
-        } else {
-            if (other.isWrapped()) {
-                final GeoRectangle o1 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), -180.0),
-                        new GeoPoint(other.northEast.getLat(), other.northEast.getLon())
-                );
-                final GeoRectangle o2 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), other.southWest.getLon()),
-                        new GeoPoint(other.northEast.getLat(), Geo.LON180)
-                );
-                overlap = overlaps(o1) || overlaps(o2);
-            } else {
-                overlap = !((southWest.getLat() > other.northEast.getLat()) ||
-                        (northEast.getLat() < other.southWest.getLat()) ||
-                        (southWest.getLon() > other.northEast.getLon()) ||
-                        (northEast.getLon() < other.southWest.getLon()));
-            }
-        }
-        return overlap;
+        return overlaps(
+                southWest.getLatValue(), southWest.getLonValue(), northEast.getLatValue(), northEast.getLonValue(),
+                other.southWest.getLatValue(), other.southWest.getLonValue(),
+                other.northEast.getLatValue(), other.northEast.getLonValue());
     }
 
     /**
@@ -227,57 +192,136 @@ public final class GeoRectangle extends Primitive {
 
     @Override
     public boolean contains(@Nonnull final GeoArea area) {
+        assert area != null;
         final GeoRectangle other = area.boundingBox();
 
         // Compare bounding boxes.
-        final boolean contain;
-        if (isWrapped()) {
-            final GeoRectangle t1 = new GeoRectangle(
-                    new GeoPoint(southWest.getLat(), -180.0),
-                    new GeoPoint(northEast.getLat(), northEast.getLon())
-            );
-            final GeoRectangle t2 = new GeoRectangle(
-                    new GeoPoint(southWest.getLat(), southWest.getLon()),
-                    new GeoPoint(northEast.getLat(), Geo.LON180)
-            );
-
-            if (other.isWrapped()) {
-                final GeoRectangle o1 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), -180.0),
-                        new GeoPoint(other.northEast.getLat(), other.northEast.getLon())
-                );
-                final GeoRectangle o2 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), other.southWest.getLon()),
-                        new GeoPoint(other.northEast.getLat(), Geo.LON180)
-                );
-                contain = t1.contains(o1) && t2.contains(o2);
-            } else {
-                contain = t1.contains(other) || t2.contains(other);
-            }
-        } else {
-            if (other.isWrapped()) {
-                final GeoRectangle o1 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), -180.0),
-                        new GeoPoint(other.northEast.getLat(), northEast.getLon())
-                );
-                final GeoRectangle o2 = new GeoRectangle(
-                        new GeoPoint(other.southWest.getLat(), other.southWest.getLon()),
-                        new GeoPoint(other.northEast.getLat(), Geo.LON180)
-                );
-                contain = contains(o1) && contains(o2);
-            } else {
-                contain = (southWest.getLat() <= other.southWest.getLat()) &&
-                        (northEast.getLat() >= other.northEast.getLat()) &&
-                        (southWest.getLon() <= other.southWest.getLon()) &&
-                        (northEast.getLon() >= other.northEast.getLon());
-            }
-        }
-        return contain;
+        return contains(
+                southWest.getLatValue(), southWest.getLonValue(), northEast.getLatValue(), northEast.getLonValue(),
+                other.southWest.getLatValue(), other.southWest.getLonValue(),
+                other.northEast.getLatValue(), other.northEast.getLonValue());
     }
 
     @Override
     public boolean contains(@Nonnull final GeoPoint point) {
-        return contains(new GeoRectangle(point, point));
+        assert point != null;
+        return containsPoint(
+                southWest.getLatValue(), southWest.getLonValue(), northEast.getLatValue(), northEast.getLonValue(),
+                point.getLatValue(), point.getLonValue());
+    }
+
+    /**
+     * Return whether 2 rectangles overlap, given their corners. This is the allocation-free equivalent of {@link
+     * #overlaps(GeoArea)}. Either rectangle may be wrapped around the 180th meridian (west longitude &gt; east
+     * longitude). Wrapped rectangles are treated as 2 rectangles, one from -180 to the east longitude and one from
+     * the west longitude to 180. Edges are inclusive.
+     *
+     * @param southWestLat1 South latitude of rectangle 1.
+     * @param southWestLon1 West longitude of rectangle 1.
+     * @param northEastLat1 North latitude of rectangle 1.
+     * @param northEastLon1 East longitude of rectangle 1.
+     * @param southWestLat2 South latitude of rectangle 2.
+     * @param southWestLon2 West longitude of rectangle 2.
+     * @param northEastLat2 North latitude of rectangle 2.
+     * @param northEastLon2 East longitude of rectangle 2.
+     * @return True if the rectangles overlap.
+     */
+    public static boolean overlaps(
+            final double southWestLat1, final double southWestLon1,
+            final double northEastLat1, final double northEastLon1,
+            final double southWestLat2, final double southWestLon2,
+            final double northEastLat2, final double northEastLon2) {
+        if ((southWestLat1 > northEastLat2) || (northEastLat1 < southWestLat2)) {
+            return false;
+        }
+        final boolean wrapped1 = southWestLon1 > northEastLon1;
+        final boolean wrapped2 = southWestLon2 > northEastLon2;
+        if (wrapped1 && wrapped2) {
+
+            // Both contain longitude -180.
+            return true;
+        }
+        if (wrapped1) {
+            return overlapsLon(-180.0, northEastLon1, southWestLon2, northEastLon2) ||
+                    overlapsLon(southWestLon1, EAST_LON, southWestLon2, northEastLon2);
+        }
+        if (wrapped2) {
+            return overlapsLon(southWestLon1, northEastLon1, -180.0, northEastLon2) ||
+                    overlapsLon(southWestLon1, northEastLon1, southWestLon2, EAST_LON);
+        }
+        return overlapsLon(southWestLon1, northEastLon1, southWestLon2, northEastLon2);
+    }
+
+    /**
+     * Return whether rectangle 1 contains rectangle 2, given their corners. This is the allocation-free equivalent of
+     * {@link #contains(GeoArea)}. Either rectangle may be wrapped around the 180th meridian, see {@link
+     * #overlaps(double, double, double, double, double, double, double, double)}. Edges are inclusive.
+     *
+     * @param southWestLat1 South latitude of rectangle 1.
+     * @param southWestLon1 West longitude of rectangle 1.
+     * @param northEastLat1 North latitude of rectangle 1.
+     * @param northEastLon1 East longitude of rectangle 1.
+     * @param southWestLat2 South latitude of rectangle 2.
+     * @param southWestLon2 West longitude of rectangle 2.
+     * @param northEastLat2 North latitude of rectangle 2.
+     * @param northEastLon2 East longitude of rectangle 2.
+     * @return True if rectangle 1 contains rectangle 2.
+     */
+    public static boolean contains(
+            final double southWestLat1, final double southWestLon1,
+            final double northEastLat1, final double northEastLon1,
+            final double southWestLat2, final double southWestLon2,
+            final double northEastLat2, final double northEastLon2) {
+        if ((southWestLat1 > southWestLat2) || (northEastLat1 < northEastLat2)) {
+            return false;
+        }
+        final boolean wrapped1 = southWestLon1 > northEastLon1;
+        final boolean wrapped2 = southWestLon2 > northEastLon2;
+        if (wrapped1 && wrapped2) {
+
+            // Both parts of rectangle 2 must be contained in the respective parts of rectangle 1.
+            return containsLon(-180.0, northEastLon1, -180.0, northEastLon2) &&
+                    containsLon(southWestLon1, EAST_LON, southWestLon2, EAST_LON);
+        }
+        if (wrapped1) {
+            return containsLon(-180.0, northEastLon1, southWestLon2, northEastLon2) ||
+                    containsLon(southWestLon1, EAST_LON, southWestLon2, northEastLon2);
+        }
+        if (wrapped2) {
+
+            // A non-wrapped rectangle can only contain a wrapped one if it spans all longitudes.
+            return containsLon(southWestLon1, northEastLon1, -180.0, northEastLon2) &&
+                    containsLon(southWestLon1, northEastLon1, southWestLon2, EAST_LON);
+        }
+        return containsLon(southWestLon1, northEastLon1, southWestLon2, northEastLon2);
+    }
+
+    /**
+     * Return whether a rectangle contains a point, given the corners of the rectangle. This is the allocation-free
+     * equivalent of {@link #contains(GeoPoint)}. The rectangle may be wrapped around the 180th meridian. Edges are
+     * inclusive.
+     *
+     * @param southWestLat South latitude of rectangle.
+     * @param southWestLon West longitude of rectangle.
+     * @param northEastLat North latitude of rectangle.
+     * @param northEastLon East longitude of rectangle.
+     * @param lat          Latitude of point.
+     * @param lon          Longitude of point.
+     * @return True if the rectangle contains the point.
+     */
+    public static boolean containsPoint(
+            final double southWestLat, final double southWestLon,
+            final double northEastLat, final double northEastLon,
+            final double lat, final double lon) {
+        return contains(southWestLat, southWestLon, northEastLat, northEastLon, lat, lon, lat, lon);
+    }
+
+    private static boolean overlapsLon(final double west1, final double east1, final double west2, final double east2) {
+        return (west1 <= east2) && (east1 >= west2);
+    }
+
+    private static boolean containsLon(final double west1, final double east1, final double west2, final double east2) {
+        return (west1 <= west2) && (east1 >= east2);
     }
 
     @Nonnull
@@ -411,7 +455,7 @@ public final class GeoRectangle extends Primitive {
      * @return True if wrapped around long side, false if wrapped along short side.
      */
     public boolean isWrapped() {
-        return southWest.getLon() > northEast.getLon();
+        return southWest.getLonValue() > northEast.getLonValue();
     }
 
     @Override
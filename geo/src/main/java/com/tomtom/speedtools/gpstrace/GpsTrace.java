@@ -16,6 +16,8 @@
 
 package com.tomtom.speedtools.gpstrace;
 
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPointArray;
 import com.tomtom.speedtools.json.Json;
 import com.tomtom.speedtools.json.JsonRenderable;
 import com.tomtom.speedtools.objects.Immutables;
@@ -39,6 +41,10 @@ public final class GpsTrace implements JsonRenderable {
     @Nonnull
     private final List<GpsTracePoint> gpsTracePoints;
 
+    // Columnar copy of the positions for bulk operations, created on first use.
+    @Nullable
+    private transient volatile GeoPointArray positions;
+
     /**
      * Create a GPS trace.
      *
@@ -68,6 +74,43 @@ public final class GpsTrace implements JsonRenderable {
         return gpsTracePoints;
     }
 
+    /**
+     * Get the positions of the trace points as a point array, for bulk operations which should not allocate
+     * objects per point.
+     *
+     * @return Positions, in the order of the trace points.
+     */
+    @Nonnull
+    public GeoPointArray getPositions() {
+        GeoPointArray result = positions;
+        if (result == null) {
+            final int size = gpsTracePoints.size();
+            final double[] lats = new double[size];
+            final double[] lons = new double[size];
+            final double[] elevationsMeters = new double[size];
+            for (int i = 0; i < size; ++i) {
+                final GeoPoint position = gpsTracePoints.get(i).getPosition();
+                lats[i] = position.getLatValue();
+                lons[i] = position.getLonValue();
+                elevationsMeters[i] = position.getElevationMetersValue();
+            }
+
+            // Benign race: at worst, the array is created more than once.
+            result = new GeoPointArray(lats, lons, elevationsMeters);
+            positions = result;
+        }
+        return result;
+    }
+
+    /**
+     * Return the length of the trace in meters (approximation).
+     *
+     * @return Length in meters, 0 if the trace has fewer than 2 points.
+     */
+    public double getLengthMeters() {
+        return getPositions().getLengthMeters();
+    }
+
     /**
      * Setter for {@link #getGpsTracePoints}
      *
@@ -102,7 +145,8 @@ public final class GpsTrace implements JsonRenderable {
     }
 
     /**
-     * Return a limited list of GPS points.
+     * Return a limited list of GPS points. The points are copied once, without intermediate copies of the input. To
+     * append points to a trace incrementally, use {@link GpsTraceBuffer} instead.
      *
      * @param maxAge          Maximum age difference between oldest and newest point.
      * @param maxSize         Maximum number of points.
@@ -122,35 +166,67 @@ public final class GpsTrace implements JsonRenderable {
         assert gpsTracePoints1 != null;
         assert gpsTracePoints2 != null;
 
-        final Collection<GpsTracePoint> fullList = Immutables.copyOf(gpsTracePoints1, gpsTracePoints2);
-        final int start = Math.max(0, fullList.size() - maxSize);
-        final int end = Math.min(fullList.size(), start + maxSize);
+        final int fullSize = gpsTracePoints1.size() + gpsTracePoints2.length;
+        final int start = Math.max(0, fullSize - maxSize);
+        final int end = Math.min(fullSize, start + maxSize);
         final int size = end - start;
-        assert fullList.isEmpty() || MathUtils.isBetween(start, 0, fullList.size() - 1);
-        assert MathUtils.isBetween(end, 0, fullList.size()) : end;
-        assert (end > 0) || fullList.isEmpty();
+        assert (fullSize == 0) || MathUtils.isBetween(start, 0, fullSize - 1);
+        assert MathUtils.isBetween(end, 0, fullSize) : end;
+        assert (end > 0) || (fullSize == 0);
         assert end >= start;
         assert size >= 0;
-        assert (fullList.size() <= maxSize) || (size == maxSize);
+        assert (fullSize <= maxSize) || (size == maxSize);
 
         // Copy last N data points only.
         final ArrayList<GpsTracePoint> newList = new ArrayList<>(size);
-        final GpsTracePoint[] points = fullList.toArray(new GpsTracePoint[fullList.size()]);
-        final DateTime oldest = (size == 0) ? null : points[size - 1].getTime().minus(maxAge);
-        int i = start;
-        while (i < end) {
-            final GpsTracePoint point = points[i];
-
-            // Only copy points that are not too old.
-            final DateTime time = point.getTime();
-            if (!time.isBefore(oldest)) {
-                newList.add(point);
-            }
+        if (size == 0) {
+            return newList;
+        }
+        final DateTime oldest = get(size - 1, gpsTracePoints1, gpsTracePoints2).getTime().minus(maxAge);
+        int i = 0;
+        for (final GpsTracePoint point : gpsTracePoints1) {
+            addIfNotTooOld(newList, (i >= start) ? point : null, oldest);
+            ++i;
+        }
+        for (final GpsTracePoint point : gpsTracePoints2) {
+            addIfNotTooOld(newList, (i >= start) ? point : null, oldest);
             ++i;
         }
+        assert i == end;
         return newList;
     }
 
+    private static void addIfNotTooOld(
+            @Nonnull final List<GpsTracePoint> list,
+            @Nullable final GpsTracePoint point,
+            @Nonnull final DateTime oldest) {
+        if ((point != null) && !point.getTime().isBefore(oldest)) {
+            list.add(point);
+        }
+    }
+
+    @Nonnull
+    private static GpsTracePoint get(
+            final int index,
+            @Nonnull final Collection<GpsTracePoint> gpsTracePoints1,
+            @Nonnull final GpsTracePoint[] gpsTracePoints2) {
+        final int size1 = gpsTracePoints1.size();
+        if (index >= size1) {
+            return gpsTracePoints2[index - size1];
+        }
+        if (gpsTracePoints1 instanceof List) {
+            return ((List<GpsTracePoint>) gpsTracePoints1).get(index);
+        }
+        int i = 0;
+        for (final GpsTracePoint point : gpsTracePoints1) {
+            if (i == index) {
+                return point;
+            }
+            ++i;
+        }
+        throw new IllegalStateException("Index out of bounds: " + index);
+    }
+
     public boolean canEqual(@Nonnull final Object obj) {
         assert obj != null;
         return obj instanceof GpsTrace;
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.gpstrace;
+
+import com.tomtom.speedtools.geometry.Geo;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPointArray;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded buffer of GPS trace points, which can be appended to incrementally. This is the mutable, incremental
+ * alternative for {@link GpsTrace#limitSize(Duration, Integer, java.util.Collection, GpsTracePoint...)}: the points
+ * are stored in primitive ring buffers and appending a point never copies the buffer.
+ *
+ * The buffer keeps at most maxSize points, which are no older than maxAge relative to the most recent point.
+ * Optionally, the trace is simplified while points are added:
+ *
+ * - Points which arrive within minInterval after the previously kept point are removed.
+ *
+ * - Points which lie within toleranceMeters of the line between the previously kept point and the new point are
+ * removed. This is an online ("opening window") variant of the Douglas-Peucker algorithm: all points removed since the
+ * previously kept point must lie within the tolerance of the new line.
+ *
+ * The most recent point is always kept, so {@link #getLastGpsTracePoint()} always returns the last added point.
+ *
+ * Times are stored as milliseconds and returned in time zone UTC. This class is not thread-safe.
+ *
+ * Constructor: {@link #GpsTraceBuffer}
+ */
+public final class GpsTraceBuffer {
+
+    // Maximum number of removed points checked against a new line, after which a point is always kept.
+    private static final int MAX_WINDOW_SIZE = 64;
+
+    private final int maxSize;
+    private final long maxAgeMillis;
+    private final double toleranceMeters;
+    private final long minIntervalMillis;
+
+    // Ring buffer of points. The oldest point is at index head.
+    @Nonnull
+    private final long[] times;
+    @Nonnull
+    private final double[] lats;
+    @Nonnull
+    private final double[] lons;
+    @Nonnull
+    private final double[] elevationsMeters;
+    private int head = 0;
+    private int size = 0;
+
+    // Positions of the points which were removed since the previously kept point.
+    @Nonnull
+    private final double[] windowLats = new double[MAX_WINDOW_SIZE];
+    @Nonnull
+    private final double[] windowLons = new double[MAX_WINDOW_SIZE];
+    private int windowSize = 0;
+
+    /**
+     * Create a GPS trace buffer which simplifies the trace.
+     *
+     * @param maxSize         Maximum number of points, must be &gt;= 2.
+     * @param maxAge          Maximum age difference between oldest and newest point.
+     * @param toleranceMeters Points within this distance of the line between their neighbors are removed. Use 0 to
+     *                        keep all points. Must be &gt;= 0.
+     * @param minInterval     Points which arrive within this interval after the previous point are removed. Use
+     *                        {@link Duration#ZERO} to keep all points.
+     */
+    public GpsTraceBuffer(
+            final int maxSize,
+            @Nonnull final Duration maxAge,
+            final double toleranceMeters,
+            @Nonnull final Duration minInterval) {
+        super();
+        assert maxSize >= 2 : maxSize;
+        assert maxAge != null;
+        assert maxAge.getMillis() >= 0 : maxAge;
+        assert toleranceMeters >= 0.0 : toleranceMeters;
+        assert minInterval != null;
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAge.getMillis();
+        this.toleranceMeters = toleranceMeters;
+        this.minIntervalMillis = minInterval.getMillis();
+        this.times = new long[maxSize];
+        this.lats = new double[maxSize];
+        this.lons = new double[maxSize];
+        this.elevationsMeters = new double[maxSize];
+    }
+
+    /**
+     * Create a GPS trace buffer which does not simplify the trace. The buffer behaves like {@link
+     * GpsTrace#limitSize(Duration, Integer, java.util.Collection, GpsTracePoint...)}.
+     *
+     * @param maxSize Maximum number of points, must be &gt;= 2.
+     * @param maxAge  Maximum age difference between oldest and newest point.
+     */
+    public GpsTraceBuffer(
+            final int maxSize,
+            @Nonnull final Duration maxAge) {
+        this(maxSize, maxAge, 0.0, Duration.ZERO);
+    }
+
+    /**
+     * Add a point to the buffer. The previously added point may be removed by simplification and the oldest points
+     * may be removed to keep the buffer within its limits.
+     *
+     * @param gpsTracePoint Point to add. Its time may not be before the time of the last point.
+     */
+    public void add(@Nonnull final GpsTracePoint gpsTracePoint) {
+        assert gpsTracePoint != null;
+        final long time = gpsTracePoint.getTime().getMillis();
+        final GeoPoint position = gpsTracePoint.getPosition();
+        final double lat = position.getLatValue();
+        final double lon = position.getLonValue();
+        assert (size == 0) || (time >= times[index(size - 1)]) : "Point is older than last point: " + gpsTracePoint;
+
+        // Check if the last point, which is not the first point, can be removed.
+        if (size >= 2) {
+            final int last = index(size - 1);
+            final int previous = index(size - 2);
+            final boolean remove = (windowSize < MAX_WINDOW_SIZE) &&
+                    (((times[last] - times[previous]) < minIntervalMillis) ||
+                            ((toleranceMeters > 0.0) && isWithinTolerance(previous, last, lat, lon)));
+            if (remove) {
+                windowLats[windowSize] = lats[last];
+                windowLons[windowSize] = lons[last];
+                ++windowSize;
+                --size;
+            } else {
+                windowSize = 0;
+            }
+        }
+
+        // Make room and append the point.
+        if (size == maxSize) {
+            removeFirst();
+        }
+        final int i = index(size);
+        times[i] = time;
+        lats[i] = lat;
+        lons[i] = lon;
+        elevationsMeters[i] = position.getElevationMetersValue();
+        ++size;
+
+        // Remove points which are too old.
+        final long oldest = time - maxAgeMillis;
+        while (times[head] < oldest) {
+            removeFirst();
+        }
+        if (size < 2) {
+            windowSize = 0;
+        }
+    }
+
+    /**
+     * Get number of points.
+     *
+     * @return Number of points, in [0, maxSize].
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the buffer is empty.
+     *
+     * @return True if the buffer contains no points.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all points.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        windowSize = 0;
+    }
+
+    /**
+     * Get latest, most recent GPS point.
+     *
+     * @return Latest, most recent GPS point, or null, if none available.
+     */
+    @Nullable
+    public GpsTracePoint getLastGpsTracePoint() {
+        return (size == 0) ? null : get(index(size - 1));
+    }
+
+    /**
+     * Get the positions of the points, oldest first.
+     *
+     * @return Positions.
+     */
+    @Nonnull
+    public GeoPointArray getPositions() {
+        final double[] resultLats = new double[size];
+        final double[] resultLons = new double[size];
+        final double[] resultElevationsMeters = new double[size];
+        for (int j = 0; j < size; ++j) {
+            final int i = index(j);
+            resultLats[j] = lats[i];
+            resultLons[j] = lons[i];
+            resultElevationsMeters[j] = elevationsMeters[i];
+        }
+        return new GeoPointArray(resultLats, resultLons, resultElevationsMeters);
+    }
+
+    /**
+     * Create an immutable GPS trace from the points in the buffer.
+     *
+     * @return GPS trace, oldest point first.
+     */
+    @Nonnull
+    public GpsTrace toGpsTrace() {
+        final List<GpsTracePoint> points = new ArrayList<>(size);
+        for (int j = 0; j < size; ++j) {
+            points.add(get(index(j)));
+        }
+        return new GpsTrace(points);
+    }
+
+    private int index(final int j) {
+        assert (0 <= j) && (j < maxSize) : j;
+        final int i = head + j;
+        return (i < maxSize) ? i : (i - maxSize);
+    }
+
+    private void removeFirst() {
+        assert size > 0;
+        head = index(1);
+        --size;
+    }
+
+    @Nonnull
+    private GpsTracePoint get(final int i) {
+        return new GpsTracePoint(
+                new DateTime(times[i], DateTimeZone.UTC),
+                new GeoPoint(lats[i], lons[i], elevationsMeters[i]));
+    }
+
+    /**
+     * Return whether the point at index last and all points removed since the point at index previous lie within the
+     * tolerance of the line from the point at index previous to a new point. Distances are calculated in a local,
+     * flat projection around the point at index previous.
+     */
+    private boolean isWithinTolerance(final int previous, final int last, final double lat, final double lon) {
+        final double fromLat = lats[previous];
+        final double fromLon = lons[previous];
+        final double metersPerDegreeLon = Geo.degreesLonToMetersAtLat(1.0, fromLat);
+        final double toX = deltaLon(fromLon, lon) * metersPerDegreeLon;
+        final double toY = Geo.degreesLatToMeters(lat - fromLat);
+        if (distanceToLine(toX, toY,
+                deltaLon(fromLon, lons[last]) * metersPerDegreeLon,
+                Geo.degreesLatToMeters(lats[last] - fromLat)) > toleranceMeters) {
+            return false;
+        }
+        for (int k = 0; k < windowSize; ++k) {
+            if (distanceToLine(toX, toY,
+                    deltaLon(fromLon, windowLons[k]) * metersPerDegreeLon,
+                    Geo.degreesLatToMeters(windowLats[k] - fromLat)) > toleranceMeters) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the distance of point (x, y) to the line segment from (0, 0) to (toX, toY).
+     */
+    private static double distanceToLine(final double toX, final double toY, final double x, final double y) {
+        final double lengthSquared = (toX * toX) + (toY * toY);
+        final double t = (lengthSquared == 0.0) ? 0.0 :
+                Math.max(0.0, Math.min(1.0, ((x * toX) + (y * toY)) / lengthSquared));
+        return Math.hypot(x - (t * toX), y - (t * toY));
+    }
+
+    private static double deltaLon(final double fromLon, final double toLon) {
+        double delta = toLon - fromLon;
+        if (delta < -180.0) {
+            delta += 360.0;
+        } else if (delta >= 180.0) {
+            delta -= 360.0;
+        }
+        return delta;
+    }
+}
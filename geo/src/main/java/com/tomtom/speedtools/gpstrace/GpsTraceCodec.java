@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.gpstrace;
+
+import com.tomtom.speedtools.geometry.GeoPoint;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of GPS trace points. Consecutive points are usually close together in time and space, so
+ * every value is stored as the difference with the previous point, as a variable length integer (7 bits per byte,
+ * zigzag encoded for negative values). A typical point takes 6 to 10 bytes.
+ *
+ * The encoding is lossy:
+ *
+ * - Latitudes and longitudes are rounded to {@link #DEGREES_PER_UNIT} degrees (about 1 cm).
+ *
+ * - Elevations are rounded to {@link #METERS_PER_UNIT} meters.
+ *
+ * - Times are stored in milliseconds and decoded in time zone UTC.
+ *
+ * Format: a version byte, the number of points and, per point, the time, latitude, longitude and elevation. An
+ * absent elevation is stored as 0, a present elevation as (zigzag(difference) &lt;&lt; 1) | 1, where the difference is
+ * relative to the last present elevation.
+ */
+public final class GpsTraceCodec {
+
+    /**
+     * Resolution of latitudes and longitudes.
+     */
+    public static final double DEGREES_PER_UNIT = 1.0e-7;
+
+    /**
+     * Resolution of elevations.
+     */
+    public static final double METERS_PER_UNIT = 0.01;
+
+    private static final byte VERSION = 1;
+
+    private GpsTraceCodec() {
+        // Prevent instantiation.
+    }
+
+    /**
+     * Encode a list of trace points.
+     *
+     * @param gpsTracePoints Trace points.
+     * @return Encoded points.
+     */
+    @Nonnull
+    public static byte[] encode(@Nonnull final List<GpsTracePoint> gpsTracePoints) {
+        assert gpsTracePoints != null;
+        final Writer writer = new Writer(2 + (gpsTracePoints.size() * 10));
+        writer.writeByte(VERSION);
+        writer.writeUnsigned(gpsTracePoints.size());
+        long time = 0;
+        long lat = 0;
+        long lon = 0;
+        long elevation = 0;
+        for (final GpsTracePoint gpsTracePoint : gpsTracePoints) {
+            final GeoPoint position = gpsTracePoint.getPosition();
+            final long newTime = gpsTracePoint.getTime().getMillis();
+            final long newLat = Math.round(position.getLatValue() / DEGREES_PER_UNIT);
+            final long newLon = Math.round(position.getLonValue() / DEGREES_PER_UNIT);
+            writer.writeSigned(newTime - time);
+            writer.writeSigned(newLat - lat);
+            writer.writeSigned(newLon - lon);
+            if (position.hasElevation()) {
+                final long newElevation = Math.round(position.getElevationMetersValue() / METERS_PER_UNIT);
+                writer.writeUnsigned((zigzag(newElevation - elevation) << 1) | 1);
+                elevation = newElevation;
+            } else {
+                writer.writeUnsigned(0);
+            }
+            time = newTime;
+            lat = newLat;
+            lon = newLon;
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decode a list of trace points.
+     *
+     * @param bytes Encoded points, as returned by {@link #encode(List)}.
+     * @return Trace points.
+     * @throws IllegalArgumentException If the bytes are not a valid encoding.
+     */
+    @Nonnull
+    public static List<GpsTracePoint> decode(@Nonnull final byte[] bytes) {
+        assert bytes != null;
+        final Reader reader = new Reader(bytes);
+        final byte version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        final long size = reader.readUnsigned();
+        if ((size < 0) || (size > bytes.length)) {
+            throw new IllegalArgumentException("Invalid number of points: " + size);
+        }
+        final List<GpsTracePoint> gpsTracePoints = new ArrayList<>((int) size);
+        long time = 0;
+        long lat = 0;
+        long lon = 0;
+        long elevation = 0;
+        for (int i = 0; i < size; ++i) {
+            time += reader.readSigned();
+            lat += reader.readSigned();
+            lon += reader.readSigned();
+            final long encodedElevation = reader.readUnsigned();
+            final double elevationMeters;
+            if ((encodedElevation & 1) == 0) {
+                elevationMeters = Double.NaN;
+            } else {
+                elevation += unzigzag(encodedElevation >>> 1);
+                elevationMeters = elevation * METERS_PER_UNIT;
+            }
+            final double latDegrees = lat * DEGREES_PER_UNIT;
+            if ((latDegrees < -90.0) || (latDegrees > 90.0)) {
+                throw new IllegalArgumentException("Invalid latitude: " + latDegrees);
+            }
+            gpsTracePoints.add(new GpsTracePoint(
+                    new DateTime(time, DateTimeZone.UTC),
+                    new GeoPoint(latDegrees, lon * DEGREES_PER_UNIT, elevationMeters)));
+        }
+        if (!reader.isAtEnd()) {
+            throw new IllegalArgumentException("Unexpected bytes after " + size + " points");
+        }
+        return gpsTracePoints;
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        @Nonnull
+        private byte[] buffer;
+        private int size = 0;
+
+        private Writer(final int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void writeByte(final int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (buffer.length * 2) + 16);
+            }
+            buffer[size] = (byte) value;
+            ++size;
+        }
+
+        private void writeSigned(final long value) {
+            writeUnsigned(zigzag(value));
+        }
+
+        private void writeUnsigned(final long value) {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            writeByte((int) v);
+        }
+
+        @Nonnull
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+        @Nonnull
+        private final byte[] buffer;
+        private int position = 0;
+
+        private Reader(@Nonnull final byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Unexpected end of data at byte " + position);
+            }
+            final byte value = buffer[position];
+            ++position;
+            return value;
+        }
+
+        private long readSigned() {
+            return unzigzag(readUnsigned());
+        }
+
+        private long readUnsigned() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Variable length integer too long at byte " + position);
+        }
+
+        private boolean isAtEnd() {
+            return position == buffer.length;
+        }
+    }
+}
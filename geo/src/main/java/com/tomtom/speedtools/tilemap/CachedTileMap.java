@@ -20,18 +20,29 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * This class represents a cacheable map. It uses Google Guava for its (basic) caching. Use this class to avoid a huge
  * load on the LBS system (and loads of network traffic) if you will be retrieving the same tiles over and over again.
  * The cache is stored in the heap, so you may wish to set the VM '-Xmx700m' parameter (700m is an example; 700 megs of
  * RAM).
+ *
+ * Optionally, a {@link TileCodec} can be provided. The heap cache is then limited by the size of the tiles in bytes,
+ * rather than by the number of tiles, and a {@link DiskTileStore} can be used as a second cache tier, which survives
+ * restarts. Tiles which are missing from the heap cache are read from the disk store first and only loaded if they are
+ * not stored there either. Loaded tiles are added to both tiers.
  */
 public final class CachedTileMap<T> extends TileMap<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(CachedTileMap.class);
 
     // Default maximum number of cache elements.
     private static final int CACHE_MAX_ELEMENTS_DEFAULT = 2500;
@@ -42,6 +53,10 @@ public final class CachedTileMap<T> extends TileMap<T> {
     @Nonnull
     private final LoadingCache<TileKey, T> mapTiles;
 
+    // Disk tile store, second cache tier.
+    @Nullable
+    private final DiskTileStore diskTileStore;
+
     /**
      * Constructor.
      *
@@ -58,6 +73,51 @@ public final class CachedTileMap<T> extends TileMap<T> {
                 recordStats().
                 maximumSize((maxCachedTiles >= 0) ? maxCachedTiles : CACHE_MAX_ELEMENTS_DEFAULT).
                 build(imgLoad);
+        diskTileStore = null;
+    }
+
+    /**
+     * Constructor for a cache which is limited by the size of the tiles in bytes, with an optional disk tier.
+     *
+     * @param maxCachedBytes Maximum total size of the tiles cached in the heap, in bytes.
+     * @param codec          Codec to determine the size of tiles and to store them in the disk tier.
+     * @param diskTileStore  Disk tile store, or null if tiles are only cached in the heap.
+     * @param imgLoad        Function for loading image tiles.
+     */
+    public CachedTileMap(
+            final long maxCachedBytes,
+            @Nonnull final TileCodec<T> codec,
+            @Nullable final DiskTileStore diskTileStore,
+            @Nonnull final CacheLoader<TileKey, T> imgLoad) {
+        super(CACHE_BUFFER_COLUMNS, CACHE_BUFFER_ROWS);
+        assert maxCachedBytes >= 0 : maxCachedBytes;
+        assert codec != null;
+        assert imgLoad != null;
+        this.diskTileStore = diskTileStore;
+        mapTiles = CacheBuilder.newBuilder().
+                recordStats().
+                maximumWeight(maxCachedBytes).
+                weigher((final TileKey key, final T tile) -> codec.getSizeInBytes(tile)).
+                build((diskTileStore == null) ? imgLoad : new CacheLoader<TileKey, T>() {
+
+                    @Override
+                    public T load(@Nonnull final TileKey key) throws Exception {
+                        final ByteBuffer buffer = diskTileStore.get(key);
+                        if (buffer != null) {
+                            try {
+                                return codec.decode(buffer);
+                            } catch (final IllegalArgumentException e) {
+                                LOG.warn("load: cannot decode stored tile, key={}, exception={}", key, e.getMessage());
+                                diskTileStore.invalidate(key);
+                            }
+                        }
+                        final T tile = imgLoad.load(key);
+                        if (tile != null) {
+                            diskTileStore.put(key, codec.encode(tile));
+                        }
+                        return tile;
+                    }
+                });
     }
 
     /**
@@ -76,6 +136,27 @@ public final class CachedTileMap<T> extends TileMap<T> {
         }
     }
 
+    /**
+     * Get a map tile asynchronously, given a map tile key. Cached tiles are returned immediately, other tiles are
+     * loaded on the executor. Concurrent requests for the same tile wait for a single load.
+     *
+     * @param key      Map tile key.
+     * @param executor Executor to load the tile with.
+     * @return Future map tile.
+     */
+    @Override
+    @Nonnull
+    public CompletableFuture<T> getTileAsync(@Nonnull final TileKey key, @Nonnull final Executor executor) {
+        assert key != null;
+        assert executor != null;
+        // Look up through the map view, which does not count as a cache hit or miss.
+        final T tile = mapTiles.asMap().get(key);
+        if (tile != null) {
+            return CompletableFuture.completedFuture(tile);
+        }
+        return super.getTileAsync(key, executor);
+    }
+
     /**
      * Returns if the map supports caching.
      *
@@ -100,20 +181,49 @@ public final class CachedTileMap<T> extends TileMap<T> {
         }
     }
 
-    // Invalidate tile in the the tile cache.
+    /**
+     * Buffer a map tile asynchronously, given a map tile key. Nothing is loaded if the tile is already cached.
+     *
+     * @param key      Map tile key.
+     * @param executor Executor to load the tile with.
+     * @return Future which completes when the tile has been buffered.
+     */
+    @Override
+    @Nonnull
+    public CompletableFuture<Void> cacheTileAsync(@Nonnull final TileKey key, @Nonnull final Executor executor) {
+        assert key != null;
+        assert executor != null;
+        if (mapTiles.asMap().get(key) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return super.cacheTileAsync(key, executor);
+    }
+
+    // Invalidate tile in the the tile cache (and disk tile store).
     public void invalidate(@Nonnull final TileKey key) {
         assert key != null;
+        if (diskTileStore != null) {
+            diskTileStore.invalidate(key);
+        }
         mapTiles.invalidate(key);
     }
 
-    // Invalidate tiles in the the tile cache.
+    // Invalidate tiles in the the tile cache (and disk tile store).
     public void invalidateAll(@Nonnull final Iterable<TileKey> keys) {
         assert keys != null;
+        if (diskTileStore != null) {
+            for (final TileKey key : keys) {
+                diskTileStore.invalidate(key);
+            }
+        }
         mapTiles.invalidateAll(keys);
     }
 
-    // Invalidate tiles in the the tile cache.
+    // Invalidate tiles in the the tile cache (and disk tile store).
     public void invalidateAll() {
+        if (diskTileStore != null) {
+            diskTileStore.invalidateAll();
+        }
         mapTiles.invalidateAll();
     }
 
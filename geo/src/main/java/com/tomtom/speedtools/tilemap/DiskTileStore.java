@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Disk-backed store for encoded map tiles, which survives restarts of the application. It is used as the second tier of
+ * a {@link CachedTileMap}, below the heap cache.
+ *
+ * Every tile is stored in its own file, "zoomLevel/tileX_tileY.tile", below the store directory. A file consists of a
+ * header (magic number, data length and CRC32 checksum of the data) followed by the data. Files are read by memory
+ * mapping them, so the returned buffers are not copied into the heap. The checksum is validated on every read; corrupt
+ * files are removed.
+ *
+ * The total size of the files is limited. If the limit is exceeded, the least recently used tiles are removed. Tiles
+ * which are found in the directory when the store is created are ordered by their modification time.
+ *
+ * The store is best effort: I/O errors are logged and cause tiles to be missing, rather than exceptions. This class
+ * is thread-safe. A directory should not be shared by multiple stores.
+ */
+public final class DiskTileStore {
+    private static final Logger LOG = LoggerFactory.getLogger(DiskTileStore.class);
+
+    private static final int MAGIC = 0x53544c31;    // "STL1".
+    private static final int HEADER_SIZE = 12;      // Magic, length and checksum.
+    private static final String SUFFIX = ".tile";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Nonnull
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    // Stored tiles, least recently used first.
+    @Nonnull
+    private final LinkedHashMap<TileKey, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes = 0;
+
+    /**
+     * Create a disk tile store. Tiles which are already stored in the directory are kept.
+     *
+     * @param directory    Directory to store tiles in. It is created if it does not exist.
+     * @param maxSizeBytes Maximum total size of the stored tiles, in bytes.
+     * @throws IOException If the directory cannot be created or read.
+     */
+    public DiskTileStore(
+            @Nonnull final Path directory,
+            final long maxSizeBytes) throws IOException {
+        super();
+        assert directory != null;
+        assert maxSizeBytes >= 0 : maxSizeBytes;
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        Files.createDirectories(directory);
+        readIndex();
+    }
+
+    /**
+     * Get the data of a tile.
+     *
+     * @param key Tile key.
+     * @return Read-only buffer with the data of the tile, from position 0 to its limit, or null if the tile is not
+     * stored (or could not be read).
+     */
+    @Nullable
+    public ByteBuffer get(@Nonnull final TileKey key) {
+        assert key != null;
+        final Entry entry;
+        synchronized (index) {
+            entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+        }
+
+        // The file is read outside the lock, so it may have been replaced or removed in the meantime.
+        final Path path = pathOf(key);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize >= HEADER_SIZE) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+                final int magic = buffer.getInt();
+                final int length = buffer.getInt();
+                final int checksum = buffer.getInt();
+                if ((magic == MAGIC) && (length == (fileSize - HEADER_SIZE))) {
+                    final ByteBuffer data = buffer.slice();
+                    final CRC32 crc = new CRC32();
+                    crc.update(data.duplicate());
+                    if ((int) crc.getValue() == checksum) {
+                        return data.asReadOnlyBuffer();
+                    }
+                }
+            }
+            LOG.warn("get: corrupt tile file removed, path={}", path);
+        } catch (final NoSuchFileException ignored) {
+            LOG.debug("get: tile file no longer exists, path={}", path);
+            removeIfCurrent(key, entry, false);
+            return null;
+        } catch (final IOException e) {
+            LOG.warn("get: cannot read tile file, path={}, exception={}", path, e.getMessage());
+        }
+        removeIfCurrent(key, entry, true);
+        return null;
+    }
+
+    /**
+     * Store the data of a tile. Tiles may be removed to stay within the maximum size.
+     *
+     * @param key  Tile key.
+     * @param data Data of the tile.
+     */
+    public void put(@Nonnull final TileKey key, @Nonnull final byte[] data) {
+        assert key != null;
+        assert data != null;
+        final long fileSize = HEADER_SIZE + data.length;
+        if (fileSize > maxSizeBytes) {
+            return;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(data.length).putInt((int) crc.getValue()).flip();
+
+        // Write to a temporary file first, so readers never see a partially written tile.
+        final Path path = pathOf(key);
+        final Entry entry = new Entry(fileSize);
+        Path tempPath = null;
+        try {
+            Files.createDirectories(path.getParent());
+            tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), TEMP_SUFFIX);
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                final ByteBuffer[] buffers = {header, ByteBuffer.wrap(data)};
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+
+            // Replace the file and its entry at once, so a reader never removes a newer file than it has read.
+            synchronized (index) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                final Entry oldEntry = index.put(key, entry);
+                sizeBytes += fileSize - ((oldEntry == null) ? 0 : oldEntry.size);
+            }
+        } catch (final IOException e) {
+            LOG.warn("put: cannot write tile file, path={}, exception={}", path, e.getMessage());
+            if (tempPath != null) {
+                deleteQuietly(tempPath);
+            }
+            remove(key);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Remove a tile.
+     *
+     * @param key Tile key.
+     */
+    public void invalidate(@Nonnull final TileKey key) {
+        assert key != null;
+        remove(key);
+    }
+
+    /**
+     * Remove all tiles.
+     */
+    public void invalidateAll() {
+        final List<TileKey> keys;
+        synchronized (index) {
+            keys = new ArrayList<>(index.keySet());
+        }
+        for (final TileKey key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Get the number of stored tiles.
+     *
+     * @return Number of tiles.
+     */
+    public int size() {
+        synchronized (index) {
+            return index.size();
+        }
+    }
+
+    /**
+     * Get the total size of the stored tiles, including headers.
+     *
+     * @return Size in bytes, at most the maximum size.
+     */
+    public long getSizeBytes() {
+        synchronized (index) {
+            return sizeBytes;
+        }
+    }
+
+    @Nonnull
+    private Path pathOf(@Nonnull final TileKey key) {
+        return directory.resolve(Integer.toString(key.getZoomLevel())).
+                resolve(Long.toString(key.getTileX()) + '_' + key.getTileY() + SUFFIX);
+    }
+
+    private void remove(@Nonnull final TileKey key) {
+        synchronized (index) {
+            final Entry entry = index.remove(key);
+            if (entry != null) {
+                sizeBytes -= entry.size;
+            }
+        }
+        deleteQuietly(pathOf(key));
+    }
+
+    /**
+     * Remove a tile, but only if the index still refers to the given entry. If the tile was replaced in the meantime,
+     * the new tile is kept.
+     *
+     * @param key        Tile key.
+     * @param entry      Entry of the tile, as read earlier.
+     * @param deleteFile True if the file of the tile must be deleted as well.
+     */
+    private void removeIfCurrent(@Nonnull final TileKey key, @Nonnull final Entry entry, final boolean deleteFile) {
+        synchronized (index) {
+            if (index.remove(key, entry)) {
+                sizeBytes -= entry.size;
+                if (deleteFile) {
+                    deleteQuietly(pathOf(key));
+                }
+            }
+        }
+    }
+
+    private void evict() {
+        while (true) {
+            final TileKey eldest;
+            synchronized (index) {
+                if (sizeBytes <= maxSizeBytes) {
+                    return;
+                }
+                final Iterator<Map.Entry<TileKey, Entry>> iterator = index.entrySet().iterator();
+                final Map.Entry<TileKey, Entry> entry = iterator.next();
+                eldest = entry.getKey();
+                sizeBytes -= entry.getValue().size;
+                iterator.remove();
+            }
+            deleteQuietly(pathOf(eldest));
+        }
+    }
+
+    private static void deleteQuietly(@Nonnull final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            LOG.warn("deleteQuietly: cannot delete tile file, path={}, exception={}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Read the tiles which are already stored in the directory, oldest first. Temporary files, left behind by an
+     * interrupted write, are removed. Other files are ignored.
+     */
+    private void readIndex() throws IOException {
+        final List<StoredTile> storedTiles = new ArrayList<>();
+        try (DirectoryStream<Path> zoomDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (final Path zoomDirectory : zoomDirectories) {
+                final int zoomLevel = parseInt(zoomDirectory.getFileName().toString());
+                if ((zoomLevel < MapConst.MINIMUM_ZOOM) || (zoomLevel > MapConst.MAXIMUM_ZOOM)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(zoomDirectory)) {
+                    for (final Path file : files) {
+                        final String fileName = file.getFileName().toString();
+                        final TileKey key = parseKey(zoomLevel, fileName);
+                        if ((key != null) && pathOf(key).equals(file)) {
+                            storedTiles.add(new StoredTile(key, Files.size(file),
+                                    Files.getLastModifiedTime(file).toMillis()));
+                        } else if (fileName.endsWith(TEMP_SUFFIX)) {
+                            deleteQuietly(file);
+                        }
+                    }
+                }
+            }
+        }
+        storedTiles.sort((a, b) -> Long.compare(a.lastModified, b.lastModified));
+        synchronized (index) {
+            for (final StoredTile storedTile : storedTiles) {
+                index.put(storedTile.key, new Entry(storedTile.size));
+                sizeBytes += storedTile.size;
+            }
+        }
+        evict();
+        LOG.debug("readIndex: {} tiles, {} bytes, directory={}", storedTiles.size(), sizeBytes, directory);
+    }
+
+    @Nullable
+    private static TileKey parseKey(final int zoomLevel, @Nonnull final String fileName) {
+        if (!fileName.endsWith(SUFFIX)) {
+            return null;
+        }
+        final String name = fileName.substring(0, fileName.length() - SUFFIX.length());
+        final int separator = name.indexOf('_');
+        if (separator < 0) {
+            return null;
+        }
+        final long tileX = parseInt(name.substring(0, separator));
+        final long tileY = parseInt(name.substring(separator + 1));
+        final long nrTiles = 1L << zoomLevel;
+        if ((tileX < 0) || (tileX >= nrTiles) || (tileY < 0) || (tileY >= nrTiles)) {
+            return null;
+        }
+        return new TileKey(tileX, tileY, zoomLevel);
+    }
+
+    private static int parseInt(@Nonnull final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * Index entry of a stored tile. Every write creates a new entry, so entries are compared by identity to find out
+     * whether a tile was replaced.
+     */
+    private static final class Entry {
+        private final long size;
+
+        private Entry(final long size) {
+            this.size = size;
+        }
+    }
+
+    private static final class StoredTile {
+        @Nonnull
+        private final TileKey key;
+        private final long size;
+        private final long lastModified;
+
+        private StoredTile(@Nonnull final TileKey key, final long size, final long lastModified) {
+            this.key = key;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
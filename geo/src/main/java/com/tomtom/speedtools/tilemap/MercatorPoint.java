@@ -16,6 +16,7 @@
 
 package com.tomtom.speedtools.tilemap;
 
+import com.tomtom.speedtools.geometry.Geo;
 import com.tomtom.speedtools.geometry.GeoPoint;
 import com.tomtom.speedtools.json.Json;
 import com.tomtom.speedtools.utils.MathUtils;
@@ -93,20 +94,40 @@ public final class MercatorPoint {
      */
     @Nonnull
     public static MercatorPoint latLonToMercs(@Nonnull final GeoPoint point) {
-        final double lat = MathUtils.limitTo(point.getLat(), MapConst.LATITUDE_MIN, MapConst.LATITUDE_MAX);
-        final double lon = point.getLon();
-        final double geoX = Math.toRadians(MapConst.WORLD_RADIUS * lon);
-        final double geoY = MapConst.WORLD_RADIUS * Math.log(Math.tan(Math.toRadians(lat + 90.0) / 2.0));
-        final double mercX = Math.min(1.0, Math.max(0.0, (geoX / MapConst.WORLD_SIZE) + 0.5));
-        final double mercY = Math.min(1.0, Math.max(0.0, 1.0 - ((geoY / MapConst.WORLD_SIZE) + 0.5)));
-        assert MathUtils.isBetween(mercX, 0.0, 1.0) : mercX + ", " + point;
-        assert MathUtils.isBetween(mercY, 0.0, 1.0) : mercY + ", " + point;
-        return new MercatorPoint(mercX, mercY);
+        return new MercatorPoint(lonToMercX(point.getLonValue()), latToMercY(point.getLatValue()));
     }
 
     @Nonnull
     public static MercatorPoint latLonToMercs(final double lat, final double lon) {
-        return latLonToMercs(new GeoPoint(lat, lon));
+        return new MercatorPoint(lonToMercX(lon), latToMercY(lat));
+    }
+
+    /**
+     * Return the normalized Mercator X (0..1) for a longitude, without creating objects.
+     *
+     * @param lon Longitude, any range, will be wrapped to [-180, 180).
+     * @return Normalized Mercator X.
+     */
+    public static double lonToMercX(final double lon) {
+        final double mappedLon = ((-180.0 <= lon) && (lon < 180.0)) ? lon : Geo.mapToLon(lon);
+        final double geoX = Math.toRadians(MapConst.WORLD_RADIUS * mappedLon);
+        final double mercX = Math.min(1.0, Math.max(0.0, (geoX / MapConst.WORLD_SIZE) + 0.5));
+        assert MathUtils.isBetween(mercX, 0.0, 1.0) : mercX + ", " + lon;
+        return mercX;
+    }
+
+    /**
+     * Return the normalized Mercator Y (0..1) for a latitude, without creating objects.
+     *
+     * @param lat Latitude, will be limited to [LATITUDE_MIN, LATITUDE_MAX].
+     * @return Normalized Mercator Y.
+     */
+    public static double latToMercY(final double lat) {
+        final double limitedLat = MathUtils.limitTo(lat, MapConst.LATITUDE_MIN, MapConst.LATITUDE_MAX);
+        final double geoY = MapConst.WORLD_RADIUS * Math.log(Math.tan(Math.toRadians(limitedLat + 90.0) / 2.0));
+        final double mercY = Math.min(1.0, Math.max(0.0, 1.0 - ((geoY / MapConst.WORLD_SIZE) + 0.5)));
+        assert MathUtils.isBetween(mercY, 0.0, 1.0) : mercY + ", " + lat;
+        return mercY;
     }
 
     public boolean canEqual(@Nonnull final Object obj) {
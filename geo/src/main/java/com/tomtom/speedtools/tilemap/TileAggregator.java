@@ -0,0 +1,472 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import com.tomtom.speedtools.geometry.GeoArea;
+import com.tomtom.speedtools.geometry.GeoLine;
+import com.tomtom.speedtools.geometry.GeoObject;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPolyLine;
+import com.tomtom.speedtools.geometry.GeoRectangle;
+import com.tomtom.speedtools.utils.MathUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Aggregation of geo objects per map tile, for a range of zoom levels. This answers the question "which objects fall
+ * into tile (zoomLevel, x, y)", for example to render overlays, from buckets which are kept up to date when objects are
+ * added, moved or removed, rather than by checking all objects for every tile.
+ *
+ * Objects are identified by a key of type K. Adding an object with an existing key moves the object. Objects are
+ * bucketed on all zoom levels at once:
+ *
+ * - Points ({@link GeoPoint}) are added to the tile which contains them, as in {@link
+ * TileMap#convertLatLonToTileOffset}. On zoom levels up to the maximum cluster zoom level, points are not returned
+ * individually, but aggregated into clusters: every tile is divided into a grid of {@link #CLUSTER_GRID_SIZE} x {@link
+ * #CLUSTER_GRID_SIZE} cells and the points within a cell form a cluster, see {@link #getClusters(TileKey)}.
+ *
+ * - Other objects are added to all tiles which overlap their bounding box. To limit the number of buckets per object,
+ * objects which overlap more than {@link #MAX_TILES_PER_OBJECT} tiles on a zoom level are not added to buckets on that
+ * zoom level, but are checked against the tile when the tile is requested. These are usually few, large objects.
+ *
+ * This class is thread-safe. Objects can be read concurrently, updates are exclusive.
+ *
+ * @param <K> Key type of objects.
+ */
+public final class TileAggregator<K> {
+
+    /**
+     * Number of cluster cells per tile, in X and Y direction.
+     */
+    public static final int CLUSTER_GRID_SIZE = 4;
+
+    /**
+     * Maximum number of tiles an object is added to, per zoom level.
+     */
+    public static final int MAX_TILES_PER_OBJECT = 16;
+
+    private static final int CLUSTER_CELL_PIXELS = MapConst.PIXELS_PER_TILE / CLUSTER_GRID_SIZE;
+
+    private final int minZoomLevel;
+    private final int maxZoomLevel;
+    private final int maxClusterZoomLevel;
+
+    @Nonnull
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All objects.
+    @Nonnull
+    private final Map<K, Entry> entries = new HashMap<>();
+
+    // Keys of objects per packed tile key.
+    @Nonnull
+    private final Map<Long, Set<K>> buckets = new HashMap<>();
+
+    // Point clusters per packed tile key.
+    @Nonnull
+    private final Map<Long, Clusters> clusters = new HashMap<>();
+
+    // Keys of objects which overlap too many tiles, per zoom level.
+    @Nonnull
+    private final List<Set<K>> largeObjects = new ArrayList<>();
+
+    /**
+     * Create an empty tile aggregator.
+     *
+     * @param minZoomLevel        Minimum zoom level to aggregate objects for.
+     * @param maxZoomLevel        Maximum zoom level to aggregate objects for.
+     * @param maxClusterZoomLevel Maximum zoom level on which points are clustered. Use a value below minZoomLevel
+     *                            (e.g. -1) to never cluster points.
+     */
+    public TileAggregator(
+            final int minZoomLevel,
+            final int maxZoomLevel,
+            final int maxClusterZoomLevel) {
+        super();
+        assert MathUtils.isBetween(minZoomLevel, MapConst.MINIMUM_ZOOM, MapConst.MAXIMUM_ZOOM) : minZoomLevel;
+        assert MathUtils.isBetween(maxZoomLevel, minZoomLevel, MapConst.MAXIMUM_ZOOM) : maxZoomLevel;
+        assert maxClusterZoomLevel <= maxZoomLevel : maxClusterZoomLevel;
+        this.minZoomLevel = minZoomLevel;
+        this.maxZoomLevel = maxZoomLevel;
+        this.maxClusterZoomLevel = maxClusterZoomLevel;
+        for (int zoomLevel = 0; zoomLevel <= maxZoomLevel; ++zoomLevel) {
+            largeObjects.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * Add an object, or move it if an object with the same key already exists.
+     *
+     * @param key    Key of object.
+     * @param object Object.
+     */
+    public void put(@Nonnull final K key, @Nonnull final GeoObject object) {
+        assert key != null;
+        assert object != null;
+        final Entry entry = new Entry(object);
+        lock.writeLock().lock();
+        try {
+            doPut(key, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or move multiple objects, in a single pass.
+     *
+     * @param objects Objects, by key.
+     */
+    public void putAll(@Nonnull final Map<? extends K, ? extends GeoObject> objects) {
+        assert objects != null;
+        lock.writeLock().lock();
+        try {
+            for (final Map.Entry<? extends K, ? extends GeoObject> object : objects.entrySet()) {
+                doPut(object.getKey(), new Entry(object.getValue()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove an object.
+     *
+     * @param key Key of object.
+     * @return True if the object was removed, false if it did not exist.
+     */
+    public boolean remove(@Nonnull final K key) {
+        assert key != null;
+        lock.writeLock().lock();
+        try {
+            final Entry entry = entries.remove(key);
+            if (entry == null) {
+                return false;
+            }
+            update(key, entry, false);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all objects.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            buckets.clear();
+            clusters.clear();
+            for (final Set<K> keys : largeObjects) {
+                keys.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of objects.
+     *
+     * @return Number of objects.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get an object.
+     *
+     * @param key Key of object.
+     * @return Object, or null if it does not exist.
+     */
+    @Nullable
+    public GeoObject get(@Nonnull final K key) {
+        assert key != null;
+        lock.readLock().lock();
+        try {
+            final Entry entry = entries.get(key);
+            return (entry == null) ? null : entry.object;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the objects in a tile. On zoom levels where points are clustered, points are not included; use {@link
+     * #getClusters(TileKey)} instead.
+     *
+     * @param key Tile key.
+     * @return Objects in the tile, by key. Empty if the zoom level of the tile is not aggregated.
+     */
+    @Nonnull
+    public Map<K, GeoObject> getObjects(@Nonnull final TileKey key) {
+        assert key != null;
+        final int zoomLevel = key.getZoomLevel();
+        if (!isAggregated(zoomLevel)) {
+            return Collections.emptyMap();
+        }
+        final Map<K, GeoObject> result = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            final Set<K> keys = buckets.get(key.pack());
+            if (keys != null) {
+                for (final K objectKey : keys) {
+                    result.put(objectKey, entries.get(objectKey).object);
+                }
+            }
+            final Set<K> largeKeys = largeObjects.get(zoomLevel);
+            if (!largeKeys.isEmpty()) {
+                final double nrTiles = 1L << zoomLevel;
+                final double west = ((key.getTileX() / nrTiles) * 360.0) - 180.0;
+                final double east = (((key.getTileX() + 1) / nrTiles) * 360.0) - 180.0;
+                final double north = (key.getTileY() == 0) ? 90.0 :
+                        MercatorPoint.mercsToLatLon(0.0, key.getTileY() / nrTiles).getLatValue();
+                final double south = (key.getTileY() == ((long) nrTiles - 1)) ? -90.0 :
+                        MercatorPoint.mercsToLatLon(0.0, (key.getTileY() + 1) / nrTiles).getLatValue();
+                for (final K objectKey : largeKeys) {
+                    final Entry entry = entries.get(objectKey);
+                    if (GeoRectangle.overlaps(south, west, north, east,
+                            entry.southLat, entry.westLon, entry.northLat, entry.eastLon)) {
+                        result.put(objectKey, entry.object);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Get the point clusters in a tile. Only available on zoom levels where points are clustered.
+     *
+     * @param key Tile key.
+     * @return Clusters in the tile, ordered by cell, row by row from the top-left. Empty if points are not clustered on
+     * the zoom level of the tile.
+     */
+    @Nonnull
+    public List<TileCluster> getClusters(@Nonnull final TileKey key) {
+        assert key != null;
+        if (!isClustered(key.getZoomLevel())) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            final Clusters tileClusters = clusters.get(key.pack());
+            if (tileClusters == null) {
+                return Collections.emptyList();
+            }
+            final List<TileCluster> result = new ArrayList<>();
+            for (int cell = 0; cell < (CLUSTER_GRID_SIZE * CLUSTER_GRID_SIZE); ++cell) {
+                final int count = tileClusters.counts[cell];
+                if (count > 0) {
+                    result.add(new TileCluster(
+                            new GeoPoint(tileClusters.sumLats[cell] / count, tileClusters.sumLons[cell] / count),
+                            count));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isAggregated(final int zoomLevel) {
+        return (minZoomLevel <= zoomLevel) && (zoomLevel <= maxZoomLevel);
+    }
+
+    private boolean isClustered(final int zoomLevel) {
+        return isAggregated(zoomLevel) && (zoomLevel <= maxClusterZoomLevel);
+    }
+
+    private void doPut(@Nonnull final K key, @Nonnull final Entry entry) {
+        final Entry oldEntry = entries.put(key, entry);
+        if (oldEntry != null) {
+            update(key, oldEntry, false);
+        }
+        update(key, entry, true);
+    }
+
+    /**
+     * Add an object to, or remove it from, the buckets and clusters of all zoom levels.
+     */
+    private void update(@Nonnull final K key, @Nonnull final Entry entry, final boolean add) {
+        for (int zoomLevel = minZoomLevel; zoomLevel <= maxZoomLevel; ++zoomLevel) {
+            if (entry.isPoint) {
+                final double lat = entry.southLat;
+                final double lon = entry.westLon;
+                final long packedKey = TileMap.convertLatLonToPackedTileKey(lat, lon, zoomLevel);
+                if (zoomLevel <= maxClusterZoomLevel) {
+                    final int cellX = Math.min(CLUSTER_GRID_SIZE - 1,
+                            TileMap.convertLonToTileOffsetX(lon, zoomLevel) / CLUSTER_CELL_PIXELS);
+                    final int cellY = Math.min(CLUSTER_GRID_SIZE - 1,
+                            TileMap.convertLatToTileOffsetY(lat, zoomLevel) / CLUSTER_CELL_PIXELS);
+                    updateCluster(packedKey, (cellY * CLUSTER_GRID_SIZE) + cellX, lat, lon, add);
+                } else {
+                    updateBucket(packedKey, key, add);
+                }
+            } else {
+                final long nrTiles = 1L << zoomLevel;
+                final long fromX = TileMap.convertLonToTileX(entry.westLon, zoomLevel);
+                final long toX = TileMap.convertLonToTileX(entry.eastLon, zoomLevel);
+                final long fromY = TileMap.convertLatToTileY(entry.northLat, zoomLevel);
+                final long toY = TileMap.convertLatToTileY(entry.southLat, zoomLevel);
+                final long nrColumns = (toX >= fromX) ? ((toX - fromX) + 1) : (((nrTiles - fromX) + toX) + 1);
+                final long nrRows = (toY - fromY) + 1;
+                if ((nrColumns * nrRows) > MAX_TILES_PER_OBJECT) {
+                    final Set<K> keys = largeObjects.get(zoomLevel);
+                    if (add) {
+                        keys.add(key);
+                    } else {
+                        keys.remove(key);
+                    }
+                } else {
+                    for (long y = fromY; y <= toY; ++y) {
+                        for (long i = 0; i < nrColumns; ++i) {
+                            updateBucket(TileKey.pack((fromX + i) % nrTiles, y, zoomLevel), key, add);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateBucket(final long packedKey, @Nonnull final K key, final boolean add) {
+        if (add) {
+            buckets.computeIfAbsent(packedKey, k -> new HashSet<>()).add(key);
+        } else {
+            final Set<K> keys = buckets.get(packedKey);
+            assert keys != null;
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                buckets.remove(packedKey);
+            }
+        }
+    }
+
+    private void updateCluster(final long packedKey, final int cell, final double lat, final double lon,
+                               final boolean add) {
+        final Clusters tileClusters;
+        if (add) {
+            tileClusters = clusters.computeIfAbsent(packedKey, k -> new Clusters());
+            ++tileClusters.counts[cell];
+            ++tileClusters.total;
+            tileClusters.sumLats[cell] += lat;
+            tileClusters.sumLons[cell] += lon;
+        } else {
+            tileClusters = clusters.get(packedKey);
+            assert tileClusters != null;
+            --tileClusters.counts[cell];
+            --tileClusters.total;
+            if (tileClusters.total == 0) {
+                clusters.remove(packedKey);
+            } else if (tileClusters.counts[cell] == 0) {
+
+                // Avoid accumulating rounding errors in empty cells.
+                tileClusters.sumLats[cell] = 0.0;
+                tileClusters.sumLons[cell] = 0.0;
+            } else {
+                tileClusters.sumLats[cell] -= lat;
+                tileClusters.sumLons[cell] -= lon;
+            }
+        }
+    }
+
+    /**
+     * Object with its bounding box. For points, the bounding box is the point itself.
+     */
+    private static final class Entry {
+        @Nonnull
+        private final GeoObject object;
+        private final boolean isPoint;
+        private final double southLat;
+        private final double westLon;
+        private final double northLat;
+        private final double eastLon;
+
+        private Entry(@Nonnull final GeoObject object) {
+            assert object != null;
+            this.object = object;
+            isPoint = object instanceof GeoPoint;
+            if (isPoint) {
+                final GeoPoint point = (GeoPoint) object;
+                southLat = point.getLatValue();
+                westLon = point.getLonValue();
+                northLat = southLat;
+                eastLon = westLon;
+            } else {
+                final GeoRectangle boundingBox = boundingBox(object);
+                southLat = boundingBox.getSouthWest().getLatValue();
+                westLon = boundingBox.getSouthWest().getLonValue();
+                northLat = boundingBox.getNorthEast().getLatValue();
+                eastLon = boundingBox.getNorthEast().getLonValue();
+            }
+        }
+
+        @Nonnull
+        private static GeoRectangle boundingBox(@Nonnull final GeoObject object) {
+            if (object instanceof GeoArea) {
+                return ((GeoArea) object).boundingBox();
+            }
+            if (object instanceof GeoLine) {
+                final GeoLine line = (GeoLine) object;
+                return new GeoRectangle(line.getSouthWest(), line.getSouthWest()).grow(line.getNorthEast());
+            }
+            if (object instanceof GeoPolyLine) {
+                final GeoPolyLine polyLine = (GeoPolyLine) object;
+                GeoRectangle boundingBox = new GeoRectangle(polyLine.get(0), polyLine.get(0));
+                for (int i = 1; i < polyLine.size(); ++i) {
+                    boundingBox = boundingBox.grow(polyLine.get(i));
+                }
+                return boundingBox;
+            }
+            return new GeoRectangle(object.getCenter(), object.getCenter());
+        }
+    }
+
+    /**
+     * Point clusters of a tile: the number of points and the sum of their positions, per cell.
+     */
+    private static final class Clusters {
+        @Nonnull
+        private final int[] counts = new int[CLUSTER_GRID_SIZE * CLUSTER_GRID_SIZE];
+        @Nonnull
+        private final double[] sumLats = new double[CLUSTER_GRID_SIZE * CLUSTER_GRID_SIZE];
+        @Nonnull
+        private final double[] sumLons = new double[CLUSTER_GRID_SIZE * CLUSTER_GRID_SIZE];
+        private int total = 0;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import com.google.common.base.Objects;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.json.Json;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Cluster of points within a map tile, as returned by {@link TileAggregator#getClusters(TileKey)}.
+ */
+public final class TileCluster {
+    @Nonnull
+    private final GeoPoint position;    // Average position of the points.
+    private final int count;            // Number of points.
+
+    /**
+     * Create a cluster of points.
+     *
+     * @param position Average position of the points.
+     * @param count    Number of points, &gt; 0.
+     */
+    public TileCluster(
+            @Nonnull final GeoPoint position,
+            final int count) {
+        super();
+        assert position != null;
+        assert count > 0 : count;
+        this.position = position;
+        this.count = count;
+    }
+
+    @Nonnull
+    public GeoPoint getPosition() {
+        return position;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Nonnull
+    public TileCluster withPosition(@Nonnull final GeoPoint position) {
+        return new TileCluster(position, count);
+    }
+
+    @Nonnull
+    public TileCluster withCount(final int count) {
+        return new TileCluster(position, count);
+    }
+
+    public boolean canEqual(@Nonnull final Object obj) {
+        assert obj != null;
+        return obj instanceof TileCluster;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        boolean eq;
+        if (this == obj) {
+            eq = true;
+        } else if ((obj != null) && (obj instanceof TileCluster)) {
+            final TileCluster that = (TileCluster) obj;
+            eq = that.canEqual(this);
+            eq = eq && position.equals(that.position);
+            eq = eq && (count == that.count);
+        } else {
+            eq = false;
+        }
+        return eq;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(position, count);
+    }
+
+    @Override
+    public String toString() {
+        return Json.toStringJson(this);
+    }
+}
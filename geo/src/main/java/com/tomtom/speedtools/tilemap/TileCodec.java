@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+
+/**
+ * Conversion of map tiles to and from bytes, used by {@link CachedTileMap} to size its heap cache and to store tiles in
+ * a {@link DiskTileStore}.
+ *
+ * The template parameter T is the image class, e.g. Image or PImage.
+ */
+public interface TileCodec<T> {
+
+    /**
+     * Encode a tile.
+     *
+     * @param tile Tile.
+     * @return Encoded tile.
+     */
+    @Nonnull
+    byte[] encode(@Nonnull T tile);
+
+    /**
+     * Decode a tile. The buffer is read-only and may be memory mapped. Implementations can avoid copying the data by
+     * keeping a reference to the buffer in the tile.
+     *
+     * @param buffer Encoded tile, from position 0 to its limit.
+     * @return Tile.
+     * @throws IllegalArgumentException If the buffer does not contain a valid tile.
+     */
+    @Nonnull
+    T decode(@Nonnull ByteBuffer buffer);
+
+    /**
+     * Get the (approximate) heap size of a tile.
+     *
+     * @param tile Tile.
+     * @return Size in bytes, &gt;= 0.
+     */
+    int getSizeInBytes(@Nonnull T tile);
+}
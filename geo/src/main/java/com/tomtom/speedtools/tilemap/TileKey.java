@@ -16,7 +16,6 @@
 
 package com.tomtom.speedtools.tilemap;
 
-import com.google.common.base.Objects;
 import com.tomtom.speedtools.json.Json;
 import com.tomtom.speedtools.utils.MathUtils;
 
@@ -25,8 +24,15 @@ import javax.annotation.Nullable;
 
 /**
  * Map tile keys for the TomTom LBS system.
+ *
+ * A tile key can also be packed into a single long value, with the zoom level in the highest bits, followed by the tile
+ * index X and the tile index Y. Packed keys are ordered by zoom level, X and Y, and can be used as cache keys or stored
+ * in primitive collections without creating tile key objects.
  */
 public final class TileKey {
+    private static final int INDEX_BITS = 28;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
     private final long tileX;           // LBS tile index X.
     private final long tileY;           // LBS tile index Y.
     private final int zoomLevel;        // LBS zoom-level.
@@ -83,6 +89,71 @@ public final class TileKey {
         return zoomLevel;
     }
 
+    /**
+     * Get the packed tile key.
+     *
+     * @return Packed tile key, &gt;= 0.
+     */
+    public long pack() {
+        return pack(tileX, tileY, zoomLevel);
+    }
+
+    /**
+     * Pack a tile key into a long value.
+     *
+     * @param tileX     Tile index X.
+     * @param tileY     Tile index Y.
+     * @param zoomLevel Zoom level.
+     * @return Packed tile key, &gt;= 0.
+     */
+    public static long pack(final long tileX, final long tileY, final int zoomLevel) {
+        assert MathUtils.isBetween(zoomLevel, MapConst.MINIMUM_ZOOM, MapConst.MAXIMUM_ZOOM) : zoomLevel;
+        assert (0 <= tileX) && (tileX < (1 << zoomLevel)) : tileX + ", " + zoomLevel;
+        assert (0 <= tileY) && (tileY < (1 << zoomLevel)) : tileY + ", " + zoomLevel;
+        return (((long) zoomLevel) << (2 * INDEX_BITS)) | (tileX << INDEX_BITS) | tileY;
+    }
+
+    /**
+     * Unpack a packed tile key.
+     *
+     * @param packedKey Packed tile key.
+     * @return Tile key.
+     */
+    @Nonnull
+    public static TileKey unpack(final long packedKey) {
+        return new TileKey(unpackTileX(packedKey), unpackTileY(packedKey), unpackZoomLevel(packedKey));
+    }
+
+    /**
+     * Get the tile index X of a packed tile key.
+     *
+     * @param packedKey Packed tile key.
+     * @return Tile index X.
+     */
+    public static long unpackTileX(final long packedKey) {
+        return (packedKey >>> INDEX_BITS) & INDEX_MASK;
+    }
+
+    /**
+     * Get the tile index Y of a packed tile key.
+     *
+     * @param packedKey Packed tile key.
+     * @return Tile index Y.
+     */
+    public static long unpackTileY(final long packedKey) {
+        return packedKey & INDEX_MASK;
+    }
+
+    /**
+     * Get the zoom level of a packed tile key.
+     *
+     * @param packedKey Packed tile key.
+     * @return Zoom level.
+     */
+    public static int unpackZoomLevel(final long packedKey) {
+        return (int) (packedKey >>> (2 * INDEX_BITS));
+    }
+
     public boolean canEqual(@Nonnull final Object obj) {
         assert obj != null;
         return obj instanceof TileKey;
@@ -107,7 +178,7 @@ public final class TileKey {
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(tileX, tileY, zoomLevel);
+        return Long.hashCode(pack());
     }
 
     @Override
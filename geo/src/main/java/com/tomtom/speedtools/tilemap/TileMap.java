@@ -25,12 +25,22 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * This class represents an (abstract) cacheable map. The type parameter T is the image tile type. It is parametrized to
  * allow retrieving tiles in different internal formats, such as AWT Image objects, or Processing PImage objects.
  */
 public abstract class TileMap<T> {
+
+    /**
+     * Value returned by {@link #convertLatLonToPackedViewportXY} for positions outside the viewport.
+     */
+    public static final long NO_VIEWPORT_XY = -1L;
+
     private final int bufferColumns;    // Additional tile columns to left and right of viewport, for buffering.
     private final int bufferRows;       // Additional tile rows on top and bottom of viewport, for buffering.
 
@@ -137,110 +147,153 @@ public abstract class TileMap<T> {
      * Process all tiles for a specific viewport. For every tile a callback function 'process()' is called. This
      * function can either immediately draw the image, or for example store it in a collection.
      *
+     * Tiles are loaded one after the other. Use {@link #processViewportTilesAsync} to load tiles concurrently.
+     *
      * @param widthPixels  Width of viewport in pixels.
      * @param heightPixels Height of viewport in pixels.
      * @param mapCenter    Center of map, as lat/lon.
      * @param zoomLevel    Zoomlevel (from 0..LbsConst.MapConst.MAXIMUM_ZOOM).
      * @param processor    Viewport processor.
      */
-    @SuppressWarnings("ConstantConditions")
     public void processViewportTiles(
             final int widthPixels, final int heightPixels,
             @Nonnull final GeoPoint mapCenter, final int zoomLevel,
             @Nonnull final ViewportTileProcessor<T> processor) {
+        assert processor != null;
+        layoutViewportTiles(widthPixels, heightPixels, mapCenter, zoomLevel,
+                (seqX, seqY, tileKey, viewportX, viewportY, tileOffsetX, tileOffsetY, width, height) -> {
+
+                    // Get tile from cache (or load it now).
+                    final T img = getTile(tileKey);
+
+                    // Call "process()" method for tile.
+                    processor.process(seqX, seqY, tileKey, img, viewportX, viewportY,
+                            tileOffsetX, tileOffsetY, width, height);
+                },
+                this::cacheTile);
+    }
+
+    /**
+     * Process all tiles for a specific viewport, loading the tiles concurrently. This is the asynchronous version of
+     * {@link #processViewportTiles}: all visible tiles and pre-cached tiles are requested at once, using {@link
+     * #getTileAsync} and {@link #cacheTileAsync}, and the callback function 'process()' is called for every visible
+     * tile as soon as it arrives. The time to process a viewport is roughly the time to load the slowest tile, rather
+     * than the sum of the times to load all tiles.
+     *
+     * Tiles arrive in any order, so the processor should use the sequence numbers and viewport positions rather than
+     * the call order. The processor is called from the threads which load the tiles, but never concurrently, so it
+     * does not need to be thread-safe. Missing tiles are processed with a null image, like in {@link
+     * #processViewportTiles}.
+     *
+     * @param widthPixels  Width of viewport in pixels.
+     * @param heightPixels Height of viewport in pixels.
+     * @param mapCenter    Center of map, as lat/lon.
+     * @param zoomLevel    Zoomlevel (from 0..LbsConst.MapConst.MAXIMUM_ZOOM).
+     * @param executor     Executor to load tiles with. Loading tiles often blocks on I/O, so this should not be the
+     *                     common fork-join pool.
+     * @param processor    Viewport processor.
+     * @return Future which completes when all visible tiles have been processed. It completes exceptionally if the
+     * processor throws an exception. Pre-cached tiles may still be loading when it completes.
+     */
+    @Nonnull
+    public CompletableFuture<Void> processViewportTilesAsync(
+            final int widthPixels, final int heightPixels,
+            @Nonnull final GeoPoint mapCenter, final int zoomLevel,
+            @Nonnull final Executor executor,
+            @Nonnull final ViewportTileProcessor<T> processor) {
+        assert executor != null;
+        assert processor != null;
+        final Object processorLock = new Object();
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+        layoutViewportTiles(widthPixels, heightPixels, mapCenter, zoomLevel,
+                (seqX, seqY, tileKey, viewportX, viewportY, tileOffsetX, tileOffsetY, width, height) ->
+                        processed.add(getTileAsync(tileKey, executor).
+                                exceptionally(ignored -> null).
+                                thenAccept(img -> {
+                                    synchronized (processorLock) {
+                                        processor.process(seqX, seqY, tileKey, img, viewportX, viewportY,
+                                                tileOffsetX, tileOffsetY, width, height);
+                                    }
+                                })),
+                key -> cacheTileAsync(key, executor));
+        return CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[processed.size()]));
+    }
+
+    /**
+     * Get a map tile asynchronously, given a map tile key. The default implementation calls {@link #getTile} on the
+     * executor. Override this method if tiles can be loaded without blocking a thread, or to skip the executor for
+     * tiles which are already available.
+     *
+     * @param key      Tile key.
+     * @param executor Executor to load the tile with.
+     * @return Future tile. The tile is null if it is missing.
+     */
+    @Nonnull
+    public CompletableFuture<T> getTileAsync(@Nonnull final TileKey key, @Nonnull final Executor executor) {
+        assert key != null;
+        assert executor != null;
+        return CompletableFuture.supplyAsync(() -> getTile(key), executor);
+    }
+
+    /**
+     * Buffer a map tile asynchronously, given a map tile key. The default implementation calls {@link #cacheTile} on
+     * the executor.
+     *
+     * @param key      Tile key.
+     * @param executor Executor to load the tile with.
+     * @return Future which completes when the tile has been buffered.
+     */
+    @Nonnull
+    public CompletableFuture<Void> cacheTileAsync(@Nonnull final TileKey key, @Nonnull final Executor executor) {
+        assert key != null;
+        assert executor != null;
+        return CompletableFuture.runAsync(() -> cacheTile(key), executor);
+    }
+
+    /**
+     * Callback function for the layout of viewport tiles, without the tile image.
+     */
+    private interface ViewportTileLayout {
+        void layout(
+                final int seqX, final int seqY,
+                @Nonnull final TileKey tileKey,
+                final int viewportX, final int viewportY,
+                final int tileOffsetX, final int tileOffsetY, final int width, final int height);
+    }
+
+    /**
+     * Determine the layout of all tiles for a specific viewport. The callback function 'layout()' is called for all
+     * visible tiles first. If pre-caching is enabled, 'preCache' is called for the surrounding tiles afterwards.
+     */
+    private void layoutViewportTiles(
+            final int widthPixels, final int heightPixels,
+            @Nonnull final GeoPoint mapCenter, final int zoomLevel,
+            @Nonnull final ViewportTileLayout layout,
+            @Nonnull final Consumer<TileKey> preCache) {
         assert widthPixels >= 0;
         assert heightPixels >= 0;
         assert mapCenter != null;
-        assert processor != null;
+        assert layout != null;
+        assert preCache != null;
         assert MathUtils.isBetween(zoomLevel, 0, MapConst.MAXIMUM_ZOOM) : zoomLevel;
         assert MapConst.PIXELS_PER_TILE > 0;
-        assert processor != null;
 
-        // Calculate total number of tiles on this zoomlevel.
-        final long nrTiles = (1L << zoomLevel);
-
-        // Determine how many tiles top-left tile should shift to center the map.
-        final int shiftTileIndexX = widthPixels / MapConst.PIXELS_PER_TILE / 2;
-        final int shiftTileIndexY = heightPixels / MapConst.PIXELS_PER_TILE / 2;
-
-        // Determine offset within tile when centering tiles.
-        final int centerPixelX = widthPixels / 2;
-        final int centerPixelY = heightPixels / 2;
-        final int offsetCenterPixelX = centerPixelX - (shiftTileIndexX * MapConst.PIXELS_PER_TILE);
-        final int offsetCenterPixelY = centerPixelY - (shiftTileIndexY * MapConst.PIXELS_PER_TILE);
-        assert MathUtils.isBetween(offsetCenterPixelX, 0, MapConst.PIXELS_PER_TILE) : offsetCenterPixelX;
-        assert MathUtils.isBetween(offsetCenterPixelY, 0, MapConst.PIXELS_PER_TILE) : offsetCenterPixelY;
-
-        // Determine top-left tile.
-        final TileOffset centerTile = convertLatLonToTileOffset(mapCenter, zoomLevel);
-        long tileIndexX = (((centerTile.getKey().getTileX() - shiftTileIndexX) + nrTiles) % nrTiles);
-        long tileIndexY = (((centerTile.getKey().getTileY() - shiftTileIndexY) + nrTiles) % nrTiles);
-        assert (0 <= tileIndexX) && (tileIndexX < nrTiles) : tileIndexX;
-        assert (0 <= tileIndexY) && (tileIndexY < nrTiles) : tileIndexY;
-
-        // Offset within tile may require an additional tile shift.
-        final int offsetTilePixelX;
-        final int offsetTilePixelY;
-        if (centerTile.getOffsetX() <= offsetCenterPixelX) {
-            offsetTilePixelX = (MapConst.PIXELS_PER_TILE - 1) - (offsetCenterPixelX - centerTile.getOffsetX());
-            tileIndexX = ((tileIndexX + nrTiles) - 1) % nrTiles;
-        } else {
-            offsetTilePixelX = centerTile.getOffsetX() - offsetCenterPixelX;
+        // Lay out visible tiles.
+        final ViewportTileIterator iterator = new ViewportTileIterator();
+        iterator.reset(widthPixels, heightPixels, mapCenter, zoomLevel);
+        while (iterator.next()) {
+            layout.layout(iterator.getSeqX(), iterator.getSeqY(), iterator.getTileKey(),
+                    iterator.getViewportX(), iterator.getViewportY(),
+                    iterator.getTileOffsetX(), iterator.getTileOffsetY(), iterator.getWidth(), iterator.getHeight());
         }
-        assert MathUtils.isBetween(offsetTilePixelX, 0, MapConst.PIXELS_PER_TILE) : offsetTilePixelX;
 
-        if (centerTile.getOffsetY() <= offsetCenterPixelY) {
-            offsetTilePixelY = (MapConst.PIXELS_PER_TILE - 1) - (offsetCenterPixelY - centerTile.getOffsetY());
-            tileIndexY = ((tileIndexY + nrTiles) - 1) % nrTiles;
-        } else {
-            offsetTilePixelY = centerTile.getOffsetY() - offsetCenterPixelY;
-        }
-        assert MathUtils.isBetween(offsetTilePixelY, 0, MapConst.PIXELS_PER_TILE) : offsetTilePixelY;
-
-        // Constrain tile numbers for extreme coordinates.
-        final long startTileIndexX = tileIndexX;
-        final long startTileIndexY = tileIndexY;
-
-        // Create top-left tile object.
-        final TileKey topLeftKey = new TileKey(tileIndexX, tileIndexY, zoomLevel);
-        final TileOffset topLeft = new TileOffset(topLeftKey, offsetTilePixelX, offsetTilePixelY);
-
-        // Set colors for grid and draw map.
-        tileIndexY = startTileIndexY % nrTiles;
-        int seqIndexY = 0;
-        int viewportPixelX = 0;
-        int viewportPixelY = 0;
-        int tileOffsetPixelY = topLeft.getOffsetY();
-        while (viewportPixelY < heightPixels) {
-            tileIndexX = startTileIndexX % nrTiles;
-            int seqIndexX = 0;
-            int tileOffsetPixelX = topLeft.getOffsetX();
-            final int tilePixelHeight = Math.min(MapConst.PIXELS_PER_TILE, heightPixels - viewportPixelY) - tileOffsetPixelY;
-
-            while (viewportPixelX < widthPixels) {
-                final int tilePixelWidth = Math.min(MapConst.PIXELS_PER_TILE, widthPixels - viewportPixelX) - tileOffsetPixelX;
-
-                // Create tile key.
-                final TileKey tileKey = new TileKey(tileIndexX, tileIndexY, zoomLevel);
-
-                // Get tile from cache (or load it now).
-                final T img = getTile(tileKey);
-
-                // Call "process()" method for tile.
-                processor.process(seqIndexX, seqIndexY, tileKey, img, viewportPixelX, viewportPixelY,
-                        tileOffsetPixelX, tileOffsetPixelY, tilePixelWidth, tilePixelHeight);
-
-                tileOffsetPixelX = 0;
-                viewportPixelX = viewportPixelX + tilePixelWidth;
-                ++seqIndexX;
-                tileIndexX = (tileIndexX + 1) % nrTiles;
-            }
-            tileOffsetPixelY = 0;
-            viewportPixelX = 0;
-            viewportPixelY = viewportPixelY + tilePixelHeight;
-            ++seqIndexY;
-            tileIndexY = (tileIndexY + 1) % nrTiles;
-        }
+        // Determine first visible tile and first tile after the visible tiles.
+        final long nrTiles = (1L << zoomLevel);
+        final long startTileIndexX = iterator.getStartTileX();
+        final long startTileIndexY = iterator.getStartTileY();
+        final long tileIndexX = (iterator.getNrRows() > 0) ?
+                ((startTileIndexX + iterator.getNrColumns()) % nrTiles) : startTileIndexX;
+        final long tileIndexY = (startTileIndexY + iterator.getNrRows()) % nrTiles;
 
         if (preCaching) {
             final long bufferFromIndexX = Math.max(0, startTileIndexX - bufferColumns);
@@ -252,7 +305,7 @@ public abstract class TileMap<T> {
             for (long y = bufferFromIndexY; y < startTileIndexY; ++y) {
                 for (long x = bufferFromIndexX; x <= bufferToIndexX; ++x) {
                     final TileKey key = new TileKey(x % nrTiles, y % nrTiles, zoomLevel);
-                    cacheTile(key);
+                    preCache.accept(key);
                 }
             }
 
@@ -260,11 +313,11 @@ public abstract class TileMap<T> {
             for (long y = startTileIndexY; y < tileIndexY; ++y) {
                 for (long x = bufferFromIndexX; x < startTileIndexX; ++x) {
                     final TileKey key = new TileKey(x % nrTiles, y % nrTiles, zoomLevel);
-                    cacheTile(key);
+                    preCache.accept(key);
                 }
                 for (long x = tileIndexX; x <= bufferToIndexX; ++x) {
                     final TileKey key = new TileKey(x % nrTiles, y % nrTiles, zoomLevel);
-                    cacheTile(key);
+                    preCache.accept(key);
                 }
             }
 
@@ -272,7 +325,7 @@ public abstract class TileMap<T> {
             for (long y = tileIndexY; y <= bufferToIndexY; ++y) {
                 for (long x = bufferFromIndexX; x <= bufferToIndexX; ++x) {
                     final TileKey key = new TileKey(x % nrTiles, y % nrTiles, zoomLevel);
-                    cacheTile(key);
+                    preCache.accept(key);
                 }
             }
         }
@@ -328,33 +381,98 @@ public abstract class TileMap<T> {
      * @param zoomLevel Zoom level.
      * @return Map tile with zoomlevel and offset.
      */
-    @SuppressWarnings("NumericCastThatLosesPrecision")
     @Nonnull
     public static TileOffset convertLatLonToTileOffset(@Nonnull final GeoPoint point, final int zoomLevel) {
+        assert point != null;
 
         // Normalize lat/lon to 0..1.
-        final MercatorPoint mercs = MercatorPoint.latLonToMercs(point);
-        assert mercs != null;
-        assert MathUtils.isBetween(mercs.getMercX(), 0.0, 1.0) : mercs.getMercX();
-        assert MathUtils.isBetween(mercs.getMercY(), 0.0, 1.0) : mercs.getMercY();
-
-        // Maximum number of tiles on this zoom level (same for X and Y).
-        final double nrTiles = (1L << zoomLevel);
+        final double mercX = MercatorPoint.lonToMercX(point.getLonValue());
+        final double mercY = MercatorPoint.latToMercY(point.getLatValue());
 
         // Determine tile X and Y.
-        final long tileX = Math.min((long) (nrTiles - 1), (long) Math.floor(mercs.getMercX() * nrTiles));
-        final long tileY = Math.min((long) (nrTiles - 1), (long) Math.floor(mercs.getMercY() * nrTiles));
+        final long tileX = convertMercToTileIndex(mercX, zoomLevel);
+        final long tileY = convertMercToTileIndex(mercY, zoomLevel);
         final TileKey key = new TileKey(tileX, tileY, zoomLevel);
+        return new TileOffset(key,
+                convertMercToTileOffset(mercX, tileX, zoomLevel),
+                convertMercToTileOffset(mercY, tileY, zoomLevel));
+    }
 
-        final double deltaMercX = mercs.getMercX() - ((double) tileX / nrTiles);
-        final double deltaMercY = mercs.getMercY() - ((double) tileY / nrTiles);
-        final long nrPixels = Math.round(nrTiles * MapConst.PIXELS_PER_TILE);
-        final int offsetX = (int) Math.min(Math.round(deltaMercX * nrPixels), MapConst.PIXELS_PER_TILE);
-        final int offsetY = (int) Math.min(Math.round(deltaMercY * nrPixels), MapConst.PIXELS_PER_TILE);
-        assert MathUtils.isBetween(offsetX, 0, MapConst.PIXELS_PER_TILE) : offsetX;
-        assert MathUtils.isBetween(offsetY, 0, MapConst.PIXELS_PER_TILE) : offsetY;
+    /**
+     * Convert a lat/lon coordinate to a packed map tile key, without creating objects. See {@link TileKey#pack()}.
+     *
+     * @param lat       Latitude.
+     * @param lon       Longitude.
+     * @param zoomLevel Zoom level.
+     * @return Packed map tile key, as in {@link #convertLatLonToTileOffset}.
+     */
+    public static long convertLatLonToPackedTileKey(final double lat, final double lon, final int zoomLevel) {
+        return TileKey.pack(convertLonToTileX(lon, zoomLevel), convertLatToTileY(lat, zoomLevel), zoomLevel);
+    }
+
+    /**
+     * Convert a longitude to a map tile index X, without creating objects.
+     *
+     * @param lon       Longitude.
+     * @param zoomLevel Zoom level.
+     * @return Tile index X, as in {@link #convertLatLonToTileOffset}.
+     */
+    public static long convertLonToTileX(final double lon, final int zoomLevel) {
+        return convertMercToTileIndex(MercatorPoint.lonToMercX(lon), zoomLevel);
+    }
 
-        return new TileOffset(key, offsetX, offsetY);
+    /**
+     * Convert a latitude to a map tile index Y, without creating objects.
+     *
+     * @param lat       Latitude.
+     * @param zoomLevel Zoom level.
+     * @return Tile index Y, as in {@link #convertLatLonToTileOffset}.
+     */
+    public static long convertLatToTileY(final double lat, final int zoomLevel) {
+        return convertMercToTileIndex(MercatorPoint.latToMercY(lat), zoomLevel);
+    }
+
+    /**
+     * Convert a longitude to a pixel offset X within its map tile, without creating objects.
+     *
+     * @param lon       Longitude.
+     * @param zoomLevel Zoom level.
+     * @return Offset X within tile, as in {@link #convertLatLonToTileOffset}.
+     */
+    public static int convertLonToTileOffsetX(final double lon, final int zoomLevel) {
+        final double mercX = MercatorPoint.lonToMercX(lon);
+        return convertMercToTileOffset(mercX, convertMercToTileIndex(mercX, zoomLevel), zoomLevel);
+    }
+
+    /**
+     * Convert a latitude to a pixel offset Y within its map tile, without creating objects.
+     *
+     * @param lat       Latitude.
+     * @param zoomLevel Zoom level.
+     * @return Offset Y within tile, as in {@link #convertLatLonToTileOffset}.
+     */
+    public static int convertLatToTileOffsetY(final double lat, final int zoomLevel) {
+        final double mercY = MercatorPoint.latToMercY(lat);
+        return convertMercToTileOffset(mercY, convertMercToTileIndex(mercY, zoomLevel), zoomLevel);
+    }
+
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    private static long convertMercToTileIndex(final double merc, final int zoomLevel) {
+        assert MathUtils.isBetween(merc, 0.0, 1.0) : merc;
+
+        // Maximum number of tiles on this zoom level (same for X and Y).
+        final double nrTiles = (1L << zoomLevel);
+        return Math.min((long) (nrTiles - 1), (long) Math.floor(merc * nrTiles));
+    }
+
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    private static int convertMercToTileOffset(final double merc, final long tileIndex, final int zoomLevel) {
+        final double nrTiles = (1L << zoomLevel);
+        final double deltaMerc = merc - ((double) tileIndex / nrTiles);
+        final long nrPixels = Math.round(nrTiles * MapConst.PIXELS_PER_TILE);
+        final int offset = (int) Math.min(Math.round(deltaMerc * nrPixels), MapConst.PIXELS_PER_TILE);
+        assert MathUtils.isBetween(offset, 0, MapConst.PIXELS_PER_TILE) : offset;
+        return offset;
     }
 
     /**
@@ -423,7 +541,6 @@ public abstract class TileMap<T> {
      * @return Returns (x, y) position in viewport. 0 &lt;= x &lt; width and 0 &lt;= y &lt; height, or null if either of the values
      * is out of range, if the lat or lon is not positioned within the viewport.
      */
-    @SuppressWarnings("NumericCastThatLosesPrecision")
     @Nullable
     public static Tuple<Integer, Integer> convertLatLonToViewportXY(
             @Nonnull final GeoPoint point,
@@ -431,16 +548,41 @@ public abstract class TileMap<T> {
             @Nonnull final GeoPoint mapCenter) {
         assert point != null;
         assert mapCenter != null;
+        final long xy = convertLatLonToPackedViewportXY(point.getLatValue(), point.getLonValue(),
+                width, height, zoomLevel, mapCenter.getLatValue(), mapCenter.getLonValue());
+        if (xy == NO_VIEWPORT_XY) {
+            return null;
+        } else {
+            return new Tuple<>(unpackViewportX(xy), unpackViewportY(xy));
+        }
+    }
+
+    /**
+     * Given a viewport calculate the (x, y) position of a lat/lon, without creating objects. The position is packed
+     * into a single long value, use {@link #unpackViewportX} and {@link #unpackViewportY} to get x and y.
+     *
+     * @param lat       Latitude.
+     * @param lon       Longitude.
+     * @param width     Width of viewport.
+     * @param height    Height of viewport.
+     * @param zoomLevel Zoomlevel of viewport.
+     * @param centerLat Latitude of center of map.
+     * @param centerLon Longitude of center of map.
+     * @return Returns packed (x, y) position in viewport, as in {@link #convertLatLonToViewportXY}, or {@link
+     * #NO_VIEWPORT_XY} if the lat or lon is not positioned within the viewport.
+     */
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    public static long convertLatLonToPackedViewportXY(
+            final double lat, final double lon,
+            final int width, final int height, final int zoomLevel,
+            final double centerLat, final double centerLon) {
         assert width > 0;
         assert height > 0;
         assert MathUtils.isBetween(zoomLevel, MapConst.MINIMUM_ZOOM, MapConst.MAXIMUM_ZOOM) : zoomLevel;
         final double totalSize = (1L << zoomLevel) * MapConst.PIXELS_PER_TILE;
 
-        final MercatorPoint mercsCenter = MercatorPoint.latLonToMercs(mapCenter);
-        final MercatorPoint mercsPoint = MercatorPoint.latLonToMercs(point);
-
-        final double deltaX = mercsCenter.getMercX() - mercsPoint.getMercX();
-        final double deltaY = mercsCenter.getMercY() - mercsPoint.getMercY();
+        final double deltaX = MercatorPoint.lonToMercX(centerLon) - MercatorPoint.lonToMercX(lon);
+        final double deltaY = MercatorPoint.latToMercY(centerLat) - MercatorPoint.latToMercY(lat);
 
         final double centerX = width / 2.0;
         final double centerY = height / 2.0;
@@ -448,24 +590,35 @@ public abstract class TileMap<T> {
         final double newY = centerY - (deltaY * totalSize);
 
         // Calculate position within viewport.
-        final Integer x;
-        if (MathUtils.isBetween(newX, 0.0, width)) {
-            x = (int) Math.floor(newX);
+        if (MathUtils.isBetween(newX, 0.0, width) && MathUtils.isBetween(newY, 0.0, height)) {
+            return (((long) Math.floor(newX)) << 32) | ((long) Math.floor(newY));
         } else {
-            x = null;
+            return NO_VIEWPORT_XY;
         }
+    }
 
-        final Integer y;
-        if (MathUtils.isBetween(newY, 0.0, height)) {
-            y = (int) Math.floor(newY);
-        } else {
-            y = null;
-        }
-        if ((x != null) && (y != null)) {
-            return new Tuple<>(x, y);
-        } else {
-            return null;
-        }
+    /**
+     * Get x from a packed viewport position.
+     *
+     * @param xy Packed viewport position, not {@link #NO_VIEWPORT_XY}.
+     * @return Position x.
+     */
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    public static int unpackViewportX(final long xy) {
+        assert xy != NO_VIEWPORT_XY;
+        return (int) (xy >>> 32);
+    }
+
+    /**
+     * Get y from a packed viewport position.
+     *
+     * @param xy Packed viewport position, not {@link #NO_VIEWPORT_XY}.
+     * @return Position y.
+     */
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    public static int unpackViewportY(final long xy) {
+        assert xy != NO_VIEWPORT_XY;
+        return (int) xy;
     }
 
     /**
@@ -508,11 +661,11 @@ public abstract class TileMap<T> {
         int zoomLevel = MapConst.MAXIMUM_ZOOM + 1;
         while ((zoomLevel > MapConst.MINIMUM_ZOOM) && !found) {
             --zoomLevel;
-            final Tuple<Integer, Integer> topLeft =
-                    convertLatLonToViewportXY(northEast, actualWidth, actualHeight, zoomLevel, mapCenter);
-            final Tuple<Integer, Integer> bottomRight =
-                    convertLatLonToViewportXY(southWest, actualWidth, actualHeight, zoomLevel, mapCenter);
-            found = (topLeft != null) && (bottomRight != null);
+            final long topLeft = convertLatLonToPackedViewportXY(northEast.getLatValue(), northEast.getLonValue(),
+                    actualWidth, actualHeight, zoomLevel, mapCenter.getLatValue(), mapCenter.getLonValue());
+            final long bottomRight = convertLatLonToPackedViewportXY(southWest.getLatValue(), southWest.getLonValue(),
+                    actualWidth, actualHeight, zoomLevel, mapCenter.getLatValue(), mapCenter.getLonValue());
+            found = (topLeft != NO_VIEWPORT_XY) && (bottomRight != NO_VIEWPORT_XY);
         }
         return new Tuple<>(zoomLevel, mapCenter);
     }
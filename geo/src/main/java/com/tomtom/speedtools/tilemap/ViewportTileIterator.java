@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.utils.MathUtils;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Reusable iterator over the tiles of a viewport, in the same order and with the same layout as {@link
+ * TileMap#processViewportTiles}: row by row, from the top-left tile. The iterator does not create any objects, so a
+ * single instance can be reset and reused for every frame, for example while panning a map.
+ *
+ * Usage:
+ * <pre>
+ *     iterator.reset(width, height, centerLat, centerLon, zoomLevel);
+ *     while (iterator.next()) {
+ *         draw(iterator.getPackedTileKey(), iterator.getViewportX(), iterator.getViewportY(), ...);
+ *     }
+ * </pre>
+ *
+ * This class is not thread-safe.
+ */
+public final class ViewportTileIterator {
+
+    // Viewport.
+    private int widthPixels;
+    private int heightPixels;
+    private int zoomLevel;
+    private long nrTiles;
+
+    // Top-left tile.
+    private long startTileX;
+    private long startTileY;
+    private int startTileOffsetX;
+    private int startTileOffsetY;
+    private int nrColumns;
+    private int nrRows;
+
+    // Current tile.
+    private boolean started;
+    private boolean finished;
+    private int seqX;
+    private int seqY;
+    private long tileX;
+    private long tileY;
+    private int viewportX;
+    private int viewportY;
+    private int tileOffsetX;
+    private int tileOffsetY;
+    private int width;
+    private int height;
+
+    /**
+     * Create an iterator for an empty viewport. Use {@link #reset} to set the viewport.
+     */
+    public ViewportTileIterator() {
+        super();
+        reset(0, 0, 0.0, 0.0, MapConst.MINIMUM_ZOOM);
+    }
+
+    /**
+     * Start iterating over the tiles of a viewport.
+     *
+     * @param widthPixels  Width of viewport in pixels.
+     * @param heightPixels Height of viewport in pixels.
+     * @param mapCenter    Center of map, as lat/lon.
+     * @param zoomLevel    Zoomlevel (from 0..LbsConst.MapConst.MAXIMUM_ZOOM).
+     */
+    public void reset(
+            final int widthPixels, final int heightPixels,
+            @Nonnull final GeoPoint mapCenter, final int zoomLevel) {
+        assert mapCenter != null;
+        reset(widthPixels, heightPixels, mapCenter.getLatValue(), mapCenter.getLonValue(), zoomLevel);
+    }
+
+    /**
+     * Start iterating over the tiles of a viewport.
+     *
+     * @param widthPixels  Width of viewport in pixels.
+     * @param heightPixels Height of viewport in pixels.
+     * @param centerLat    Latitude of center of map.
+     * @param centerLon    Longitude of center of map.
+     * @param zoomLevel    Zoomlevel (from 0..LbsConst.MapConst.MAXIMUM_ZOOM).
+     */
+    public void reset(
+            final int widthPixels, final int heightPixels,
+            final double centerLat, final double centerLon, final int zoomLevel) {
+        assert widthPixels >= 0;
+        assert heightPixels >= 0;
+        assert MathUtils.isBetween(zoomLevel, 0, MapConst.MAXIMUM_ZOOM) : zoomLevel;
+        assert MapConst.PIXELS_PER_TILE > 0;
+        this.widthPixels = widthPixels;
+        this.heightPixels = heightPixels;
+        this.zoomLevel = zoomLevel;
+
+        // Calculate total number of tiles on this zoomlevel.
+        nrTiles = (1L << zoomLevel);
+
+        // Determine how many tiles top-left tile should shift to center the map.
+        final int shiftTileIndexX = widthPixels / MapConst.PIXELS_PER_TILE / 2;
+        final int shiftTileIndexY = heightPixels / MapConst.PIXELS_PER_TILE / 2;
+
+        // Determine offset within tile when centering tiles.
+        final int centerPixelX = widthPixels / 2;
+        final int centerPixelY = heightPixels / 2;
+        final int offsetCenterPixelX = centerPixelX - (shiftTileIndexX * MapConst.PIXELS_PER_TILE);
+        final int offsetCenterPixelY = centerPixelY - (shiftTileIndexY * MapConst.PIXELS_PER_TILE);
+        assert MathUtils.isBetween(offsetCenterPixelX, 0, MapConst.PIXELS_PER_TILE) : offsetCenterPixelX;
+        assert MathUtils.isBetween(offsetCenterPixelY, 0, MapConst.PIXELS_PER_TILE) : offsetCenterPixelY;
+
+        // Determine top-left tile.
+        final long centerTileX = TileMap.convertLonToTileX(centerLon, zoomLevel);
+        final long centerTileY = TileMap.convertLatToTileY(centerLat, zoomLevel);
+        final int centerTileOffsetX = TileMap.convertLonToTileOffsetX(centerLon, zoomLevel);
+        final int centerTileOffsetY = TileMap.convertLatToTileOffsetY(centerLat, zoomLevel);
+        startTileX = (((centerTileX - shiftTileIndexX) + nrTiles) % nrTiles);
+        startTileY = (((centerTileY - shiftTileIndexY) + nrTiles) % nrTiles);
+        assert (0 <= startTileX) && (startTileX < nrTiles) : startTileX;
+        assert (0 <= startTileY) && (startTileY < nrTiles) : startTileY;
+
+        // Offset within tile may require an additional tile shift.
+        if (centerTileOffsetX <= offsetCenterPixelX) {
+            startTileOffsetX = (MapConst.PIXELS_PER_TILE - 1) - (offsetCenterPixelX - centerTileOffsetX);
+            startTileX = ((startTileX + nrTiles) - 1) % nrTiles;
+        } else {
+            startTileOffsetX = centerTileOffsetX - offsetCenterPixelX;
+        }
+        assert MathUtils.isBetween(startTileOffsetX, 0, MapConst.PIXELS_PER_TILE) : startTileOffsetX;
+
+        if (centerTileOffsetY <= offsetCenterPixelY) {
+            startTileOffsetY = (MapConst.PIXELS_PER_TILE - 1) - (offsetCenterPixelY - centerTileOffsetY);
+            startTileY = ((startTileY + nrTiles) - 1) % nrTiles;
+        } else {
+            startTileOffsetY = centerTileOffsetY - offsetCenterPixelY;
+        }
+        assert MathUtils.isBetween(startTileOffsetY, 0, MapConst.PIXELS_PER_TILE) : startTileOffsetY;
+
+        // Count columns and rows.
+        nrColumns = countTiles(widthPixels, startTileOffsetX);
+        nrRows = countTiles(heightPixels, startTileOffsetY);
+        started = false;
+        finished = false;
+    }
+
+    /**
+     * Move to the next tile.
+     *
+     * @return False if there are no more tiles.
+     */
+    public boolean next() {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            if ((nrRows == 0) || (nrColumns == 0)) {
+                finished = true;
+                return false;
+            }
+            started = true;
+            seqY = 0;
+            tileY = startTileY;
+            viewportY = 0;
+            tileOffsetY = startTileOffsetY;
+            height = tileSize(heightPixels, viewportY, tileOffsetY);
+            startRow();
+            return true;
+        }
+
+        // Next column.
+        viewportX = viewportX + width;
+        if (viewportX < widthPixels) {
+            ++seqX;
+            tileX = (tileX + 1) % nrTiles;
+            tileOffsetX = 0;
+            width = tileSize(widthPixels, viewportX, tileOffsetX);
+            return true;
+        }
+
+        // Next row.
+        viewportY = viewportY + height;
+        if (viewportY < heightPixels) {
+            ++seqY;
+            tileY = (tileY + 1) % nrTiles;
+            tileOffsetY = 0;
+            height = tileSize(heightPixels, viewportY, tileOffsetY);
+            startRow();
+            return true;
+        }
+        finished = true;
+        return false;
+    }
+
+    /**
+     * Get sequence number of the current tile in X direction (0, 1, 2, ...), 0 = left.
+     *
+     * @return Sequence number X.
+     */
+    public int getSeqX() {
+        return seqX;
+    }
+
+    /**
+     * Get sequence number of the current tile in Y direction (0, 1, 2, ...), 0 = top.
+     *
+     * @return Sequence number Y.
+     */
+    public int getSeqY() {
+        return seqY;
+    }
+
+    /**
+     * Get the tile index X of the current tile.
+     *
+     * @return Tile index X.
+     */
+    public long getTileX() {
+        return tileX;
+    }
+
+    /**
+     * Get the tile index Y of the current tile.
+     *
+     * @return Tile index Y.
+     */
+    public long getTileY() {
+        return tileY;
+    }
+
+    /**
+     * Get the zoom level of the viewport.
+     *
+     * @return Zoom level.
+     */
+    public int getZoomLevel() {
+        return zoomLevel;
+    }
+
+    /**
+     * Get the packed tile key of the current tile, see {@link TileKey#pack()}.
+     *
+     * @return Packed tile key.
+     */
+    public long getPackedTileKey() {
+        return TileKey.pack(tileX, tileY, zoomLevel);
+    }
+
+    /**
+     * Get the tile key of the current tile. Note that this creates a new tile key.
+     *
+     * @return Tile key.
+     */
+    @Nonnull
+    public TileKey getTileKey() {
+        return new TileKey(tileX, tileY, zoomLevel);
+    }
+
+    /**
+     * Get position X of the current tile from top-left of viewport.
+     *
+     * @return Viewport X.
+     */
+    public int getViewportX() {
+        return viewportX;
+    }
+
+    /**
+     * Get position Y of the current tile from top-left of viewport.
+     *
+     * @return Viewport Y.
+     */
+    public int getViewportY() {
+        return viewportY;
+    }
+
+    /**
+     * Get crop area of the current tile, position X from top-left of image.
+     *
+     * @return Tile offset X.
+     */
+    public int getTileOffsetX() {
+        return tileOffsetX;
+    }
+
+    /**
+     * Get crop area of the current tile, position Y from top-left of image.
+     *
+     * @return Tile offset Y.
+     */
+    public int getTileOffsetY() {
+        return tileOffsetY;
+    }
+
+    /**
+     * Get width of crop area of the current tile.
+     *
+     * @return Width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get height of crop area of the current tile.
+     *
+     * @return Height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the tile index X of the left column of the viewport.
+     *
+     * @return Tile index X.
+     */
+    public long getStartTileX() {
+        return startTileX;
+    }
+
+    /**
+     * Get the tile index Y of the top row of the viewport.
+     *
+     * @return Tile index Y.
+     */
+    public long getStartTileY() {
+        return startTileY;
+    }
+
+    /**
+     * Get the number of tile columns in the viewport.
+     *
+     * @return Number of columns.
+     */
+    public int getNrColumns() {
+        return nrColumns;
+    }
+
+    /**
+     * Get the number of tile rows in the viewport.
+     *
+     * @return Number of rows.
+     */
+    public int getNrRows() {
+        return nrRows;
+    }
+
+    private void startRow() {
+        seqX = 0;
+        tileX = startTileX;
+        viewportX = 0;
+        tileOffsetX = startTileOffsetX;
+        width = tileSize(widthPixels, viewportX, tileOffsetX);
+    }
+
+    private static int tileSize(final int sizePixels, final int viewportPixel, final int tileOffsetPixel) {
+        return Math.min(MapConst.PIXELS_PER_TILE, sizePixels - viewportPixel) - tileOffsetPixel;
+    }
+
+    private static int countTiles(final int sizePixels, final int startTileOffsetPixel) {
+        int count = 0;
+        int viewportPixel = 0;
+        int tileOffsetPixel = startTileOffsetPixel;
+        while (viewportPixel < sizePixels) {
+            viewportPixel = viewportPixel + tileSize(sizePixels, viewportPixel, tileOffsetPixel);
+            tileOffsetPixel = 0;
+            ++count;
+        }
+        return count;
+    }
+}
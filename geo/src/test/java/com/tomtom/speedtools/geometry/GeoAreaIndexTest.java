@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.geometry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class GeoAreaIndexTest {
+    private static final Logger LOG = LoggerFactory.getLogger(GeoAreaIndexTest.class);
+
+    private static final int NR_OF_AREAS = 2000;
+    private static final int NR_OF_QUERIES = 200;
+
+    @Test
+    public void testEmpty() {
+        LOG.info("testEmpty");
+        final GeoAreaIndex<GeoArea> index = new GeoAreaIndex<>(Collections.emptyList());
+        Assert.assertEquals(0, index.size());
+        Assert.assertTrue(index.findContaining(new GeoPoint(1.0, 2.0)).isEmpty());
+        Assert.assertTrue(index.findOverlapping(GeoRectangle.WORLD).isEmpty());
+        Assert.assertTrue(index.findNearest(new GeoPoint(1.0, 2.0), 3).isEmpty());
+    }
+
+    @Test
+    public void testWrapped() {
+        LOG.info("testWrapped");
+        final GeoRectangle wrapped = new GeoRectangle(new GeoPoint(-1.0, 179.0), new GeoPoint(1.0, -179.0));
+        final GeoRectangle normal = new GeoRectangle(new GeoPoint(-1.0, 170.0), new GeoPoint(1.0, 172.0));
+        final GeoAreaIndex<GeoRectangle> index = new GeoAreaIndex<>(Arrays.asList(wrapped, normal));
+        Assert.assertEquals(Collections.singletonList(wrapped), index.findContaining(new GeoPoint(0.0, 179.5)));
+        Assert.assertEquals(Collections.singletonList(wrapped), index.findContaining(new GeoPoint(0.0, -179.5)));
+        Assert.assertTrue(index.findContaining(new GeoPoint(0.0, 178.0)).isEmpty());
+
+        // The wrapped rectangle is found only once, although both its halves overlap.
+        final GeoRectangle query = new GeoRectangle(new GeoPoint(0.0, 178.0), new GeoPoint(2.0, -178.0));
+        Assert.assertEquals(Collections.singletonList(wrapped), index.findOverlapping(query));
+        Assert.assertEquals(Collections.singletonList(wrapped), index.findNearest(new GeoPoint(0.0, -170.0), 1));
+        Assert.assertEquals(Arrays.asList(normal, wrapped), index.findNearest(new GeoPoint(0.0, 175.0), 5));
+        Assert.assertEquals(Arrays.asList(wrapped, normal),
+                index.findNearest(new GeoPoint(0.0, -175.0), Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testCompareWithLinearScan() {
+        LOG.info("testCompareWithLinearScan");
+        final Random random = new Random(1);
+        final List<GeoArea> areas = new ArrayList<>(NR_OF_AREAS);
+        for (int i = 0; i < NR_OF_AREAS; ++i) {
+            areas.add(randomArea(random));
+        }
+        final GeoAreaIndex<GeoArea> index = new GeoAreaIndex<>(areas);
+        Assert.assertEquals(NR_OF_AREAS, index.size());
+
+        for (int i = 0; i < NR_OF_QUERIES; ++i) {
+            final GeoPoint point = randomPoint(random);
+            final GeoArea query = randomArea(random);
+            final Set<GeoArea> containingPoint = new HashSet<>();
+            final Set<GeoArea> containingArea = new HashSet<>();
+            final Set<GeoArea> overlapping = new HashSet<>();
+            for (final GeoArea area : areas) {
+                if (area.contains(point)) {
+                    containingPoint.add(area);
+                }
+                if (area.contains(query)) {
+                    containingArea.add(area);
+                }
+                if (area.overlaps(query)) {
+                    overlapping.add(area);
+                }
+            }
+            assertSameElements(containingPoint, index.findContaining(point));
+            assertSameElements(containingArea, index.findContaining(query));
+            assertSameElements(overlapping, index.findOverlapping(query));
+
+            // The distances to the nearest areas must be the smallest distances.
+            final List<Double> distances = new ArrayList<>(areas.size());
+            for (final GeoArea area : areas) {
+                distances.add(distanceToBoundingBox(point, area));
+            }
+            Collections.sort(distances);
+            final List<GeoArea> nearest = index.findNearest(point, 5);
+            Assert.assertEquals(5, nearest.size());
+            for (int j = 0; j < nearest.size(); ++j) {
+                Assert.assertEquals(distances.get(j), distanceToBoundingBox(point, nearest.get(j)), 0.001);
+            }
+        }
+    }
+
+    private static void assertSameElements(@Nonnull final Set<GeoArea> expected, @Nonnull final List<GeoArea> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected, new HashSet<>(actual));
+    }
+
+    private static double distanceToBoundingBox(@Nonnull final GeoPoint point, @Nonnull final GeoArea area) {
+        double distance = Double.MAX_VALUE;
+        for (final GeoRectangle box : area.boundingBox().pixelate()) {
+            final double lat = Math.max(box.getSouthWest().getLat(), Math.min(box.getNorthEast().getLat(), point.getLat()));
+            double lon = point.getLon();
+            if ((lon < box.getSouthWest().getLon()) || (lon > box.getNorthEast().getLon())) {
+                final double toWest = degreesLon(lon, box.getSouthWest().getLon());
+                final double toEast = degreesLon(lon, box.getNorthEast().getLon());
+                lon = (toWest <= toEast) ? box.getSouthWest().getLon() : box.getNorthEast().getLon();
+            }
+            distance = Math.min(distance, Geo.distanceInMeters(point, new GeoPoint(lat, lon)));
+        }
+        return distance;
+    }
+
+    private static double degreesLon(final double lon1, final double lon2) {
+        final double degrees = Math.abs(lon1 - lon2);
+        return (degrees > 180.0) ? (360.0 - degrees) : degrees;
+    }
+
+    @Nonnull
+    private static GeoPoint randomPoint(@Nonnull final Random random) {
+        return new GeoPoint((random.nextDouble() * 40.0) - 20.0, (random.nextDouble() * 360.0) - 180.0);
+    }
+
+    @Nonnull
+    private static GeoArea randomArea(@Nonnull final Random random) {
+        final GeoPoint southWest = randomPoint(random);
+        if (random.nextBoolean()) {
+            return new GeoCircle(southWest, random.nextDouble() * 200000.0);
+        }
+
+        // Rectangles may wrap around the 180th meridian.
+        final GeoPoint northEast = new GeoPoint(
+                Math.min(90.0, southWest.getLat() + (random.nextDouble() * 5.0)),
+                southWest.getLon() + (random.nextDouble() * 10.0));
+        return new GeoRectangle(southWest, northEast);
+    }
+}
@@ -22,6 +22,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
+import java.util.Random;
+
 public class GeoHashTest {
     private static final Logger LOG = LoggerFactory.getLogger(GeoHashTest.class);
 
@@ -81,4 +84,112 @@ public class GeoHashTest {
             // OK.
         }
     }
+
+    @Test
+    public void testEncodeMatchesBisection() {
+        LOG.info("testEncodeMatchesBisection");
+
+        final Random random = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            final double lat = (random.nextDouble() * 180.0) - 90.0;
+            final double lon = (random.nextDouble() * 360.0) - 180.0;
+            final String hash = GeoHash.encode(lat, lon);
+            Assert.assertEquals(GeoHash.MAX_LENGTH, hash.length());
+            Assert.assertEquals(encodeByBisection(lat, lon), hash);
+
+            final GeoPoint corner = GeoHash.decode(hash);
+            Assert.assertTrue(corner.getLat() <= lat);
+            Assert.assertTrue(corner.getLon() <= lon);
+            Assert.assertTrue((lat - corner.getLat()) < 1.0e-6);
+            Assert.assertTrue((lon - corner.getLon()) < 1.0e-6);
+            Assert.assertEquals(hash, GeoHash.toHashString(GeoHash.decodeToLong(hash), GeoHash.MAX_LENGTH));
+        }
+
+        // Full south-west and north-east corners.
+        Assert.assertEquals("000000000000", GeoHash.encode(-90.0, -180.0));
+        Assert.assertEquals("zzzzzzzzzzzz", GeoHash.encode(90.0, 180.0));
+        Assert.assertEquals(-90.0, GeoHash.decode("0").getLat(), 0.0);
+        Assert.assertEquals(-180.0, GeoHash.decode("0").getLon(), 0.0);
+    }
+
+    @Test
+    public void testLongHash() {
+        LOG.info("testLongHash");
+
+        final long value = GeoHash.encodeToLong(POS_AMSTERDAM.getLat(), POS_AMSTERDAM.getLon());
+        Assert.assertEquals("u173zwvghxq0", GeoHash.toHashString(value, 12));
+        Assert.assertEquals("u173z", GeoHash.toHashString(value, 5));
+        Assert.assertEquals(value, new GeoHash(POS_AMSTERDAM).toLong());
+
+        final long min = GeoHash.prefixRangeMin(value, 5);
+        final long max = GeoHash.prefixRangeMax(value, 5);
+        Assert.assertEquals(GeoHash.decodeToLong("u173z"), min);
+        Assert.assertEquals(GeoHash.decodeToLong("u173zzzzzzzz"), max);
+        Assert.assertTrue((min <= value) && (value <= max));
+        Assert.assertEquals(value, GeoHash.prefixRangeMin(value, GeoHash.MAX_LENGTH));
+        Assert.assertEquals(value, GeoHash.prefixRangeMax(value, GeoHash.MAX_LENGTH));
+    }
+
+    @Test
+    public void testNeighbours() {
+        LOG.info("testNeighbours");
+
+        // Neighbours of "u173z", computed by encoding the centers of the adjacent cells.
+        Assert.assertArrayEquals(
+                new String[]{"u176p", "u17d0", "u179b", "u1798", "u173x", "u173w", "u173y", "u176n"},
+                GeoHash.neighbours("u173z"));
+        Assert.assertEquals("u173z", GeoHash.neighbour(GeoHash.neighbour("u173z", 3, -2), -3, 2));
+
+        // Wrap around the date line, but not the poles.
+        Assert.assertEquals("2", GeoHash.neighbour("r", 0, 1));
+        Assert.assertEquals("r", GeoHash.neighbour("2", 0, -1));
+        Assert.assertNull(GeoHash.neighbour("z", 1, 0));
+        Assert.assertNull(GeoHash.neighbour("0", -1, 0));
+
+        final GeoHash hash = new GeoHash("u173z");
+        final GeoHash north = hash.getNeighbour(1, 0);
+        Assert.assertNotNull(north);
+        Assert.assertEquals("u176p", north.getHash());
+    }
+
+    /**
+     * Reference implementation, which bisects the ranges bit by bit.
+     */
+    @Nonnull
+    private static String encodeByBisection(final double lat, final double lon) {
+        final StringBuilder sb = new StringBuilder();
+        double latMin = -90.0;
+        double latMax = 90.0;
+        double lonMin = -180.0;
+        double lonMax = 180.0;
+        int bits = 0;
+        int value = 0;
+        for (int i = 0; i < 60; ++i) {
+            value = value << 1;
+            if ((i % 2) == 0) {
+                final double mid = (lonMin + lonMax) / 2;
+                if (lon >= mid) {
+                    value = value | 1;
+                    lonMin = mid;
+                } else {
+                    lonMax = mid;
+                }
+            } else {
+                final double mid = (latMin + latMax) / 2;
+                if (lat >= mid) {
+                    value = value | 1;
+                    latMin = mid;
+                } else {
+                    latMax = mid;
+                }
+            }
+            ++bits;
+            if (bits == 5) {
+                sb.append("0123456789bcdefghjkmnpqrstuvwxyz".charAt(value));
+                bits = 0;
+                value = 0;
+            }
+        }
+        return sb.toString();
+    }
 }
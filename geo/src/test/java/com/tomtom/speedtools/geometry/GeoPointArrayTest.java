@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.geometry;
+
+import com.tomtom.speedtools.gpstrace.GpsTrace;
+import com.tomtom.speedtools.gpstrace.GpsTracePoint;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class GeoPointArrayTest {
+    private static final Logger LOG = LoggerFactory.getLogger(GeoPointArrayTest.class);
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void testEqualsVerifier() {
+        LOG.info("testEqualsVerifier");
+        EqualsVerifier.forClass(GeoPointArray.class).verify();
+    }
+
+    @Test
+    public void testFromPoints() {
+        LOG.info("testFromPoints");
+        final List<GeoPoint> points = Arrays.asList(
+                new GeoPoint(1.0, 2.0, 3.0),
+                new GeoPoint(-4.0, 190.0),
+                new GeoPoint(5.0, -6.0, 7.0));
+        final GeoPointArray array = GeoPointArray.fromPoints(points);
+        Assert.assertEquals(3, array.size());
+        Assert.assertFalse(array.isEmpty());
+        Assert.assertTrue(GeoPointArray.EMPTY.isEmpty());
+        Assert.assertEquals(-4.0, array.getLat(1), DELTA);
+        Assert.assertEquals(-170.0, array.getLon(1), DELTA);
+        Assert.assertTrue(Double.isNaN(array.getElevationMetersOrNaN(1)));
+        Assert.assertEquals(7.0, array.getElevationMetersOrNaN(2), DELTA);
+        Assert.assertEquals(points.get(1), array.get(1));
+        Assert.assertEquals(points, array.toList());
+        Assert.assertEquals(array, new GeoPointArray(
+                new double[]{1.0, -4.0, 5.0},
+                new double[]{2.0, -170.0, -6.0},
+                new double[]{3.0, Double.NaN, 7.0}));
+
+        final double[] lons = new double[4];
+        array.copyLons(lons, 1);
+        Assert.assertEquals(-6.0, lons[3], DELTA);
+    }
+
+    @Test
+    public void testGetLengthMeters() {
+        LOG.info("testGetLengthMeters");
+        final Random random = new Random(1);
+        final List<GeoPoint> points = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            final Double elevationMeters = ((i % 3) == 0) ? null : (random.nextDouble() * 100.0);
+            points.add(new GeoPoint((random.nextDouble() * 2.0) - 1.0, (random.nextDouble() * 2.0) + 179.0,
+                    elevationMeters));
+        }
+        final GeoPointArray array = GeoPointArray.fromPoints(points);
+
+        // Segment lengths must be identical to the lengths of the lines.
+        double meters = 0.0;
+        for (int i = 0; i < (points.size() - 1); ++i) {
+            final double len = new GeoLine(points.get(i), points.get(i + 1)).getLengthMeters();
+            Assert.assertEquals(0, Double.compare(len, array.getSegmentLengthMeters(i)));
+            meters += len;
+        }
+        Assert.assertEquals(0, Double.compare(meters, array.getLengthMeters()));
+        Assert.assertEquals(0.0, GeoPointArray.EMPTY.getLengthMeters(), DELTA);
+
+        final List<GpsTracePoint> gpsTracePoints = new ArrayList<>();
+        for (final GeoPoint point : points) {
+            gpsTracePoints.add(new GpsTracePoint(new DateTime(), point));
+        }
+        final GpsTrace trace = new GpsTrace(gpsTracePoints);
+        Assert.assertEquals(array, trace.getPositions());
+        Assert.assertEquals(0, Double.compare(meters, trace.getLengthMeters()));
+    }
+}
@@ -96,5 +96,30 @@ public class GeoPointTest {
         LOG.info("testJSON");
         Assert.assertEquals("{\"lat\":1.0,\"lon\":2.0,\"elevationMeters\":3.0}", Json.toJson(y));
         Assert.assertEquals("{\"lat\":1.0,\"lon\":2.0}", Json.toJson(y.withElevationMeters(null)));
+
+        // An explicit null elevation is absent, not 0.
+        final GeoPoint p = Json.fromJson("{\"lat\":1.0,\"lon\":2.0,\"elevationMeters\":null}", GeoPoint.class);
+        Assert.assertNotNull(p);
+        Assert.assertNull(p.getElevationMeters());
+        Assert.assertFalse(p.hasElevation());
+        Assert.assertEquals(y.withElevationMeters(null), p);
+        Assert.assertEquals("{\"lat\":1.0,\"lon\":2.0}", Json.toJson(p));
+    }
+
+    @Test
+    public void testPrimitives() {
+        LOG.info("testPrimitives");
+        final GeoPoint p = y.withElevationMeters(Double.NaN);
+        Assert.assertNull(p.getElevationMeters());
+        Assert.assertTrue(Double.isNaN(p.getElevationMetersValue()));
+        Assert.assertFalse(p.hasElevation());
+        Assert.assertTrue(y.hasElevation());
+        Assert.assertEquals(0, Double.compare(y1, y.getLatValue()));
+        Assert.assertEquals(0, Double.compare(y2, y.getLonValue()));
+        Assert.assertEquals(0, Double.compare(y3, y.getElevationMetersValue()));
+        Assert.assertEquals(p, y.withElevationMeters(null));
+        Assert.assertEquals(p.hashCode(), y.withElevationMeters(null).hashCode());
+        Assert.assertEquals(p, Json.fromJson("{\"lat\":1.0,\"lon\":2.0}", GeoPoint.class));
+        Assert.assertEquals(y, Json.fromJson(Json.toJson(y), GeoPoint.class));
     }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.geometry;
+
+import com.tomtom.speedtools.json.Json;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class GeoPolygonTest {
+    private static final Logger LOG = LoggerFactory.getLogger(GeoPolygonTest.class);
+
+    private static final double DELTA = 0.000001;
+
+    // Square from (0, 0) to (10, 10), with a square hole from (4, 4) to (6, 6).
+    private final GeoPolygon x1 = new GeoPolygon(
+            square(0.0, 0.0, 10.0),
+            Collections.singletonList(new GeoPolygon(square(4.0, 4.0, 2.0))));
+
+    // Triangle crossing the 180th meridian.
+    private final GeoPolygon x2 = new GeoPolygon(Arrays.asList(
+            new GeoPoint(-5.0, 175.0),
+            new GeoPoint(-5.0, -175.0),
+            new GeoPoint(5.0, 180.0)));
+
+    @Test
+    public void testEqualsVerifier() {
+        LOG.info("testEqualsVerifier");
+        EqualsVerifier.forClass(GeoPolygon.class).
+                withRedefinedSuperclass().
+                withPrefabValues(GeoPolygon.class, x1, x2).
+                verify();
+    }
+
+    @Test
+    public void testConstructor() {
+        LOG.info("testConstructor");
+        final List<GeoPoint> closed = new ArrayList<>(square(0.0, 0.0, 10.0));
+        closed.add(closed.get(0));
+        Assert.assertEquals(x1.withHoles(Collections.emptyList()), new GeoPolygon(closed));
+        Assert.assertEquals(4, x1.getPoints().size());
+        Assert.assertEquals(1, x1.getHoles().size());
+        Assert.assertEquals(8, x1.getNrOfEdges());
+        Assert.assertFalse(x1.isCompound());
+    }
+
+    @Test
+    public void testContainsPoint() {
+        LOG.info("testContainsPoint");
+        Assert.assertTrue(x1.contains(new GeoPoint(1.0, 1.0)));
+        Assert.assertTrue(x1.contains(new GeoPoint(9.0, 5.0)));
+        Assert.assertFalse(x1.contains(new GeoPoint(5.0, 5.0)));
+        Assert.assertFalse(x1.contains(new GeoPoint(11.0, 5.0)));
+        Assert.assertFalse(x1.contains(new GeoPoint(5.0, -1.0)));
+        Assert.assertTrue(x1.contains(1.0, 1.0));
+        Assert.assertFalse(x1.contains(5.0, 5.0));
+
+        Assert.assertTrue(x2.contains(new GeoPoint(0.0, 179.0)));
+        Assert.assertTrue(x2.contains(new GeoPoint(0.0, -179.0)));
+        Assert.assertTrue(x2.contains(new GeoPoint(-4.0, 176.0)));
+        Assert.assertFalse(x2.contains(new GeoPoint(0.0, 176.0)));
+        Assert.assertFalse(x2.contains(new GeoPoint(0.0, -176.0)));
+        Assert.assertFalse(x2.contains(new GeoPoint(0.0, 0.0)));
+    }
+
+    @Test
+    public void testBoundingBox() {
+        LOG.info("testBoundingBox");
+        Assert.assertEquals(new GeoRectangle(new GeoPoint(0.0, 0.0), new GeoPoint(10.0, 10.0)), x1.boundingBox());
+        final GeoRectangle box = x2.boundingBox();
+        Assert.assertTrue(box.isWrapped());
+        Assert.assertEquals(-5.0, box.getSouthWest().getLat(), DELTA);
+        Assert.assertEquals(175.0, box.getSouthWest().getLon(), DELTA);
+        Assert.assertEquals(5.0, box.getNorthEast().getLat(), DELTA);
+        Assert.assertEquals(-175.0, box.getNorthEast().getLon(), DELTA);
+        Assert.assertEquals(2, x2.pixelate().size());
+    }
+
+    @Test
+    public void testContainsAndOverlapsArea() {
+        LOG.info("testContainsAndOverlapsArea");
+        final GeoRectangle inside = new GeoRectangle(new GeoPoint(1.0, 1.0), new GeoPoint(3.0, 3.0));
+        final GeoRectangle inHole = new GeoRectangle(new GeoPoint(4.5, 4.5), new GeoPoint(5.5, 5.5));
+        final GeoRectangle aroundHole = new GeoRectangle(new GeoPoint(3.0, 3.0), new GeoPoint(7.0, 7.0));
+        final GeoRectangle outside = new GeoRectangle(new GeoPoint(11.0, 11.0), new GeoPoint(12.0, 12.0));
+        final GeoRectangle crossing = new GeoRectangle(new GeoPoint(9.0, 9.0), new GeoPoint(12.0, 12.0));
+        Assert.assertTrue(x1.contains(inside));
+        Assert.assertTrue(x1.overlaps(inside));
+        Assert.assertFalse(x1.contains(inHole));
+        Assert.assertFalse(x1.overlaps(inHole));
+        Assert.assertFalse(x1.contains(aroundHole));
+        Assert.assertTrue(x1.overlaps(aroundHole));
+        Assert.assertFalse(x1.contains(outside));
+        Assert.assertFalse(x1.overlaps(outside));
+        Assert.assertFalse(x1.contains(crossing));
+        Assert.assertTrue(x1.overlaps(crossing));
+        Assert.assertTrue(x1.withHoles(Collections.emptyList()).contains(x1.boundingBox()));
+
+        final GeoRectangle wrapped = new GeoRectangle(new GeoPoint(-1.0, 179.5), new GeoPoint(1.0, -179.5));
+        Assert.assertTrue(x2.contains(wrapped));
+        Assert.assertTrue(x2.overlaps(wrapped));
+        Assert.assertTrue(x2.overlaps(new GeoRectangle(new GeoPoint(0.0, -178.0), new GeoPoint(1.0, -170.0))));
+        Assert.assertFalse(x2.overlaps(new GeoRectangle(new GeoPoint(0.0, 170.0), new GeoPoint(1.0, 172.0))));
+    }
+
+    @Test
+    public void testTranslate() {
+        LOG.info("testTranslate");
+        final GeoPolygon moved = x1.moveTo(new GeoPoint(20.0, 175.0));
+        Assert.assertTrue(moved.boundingBox().isWrapped());
+        Assert.assertTrue(moved.contains(new GeoPoint(21.0, 176.0)));
+        Assert.assertTrue(moved.contains(new GeoPoint(29.0, -176.0)));
+        Assert.assertFalse(moved.contains(new GeoPoint(25.0, 180.0)));
+        Assert.assertEquals(moved, x1.translate(new GeoVector(20.0, 175.0)));
+    }
+
+    @Test
+    public void testCompareWithBruteForce() {
+        LOG.info("testCompareWithBruteForce");
+        final Random random = new Random(1);
+        for (int i = 0; i < 20; ++i) {
+            final GeoPoint center = new GeoPoint((random.nextDouble() * 100.0) - 50.0, (random.nextDouble() * 300.0) - 150.0);
+            final List<GeoPoint> outer = star(random, center, 200, 2.0, 10.0);
+            final List<GeoPoint> inner = star(random, center, 50, 0.5, 1.5);
+            final GeoPolygon polygon = new GeoPolygon(outer, Collections.singletonList(new GeoPolygon(inner)));
+            Assert.assertEquals(250, polygon.getNrOfEdges());
+
+            // Moving the polygon across the 180th meridian must not change the result.
+            final double easting = 180.0 - center.getLon();
+            final GeoPolygon wrapped = polygon.translate(new GeoVector(0.0, easting));
+            for (int j = 0; j < 500; ++j) {
+                final GeoPoint point = new GeoPoint(
+                        (center.getLat() + (random.nextDouble() * 24.0)) - 12.0,
+                        (center.getLon() + (random.nextDouble() * 24.0)) - 12.0);
+                final boolean expected = isInside(outer, point) && !isInside(inner, point);
+                Assert.assertEquals(expected, polygon.contains(point));
+                Assert.assertEquals(expected, wrapped.contains(point.translate(new GeoVector(0.0, easting))));
+            }
+        }
+    }
+
+    @Test
+    public void testJson() {
+        LOG.info("testJson");
+        final String json = Json.toJson(x1);
+        final GeoPolygon polygon = Json.fromJson(json, GeoPolygon.class);
+        Assert.assertEquals(x1, polygon);
+        Assert.assertFalse(json.contains("edgeIndex"));
+        Assert.assertFalse(polygon.contains(new GeoPoint(5.0, 5.0)));
+    }
+
+    @Nonnull
+    private static List<GeoPoint> square(final double lat, final double lon, final double size) {
+        return Arrays.asList(
+                new GeoPoint(lat, lon),
+                new GeoPoint(lat, lon + size),
+                new GeoPoint(lat + size, lon + size),
+                new GeoPoint(lat + size, lon));
+    }
+
+    @Nonnull
+    private static List<GeoPoint> star(@Nonnull final Random random, @Nonnull final GeoPoint center, final int n,
+                                       final double minRadius, final double maxRadius) {
+        final List<GeoPoint> points = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            final double angle = (2.0 * Math.PI * i) / n;
+            final double radius = minRadius + (random.nextDouble() * (maxRadius - minRadius));
+            points.add(new GeoPoint(
+                    center.getLat() + (radius * Math.sin(angle)),
+                    center.getLon() + (radius * Math.cos(angle))));
+        }
+        return points;
+    }
+
+    // Plain even-odd test over all edges. Only valid for rings which do not cross the 180th meridian.
+    private static boolean isInside(@Nonnull final List<GeoPoint> ring, @Nonnull final GeoPoint point) {
+        boolean inside = false;
+        for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+            final GeoPoint a = ring.get(i);
+            final GeoPoint b = ring.get(j);
+            if ((a.getLat() > point.getLat()) != (b.getLat() > point.getLat())) {
+                final double lon = a.getLon() +
+                        (((point.getLat() - a.getLat()) * (b.getLon() - a.getLon())) / (b.getLat() - a.getLat()));
+                if (point.getLon() < lon) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+}
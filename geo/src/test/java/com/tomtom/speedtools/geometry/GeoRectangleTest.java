@@ -25,6 +25,10 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Random;
+
 
 public class GeoRectangleTest {
     private static final Logger LOG = LoggerFactory.getLogger(GeoRectangleTest.class);
@@ -316,4 +320,59 @@ public class GeoRectangleTest {
         Assert.assertFalse(shortRect.isWrapped());
         Assert.assertTrue(longRect.isWrapped());
     }
+
+    @Test
+    public void testPredicatesWrapped() {
+        LOG.info("testPredicatesWrapped");
+        final Random random = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            final GeoRectangle a = randomRectangle(random);
+            final GeoRectangle b = randomRectangle(random);
+            final Collection<GeoRectangle> partsA = a.pixelate();
+            final Collection<GeoRectangle> partsB = b.pixelate();
+
+            // Reference: compare the non-wrapped parts of the rectangles.
+            boolean overlap = false;
+            boolean contain = true;
+            for (final GeoRectangle partB : partsB) {
+                boolean partContained = false;
+                for (final GeoRectangle partA : partsA) {
+                    overlap = overlap || !((partA.getSouthWest().getLat() > partB.getNorthEast().getLat()) ||
+                            (partA.getNorthEast().getLat() < partB.getSouthWest().getLat()) ||
+                            (partA.getSouthWest().getLon() > partB.getNorthEast().getLon()) ||
+                            (partA.getNorthEast().getLon() < partB.getSouthWest().getLon()));
+                    partContained = partContained || ((partA.getSouthWest().getLat() <= partB.getSouthWest().getLat()) &&
+                            (partA.getNorthEast().getLat() >= partB.getNorthEast().getLat()) &&
+                            (partA.getSouthWest().getLon() <= partB.getSouthWest().getLon()) &&
+                            (partA.getNorthEast().getLon() >= partB.getNorthEast().getLon()));
+                }
+                contain = contain && partContained;
+            }
+            Assert.assertEquals(a + ", " + b, overlap, a.overlaps(b));
+            Assert.assertEquals(a + ", " + b, overlap, b.overlaps(a));
+            Assert.assertEquals(a + ", " + b, contain, a.contains(b));
+            Assert.assertEquals(a + ", " + b, a.contains(b.getSouthWest()), GeoRectangle.containsPoint(
+                    a.getSouthWest().getLat(), a.getSouthWest().getLon(),
+                    a.getNorthEast().getLat(), a.getNorthEast().getLon(),
+                    b.getSouthWest().getLat(), b.getSouthWest().getLon()));
+        }
+        final GeoRectangle wrapped = new GeoRectangle(new GeoPoint(0.0, 170.0), new GeoPoint(2.0, -170.0));
+        Assert.assertTrue(wrapped.contains(new GeoPoint(1.0, 180.0)));
+        Assert.assertTrue(wrapped.contains(new GeoPoint(1.0, -175.0)));
+        Assert.assertTrue(wrapped.contains(new GeoPoint(1.0, -170.0)));
+        Assert.assertFalse(wrapped.contains(new GeoPoint(1.0, 0.0)));
+        Assert.assertTrue(GeoRectangle.WORLD.contains(wrapped));
+        Assert.assertFalse(wrapped.contains(GeoRectangle.WORLD));
+    }
+
+    @Nonnull
+    private static GeoRectangle randomRectangle(@Nonnull final Random random) {
+
+        // Use a coarse grid, so edges coincide regularly.
+        final double south = random.nextInt(10) - 5.0;
+        final double west = (random.nextInt(12) * 30.0) - 180.0;
+        return new GeoRectangle(
+                new GeoPoint(south, west),
+                new GeoPoint(south + random.nextInt(5), west + (random.nextInt(12) * 30.0)));
+    }
 }
@@ -23,6 +23,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Random;
 
 import static com.tomtom.speedtools.geometry.Geo.*;
 import static java.lang.Double.compare;
@@ -210,4 +212,68 @@ public class GeoTest {
         Assert.assertEquals(sec100km.getStandardSeconds(),
                 Geo.estimatedMinTravelTime(from, to100km, 1).getStandardSeconds());
     }
+
+    @Test
+    public void testGreatCircleDistances() {
+        LOG.info("testGreatCircleDistances");
+
+        // 1 degree along the equator.
+        assertEquals((EARTH_MEAN_RADIUS_METERS * Math.PI) / 180.0, haversineDistanceInMeters(0.0, 0.0, 0.0, 1.0), DELTA);
+        assertEquals(0.0, haversineDistanceInMeters(10.0, 20.0, 10.0, 20.0), DELTA);
+        assertEquals(haversineDistanceInMeters(0.0, 179.5, 0.0, -179.5), haversineDistanceInMeters(0.0, 0.0, 0.0, 1.0),
+                DELTA);
+
+        // Reference example of Vincenty (Flinders Peak to Buninyong).
+        final double lat1 = -(37.0 + (57.0 / 60.0) + (3.72030 / 3600.0));
+        final double lon1 = 144.0 + (25.0 / 60.0) + (29.52440 / 3600.0);
+        final double lat2 = -(37.0 + (39.0 / 60.0) + (10.15610 / 3600.0));
+        final double lon2 = 143.0 + (55.0 / 60.0) + (35.38390 / 3600.0);
+        assertEquals(54972.271, vincentyDistanceInMeters(lat1, lon1, lat2, lon2), 0.001);
+        assertEquals(54972.271, distanceInMeters(DistanceMode.VINCENTY, lat1, lon1, lat2, lon2), 0.001);
+        assertEquals(0.0, vincentyDistanceInMeters(lat1, lon1, lat1, lon1), DELTA);
+
+        // Equator and (almost) antipodal points.
+        assertEquals(111319.491, vincentyDistanceInMeters(0.0, 0.0, 0.0, 1.0), 0.001);
+        assertEquals(haversineDistanceInMeters(0.0, 0.0, 0.5, 179.7),
+                vincentyDistanceInMeters(0.0, 0.0, 0.5, 179.7), 0.01 * haversineDistanceInMeters(0.0, 0.0, 0.5, 179.7));
+
+        // The methods agree on short distances.
+        final double approximate = distanceInMeters(DistanceMode.APPROXIMATE, 52.0, 4.0, 52.1, 4.1);
+        assertEquals(approximate, distanceInMeters(DistanceMode.HAVERSINE, 52.0, 4.0, 52.1, 4.1), approximate * 0.005);
+        assertEquals(approximate, distanceInMeters(DistanceMode.VINCENTY, 52.0, 4.0, 52.1, 4.1), approximate * 0.005);
+    }
+
+    @Test
+    public void testBatchDistances() {
+        LOG.info("testBatchDistances");
+        final int count = 100;
+        final Random random = new Random(1);
+        final double[] lats = new double[count];
+        final double[] lons = new double[count];
+        for (int i = 0; i < count; ++i) {
+            lats[i] = (random.nextDouble() * 20.0) - 10.0;
+            lons[i] = (random.nextDouble() * 360.0) - 180.0;
+        }
+        final double[] out = new double[count];
+        for (final DistanceMode mode : DistanceMode.values()) {
+            distancesInMeters(mode, lats[0], lons[0], lats, lons, out, count);
+            for (int i = 0; i < count; ++i) {
+                assertEquals(0, compare(distanceInMeters(mode, lats[0], lons[0], lats[i], lons[i]), out[i]));
+            }
+            segmentDistancesInMeters(mode, lats, lons, out, count);
+            for (int i = 0; i < (count - 1); ++i) {
+                assertEquals(0, compare(distanceInMeters(mode, lats[i], lons[i], lats[i + 1], lons[i + 1]), out[i]));
+            }
+            final double[] lats2 = Arrays.copyOfRange(lats, 1, count);
+            final double[] lons2 = Arrays.copyOfRange(lons, 1, count);
+            distancesInMeters(mode, lats, lons, lats2, lons2, out, count - 1);
+            for (int i = 0; i < (count - 1); ++i) {
+                assertEquals(0, compare(distanceInMeters(mode, lats[i], lons[i], lats2[i], lons2[i]), out[i]));
+            }
+        }
+        final GeoPoint p1 = new GeoPoint(lats[0], lons[0]);
+        final GeoPoint p2 = new GeoPoint(lats[1], lons[1]);
+        assertEquals(0, compare(distanceInMeters(p1, p2), distanceInMeters(DistanceMode.APPROXIMATE,
+                p1.getLatValue(), p1.getLonValue(), p2.getLatValue(), p2.getLonValue())));
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.gpstrace;
+
+import com.tomtom.speedtools.geometry.Geo;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+public class GpsTraceBufferTest {
+    private static final Logger LOG = LoggerFactory.getLogger(GpsTraceBufferTest.class);
+
+    private static final double DELTA = 0.000001;
+    private static final DateTime START = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    @Test
+    public void testSameAsLimitSize() {
+        LOG.info("testSameAsLimitSize");
+        final Random random = new Random(1);
+        final Duration maxAge = Duration.standardSeconds(30);
+        final GpsTraceBuffer buffer = new GpsTraceBuffer(10, maxAge);
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertNull(buffer.getLastGpsTracePoint());
+
+        // Without simplification, the buffer contains the newest points that are not too old.
+        final List<GpsTracePoint> all = new ArrayList<>();
+        DateTime time = START;
+        for (int i = 0; i < 100; ++i) {
+            time = time.plusSeconds(random.nextInt(8));
+            final GpsTracePoint point = new GpsTracePoint(time, new GeoPoint(i * 0.001, 0.0));
+            buffer.add(point);
+            all.add(point);
+
+            final List<GpsTracePoint> expected = new ArrayList<>();
+            for (final GpsTracePoint p : all.subList(Math.max(0, all.size() - 10), all.size())) {
+                if (!p.getTime().isBefore(time.minus(maxAge))) {
+                    expected.add(p);
+                }
+            }
+            Assert.assertEquals(expected, buffer.toGpsTrace().getGpsTracePoints());
+            Assert.assertEquals(point, buffer.getLastGpsTracePoint());
+        }
+        Assert.assertEquals(buffer.toGpsTrace().getPositions(), buffer.getPositions());
+        buffer.clear();
+        Assert.assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testSimplifyStraightLine() {
+        LOG.info("testSimplifyStraightLine");
+        final GpsTraceBuffer buffer = new GpsTraceBuffer(100, Duration.standardHours(1), 5.0, Duration.ZERO);
+
+        // Points on a straight line are removed, except the first and last.
+        for (int i = 0; i <= 50; ++i) {
+            buffer.add(new GpsTracePoint(START.plusSeconds(i), new GeoPoint(52.0, 4.0 + (i * 0.0001))));
+        }
+        Assert.assertEquals(2, buffer.size());
+
+        // A corner is kept.
+        for (int i = 1; i <= 50; ++i) {
+            buffer.add(new GpsTracePoint(START.plusSeconds(50 + i), new GeoPoint(52.0 + (i * 0.0001), 4.005)));
+        }
+        final List<GpsTracePoint> points = buffer.toGpsTrace().getGpsTracePoints();
+        Assert.assertEquals(3, points.size());
+        Assert.assertEquals(52.0, points.get(1).getPosition().getLat(), DELTA);
+        Assert.assertEquals(4.005, points.get(1).getPosition().getLon(), DELTA);
+    }
+
+    @Test
+    public void testSimplifyWithinTolerance() {
+        LOG.info("testSimplifyWithinTolerance");
+        final Random random = new Random(1);
+        final double toleranceMeters = 10.0;
+        final GpsTraceBuffer buffer = new GpsTraceBuffer(1000, Duration.standardHours(1), toleranceMeters, Duration.ZERO);
+        final List<GpsTracePoint> all = new ArrayList<>();
+        double lat = 52.0;
+        double lon = 179.99;
+        for (int i = 0; i < 1000; ++i) {
+            lat += random.nextDouble() * 0.0001;
+            lon += (random.nextDouble() - 0.2) * 0.0001;
+            final GpsTracePoint point = new GpsTracePoint(START.plusSeconds(i), new GeoPoint(lat, lon));
+            buffer.add(point);
+            all.add(point);
+        }
+        final List<GpsTracePoint> kept = buffer.toGpsTrace().getGpsTracePoints();
+        Assert.assertTrue(kept.size() < (all.size() / 4));
+        Assert.assertEquals(all.get(0), kept.get(0));
+        Assert.assertEquals(all.get(all.size() - 1), kept.get(kept.size() - 1));
+
+        // Every removed point lies close to the line between the kept points around it.
+        int k = 0;
+        for (final GpsTracePoint point : all) {
+            if (point.equals(kept.get(k))) {
+                ++k;
+            } else {
+                final GeoPoint from = kept.get(k - 1).getPosition();
+                final GeoPoint to = kept.get(k).getPosition();
+                Assert.assertTrue(distanceToLine(from, to, point.getPosition()) <= (toleranceMeters * 1.01));
+            }
+        }
+        Assert.assertEquals(kept.size(), k);
+    }
+
+    @Test
+    public void testMinInterval() {
+        LOG.info("testMinInterval");
+        final GpsTraceBuffer buffer = new GpsTraceBuffer(100, Duration.standardHours(1), 0.0, Duration.standardSeconds(10));
+        for (int i = 0; i <= 60; ++i) {
+            buffer.add(new GpsTracePoint(START.plusSeconds(i), new GeoPoint(52.0 + (i * 0.01), 4.0 + (i * i * 0.001))));
+        }
+        final Collection<GpsTracePoint> points = buffer.toGpsTrace().getGpsTracePoints();
+        Assert.assertEquals(7, points.size());
+        DateTime previous = null;
+        for (final GpsTracePoint point : points) {
+            if (previous != null) {
+                Assert.assertTrue(!point.getTime().isBefore(previous.plusSeconds(10)));
+            }
+            previous = point.getTime();
+        }
+    }
+
+    // Approximate distance in meters of a point to a line, in a flat projection around the start of the line.
+    private static double distanceToLine(final GeoPoint from, final GeoPoint to, final GeoPoint point) {
+        final double metersPerDegreeLon = Geo.degreesLonToMetersAtLat(1.0, from.getLat());
+        final double metersPerDegreeLat = Geo.degreesLatToMeters(1.0);
+        final double toX = deltaLon(from.getLon(), to.getLon()) * metersPerDegreeLon;
+        final double toY = (to.getLat() - from.getLat()) * metersPerDegreeLat;
+        final double x = deltaLon(from.getLon(), point.getLon()) * metersPerDegreeLon;
+        final double y = (point.getLat() - from.getLat()) * metersPerDegreeLat;
+        final double lengthSquared = (toX * toX) + (toY * toY);
+        final double t = (lengthSquared == 0.0) ? 0.0 : Math.max(0.0, Math.min(1.0, ((x * toX) + (y * toY)) / lengthSquared));
+        return Math.hypot(x - (t * toX), y - (t * toY));
+    }
+
+    private static double deltaLon(final double fromLon, final double toLon) {
+        final double delta = toLon - fromLon;
+        return (delta < -180.0) ? (delta + 360.0) : ((delta >= 180.0) ? (delta - 360.0) : delta);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.gpstrace;
+
+import com.tomtom.speedtools.geometry.GeoPoint;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class GpsTraceCodecTest {
+    private static final Logger LOG = LoggerFactory.getLogger(GpsTraceCodecTest.class);
+
+    private static final DateTime START = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    @Test
+    public void testEncodeDecode() {
+        LOG.info("testEncodeDecode");
+        final List<GpsTracePoint> points = Arrays.asList(
+                new GpsTracePoint(START, new GeoPoint(52.1234567, 179.9999999, 12.34)),
+                new GpsTracePoint(START.plusMillis(1500), new GeoPoint(-89.5, -180.0)),
+                new GpsTracePoint(START.plusMillis(1500), new GeoPoint(90.0, 4.0, -3.5)));
+        Assert.assertEquals(points, GpsTraceCodec.decode(GpsTraceCodec.encode(points)));
+        Assert.assertEquals(Collections.emptyList(), GpsTraceCodec.decode(GpsTraceCodec.encode(Collections.emptyList())));
+    }
+
+    @Test
+    public void testCompact() {
+        LOG.info("testCompact");
+        final Random random = new Random(1);
+        final List<GpsTracePoint> points = new ArrayList<>();
+        double lat = 52.0;
+        double lon = 4.0;
+        for (int i = 0; i < 1000; ++i) {
+            lat += random.nextDouble() * 0.0001;
+            lon += random.nextDouble() * 0.0001;
+            points.add(new GpsTracePoint(START.plusSeconds(i), new GeoPoint(lat, lon)));
+        }
+        final byte[] bytes = GpsTraceCodec.encode(points);
+        Assert.assertTrue(bytes.length < (points.size() * 10));
+
+        // Positions are rounded, times are exact.
+        final List<GpsTracePoint> decoded = GpsTraceCodec.decode(bytes);
+        Assert.assertEquals(points.size(), decoded.size());
+        for (int i = 0; i < points.size(); ++i) {
+            Assert.assertEquals(points.get(i).getTime(), decoded.get(i).getTime());
+            Assert.assertEquals(points.get(i).getPosition().getLat(), decoded.get(i).getPosition().getLat(), 1.0e-7);
+            Assert.assertEquals(points.get(i).getPosition().getLon(), decoded.get(i).getPosition().getLon(), 1.0e-7);
+            Assert.assertNull(decoded.get(i).getPosition().getElevationMeters());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeTruncated() {
+        LOG.info("testDecodeTruncated");
+        final byte[] bytes = GpsTraceCodec.encode(Collections.singletonList(new GpsTracePoint(START, new GeoPoint(1.0, 2.0))));
+        GpsTraceCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeVersion() {
+        LOG.info("testDecodeVersion");
+        GpsTraceCodec.decode(new byte[]{2, 0});
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import com.google.common.cache.CacheLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class DiskTileStoreTest {
+    private static final Logger LOG = LoggerFactory.getLogger(DiskTileStoreTest.class);
+
+    private static final TileKey KEY1 = new TileKey(1, 2, 3);
+    private static final TileKey KEY2 = new TileKey(3, 2, 3);
+    private static final TileKey KEY3 = new TileKey(4, 5, 6);
+
+    private Path directory;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("tiles");
+    }
+
+    @After
+    public void after() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPutGet() throws IOException {
+        LOG.info("testPutGet");
+        final DiskTileStore store = new DiskTileStore(directory, 1000);
+        Assert.assertNull(store.get(KEY1));
+        store.put(KEY1, bytes("tile1"));
+        store.put(KEY2, bytes("tile2"));
+        Assert.assertEquals("tile1", string(store.get(KEY1)));
+        Assert.assertEquals("tile2", string(store.get(KEY2)));
+        Assert.assertTrue(store.get(KEY1).isReadOnly());
+        store.put(KEY1, bytes("tile1b"));
+        Assert.assertEquals("tile1b", string(store.get(KEY1)));
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(2 * (12 + 5) + 1, store.getSizeBytes());
+
+        store.invalidate(KEY1);
+        Assert.assertNull(store.get(KEY1));
+        store.invalidateAll();
+        Assert.assertNull(store.get(KEY2));
+        Assert.assertEquals(0, store.size());
+        Assert.assertEquals(0, store.getSizeBytes());
+    }
+
+    @Test
+    public void testRestart() throws IOException {
+        LOG.info("testRestart");
+        final DiskTileStore store = new DiskTileStore(directory, 1000);
+        store.put(KEY1, bytes("tile1"));
+        store.put(KEY3, bytes("tile3"));
+        Files.write(directory.resolve("3").resolve("1_2.tile123.tmp"), bytes("partial"));
+
+        final DiskTileStore restarted = new DiskTileStore(directory, 1000);
+        Assert.assertEquals(2, restarted.size());
+        Assert.assertEquals(store.getSizeBytes(), restarted.getSizeBytes());
+        Assert.assertEquals("tile1", string(restarted.get(KEY1)));
+        Assert.assertEquals("tile3", string(restarted.get(KEY3)));
+        Assert.assertFalse(Files.exists(directory.resolve("3").resolve("1_2.tile123.tmp")));
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        LOG.info("testEviction");
+        final DiskTileStore store = new DiskTileStore(directory, 2 * (12 + 5));
+        store.put(KEY1, bytes("tile1"));
+        store.put(KEY2, bytes("tile2"));
+        Assert.assertNotNull(store.get(KEY1));
+
+        // Least recently used tile is removed.
+        store.put(KEY3, bytes("tile3"));
+        Assert.assertEquals(2, store.size());
+        Assert.assertNull(store.get(KEY2));
+        Assert.assertEquals("tile1", string(store.get(KEY1)));
+        Assert.assertEquals("tile3", string(store.get(KEY3)));
+
+        // Tiles which are too large are not stored.
+        store.put(KEY2, new byte[100]);
+        Assert.assertNull(store.get(KEY2));
+        Assert.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException {
+        LOG.info("testCorruptFile");
+        final DiskTileStore store = new DiskTileStore(directory, 1000);
+        store.put(KEY1, bytes("tile1"));
+        final Path path = directory.resolve("3").resolve("1_2.tile");
+        final byte[] content = Files.readAllBytes(path);
+        content[content.length - 1] = 'X';
+        Files.write(path, content, StandardOpenOption.TRUNCATE_EXISTING);
+        Assert.assertNull(store.get(KEY1));
+        Assert.assertEquals(0, store.size());
+        Assert.assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        LOG.info("testMissingFile");
+        final DiskTileStore store = new DiskTileStore(directory, 1000);
+        store.put(KEY1, bytes("tile1"));
+        store.put(KEY2, bytes("tile2"));
+        final Path path = directory.resolve("3").resolve("1_2.tile");
+        Files.delete(path);
+
+        // A missing file is a miss, which does not affect other tiles.
+        Assert.assertNull(store.get(KEY1));
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(12 + 5, store.getSizeBytes());
+        Assert.assertEquals("tile2", string(store.get(KEY2)));
+
+        store.put(KEY1, bytes("tile1b"));
+        Assert.assertEquals("tile1b", string(store.get(KEY1)));
+        Assert.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testTwoTierCachedTileMap() throws IOException {
+        LOG.info("testTwoTierCachedTileMap");
+        final AtomicInteger loads = new AtomicInteger();
+        final CacheLoader<TileKey, String> loader = new CacheLoader<TileKey, String>() {
+
+            @Override
+            public String load(@Nonnull final TileKey key) {
+                loads.incrementAndGet();
+                return "tile-" + key.getTileX() + '-' + key.getTileY();
+            }
+        };
+        final StringCodec codec = new StringCodec();
+
+        // Heap tier holds only 2 tiles of 10 bytes.
+        final CachedTileMap<String> map = new CachedTileMap<>(20, codec, new DiskTileStore(directory, 1000), loader);
+        Assert.assertEquals("tile-1-2", map.getTile(KEY1));
+        Assert.assertEquals("tile-3-2", map.getTile(KEY2));
+        Assert.assertEquals("tile-4-5", map.getTile(KEY3));
+        Assert.assertEquals(3, loads.get());
+        Assert.assertTrue(map.stats().evictionCount() > 0);
+
+        // Evicted tiles are read from disk, also after a restart.
+        Assert.assertEquals("tile-1-2", map.getTile(KEY1));
+        final CachedTileMap<String> restarted =
+                new CachedTileMap<>(20, codec, new DiskTileStore(directory, 1000), loader);
+        Assert.assertEquals("tile-1-2", restarted.getTile(KEY1));
+        Assert.assertEquals("tile-3-2", restarted.getTile(KEY2));
+        Assert.assertEquals("tile-4-5", restarted.getTile(KEY3));
+        Assert.assertEquals(3, loads.get());
+
+        // Invalidated tiles are loaded again.
+        restarted.invalidate(KEY1);
+        Assert.assertEquals("tile-1-2", restarted.getTile(KEY1));
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Nonnull
+    private static byte[] bytes(@Nonnull final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Nonnull
+    private static String string(@Nonnull final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class StringCodec implements TileCodec<String> {
+
+        @Nonnull
+        @Override
+        public byte[] encode(@Nonnull final String tile) {
+            return bytes(tile);
+        }
+
+        @Nonnull
+        @Override
+        public String decode(@Nonnull final ByteBuffer buffer) {
+            return string(buffer);
+        }
+
+        @Override
+        public int getSizeInBytes(@Nonnull final String tile) {
+            return 10;
+        }
+    }
+}
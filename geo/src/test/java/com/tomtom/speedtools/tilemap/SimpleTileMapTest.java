@@ -19,6 +19,7 @@ package com.tomtom.speedtools.tilemap;
 import com.google.common.cache.CacheLoader;
 import com.tomtom.speedtools.geometry.GeoPoint;
 import com.tomtom.speedtools.objects.Tuple;
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +27,13 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertTrue;
 
@@ -101,6 +108,53 @@ public class SimpleTileMapTest {
         assertTrue(check.contains(new Tuple<>(new Tuple<>(1, 1), new Tuple<>(161, 121))));
     }
 
+    @Test
+    public void testAsyncMapTiles() throws Exception {
+        LOG.info("testAsyncMapTiles");
+
+        // The loader blocks until 4 tiles are being loaded at the same time, which only happens if loads are concurrent.
+        final CountDownLatch concurrentLoads = new CountDownLatch(4);
+        final AtomicInteger loads = new AtomicInteger();
+        final CachedTileMap<Bitmap> map = new CachedTileMap<>(
+                -1,
+                new CacheLoader<TileKey, Bitmap>() {
+
+                    @Override
+                    public Bitmap load(@Nonnull final TileKey key) throws InterruptedException {
+                        loads.incrementAndGet();
+                        concurrentLoads.countDown();
+                        Assert.assertTrue(concurrentLoads.await(10, TimeUnit.SECONDS));
+                        return new Bitmap();
+                    }
+                });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            final List<Tuple<Integer, Integer>> async = new ArrayList<>();
+            map.processViewportTilesAsync(1024, 768, MapConst.POS_AMSTERDAM, 6, executor,
+                    (final int seqX, final int seqY, @Nonnull final TileKey tileKey, @Nullable final Bitmap img,
+                     final int viewportX, final int viewportY,
+                     final int tileOffsetX, final int tileOffsetY, final int width, final int height) -> {
+                        Assert.assertNotNull(img);
+                        async.add(new Tuple<>(viewportX, viewportY));
+                    }).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(async.size(), loads.get());
+
+            // All tiles are cached now, so the synchronous version does not load any more tiles.
+            final List<Tuple<Integer, Integer>> sync = new ArrayList<>();
+            map.processViewportTiles(1024, 768, MapConst.POS_AMSTERDAM, 6,
+                    (final int seqX, final int seqY, @Nonnull final TileKey tileKey, @Nullable final Bitmap img,
+                     final int viewportX, final int viewportY,
+                     final int tileOffsetX, final int tileOffsetY, final int width, final int height) ->
+                            sync.add(new Tuple<>(viewportX, viewportY)));
+            Assert.assertEquals(async.size(), loads.get());
+            Assert.assertEquals(new HashSet<>(sync), new HashSet<>(async));
+            Assert.assertEquals(sync.size(), async.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     // Dummy implementation of a bitmap buffer. Does nothing.
     private static class Bitmap {
         // Empty.
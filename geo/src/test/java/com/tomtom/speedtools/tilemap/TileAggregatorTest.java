@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.tilemap;
+
+import com.tomtom.speedtools.geometry.GeoObject;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoRectangle;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TileAggregatorTest {
+    private static final Logger LOG = LoggerFactory.getLogger(TileAggregatorTest.class);
+
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void testPoints() {
+        LOG.info("testPoints");
+        final TileAggregator<Integer> aggregator = new TileAggregator<>(2, 12, -1);
+        final Random random = new Random(1);
+        final Map<Integer, GeoObject> points = new HashMap<>();
+        for (int i = 0; i < 1000; ++i) {
+            points.put(i, new GeoPoint((random.nextDouble() * 160.0) - 80.0, (random.nextDouble() * 360.0) - 180.0));
+        }
+        aggregator.putAll(points);
+        Assert.assertEquals(1000, aggregator.size());
+        for (final Map.Entry<Integer, GeoObject> point : points.entrySet()) {
+            for (int zoomLevel = 2; zoomLevel <= 12; ++zoomLevel) {
+                final TileKey key = TileMap.convertLatLonToTileOffset((GeoPoint) point.getValue(), zoomLevel).getKey();
+                Assert.assertTrue(aggregator.getObjects(key).containsKey(point.getKey()));
+            }
+        }
+
+        // Every point is in exactly one tile per zoom level.
+        int count = 0;
+        for (long x = 0; x < 4; ++x) {
+            for (long y = 0; y < 4; ++y) {
+                count += aggregator.getObjects(new TileKey(x, y, 2)).size();
+            }
+        }
+        Assert.assertEquals(1000, count);
+        Assert.assertTrue(aggregator.getObjects(new TileKey(0, 0, 1)).isEmpty());
+        Assert.assertTrue(aggregator.getObjects(new TileKey(0, 0, 13)).isEmpty());
+    }
+
+    @Test
+    public void testMoveAndRemove() {
+        LOG.info("testMoveAndRemove");
+        final TileAggregator<String> aggregator = new TileAggregator<>(0, 10, 4);
+        final GeoPoint amsterdam = MapConst.POS_AMSTERDAM;
+        final GeoPoint paris = MapConst.POS_PARIS;
+        final TileKey amsterdamKey = TileMap.convertLatLonToTileOffset(amsterdam, 10).getKey();
+        final TileKey parisKey = TileMap.convertLatLonToTileOffset(paris, 10).getKey();
+        aggregator.put("car", amsterdam);
+        Assert.assertEquals(amsterdam, aggregator.getObjects(amsterdamKey).get("car"));
+        Assert.assertTrue(aggregator.getObjects(parisKey).isEmpty());
+
+        aggregator.put("car", paris);
+        Assert.assertEquals(1, aggregator.size());
+        Assert.assertEquals(paris, aggregator.get("car"));
+        Assert.assertTrue(aggregator.getObjects(amsterdamKey).isEmpty());
+        Assert.assertEquals(paris, aggregator.getObjects(parisKey).get("car"));
+        Assert.assertEquals(1, aggregator.getClusters(TileMap.convertLatLonToTileOffset(paris, 4).getKey()).size());
+
+        Assert.assertTrue(aggregator.remove("car"));
+        Assert.assertFalse(aggregator.remove("car"));
+        Assert.assertEquals(0, aggregator.size());
+        Assert.assertTrue(aggregator.getObjects(parisKey).isEmpty());
+        Assert.assertTrue(aggregator.getClusters(TileMap.convertLatLonToTileOffset(paris, 4).getKey()).isEmpty());
+    }
+
+    @Test
+    public void testClusters() {
+        LOG.info("testClusters");
+        final TileAggregator<Integer> aggregator = new TileAggregator<>(0, 17, 3);
+        aggregator.put(1, new GeoPoint(52.0, 4.0));
+        aggregator.put(2, new GeoPoint(52.2, 4.2));
+        aggregator.put(3, new GeoPoint(-33.9, 151.2));
+        aggregator.put(4, new GeoRectangle(new GeoPoint(52.0, 4.0), new GeoPoint(52.1, 4.1)));
+
+        // Points are clustered up to zoom level 3; other objects are not.
+        final TileKey world = new TileKey(0, 0, 0);
+        final List<TileCluster> clusters = aggregator.getClusters(world);
+        Assert.assertEquals(2, clusters.size());
+        Assert.assertEquals(2, clusters.get(0).getCount());
+        Assert.assertEquals(52.1, clusters.get(0).getPosition().getLat(), DELTA);
+        Assert.assertEquals(4.1, clusters.get(0).getPosition().getLon(), DELTA);
+        Assert.assertEquals(1, clusters.get(1).getCount());
+        Assert.assertEquals(1, aggregator.getObjects(world).size());
+        Assert.assertTrue(aggregator.getObjects(world).containsKey(4));
+
+        // From zoom level 4, points are returned individually.
+        final TileKey key = TileMap.convertLatLonToTileOffset(new GeoPoint(52.0, 4.0), 4).getKey();
+        Assert.assertTrue(aggregator.getClusters(key).isEmpty());
+        Assert.assertEquals(3, aggregator.getObjects(key).size());
+
+        aggregator.remove(2);
+        Assert.assertEquals(new TileCluster(new GeoPoint(52.0, 4.0), 1), aggregator.getClusters(world).get(0));
+        aggregator.clear();
+        Assert.assertTrue(aggregator.getClusters(world).isEmpty());
+        Assert.assertTrue(aggregator.getObjects(key).isEmpty());
+    }
+
+    @Test
+    public void testAreas() {
+        LOG.info("testAreas");
+        final TileAggregator<String> aggregator = new TileAggregator<>(0, 17, -1);
+        final GeoRectangle large = new GeoRectangle(new GeoPoint(50.0, 3.0), new GeoPoint(53.0, 7.0));
+        final GeoRectangle wrapped = new GeoRectangle(new GeoPoint(-1.0, 179.0), new GeoPoint(1.0, -179.0));
+        aggregator.put("large", large);
+        aggregator.put("wrapped", wrapped);
+
+        // Large objects are found on all zoom levels, inside their bounding box only.
+        for (int zoomLevel = 0; zoomLevel <= 17; ++zoomLevel) {
+            Assert.assertTrue(aggregator.getObjects(
+                    TileMap.convertLatLonToTileOffset(new GeoPoint(51.5, 5.0), zoomLevel).getKey()).containsKey("large"));
+            Assert.assertTrue(aggregator.getObjects(
+                    TileMap.convertLatLonToTileOffset(new GeoPoint(0.0, 179.5), zoomLevel).getKey()).containsKey("wrapped"));
+            Assert.assertTrue(aggregator.getObjects(
+                    TileMap.convertLatLonToTileOffset(new GeoPoint(0.0, -179.5), zoomLevel).getKey()).containsKey("wrapped"));
+            if (zoomLevel >= 8) {
+                Assert.assertFalse(aggregator.getObjects(
+                        TileMap.convertLatLonToTileOffset(new GeoPoint(48.0, 5.0), zoomLevel).getKey()).containsKey("large"));
+                Assert.assertFalse(aggregator.getObjects(
+                        TileMap.convertLatLonToTileOffset(new GeoPoint(0.0, 170.0), zoomLevel).getKey()).containsKey("wrapped"));
+            }
+        }
+
+        aggregator.remove("large");
+        Assert.assertFalse(aggregator.getObjects(
+                TileMap.convertLatLonToTileOffset(new GeoPoint(51.5, 5.0), 17).getKey()).containsKey("large"));
+        Assert.assertFalse(aggregator.getObjects(
+                TileMap.convertLatLonToTileOffset(new GeoPoint(51.5, 5.0), 2).getKey()).containsKey("large"));
+    }
+}
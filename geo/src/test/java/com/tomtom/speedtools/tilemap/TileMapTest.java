@@ -24,6 +24,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Random;
+
 public class TileMapTest {
     private static final Logger LOG = LoggerFactory.getLogger(TileMapTest.class);
 
@@ -62,4 +64,103 @@ public class TileMapTest {
         Assert.assertEquals(new TileOffset(new TileKey(0, 2, 2), 0, 0),
                 TileMap.convertLatLonToTileOffset(new GeoPoint(0.0, -Geo.LON180), 2));
     }
+
+    @Test
+    public void testPackedTileKey() {
+        LOG.info("testPackedTileKey");
+        final TileKey key = new TileKey(123, 456, 10);
+        final long packed = key.pack();
+        Assert.assertTrue(packed >= 0);
+        Assert.assertEquals(123, TileKey.unpackTileX(packed));
+        Assert.assertEquals(456, TileKey.unpackTileY(packed));
+        Assert.assertEquals(10, TileKey.unpackZoomLevel(packed));
+        Assert.assertEquals(key, TileKey.unpack(packed));
+        Assert.assertEquals(Long.hashCode(packed), key.hashCode());
+
+        final long max = TileKey.pack((1 << MapConst.MAXIMUM_ZOOM) - 1, 0, MapConst.MAXIMUM_ZOOM);
+        Assert.assertEquals(new TileKey((1 << MapConst.MAXIMUM_ZOOM) - 1, 0, MapConst.MAXIMUM_ZOOM),
+                TileKey.unpack(max));
+        Assert.assertTrue(TileKey.pack(0, 0, 1) > TileKey.pack(0, 0, 0));
+        Assert.assertTrue(TileKey.pack(1, 0, 1) > TileKey.pack(0, 1, 1));
+    }
+
+    @Test
+    public void testPrimitiveConversions() {
+        LOG.info("testPrimitiveConversions");
+        final Random random = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            final GeoPoint point = new GeoPoint((random.nextDouble() * 180.0) - 90.0, (random.nextDouble() * 360.0) - 180.0);
+            final int zoomLevel = random.nextInt(MapConst.MAXIMUM_ZOOM + 1);
+            final TileOffset tileOffset = TileMap.convertLatLonToTileOffset(point, zoomLevel);
+            final long packed = TileMap.convertLatLonToPackedTileKey(point.getLatValue(), point.getLonValue(), zoomLevel);
+            Assert.assertEquals(tileOffset.getKey(), TileKey.unpack(packed));
+            Assert.assertEquals(tileOffset.getOffsetX(), TileMap.convertLonToTileOffsetX(point.getLonValue(), zoomLevel));
+            Assert.assertEquals(tileOffset.getOffsetY(), TileMap.convertLatToTileOffsetY(point.getLatValue(), zoomLevel));
+
+            final GeoPoint center = new GeoPoint(point.getLatValue() * random.nextDouble(), point.getLonValue());
+            final long xy = TileMap.convertLatLonToPackedViewportXY(point.getLatValue(), point.getLonValue(),
+                    800, 600, zoomLevel, center.getLatValue(), center.getLonValue());
+            final Tuple<Integer, Integer> tuple = TileMap.convertLatLonToViewportXY(point, 800, 600, zoomLevel, center);
+            if (tuple == null) {
+                Assert.assertEquals(TileMap.NO_VIEWPORT_XY, xy);
+            } else {
+                Assert.assertEquals((int) tuple.getValue1(), TileMap.unpackViewportX(xy));
+                Assert.assertEquals((int) tuple.getValue2(), TileMap.unpackViewportY(xy));
+            }
+        }
+        Assert.assertEquals(MercatorPoint.latLonToMercs(new GeoPoint(10.0, 190.0)),
+                MercatorPoint.latLonToMercs(10.0, 190.0));
+    }
+
+    @Test
+    public void testViewportTileIterator() {
+        LOG.info("testViewportTileIterator");
+        final Random random = new Random(1);
+        final ViewportTileIterator iterator = new ViewportTileIterator();
+        Assert.assertFalse(iterator.next());
+        for (int i = 0; i < 200; ++i) {
+            final int width = 256 + random.nextInt(1500);
+            final int height = 256 + random.nextInt(1000);
+            final int zoomLevel = 4 + random.nextInt(MapConst.MAXIMUM_ZOOM - 3);
+            final long nrTiles = 1L << zoomLevel;
+            final GeoPoint center = new GeoPoint((random.nextDouble() * 160.0) - 80.0, (random.nextDouble() * 360.0) - 180.0);
+            final TileKey centerKey = TileMap.convertLatLonToTileOffset(center, zoomLevel).getKey();
+            iterator.reset(width, height, center, zoomLevel);
+            int nrTilesInViewport = 0;
+            int nextViewportX = 0;
+            int nextViewportY = 0;
+            boolean centerFound = false;
+            boolean centerPixelFound = false;
+            while (iterator.next()) {
+                ++nrTilesInViewport;
+                Assert.assertEquals(iterator.getTileKey().pack(), iterator.getPackedTileKey());
+                Assert.assertEquals((iterator.getStartTileX() + iterator.getSeqX()) % nrTiles, iterator.getTileX());
+                Assert.assertEquals((iterator.getStartTileY() + iterator.getSeqY()) % nrTiles, iterator.getTileY());
+
+                // Tiles cover the viewport row by row, without gaps or overlap.
+                if (iterator.getSeqX() == 0) {
+                    Assert.assertEquals(nextViewportX, (iterator.getSeqY() == 0) ? 0 : width);
+                    Assert.assertEquals(nextViewportY, iterator.getViewportY());
+                    nextViewportY = iterator.getViewportY() + iterator.getHeight();
+                }
+                Assert.assertEquals((iterator.getSeqX() == 0) ? 0 : nextViewportX, iterator.getViewportX());
+                nextViewportX = iterator.getViewportX() + iterator.getWidth();
+
+                // The center of the map is (within a pixel) in the center of the viewport.
+                centerFound = centerFound || centerKey.equals(iterator.getTileKey());
+                if ((iterator.getViewportX() <= (width / 2)) && ((width / 2) < nextViewportX) &&
+                        (iterator.getViewportY() <= (height / 2)) && ((height / 2) < nextViewportY)) {
+                    Assert.assertTrue(Math.abs(centerKey.getTileX() - iterator.getTileX()) <= 1);
+                    Assert.assertTrue(Math.abs(centerKey.getTileY() - iterator.getTileY()) <= 1);
+                    centerPixelFound = true;
+                }
+            }
+            Assert.assertFalse(iterator.next());
+            Assert.assertEquals(width, nextViewportX);
+            Assert.assertEquals(height, nextViewportY);
+            Assert.assertTrue(centerFound);
+            Assert.assertTrue(centerPixelFound);
+            Assert.assertEquals(nrTilesInViewport, iterator.getNrColumns() * iterator.getNrRows());
+        }
+    }
 }
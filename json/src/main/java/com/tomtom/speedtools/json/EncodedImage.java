@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.json;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.tomtom.speedtools.json.ImageSerializer.FromEncodedBytesDeserializer;
+import com.tomtom.speedtools.json.ImageSerializer.ToEncodedBytesSerializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Image which keeps its original encoded bytes (for example, PNG or JPEG) alongside the decoded image. (Immutable)
+ *
+ * Use this class instead of {@link Image} or {@link BufferedImage} in DTOs which mostly pass images through. It is
+ * serialized by writing the original bytes, without decoding and re-encoding the image, and deserialized by keeping
+ * the bytes. The image is only decoded when {@link #getImage()} is called.
+ *
+ * Note that the Base64 inflation of JSON is avoided altogether when the DTO is serialized as Smile or CBOR, which
+ * write binary values as raw bytes.
+ */
+@Immutable
+@JsonSerialize(using = ToEncodedBytesSerializer.class)
+@JsonDeserialize(using = FromEncodedBytesDeserializer.class)
+public final class EncodedImage {
+
+    @Nonnull
+    private final byte[] encodedBytes;
+
+    // Decoded image, lazily created. Not part of equals() and hashCode().
+    @Nullable
+    private volatile BufferedImage image;
+
+    private EncodedImage(@Nonnull final byte[] encodedBytes, final boolean copy) {
+        super();
+        assert encodedBytes != null;
+        this.encodedBytes = copy ? Arrays.copyOf(encodedBytes, encodedBytes.length) : encodedBytes;
+        this.image = null;
+    }
+
+    /**
+     * Create an encoded image from encoded image bytes, in any format supported by ImageIO. The bytes are copied.
+     *
+     * @param encodedBytes Encoded image, such as PNG or JPEG data.
+     */
+    public EncodedImage(@Nonnull final byte[] encodedBytes) {
+        this(encodedBytes, true);
+    }
+
+    /**
+     * Create an encoded image from an image. The image is encoded as PNG once, so subsequent serializations do not
+     * need to encode it again. Later changes to the image are not reflected in the encoded image.
+     *
+     * @param image Image.
+     * @return Encoded image.
+     * @throws IOException If the image cannot be encoded.
+     */
+    @Nonnull
+    public static EncodedImage fromImage(@Nonnull final Image image) throws IOException {
+        assert image != null;
+        final byte[] bytes = ImageSerializer.writeAsBytes(image);
+        return new EncodedImage(bytes, false);
+    }
+
+    /**
+     * Wrap bytes without copying them. Used by the deserializer, which owns the byte array.
+     *
+     * @param encodedBytes Encoded image, not to be modified afterwards.
+     * @return Encoded image.
+     */
+    @Nonnull
+    static EncodedImage wrap(@Nonnull final byte[] encodedBytes) {
+        assert encodedBytes != null;
+        return new EncodedImage(encodedBytes, false);
+    }
+
+    /**
+     * Get a copy of the encoded image bytes.
+     *
+     * @return Encoded image bytes.
+     */
+    @Nonnull
+    public byte[] getEncodedBytes() {
+        return Arrays.copyOf(encodedBytes, encodedBytes.length);
+    }
+
+    /**
+     * Get the encoded image bytes without copying them. Used by the serializer, which does not modify them.
+     *
+     * @return Encoded image bytes.
+     */
+    @Nonnull
+    byte[] getEncodedBytesUnsafe() {
+        return encodedBytes;
+    }
+
+    /**
+     * Return the number of encoded bytes.
+     *
+     * @return Size in bytes.
+     */
+    public int getSize() {
+        return encodedBytes.length;
+    }
+
+    /**
+     * Get the decoded image. The image is decoded on first access only. Note that the returned image must not be
+     * modified, as that would not be reflected in the encoded bytes.
+     *
+     * @return Decoded image.
+     * @throws IOException If the bytes cannot be decoded.
+     */
+    @Nonnull
+    public BufferedImage getImage() throws IOException {
+        BufferedImage result = image;
+        if (result == null) {
+            result = ImageSerializer.readFromBytes(encodedBytes);
+            if (result == null) {
+                throw new IOException("Cannot decode image, no decoder found, size=" + encodedBytes.length);
+            }
+            image = result;
+        }
+        return result;
+    }
+
+    public boolean canEqual(@Nonnull final Object obj) {
+        assert obj != null;
+        return obj instanceof EncodedImage;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        boolean eq;
+        if (this == obj) {
+            eq = true;
+        } else if ((obj != null) && (obj instanceof EncodedImage)) {
+            final EncodedImage that = (EncodedImage) obj;
+            eq = that.canEqual(this);
+            // Top-level entity, don't check for super.equals(that).
+            eq = eq && Arrays.equals(encodedBytes, that.encodedBytes);
+        } else {
+            eq = false;
+        }
+        return eq;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encodedBytes);
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+        return "[" + encodedBytes.length + " bytes]";
+    }
+}
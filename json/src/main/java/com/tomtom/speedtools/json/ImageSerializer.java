@@ -32,6 +32,7 @@ import javax.annotation.Nullable;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
@@ -104,8 +105,48 @@ public final class ImageSerializer {
         }
     }
 
+    /**
+     * Serializer for {@link EncodedImage}. The originally encoded bytes are written as-is, so the image is never
+     * re-encoded. Note that binary formats, like Smile and CBOR, write the bytes raw rather than Base64 encoded.
+     */
+    @SuppressWarnings("OverlyBroadThrowsClause")
+    public static class ToEncodedBytesSerializer extends JsonSerializer<EncodedImage> {
+
+        @Override
+        public void serialize(
+                @Nonnull final EncodedImage t,
+                @Nonnull final JsonGenerator jsonGenerator,
+                @Nonnull final SerializerProvider serializerProvider)
+                throws IOException {
+            assert t != null;
+            assert jsonGenerator != null;
+            assert serializerProvider != null;
+            final byte[] bytes = t.getEncodedBytesUnsafe();
+            jsonGenerator.writeBinary(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Deserializer for {@link EncodedImage}. The bytes are kept and the image is only decoded when it is accessed.
+     */
+    @SuppressWarnings("OverlyBroadThrowsClause")
+    public static class FromEncodedBytesDeserializer extends JsonDeserializer<EncodedImage> {
+
+        @Override
+        @Nonnull
+        public EncodedImage deserialize(
+                @Nonnull final JsonParser jsonParser,
+                @Nonnull final DeserializationContext deserializationContext)
+                throws IOException {
+            assert jsonParser != null;
+            assert deserializationContext != null;
+            final byte[] bytes = jsonParser.getBinaryValue();
+            return EncodedImage.wrap(bytes);
+        }
+    }
+
     @Nullable
-    private static BufferedImage readFromBytes(@Nonnull final byte[] bytes) throws IOException {
+    static BufferedImage readFromBytes(@Nonnull final byte[] bytes) throws IOException {
         assert bytes != null;
         try (InputStream is = new ByteArrayInputStream(bytes)) {
             return ImageIO.read(is);
@@ -113,7 +154,7 @@ public final class ImageSerializer {
     }
 
     @Nonnull
-    private static byte[] writeAsBytes(@Nonnull final Image v) throws IOException {
+    static byte[] writeAsBytes(@Nonnull final Image v) throws IOException {
         assert v != null;
 
         /**
@@ -124,7 +165,9 @@ public final class ImageSerializer {
             final Iterator<ImageWriter> it = ImageIO.getImageWritersByMIMEType(mimeType);
             if (it.hasNext()) {
                 final ImageWriter w = it.next();
-                final ImageOutputStream os = ImageIO.createImageOutputStream(stream);
+
+                // Use an in-memory cache: ImageIO.createImageOutputStream may use a temporary file instead.
+                final ImageOutputStream os = new MemoryCacheImageOutputStream(stream);
                 w.setOutput(os);
                 w.write(convertToBufferedImage(v));
                 os.close();
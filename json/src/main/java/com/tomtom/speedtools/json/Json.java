@@ -27,7 +27,9 @@ import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
 import com.tomtom.speedtools.json.ImageSerializer.FromBytesDeserializer;
 import com.tomtom.speedtools.json.ImageSerializer.FromBytesDeserializerForBufferedImage;
+import com.tomtom.speedtools.json.ImageSerializer.FromEncodedBytesDeserializer;
 import com.tomtom.speedtools.json.ImageSerializer.ToBytesSerializer;
+import com.tomtom.speedtools.json.ImageSerializer.ToEncodedBytesSerializer;
 import com.tomtom.speedtools.xmladapters.DateTimeAdapter.JsonDateTimeStringDeserializer;
 import com.tomtom.speedtools.xmladapters.DateTimeAdapter.JsonSerializerWithMillisResolution;
 import com.tomtom.speedtools.xmladapters.DateTimeZoneAdapter.JsonDateTimeZoneDeserializer;
@@ -60,21 +62,22 @@ public final class Json {
     @Nonnull
     private static final ObjectMapper STRING_MAPPER;
 
+    // Define the binary Jackson object mappers.
+    @Nonnull
+    private static final ObjectMapper SMILE_MAPPER;
+    @Nonnull
+    private static final ObjectMapper CBOR_MAPPER;
+
     /**
      *  Initialize Jackson mapper to allows access to private fields and empty beans.
      *  Also add mix-in annotation for Joda time classes to keep them human readable (as of Jackson 2.0).
+     *  The binary mappers use the same configuration, so they produce the same logical structure.
      */
     static {
         OBJECT_MAPPER = JsonObjectMapperFactory.createJsonObjectMapper();
         STRING_MAPPER = JsonObjectMapperFactory.createJsonObjectMapper();
-
-        // Add annotation inspectors for JAXB, like @XmlElement, required for RestEasy serialization/deserialization.
-        OBJECT_MAPPER.setAnnotationIntrospector(
-                new AnnotationIntrospectorPair(new JaxbAnnotationIntrospector(TypeFactory.defaultInstance()),
-                        new JacksonAnnotationIntrospector()));
-        STRING_MAPPER.setAnnotationIntrospector(
-                new AnnotationIntrospectorPair(new JaxbAnnotationIntrospector(TypeFactory.defaultInstance()),
-                        new JacksonAnnotationIntrospector()));
+        SMILE_MAPPER = JsonObjectMapperFactory.createSmileObjectMapper();
+        CBOR_MAPPER = JsonObjectMapperFactory.createCborObjectMapper();
 
         // Add custom mappers.
         final SimpleModule module = new SimpleModule("EnhancedJsonMappers", new Version(0, 1, 0, "", "", ""));
@@ -88,10 +91,18 @@ public final class Json {
                 .addSerializer(Image.class, new ToBytesSerializer())
                 .addDeserializer(Image.class, new FromBytesDeserializer())
                 .addSerializer(BufferedImage.class, new ToBytesSerializer())
-                .addDeserializer(BufferedImage.class, new FromBytesDeserializerForBufferedImage());
+                .addDeserializer(BufferedImage.class, new FromBytesDeserializerForBufferedImage())
+                .addSerializer(EncodedImage.class, new ToEncodedBytesSerializer())
+                .addDeserializer(EncodedImage.class, new FromEncodedBytesDeserializer());
 
-        OBJECT_MAPPER.registerModules(new JodaModule(), module);
-        STRING_MAPPER.registerModules(new JodaModule(), module);
+        for (final ObjectMapper mapper : new ObjectMapper[]{OBJECT_MAPPER, STRING_MAPPER, SMILE_MAPPER, CBOR_MAPPER}) {
+
+            // Add annotation inspectors for JAXB, like @XmlElement, required for RestEasy serialization/deserialization.
+            mapper.setAnnotationIntrospector(
+                    new AnnotationIntrospectorPair(new JaxbAnnotationIntrospector(TypeFactory.defaultInstance()),
+                            new JacksonAnnotationIntrospector()));
+            mapper.registerModules(new JodaModule(), module);
+        }
     }
 
     /**
@@ -122,6 +133,26 @@ public final class Json {
         return STRING_MAPPER;
     }
 
+    /**
+     * Return the binary Smile mapper. This mapper is configured identically to the JSON mapper used for JAXB.
+     *
+     * @return Smile mapper.
+     */
+    @Nonnull
+    public static ObjectMapper getCurrentSmileObjectMapper() {
+        return SMILE_MAPPER;
+    }
+
+    /**
+     * Return the binary CBOR mapper. This mapper is configured identically to the JSON mapper used for JAXB.
+     *
+     * @return CBOR mapper.
+     */
+    @Nonnull
+    public static ObjectMapper getCurrentCborObjectMapper() {
+        return CBOR_MAPPER;
+    }
+
     @Nonnull
     private static String toMapper(@Nonnull final ObjectMapper mapper, @Nonnull final Object obj) {
         assert mapper != null;
@@ -156,6 +187,33 @@ public final class Json {
         return null;
     }
 
+    @Nullable
+    private static byte[] toBinaryMapper(@Nonnull final ObjectMapper mapper, @Nonnull final Object obj) {
+        assert mapper != null;
+        assert obj != null;
+        try {
+            return mapper.writeValueAsBytes(obj);
+        } catch (final IOException e) {
+            LOG.error("toBinaryMapper: Cannot map {} --> binary, mapper={}, exception={}",
+                    obj.getClass().getCanonicalName(), mapper.getFactory().getFormatName(), e.toString());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static <T> T fromBinaryMapper(@Nonnull final ObjectMapper mapper, @Nonnull final byte[] data, @Nonnull final Class<T> type) {
+        assert mapper != null;
+        assert data != null;
+        assert type != null;
+        try {
+            return mapper.readValue(data, type);
+        } catch (final IOException e) {
+            LOG.error("fromBinaryMapper: Cannot map {} bytes --> object, mapper={}, exception={}", data.length,
+                    mapper.getFactory().getFormatName(), e.toString());
+        }
+        return null;
+    }
+
     @Nonnull
     public static String toJson(@Nonnull final Object obj) {
         assert obj != null;
@@ -169,6 +227,44 @@ public final class Json {
         return fromMapper(OBJECT_MAPPER, json, type);
     }
 
+    /**
+     * Convert an object to its binary Smile representation.
+     *
+     * @param obj Object to convert.
+     * @return Smile encoded bytes, or null if the object could not be mapped.
+     */
+    @Nullable
+    public static byte[] toSmile(@Nonnull final Object obj) {
+        assert obj != null;
+        return toBinaryMapper(SMILE_MAPPER, obj);
+    }
+
+    @Nullable
+    public static <T> T fromSmile(@Nonnull final byte[] smile, @Nonnull final Class<T> type) {
+        assert smile != null;
+        assert type != null;
+        return fromBinaryMapper(SMILE_MAPPER, smile, type);
+    }
+
+    /**
+     * Convert an object to its binary CBOR representation.
+     *
+     * @param obj Object to convert.
+     * @return CBOR encoded bytes, or null if the object could not be mapped.
+     */
+    @Nullable
+    public static byte[] toCbor(@Nonnull final Object obj) {
+        assert obj != null;
+        return toBinaryMapper(CBOR_MAPPER, obj);
+    }
+
+    @Nullable
+    public static <T> T fromCbor(@Nonnull final byte[] cbor, @Nonnull final Class<T> type) {
+        assert cbor != null;
+        assert type != null;
+        return fromBinaryMapper(CBOR_MAPPER, cbor, type);
+    }
+
     /**
      * Convert an object to a JSON String representation. The returned string may NOT be readable as pure JSON. If you
      * want to use real JSON, use toJson instead. This method should be used for human readable debugging and logging
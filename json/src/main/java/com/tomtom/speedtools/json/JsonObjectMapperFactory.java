@@ -26,9 +26,18 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import javax.annotation.Nonnull;
 
 /**
  * This class defines a Jackson mapper factory. Any annotation inspectors need to be set in the calling classes.
+ *
+ * Besides the textual JSON mapper, the factory can create mappers for the binary Smile and CBOR encodings. These
+ * mappers use exactly the same mapper configuration as the JSON mapper, so an object serializes to the same logical
+ * structure in all formats.
  */
 public final class JsonObjectMapperFactory {
 
@@ -53,7 +62,38 @@ public final class JsonObjectMapperFactory {
                 configure(Feature.WRITE_NUMBERS_AS_STRINGS, false);
 
         // Create a custom object mapper from the newly created factory. This object mapper will be used by RestEasy.
-        final ObjectMapper mapper = new ObjectMapper(jsonFactory);
+        return configureObjectMapper(new ObjectMapper(jsonFactory));
+    }
+
+    /**
+     * Create an object mapper which produces and consumes the binary Smile format (application/x-jackson-smile).
+     *
+     * @return Smile object mapper.
+     */
+    @Nonnull
+    public static ObjectMapper createSmileObjectMapper() {
+
+        // Create a Smile factory. Shared names and values make repeated (DTO) property names very compact.
+        final SmileFactory smileFactory = new SmileFactory();
+        smileFactory.
+                configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true).
+                configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+        return configureObjectMapper(new ObjectMapper(smileFactory));
+    }
+
+    /**
+     * Create an object mapper which produces and consumes the binary CBOR format (application/cbor, RFC 7049).
+     *
+     * @return CBOR object mapper.
+     */
+    @Nonnull
+    public static ObjectMapper createCborObjectMapper() {
+        return configureObjectMapper(new ObjectMapper(new CBORFactory()));
+    }
+
+    @Nonnull
+    private static ObjectMapper configureObjectMapper(@Nonnull final ObjectMapper mapper) {
+        assert mapper != null;
 
         // Set generic mapper configuration.
         mapper
@@ -326,6 +326,41 @@ public class JsonTest {
         Assert.assertEquals(time1.toDate(), time2.toDate());
     }
 
+    @Test
+    public void testSmileAndCbor() {
+        LOG.info("testSmileAndCbor");
+
+        final SomeAbstract x = new SomeConcrete(1, "x");
+        final byte[] smile = Json.toSmile(x);
+        Assert.assertNotNull(smile);
+        Assert.assertEquals(':', smile[0]);                         // Smile header starts with ":)\n".
+        final SomeAbstract x1 = Json.fromSmile(smile, SomeAbstract.class);
+        Assert.assertNotNull(x1);
+        Assert.assertTrue(x1 instanceof SomeConcrete);
+        Assert.assertEquals(x.a, x1.a);
+        Assert.assertEquals(((SomeConcrete) x).x, ((SomeConcrete) x1).x);
+
+        final byte[] cbor = Json.toCbor(x);
+        Assert.assertNotNull(cbor);
+        final SomeAbstract x2 = Json.fromCbor(cbor, SomeAbstract.class);
+        Assert.assertNotNull(x2);
+        Assert.assertTrue(x2 instanceof SomeConcrete);
+        Assert.assertEquals(x.a, x2.a);
+
+        // Custom serializers must be registered for the binary mappers as well.
+        final DateTime time1 = new DateTime(2010, 3, 7, 6, 30, 15, 10, DateTimeZone.UTC);
+        final byte[] smileTime = Json.toSmile(time1);
+        Assert.assertNotNull(smileTime);
+        final DateTime time2 = Json.fromSmile(smileTime, DateTime.class);
+        Assert.assertNotNull(time2);
+        Assert.assertEquals(time1.toDate(), time2.toDate());
+        final byte[] cborTime = Json.toCbor(time1);
+        Assert.assertNotNull(cborTime);
+        final DateTime time3 = Json.fromCbor(cborTime, DateTime.class);
+        Assert.assertNotNull(time3);
+        Assert.assertEquals(time1.toDate(), time3.toDate());
+    }
+
     //
     // Mix-in annotations for Jackson.
     //
@@ -353,6 +388,32 @@ public class JsonTest {
         }
     }
 
+    @Test
+    public void testEncodedImage() throws Exception {
+        LOG.info("testEncodedImage");
+
+        @SuppressWarnings("IOResourceOpenedButNotSafelyClosed") final BufferedImage image1 = ImageIO.read(this.getClass().getResourceAsStream("jsontest.png"));
+        final EncodedImage encoded1 = EncodedImage.fromImage(image1);
+        final String json1 = Json.toJson(encoded1);
+        Assert.assertEquals(Json.toJson(image1), json1);
+
+        // The bytes must pass through unchanged.
+        final EncodedImage encoded2 = Json.fromJson(json1, EncodedImage.class);
+        Assert.assertNotNull(encoded2);
+        Assert.assertEquals(encoded1, encoded2);
+        Assert.assertEquals(json1, Json.toJson(encoded2));
+
+        final byte[] smile = Json.toSmile(encoded2);
+        Assert.assertNotNull(smile);
+        Assert.assertTrue(smile.length < json1.length());
+        Assert.assertEquals(encoded1, Json.fromSmile(smile, EncodedImage.class));
+
+        final BufferedImage image2 = encoded2.getImage();
+        Assert.assertEquals(image1.getWidth(), image2.getWidth());
+        Assert.assertEquals(image1.getHeight(), image2.getHeight());
+        Assert.assertEquals(image1.getRGB(0, 0), image2.getRGB(0, 0));
+    }
+
     @SuppressWarnings("UnusedParameters")
     public static abstract class MixInGeoPoint {
         @JsonCreator
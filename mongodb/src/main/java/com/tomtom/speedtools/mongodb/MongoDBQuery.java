@@ -19,6 +19,7 @@ package com.tomtom.speedtools.mongodb;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPolygon;
 import com.tomtom.speedtools.geometry.GeoRectangle;
 import com.tomtom.speedtools.mongodb.mappers.*;
 import com.tomtom.speedtools.mongodb.mappers.EntityMapper.HasFieldName;
@@ -851,6 +852,69 @@ public class MongoDBQuery {
         return doWithin(mongoPath(f0, f1, f2, f3, f4), f4.getMapper(), value);
     }
 
+    @Nonnull
+    public MongoDBQuery within(
+            @Nonnull final EntityMapper<?>.Field<GeoPoint> f0,
+            @Nonnull final GeoPolygon value) {
+        return doWithin(mongoPath(f0), f0.getMapper(), value);
+    }
+
+    @Nonnull
+    public MongoDBQuery within(
+            @Nonnull final HasFieldName f0,
+            @Nonnull final EntityMapper<?>.Field<GeoPoint> f1,
+            @Nonnull final GeoPolygon value) {
+        assert f0 != null;
+        assert f1 != null;
+        assert value != null;
+        return doWithin(mongoPath(f0, f1), f1.getMapper(), value);
+    }
+
+    @Nonnull
+    public MongoDBQuery within(
+            @Nonnull final HasFieldName f0,
+            @Nonnull final HasFieldName f1,
+            @Nonnull final EntityMapper<?>.Field<GeoPoint> f2,
+            @Nonnull final GeoPolygon value) {
+        assert f0 != null;
+        assert f1 != null;
+        assert f2 != null;
+        assert value != null;
+        return doWithin(mongoPath(f0, f1, f2), f2.getMapper(), value);
+    }
+
+    @Nonnull
+    public MongoDBQuery within(
+            @Nonnull final HasFieldName f0,
+            @Nonnull final HasFieldName f1,
+            @Nonnull final HasFieldName f2,
+            @Nonnull final EntityMapper<?>.Field<GeoPoint> f3,
+            @Nonnull final GeoPolygon value) {
+        assert f0 != null;
+        assert f1 != null;
+        assert f2 != null;
+        assert f3 != null;
+        assert value != null;
+        return doWithin(mongoPath(f0, f1, f2, f3), f3.getMapper(), value);
+    }
+
+    @Nonnull
+    public MongoDBQuery within(
+            @Nonnull final HasFieldName f0,
+            @Nonnull final HasFieldName f1,
+            @Nonnull final HasFieldName f2,
+            @Nonnull final HasFieldName f3,
+            @Nonnull final EntityMapper<?>.Field<GeoPoint> f4,
+            @Nonnull final GeoPolygon value) {
+        assert f0 != null;
+        assert f1 != null;
+        assert f2 != null;
+        assert f3 != null;
+        assert f4 != null;
+        assert value != null;
+        return doWithin(mongoPath(f0, f1, f2, f3, f4), f4.getMapper(), value);
+    }
+
     @Nonnull
     public MongoDBQuery ofType(
             @Nonnull final EntityMapper<?> type) {
@@ -977,6 +1041,18 @@ public class MongoDBQuery {
         return this;
     }
 
+    @Nonnull
+    private MongoDBQuery doWithin(@Nonnull final String fieldName, @Nonnull final Mapper<GeoPoint> mapper,
+                                  @Nonnull final GeoPolygon value) {
+        append(fieldName, new FieldSelection(OPERATOR_WITHIN, fieldName) {
+            @Override
+            Object toDBValue() throws MapperException {
+                return MongoDBUtils.createBasicDBObjectFromPolygon(value, (GeoPointMapper) mapper);
+            }
+        });
+        return this;
+    }
+
 
     private static abstract class FieldSelection {
         @Nonnull
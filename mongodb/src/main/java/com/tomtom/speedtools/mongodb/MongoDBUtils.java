@@ -18,12 +18,14 @@ package com.tomtom.speedtools.mongodb;
 
 import com.mongodb.BasicDBObject;
 import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPolygon;
 import com.tomtom.speedtools.geometry.GeoRectangle;
 import com.tomtom.speedtools.mongodb.mappers.EntityMapper.HasFieldName;
 import com.tomtom.speedtools.mongodb.mappers.GeoPointMapper;
 import com.tomtom.speedtools.mongodb.mappers.MapperException;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 
 /**
  * This class provides generic methods to operate on Mongo Collections.
@@ -101,4 +103,33 @@ public final class MongoDBUtils {
         assert box != null;
         return box;
     }
+
+    /**
+     * This method will return a {@link BasicDBObject} representing a Mongo polygon. Mongo polygons cannot have holes,
+     * so only the outer ring of the polygon is used. A query using this object may therefore return points that lie
+     * in a hole of the polygon; the caller may use {@link GeoPolygon#contains(GeoPoint)} to remove these.
+     *
+     * @param nonWrappedPolygon The polygon that is the target for the polygon object. This polygon may NOT cross the
+     *                          180th meridian, so its bounding box may not be wrapped. The caller must make sure this
+     *                          is the case.
+     * @param geoPointMapper    The mapper that knows how to map Java objects to Mongo.
+     * @return A {@link BasicDBObject} representing a Mongo polygon.
+     * @throws MapperException If the polygon could not be mapped.
+     */
+    public static BasicDBObject createBasicDBObjectFromPolygon(
+            @Nonnull final GeoPolygon nonWrappedPolygon,
+            @Nonnull final GeoPointMapper geoPointMapper) throws MapperException {
+        assert nonWrappedPolygon != null;
+        assert !nonWrappedPolygon.boundingBox().isWrapped();
+        assert geoPointMapper != null;
+
+        final List<GeoPoint> points = nonWrappedPolygon.getPoints();
+        final Object[] vertices = new Object[points.size()];
+        for (int i = 0; i < vertices.length; ++i) {
+            vertices[i] = geoPointMapper.toDb(points.get(i));
+        }
+        final BasicDBObject polygon = new BasicDBObject("$polygon", vertices);
+        assert polygon != null;
+        return polygon;
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.mongodb.mappers;
+
+import com.tomtom.speedtools.gpstrace.GpsTraceCodec;
+import com.tomtom.speedtools.gpstrace.GpsTracePoint;
+import org.bson.types.Binary;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Maps a list of GPS trace points to a compact binary value, see {@link GpsTraceCodec}.
+ */
+public class CompactGpsTracePointsMapper extends Mapper<List<GpsTracePoint>> {
+
+    @Nullable
+    @Override
+    public List<GpsTracePoint> fromDb(@Nullable final Object dbValue) throws MapperException {
+        if (dbValue == null) {
+            return null;
+        }
+        final byte[] bytes;
+        if (dbValue instanceof Binary) {
+            bytes = ((Binary) dbValue).getData();
+        } else if (dbValue instanceof byte[]) {
+            bytes = (byte[]) dbValue;
+        } else {
+            throw new MapperException("Bytes expected, " +
+                    "got a value of type: " + dbValue.getClass().getCanonicalName());
+        }
+        try {
+            return GpsTraceCodec.decode(bytes);
+        } catch (final IllegalArgumentException e) {
+            throw new MapperException("Invalid compact GPS trace points: " + e.getMessage());
+        }
+    }
+
+    @Nullable
+    @Override
+    public Binary toDb(@Nullable final List<GpsTracePoint> value) {
+        if (value == null) {
+            return null;
+        }
+        return new Binary(GpsTraceCodec.encode(value));
+    }
+}
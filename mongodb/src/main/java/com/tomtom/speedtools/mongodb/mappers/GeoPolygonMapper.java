@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.mongodb.mappers;
+
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPolygon;
+
+import java.util.List;
+
+/**
+ * Maps a {@link GeoPolygon}. As a sub-entity of {@link GeoAreaMapper}, the pixelated rectangles of the polygon are
+ * stored as well, so polygons can be queried like any other geo area.
+ */
+public class GeoPolygonMapper extends EntityMapper<GeoPolygon> {
+    public final EntityType entityType = entityType(GeoPolygon.class, "geoPolygon");
+    public final SuperEntity superEntity = superEntity(GeoAreaMapper.class);
+
+    public final Field<List<GeoPoint>> points = listField("points", GeoPointMapper.class, "getPoints", CONSTRUCTOR);
+    public final Field<List<GeoPolygon>> holes = listField("holes", GeoPolygonMapper.class, "getHoles", CONSTRUCTOR);
+}
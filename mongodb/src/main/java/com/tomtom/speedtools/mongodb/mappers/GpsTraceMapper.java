@@ -16,17 +16,58 @@
 
 package com.tomtom.speedtools.mongodb.mappers;
 
+import com.mongodb.DBObject;
 import com.tomtom.speedtools.gpstrace.GpsTrace;
 import com.tomtom.speedtools.gpstrace.GpsTracePoint;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
-
+/**
+ * Maps a GPS trace. The trace points are stored in a compact binary form, see {@link CompactGpsTracePointsMapper}.
+ * Traces stored as a list of trace points, by older versions of this mapper, can still be read.
+ */
 public class GpsTraceMapper extends EntityMapper<GpsTrace> {
     public final EntityType entityType = entityType(GpsTrace.class, "gpsTrace");
 
+    public final Field<List<GpsTracePoint>> compactGpsTracePoints =
+            field("compactGpsTracePoints", CompactGpsTracePointsMapper.class, "getGpsTracePoints", NO_SETTER);
+
+    // Trace points as stored by older versions of this mapper. This field is read, but never written.
     public final Field<Collection<GpsTracePoint>> gpsTracePoints =
-            collectionField("gpsTracePoints", GpsTracePointMapper.class, "getGpsTracePoints", CONSTRUCTOR);
+            new ReflectiveField<Collection<GpsTracePoint>>("gpsTracePoints",
+                    CollectionMapper.create(GpsTracePointMapper.class), NO_GETTER, NO_SETTER) {
+                @Nullable
+                @Override
+                public Object toDb(@Nullable final Collection<GpsTracePoint> value) {
+                    return null;
+                }
+            };
+
     public final Field<GpsTracePoint> lastGpsTracePoint =
             field("lastGpsTracePoint", GpsTracePointMapper.class, "getLastGpsTracePoint", NO_SETTER);
+
+    @Nonnull
+    @Override
+    protected GpsTrace newInstance(
+            @Nonnull final DBObject dbObject,
+            @Nonnull final Set<EntityMapper<?>.Field<?>> initializedFields) throws MapperException {
+        assert dbObject != null;
+        assert initializedFields != null;
+
+        Collection<GpsTracePoint> points = compactGpsTracePoints.fromDbObject(dbObject);
+        if (points == null) {
+            points = gpsTracePoints.fromDbObject(dbObject);
+        }
+        final GpsTrace result = (points == null) ? new GpsTrace() : new GpsTrace(points);
+
+        // We have set these fields.
+        initializedFields.add(compactGpsTracePoints);
+        initializedFields.add(gpsTracePoints);
+
+        return result;
+    }
 }
@@ -55,6 +55,7 @@ public class MapperRegistry {
             register(
                     new GeoAreaMapper(),
                     new GeoPointMapper(),
+                    new GeoPolygonMapper(),
                     new GeoRectangleMapper(),
                     new GpsTraceMapper(),
                     new GpsTracePointMapper(),
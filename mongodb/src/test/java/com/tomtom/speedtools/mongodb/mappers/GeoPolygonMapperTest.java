@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.mongodb.mappers;
+
+import com.mongodb.DBObject;
+import com.tomtom.speedtools.geometry.GeoArea;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.geometry.GeoPolygon;
+import com.tomtom.speedtools.mongodb.MongoDBKeyNames;
+import com.tomtom.speedtools.mongodb.MongoDBQuery;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@SuppressWarnings("StaticVariableMayNotBeInitialized")
+public class GeoPolygonMapperTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GeoPolygonMapperTest.class);
+
+    private static GeoAreaMapper geoAreaMapper;
+    private static GeoPointMapper geoPointMapper;
+    private static GeoRectangleMapper geoRectangleMapper;
+
+    private final GeoPolygon polygon = new GeoPolygon(
+            Arrays.asList(new GeoPoint(0.0, 0.0), new GeoPoint(0.0, 10.0), new GeoPoint(10.0, 5.0)),
+            Collections.singletonList(new GeoPolygon(
+                    Arrays.asList(new GeoPoint(2.0, 4.0), new GeoPoint(2.0, 6.0), new GeoPoint(4.0, 5.0)))));
+
+    @BeforeClass
+    public static void initialize() throws SchemaException {
+        final MapperRegistry mapperRegistry = new MapperRegistry();
+        mapperRegistry.register(new GeoPointMapper());
+        geoAreaMapper = mapperRegistry.getMapper(GeoAreaMapper.class);
+        geoPointMapper = mapperRegistry.getMapper(GeoPointMapper.class);
+        geoRectangleMapper = mapperRegistry.getMapper(GeoRectangleMapper.class);
+    }
+
+    @Test
+    public void testRoundTrip() throws MapperException {
+        LOG.info("testRoundTrip");
+
+        final DBObject dbObject = geoAreaMapper.toDb(polygon);
+        Assert.assertNotNull(dbObject);
+        Assert.assertEquals("geoPolygon", dbObject.get(MongoDBKeyNames.DISCRIMINATOR_KEY));
+        Assert.assertNotNull(dbObject.get("rects"));
+
+        final GeoArea entity = geoAreaMapper.fromDb(dbObject);
+        Assert.assertEquals(polygon, entity);
+    }
+
+    @Test
+    public void testWithin() throws MapperException {
+        LOG.info("testWithin");
+
+        final DBObject query = new MongoDBQuery().within(geoRectangleMapper.southWest, polygon).toDBObject();
+        final DBObject within = (DBObject) query.get("southWest");
+        Assert.assertNotNull(within);
+        final Object[] vertices = (Object[]) ((DBObject) within.get(MongoDBQuery.OPERATOR_WITHIN)).get("$polygon");
+        Assert.assertEquals(3, vertices.length);
+        Assert.assertEquals(geoPointMapper.toDb(new GeoPoint(10.0, 5.0)), vertices[2]);
+    }
+}
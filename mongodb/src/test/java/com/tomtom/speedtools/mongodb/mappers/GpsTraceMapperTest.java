@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.mongodb.mappers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.tomtom.speedtools.geometry.GeoPoint;
+import com.tomtom.speedtools.gpstrace.GpsTrace;
+import com.tomtom.speedtools.gpstrace.GpsTracePoint;
+import org.bson.types.Binary;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings("StaticVariableMayNotBeInitialized")
+public class GpsTraceMapperTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GpsTraceMapperTest.class);
+
+    private static GpsTraceMapper mapper;
+    private static GpsTracePointMapper pointMapper;
+
+    private final GpsTrace trace = new GpsTrace(Arrays.asList(
+            new GpsTracePoint(new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC), new GeoPoint(52.5, 4.25)),
+            new GpsTracePoint(new DateTime(2021, 1, 1, 0, 1, DateTimeZone.UTC), new GeoPoint(52.75, 4.5, 10.0))));
+
+    @BeforeClass
+    public static void initialize() throws SchemaException {
+        final MapperRegistry mapperRegistry = new MapperRegistry();
+        mapperRegistry.register(new GpsTraceMapper());
+        mapper = mapperRegistry.getMapper(GpsTraceMapper.class);
+        pointMapper = mapperRegistry.getMapper(GpsTracePointMapper.class);
+    }
+
+    @Test
+    public void testRoundTrip() throws MapperException {
+        LOG.info("testRoundTrip");
+
+        final DBObject dbObject = mapper.toDb(trace);
+        Assert.assertNotNull(dbObject);
+        Assert.assertTrue(dbObject.get("compactGpsTracePoints") instanceof Binary);
+        Assert.assertNull(dbObject.get("gpsTracePoints"));
+        Assert.assertNotNull(dbObject.get("lastGpsTracePoint"));
+        Assert.assertEquals(trace, mapper.fromDb(dbObject));
+        Assert.assertEquals(new GpsTrace(), mapper.fromDb(mapper.toDb(new GpsTrace())));
+    }
+
+    @Test
+    public void testFromDbLegacy() throws MapperException {
+        LOG.info("testFromDbLegacy");
+
+        final List<Object> points = new ArrayList<>();
+        for (final GpsTracePoint point : trace.getGpsTracePoints()) {
+            points.add(pointMapper.toDb(point));
+        }
+        final DBObject dbObject = new BasicDBObject();
+        dbObject.put("gpsTracePoints", points);
+        Assert.assertEquals(trace, mapper.fromDb(dbObject));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest;
+
+import com.tomtom.speedtools.json.Json;
+import com.tomtom.speedtools.metrics.MultiMetricsCollector;
+import com.tomtom.speedtools.metrics.MultiMetricsData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency and throughput metrics per REST endpoint, collected by {@link EndpointMetricsFilter} and {@link
+ * ResourceProcessor}, and exposed by {@link EndpointMetricsResource}.
+ *
+ * An endpoint is identified by its HTTP method and resource method template, such as "GET /users/{id}". For every
+ * endpoint, three latencies are collected in msecs:
+ *
+ * <ul>
+ * <li>queue time: from the arrival of the request until the {@link ResourceHandler} is called by the {@link
+ * ResourceProcessor};</li>
+ * <li>handler time: from the call of the {@link ResourceHandler} until its future completes (or, for resources which do
+ * not use the {@link ResourceProcessor}, until the response is available);</li>
+ * <li>serialization time: the time it takes to write the response entity.</li>
+ * </ul>
+ *
+ * The throughput of an endpoint is the number of handler times collected in a period.
+ */
+public final class EndpointMetrics {
+
+    @Nonnull
+    private static final EndpointMetrics DEFAULT_INSTANCE = new EndpointMetrics();
+
+    @Nonnull
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Nonnull
+    public static EndpointMetrics getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Return the metrics of an endpoint, creating them if needed.
+     *
+     * @param template Endpoint template, such as "GET /users/{id}".
+     * @return Metrics of the endpoint.
+     */
+    @Nonnull
+    public Endpoint getOrCreate(@Nonnull final String template) {
+        assert template != null;
+        return endpoints.computeIfAbsent(template, Endpoint::new);
+    }
+
+    /**
+     * Return the metrics of an endpoint.
+     *
+     * @param template Endpoint template.
+     * @return Metrics of the endpoint, or null if no request was made to it yet.
+     */
+    @Nullable
+    public Endpoint get(@Nonnull final String template) {
+        assert template != null;
+        return endpoints.get(template);
+    }
+
+    /**
+     * Return the metrics of all endpoints, sorted by template.
+     *
+     * @return Unmodifiable map from template to metrics.
+     */
+    @Nonnull
+    public SortedMap<String, Endpoint> getAll() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(endpoints));
+    }
+
+    /**
+     * Remove all metrics.
+     */
+    public void clear() {
+        endpoints.clear();
+    }
+
+    /**
+     * Metrics of a single endpoint.
+     */
+    public static final class Endpoint {
+        @Nonnull
+        private final String template;
+        @Nonnull
+        private final MultiMetricsCollector queueTimeMetrics = MultiMetricsCollector.all();
+        @Nonnull
+        private final MultiMetricsCollector handlerTimeMetrics = MultiMetricsCollector.all();
+        @Nonnull
+        private final MultiMetricsCollector serializationTimeMetrics = MultiMetricsCollector.all();
+
+        private Endpoint(@Nonnull final String template) {
+            assert template != null;
+            this.template = template;
+        }
+
+        @Nonnull
+        public String getTemplate() {
+            return template;
+        }
+
+        public void addQueueTime(final float msecs) {
+            queueTimeMetrics.addValue(msecs);
+        }
+
+        public void addHandlerTime(final float msecs) {
+            handlerTimeMetrics.addValue(msecs);
+        }
+
+        public void addSerializationTime(final float msecs) {
+            serializationTimeMetrics.addValue(msecs);
+        }
+
+        @Nonnull
+        public MultiMetricsData getQueueTimeMetrics() {
+            return queueTimeMetrics;
+        }
+
+        @Nonnull
+        public MultiMetricsData getHandlerTimeMetrics() {
+            return handlerTimeMetrics;
+        }
+
+        @Nonnull
+        public MultiMetricsData getSerializationTimeMetrics() {
+            return serializationTimeMetrics;
+        }
+
+        @Override
+        @Nonnull
+        public String toString() {
+            return Json.toStringJson(this);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest;
+
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This filter collects latency metrics per endpoint in the default {@link EndpointMetrics}. It times the request from
+ * its arrival, and the serialization of the response entity. Resources which use the {@link ResourceProcessor} also
+ * get their queue and handler times recorded separately.
+ *
+ * The filter is enabled by adding it to web.xml
+ *
+ * <pre>
+ *   &lt;context-param&gt;
+ *     &lt;param-name&gt;resteasy.providers&lt;/param-name&gt;
+ *     &lt;param-value&gt;com.tomtom.speedtools.rest.EndpointMetricsFilter&lt;/param-value&gt;
+ *   &lt;/context-param&gt;
+ * </pre>
+ *
+ * The metrics are exposed by the {@link EndpointMetricsResource}.
+ */
+@Provider
+public class EndpointMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(EndpointMetricsFilter.class);
+
+    private static final String PROPERTY_TIMER = EndpointMetricsFilter.class.getName() + ".timer";
+
+    @Nonnull
+    private final EndpointMetrics metrics;
+    @Nonnull
+    private final Map<Method, String> templates = new ConcurrentHashMap<>();
+
+    @Context
+    @Nullable
+    private ResourceInfo resourceInfo;
+
+    public EndpointMetricsFilter() {
+        this(EndpointMetrics.getDefault());
+    }
+
+    public EndpointMetricsFilter(@Nonnull final EndpointMetrics metrics) {
+        super();
+        assert metrics != null;
+        this.metrics = metrics;
+        LOG.debug("EndpointMetricsFilter: created endpoint metrics filter");
+    }
+
+    @Override
+    public void filter(@Nonnull final ContainerRequestContext requestContext) {
+        assert requestContext != null;
+        final long now = System.nanoTime();
+        final Class<?> resourceClass = (resourceInfo == null) ? null : resourceInfo.getResourceClass();
+        final Method resourceMethod = (resourceInfo == null) ? null : resourceInfo.getResourceMethod();
+        if ((resourceClass == null) || (resourceMethod == null)) {
+            return;
+        }
+        final String template = templates.computeIfAbsent(resourceMethod,
+                method -> createTemplate(resourceClass, method));
+        final EndpointTimer timer = new EndpointTimer(metrics.getOrCreate(template), now);
+        requestContext.setProperty(PROPERTY_TIMER, timer);
+        ResteasyProviderFactory.pushContext(EndpointTimer.class, timer);
+    }
+
+    @Override
+    public void filter(
+            @Nonnull final ContainerRequestContext requestContext,
+            @Nonnull final ContainerResponseContext responseContext) {
+        assert requestContext != null;
+        assert responseContext != null;
+        final Object timer = requestContext.getProperty(PROPERTY_TIMER);
+        if (timer instanceof EndpointTimer) {
+            ((EndpointTimer) timer).responseAvailable();
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(@Nonnull final WriterInterceptorContext context) throws IOException {
+        assert context != null;
+        final Object timer = context.getProperty(PROPERTY_TIMER);
+        if (!(timer instanceof EndpointTimer)) {
+            context.proceed();
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            ((EndpointTimer) timer).serialized(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Create the template of a resource method, such as "GET /users/{id}", from the {@link Path} and HTTP method
+     * annotations of the resource class and method, or of the interfaces they implement.
+     *
+     * @param resourceClass  Resource class.
+     * @param resourceMethod Resource method.
+     * @return Template.
+     */
+    @Nonnull
+    static String createTemplate(
+            @Nonnull final Class<?> resourceClass,
+            @Nonnull final Method resourceMethod) {
+        assert resourceClass != null;
+        assert resourceMethod != null;
+        String httpMethod = null;
+        String methodPath = null;
+        for (final Method method : getDeclarations(resourceClass, resourceMethod)) {
+            for (final Annotation annotation : method.getAnnotations()) {
+                final HttpMethod httpMethodAnnotation = annotation.annotationType().getAnnotation(HttpMethod.class);
+                if ((httpMethod == null) && (httpMethodAnnotation != null)) {
+                    httpMethod = httpMethodAnnotation.value();
+                }
+            }
+            final Path path = method.getAnnotation(Path.class);
+            if ((methodPath == null) && (path != null)) {
+                methodPath = path.value();
+            }
+        }
+        String classPath = null;
+        for (Class<?> clazz = resourceClass; (clazz != null) && (classPath == null); clazz = clazz.getSuperclass()) {
+            classPath = getPath(clazz);
+            for (final Class<?> intf : clazz.getInterfaces()) {
+                if (classPath == null) {
+                    classPath = getPath(intf);
+                }
+            }
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append((httpMethod == null) ? "*" : httpMethod).append(' ');
+        appendPath(sb, classPath);
+        appendPath(sb, methodPath);
+        if (sb.charAt(sb.length() - 1) == ' ') {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the method and the methods it implements or overrides.
+     */
+    @Nonnull
+    private static Iterable<Method> getDeclarations(
+            @Nonnull final Class<?> resourceClass,
+            @Nonnull final Method resourceMethod) {
+        final Map<Class<?>, Method> result = new LinkedHashMap<>();
+        result.put(resourceMethod.getDeclaringClass(), resourceMethod);
+        for (Class<?> clazz = resourceClass; clazz != null; clazz = clazz.getSuperclass()) {
+            addDeclaration(result, clazz, resourceMethod);
+            for (final Class<?> intf : clazz.getInterfaces()) {
+                addDeclaration(result, intf, resourceMethod);
+            }
+        }
+        return result.values();
+    }
+
+    private static void addDeclaration(
+            @Nonnull final Map<Class<?>, Method> result,
+            @Nonnull final Class<?> clazz,
+            @Nonnull final Method resourceMethod) {
+        try {
+            result.putIfAbsent(clazz, clazz.getDeclaredMethod(resourceMethod.getName(),
+                    resourceMethod.getParameterTypes()));
+        } catch (final NoSuchMethodException ignored) {
+            // Not declared in this class.
+        }
+    }
+
+    @Nullable
+    private static String getPath(@Nonnull final Class<?> clazz) {
+        final Path path = clazz.getAnnotation(Path.class);
+        return (path == null) ? null : path.value();
+    }
+
+    private static void appendPath(
+            @Nonnull final StringBuilder sb,
+            @Nullable final String path) {
+        if (path == null) {
+            return;
+        }
+        for (final String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                sb.append('/').append(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest;
+
+import com.tomtom.speedtools.json.Json;
+import com.tomtom.speedtools.metrics.MetricsCollector;
+import com.tomtom.speedtools.metrics.MetricsData;
+import com.tomtom.speedtools.metrics.MultiMetricsData;
+import com.tomtom.speedtools.metrics.MultiMetricsData.Period;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admin resource that exposes the metrics collected by the {@link EndpointMetricsFilter}, for all endpoints which
+ * received requests. The resource is enabled by adding it to web.xml
+ *
+ * <pre>
+ *   &lt;context-param&gt;
+ *     &lt;param-name&gt;resteasy.resources&lt;/param-name&gt;
+ *     &lt;param-value&gt;com.tomtom.speedtools.rest.EndpointMetricsResource&lt;/param-value&gt;
+ *   &lt;/context-param&gt;
+ * </pre>
+ *
+ * and is available as {@code GET /admin/endpoints?period=LAST_MINUTE}. Latencies are in msecs. Make sure the resource
+ * is only accessible to administrators.
+ */
+@Path("/admin/endpoints")
+@Produces(MediaType.APPLICATION_JSON)
+public class EndpointMetricsResource {
+
+    @Nonnull
+    private final EndpointMetrics metrics;
+
+    public EndpointMetricsResource() {
+        this(EndpointMetrics.getDefault());
+    }
+
+    public EndpointMetricsResource(@Nonnull final EndpointMetrics metrics) {
+        super();
+        assert metrics != null;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Return the metrics of all endpoints, sorted by template.
+     *
+     * @param period Period to return the metrics for.
+     * @return Metrics per endpoint.
+     */
+    @GET
+    @Nonnull
+    public List<EndpointDTO> getEndpoints(
+            @QueryParam("period") @DefaultValue("LAST_MINUTE") @Nonnull final Period period) {
+        assert period != null;
+        final long periodSecs = MetricsCollector.create(period).getTotalMetricDuration().getStandardSeconds();
+        final List<EndpointDTO> result = new ArrayList<>();
+        for (final EndpointMetrics.Endpoint endpoint : metrics.getAll().values()) {
+            result.add(new EndpointDTO(endpoint, period, periodSecs));
+        }
+        return result;
+    }
+
+    /**
+     * Metrics of an endpoint.
+     */
+    public static final class EndpointDTO {
+        @Nonnull
+        private final String template;
+        private final int requests;
+        private final float requestsPerSecond;
+        @Nonnull
+        private final LatencyDTO queueTime;
+        @Nonnull
+        private final LatencyDTO handlerTime;
+        @Nonnull
+        private final LatencyDTO serializationTime;
+
+        EndpointDTO(
+                @Nonnull final EndpointMetrics.Endpoint endpoint,
+                @Nonnull final Period period,
+                final long periodSecs) {
+            assert endpoint != null;
+            assert period != null;
+            assert periodSecs > 0 : periodSecs;
+            final MetricsData handlerTimeData = endpoint.getHandlerTimeMetrics().getMetricsData(period);
+            this.template = endpoint.getTemplate();
+            this.requests = handlerTimeData.getCount();
+            this.requestsPerSecond = (float) requests / periodSecs;
+            this.queueTime = new LatencyDTO(endpoint.getQueueTimeMetrics(), period);
+            this.handlerTime = new LatencyDTO(endpoint.getHandlerTimeMetrics(), period);
+            this.serializationTime = new LatencyDTO(endpoint.getSerializationTimeMetrics(), period);
+        }
+
+        @Nonnull
+        public String getTemplate() {
+            return template;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public float getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        @Nonnull
+        public LatencyDTO getQueueTime() {
+            return queueTime;
+        }
+
+        @Nonnull
+        public LatencyDTO getHandlerTime() {
+            return handlerTime;
+        }
+
+        @Nonnull
+        public LatencyDTO getSerializationTime() {
+            return serializationTime;
+        }
+
+        @Override
+        @Nonnull
+        public String toString() {
+            return Json.toStringJson(this);
+        }
+    }
+
+    /**
+     * Latency statistics in msecs. The statistics are null if there are no values.
+     */
+    public static final class LatencyDTO {
+        private final int count;
+        @Nullable
+        private final Float avg;
+        @Nullable
+        private final Float stdDev;
+        @Nullable
+        private final Float min;
+        @Nullable
+        private final Float max;
+
+        LatencyDTO(
+                @Nonnull final MultiMetricsData metrics,
+                @Nonnull final Period period) {
+            assert metrics != null;
+            assert period != null;
+            final MetricsData data = metrics.getMetricsData(period);
+            this.count = data.getCount();
+            this.avg = nanToNull(data.getAvg());
+            this.stdDev = nanToNull(data.getStdDev());
+            this.min = nanToNull(data.getMin());
+            this.max = nanToNull(data.getMax());
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Nullable
+        public Float getAvg() {
+            return avg;
+        }
+
+        @Nullable
+        public Float getStdDev() {
+            return stdDev;
+        }
+
+        @Nullable
+        public Float getMin() {
+            return min;
+        }
+
+        @Nullable
+        public Float getMax() {
+            return max;
+        }
+
+        @Nullable
+        private static Float nanToNull(final float value) {
+            return Float.isNaN(value) ? null : value;
+        }
+
+        @Override
+        @Nonnull
+        public String toString() {
+            return Json.toStringJson(this);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest;
+
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a single request to an endpoint, see {@link EndpointMetrics}. The timer is created by the {@link
+ * EndpointMetricsFilter} when a request arrives, and is available to the {@link ResourceProcessor} through {@link
+ * #current()} on the thread that calls the resource method.
+ */
+public final class EndpointTimer {
+
+    @Nonnull
+    private final EndpointMetrics.Endpoint endpoint;
+    private final long startNanos;
+    private volatile long handlerStartNanos = 0;
+
+    EndpointTimer(
+            @Nonnull final EndpointMetrics.Endpoint endpoint,
+            final long startNanos) {
+        assert endpoint != null;
+        this.endpoint = endpoint;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Return the timer of the current request.
+     *
+     * @return Timer, or null if the {@link EndpointMetricsFilter} is not enabled or this method is not called on the
+     * thread that calls the resource method.
+     */
+    @Nullable
+    public static EndpointTimer current() {
+        return ResteasyProviderFactory.getContextData(EndpointTimer.class);
+    }
+
+    @Nonnull
+    public EndpointMetrics.Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Called when the resource handler is called. Records the queue time.
+     */
+    public void handlerStarted() {
+        final long now = System.nanoTime();
+        handlerStartNanos = now;
+        endpoint.addQueueTime(toMsecs(now - startNanos));
+    }
+
+    /**
+     * Called when the resource handler has completed. Records the handler time.
+     */
+    public void handlerCompleted() {
+        final long start = handlerStartNanos;
+        assert start != 0;
+        endpoint.addHandlerTime(toMsecs(System.nanoTime() - start));
+    }
+
+    /**
+     * Called when the response is available. Records the handler time of resources which do not use the {@link
+     * ResourceProcessor}, measured from the arrival of the request.
+     */
+    void responseAvailable() {
+        if (handlerStartNanos == 0) {
+            endpoint.addHandlerTime(toMsecs(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * Called when the response entity has been written.
+     *
+     * @param nanos Time it took to write the entity.
+     */
+    void serialized(final long nanos) {
+        endpoint.addSerializationTime(toMsecs(nanos));
+    }
+
+    private static float toMsecs(final long nanos) {
+        return (float) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
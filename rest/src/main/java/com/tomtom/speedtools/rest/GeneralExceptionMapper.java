@@ -32,7 +32,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -48,31 +48,63 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.tomtom.speedtools.utils.StringUtils.nullToEmpty;
 import static javax.ws.rs.core.Response.status;
 
+/**
+ * Maps exceptions to HTTP responses.
+ *
+ * The mapping of an exception class is resolved once, by walking up its class hierarchy to the nearest class with a
+ * known mapping, and is then cached per class in a {@link ClassValue}. A mapping consists of the response status, the
+ * log level and a factory for the response body.
+ *
+ * Client errors (4xx) may be caused by clients firing large numbers of bad requests. They are logged at INFO level,
+ * are only formatted if that level is enabled, and are rate-limited per exception mapping: at most {@link
+ * #setMaxClientErrorLogsPerSecond(int)} messages per second are logged, and the number of suppressed messages is
+ * reported with the next message that is logged.
+ */
 @SuppressWarnings("UnnecessaryFullyQualifiedName")
 @Provider
 public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
     private static final Logger LOG = LoggerFactory.getLogger(GeneralExceptionMapper.class);
-    private static final String LOG_MESSAGE_TEMPLATE_VERBOSE = "%s: reference=%s, %s(%s): %s, time=%s";
-    private static final String LOG_MESSAGE_TEMPLATE_COMPACT = "%s(%s): %s";
+
+    public static final int DEFAULT_MAX_CLIENT_ERROR_LOGS_PER_SECOND = 10;
 
     /**
      * This boolean indicates whether verbose or compact messages are used.
      */
     @SuppressWarnings("StaticNonFinalField")
-    private static boolean verboseMode = false;
+    private static volatile boolean verboseMode = false;
+
+    @SuppressWarnings("StaticNonFinalField")
+    private static volatile int maxClientErrorLogsPerSecond = DEFAULT_MAX_CLIENT_ERROR_LOGS_PER_SECOND;
 
     private enum Level {
+        INFO,
         WARN,
         ERROR
     }
 
     @Nonnull
-    private final static Map<Class<? extends Exception>, Tuple<Boolean, Status>> customExceptionsMap =
-            new HashMap<>();
+    private static final Map<Class<? extends Exception>, Tuple<Boolean, Status>> customExceptionsMap =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Built-in mappings, for exact classes. Subclasses are mapped by their nearest superclass in this map.
+     */
+    @Nonnull
+    private static final Map<Class<?>, Mapping> builtInMappings = createBuiltInMappings();
+
+    /**
+     * Resolved mappings per exception class. Replaced when the custom exceptions change.
+     */
+    @SuppressWarnings("StaticNonFinalField")
+    @Nonnull
+    private static volatile ClassValue<Mapping> mappings = createMappings();
 
     /**
      * Set or unset verbose mode for exceptions in log files.
@@ -83,6 +115,16 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
         GeneralExceptionMapper.verboseMode = verboseMode;
     }
 
+    /**
+     * Set the maximum number of client error (4xx) messages that are logged per second, per exception mapping.
+     *
+     * @param maxClientErrorLogsPerSecond Maximum number of messages per second, &gt;= 0. Use 0 to log no client errors.
+     */
+    public static void setMaxClientErrorLogsPerSecond(final int maxClientErrorLogsPerSecond) {
+        assert maxClientErrorLogsPerSecond >= 0 : maxClientErrorLogsPerSecond;
+        GeneralExceptionMapper.maxClientErrorLogsPerSecond = maxClientErrorLogsPerSecond;
+    }
+
     /**
      * Add a custom exception mapping. For example, when using MongoDB you might wish to add:
      *
@@ -100,11 +142,13 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
         assert exception != null;
         assert status != null;
         customExceptionsMap.put(exception, new Tuple<>(isInternalServerError, status));
+        mappings = createMappings();
     }
 
     public static void removeCustomException(@Nonnull final Class<? extends Exception> exception) {
         assert exception != null;
         customExceptionsMap.remove(exception);
+        mappings = createMappings();
     }
 
     @Nonnull
@@ -126,7 +170,6 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
      * @param exception Exception to be processed.
      * @return Status response.
      */
-    @SuppressWarnings("deprecation")
     @Nonnull
     public static Response toResponse(
             @Nonnull final Logger log,
@@ -134,19 +177,52 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
         assert log != null;
         assert exception != null;
 
-        //noinspection SuspiciousMethodCalls
-        final Tuple<Boolean, Status> tuple = customExceptionsMap.get(exception.getClass());
-        if (tuple != null) {
-            if (tuple.getValue1()) {
-
-                // Internal server error.
-                return toResponseApiException(Level.ERROR, log, exception);
-            } else {
+        final Mapping mapping = mappings.get(exception.getClass());
+        return mapping.factory.create(mapping, log, exception);
+    }
 
-                // Bad API call.
-                return toResponseBadApiCall(log, tuple.getValue2(), exception);
+    /**
+     * Resolve the mapping of an exception class. Custom exceptions are matched on their exact class only, other
+     * exceptions are matched on their nearest superclass with a built-in mapping.
+     *
+     * @return Resolved mappings.
+     */
+    @Nonnull
+    private static ClassValue<Mapping> createMappings() {
+        return new ClassValue<Mapping>() {
+            @Override
+            @Nonnull
+            protected Mapping computeValue(@Nonnull final Class<?> type) {
+                assert type != null;
+
+                //noinspection SuspiciousMethodCalls
+                final Tuple<Boolean, Status> tuple = customExceptionsMap.get(type);
+                if (tuple != null) {
+                    if (tuple.getValue1()) {
+
+                        // Internal server error.
+                        return new Mapping(Status.INTERNAL_SERVER_ERROR, Level.ERROR,
+                                GeneralExceptionMapper::toResponseApiException);
+                    } else {
+
+                        // Bad API call.
+                        return new Mapping(tuple.getValue2(), Level.INFO, GeneralExceptionMapper::toResponseBadApiCall);
+                    }
+                }
+                Class<?> clazz = type;
+                while (!builtInMappings.containsKey(clazz)) {
+                    clazz = clazz.getSuperclass();
+                }
+                return builtInMappings.get(clazz);
             }
-        }
+        };
+    }
+
+    @SuppressWarnings("deprecation")
+    @Nonnull
+    private static Map<Class<?>, Mapping> createBuiltInMappings() {
+        final Map<Class<?>, Mapping> map = new HashMap<>();
+
         /**
          * Don't always throw an Error. This exception may be caused by asking for a wrong URL.
          * We need to catch those properly and log them as Informational, or Warnings, at most.
@@ -154,181 +230,207 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
          * Exceptions as a result of the way the call was issued (external cause, usually
          * a bad API call). These are never errors, just informational.
          */
-        if (exception instanceof ApiBadRequestException) {
-            return toResponseApiValidationError(log, (ApiBadRequestException) exception);
-        }
+        map.put(ApiBadRequestException.class, new Mapping(Status.BAD_REQUEST, Level.INFO,
+                GeneralExceptionMapper::toResponseApiValidationError));
 
         /**
          * Api exceptions other than bad request.
          */
-        else if (exception instanceof ApiForbiddenException) {
-            return toResponseBadApiCall(log, Status.FORBIDDEN, exception);
-        } else if (exception instanceof ApiInternalException) {
-            return toResponseBadApiCall(log, Status.INTERNAL_SERVER_ERROR, exception);
-        } else if (exception instanceof ApiNotFoundException) {
-            return toResponseBadApiCall(log, Status.NOT_FOUND, exception);
-        } else if (exception instanceof ApiNotImplementedException) {
-            return toResponseBadApiCall(log, HttpServletResponse.SC_NOT_IMPLEMENTED, exception);
-        } else if (exception instanceof ApiConflictException) {
-            return toResponseBadApiCall(log, Status.CONFLICT, exception);
-        } else if (exception instanceof ApiUnauthorizedException) {
-            return toResponseBadApiCall(log, Status.UNAUTHORIZED, exception);
-        }
+        addBadApiCall(map, ApiForbiddenException.class, Status.FORBIDDEN);
+        addBadApiCall(map, ApiInternalException.class, Status.INTERNAL_SERVER_ERROR);
+        addBadApiCall(map, ApiNotFoundException.class, Status.NOT_FOUND);
+        addBadApiCall(map, ApiNotImplementedException.class, Status.NOT_IMPLEMENTED);
+        addBadApiCall(map, ApiConflictException.class, Status.CONFLICT);
+        addBadApiCall(map, ApiUnauthorizedException.class, Status.UNAUTHORIZED);
+        map.put(ApiServiceUnavailableException.class, new Mapping(Status.SERVICE_UNAVAILABLE, Level.INFO,
+                GeneralExceptionMapper::toResponseServiceUnavailable));
+        map.put(ApiTooManyRequestsException.class, new Mapping(Status.TOO_MANY_REQUESTS, Level.INFO,
+                GeneralExceptionMapper::toResponseTooManyRequests));
 
         /**
          * Rest-easy exceptions (deprecated).
          */
-        else if (exception instanceof org.jboss.resteasy.spi.BadRequestException) {
-            return toResponseBadApiCall(log, Status.BAD_REQUEST, exception);
-        } else if (exception instanceof org.jboss.resteasy.spi.NotFoundException) {
-            return toResponseBadApiCall(log, Status.NOT_FOUND, exception);
-        } else if (exception instanceof org.jboss.resteasy.spi.NotAcceptableException) {
-            return toResponseBadApiCall(log, Status.NOT_ACCEPTABLE, exception);
-        } else if (exception instanceof org.jboss.resteasy.spi.MethodNotAllowedException) {
-            return toResponseBadApiCall(log, Status.FORBIDDEN, exception);
-        } else if (exception instanceof org.jboss.resteasy.spi.UnauthorizedException) {
-            return toResponseBadApiCall(log, Status.UNAUTHORIZED, exception);
-        } else if (exception instanceof org.jboss.resteasy.spi.UnsupportedMediaTypeException) {
-            return toResponseBadApiCall(log, Status.UNSUPPORTED_MEDIA_TYPE, exception);
-        }
+        addBadApiCall(map, org.jboss.resteasy.spi.BadRequestException.class, Status.BAD_REQUEST);
+        addBadApiCall(map, org.jboss.resteasy.spi.NotFoundException.class, Status.NOT_FOUND);
+        addBadApiCall(map, org.jboss.resteasy.spi.NotAcceptableException.class, Status.NOT_ACCEPTABLE);
+        addBadApiCall(map, org.jboss.resteasy.spi.MethodNotAllowedException.class, Status.FORBIDDEN);
+        addBadApiCall(map, org.jboss.resteasy.spi.UnauthorizedException.class, Status.UNAUTHORIZED);
+        addBadApiCall(map, org.jboss.resteasy.spi.UnsupportedMediaTypeException.class, Status.UNSUPPORTED_MEDIA_TYPE);
 
         /**
          * Javax exceptions.
          */
-        else if (exception instanceof javax.ws.rs.BadRequestException) {
-            return toResponseBadApiCall(log, Status.BAD_REQUEST, exception);
-        } else if (exception instanceof javax.ws.rs.NotFoundException) {
-            return toResponseBadApiCall(log, Status.NOT_FOUND, exception);
-        } else if (exception instanceof javax.ws.rs.NotAcceptableException) {
-            return toResponseBadApiCall(log, Status.NOT_ACCEPTABLE, exception);
-        } else if ((exception instanceof javax.ws.rs.NotAllowedException) ||
-                (exception instanceof javax.ws.rs.ForbiddenException)) {
-            return toResponseBadApiCall(log, Status.FORBIDDEN, exception);
-        } else if (exception instanceof javax.ws.rs.NotAuthorizedException) {
-            return toResponseBadApiCall(log, Status.UNAUTHORIZED, exception);
-        } else if (exception instanceof javax.ws.rs.NotSupportedException) {
-            return toResponseBadApiCall(log, Status.UNSUPPORTED_MEDIA_TYPE, exception);
-        }
+        addBadApiCall(map, javax.ws.rs.BadRequestException.class, Status.BAD_REQUEST);
+        addBadApiCall(map, javax.ws.rs.NotFoundException.class, Status.NOT_FOUND);
+        addBadApiCall(map, javax.ws.rs.NotAcceptableException.class, Status.NOT_ACCEPTABLE);
+        addBadApiCall(map, javax.ws.rs.NotAllowedException.class, Status.FORBIDDEN);
+        addBadApiCall(map, javax.ws.rs.ForbiddenException.class, Status.FORBIDDEN);
+        addBadApiCall(map, javax.ws.rs.NotAuthorizedException.class, Status.UNAUTHORIZED);
+        addBadApiCall(map, javax.ws.rs.NotSupportedException.class, Status.UNSUPPORTED_MEDIA_TYPE);
 
         /**
          * System specific exception, such as "entity not found". These are not
          * always errors, either, but some are. Inspect on case-by-case!
          */
-        else if (exception instanceof AskTimeoutException) {
-            return toResponseApiException(Level.WARN, log, exception);
-        } else if (exception instanceof BSONException) {
-            return toResponseApiException(Level.ERROR, log, exception);
-        }
+        map.put(AskTimeoutException.class, new Mapping(Status.INTERNAL_SERVER_ERROR, Level.WARN,
+                GeneralExceptionMapper::toResponseApiException));
+        map.put(BSONException.class, new Mapping(Status.INTERNAL_SERVER_ERROR, Level.ERROR,
+                GeneralExceptionMapper::toResponseApiException));
 
         /**
          * Jackson unmarshall exceptions typically thrown from a {@link XmlAdapter} wrap a more specific exception.
          */
-        else //noinspection ObjectEquality
-            if ((exception instanceof JsonMappingException) &&
-                    (exception.getCause() != null) && (exception.getCause() != exception)) {
-
-                /**
-                 * Call toResponse again, with the cause of the exception.
-                 */
-                //noinspection TailRecursion
-                return toResponse(log, exception.getCause());
-            }
+        map.put(JsonMappingException.class, new Mapping(Status.INTERNAL_SERVER_ERROR, Level.ERROR,
+                GeneralExceptionMapper::toResponseCause));
 
-            /**
-             * Some other system failure.
-             */
-            else {
-                return toResponseApiException(Level.ERROR, log, exception);
-            }
+        /**
+         * Some other system failure.
+         */
+        map.put(Throwable.class, new Mapping(Status.INTERNAL_SERVER_ERROR, Level.ERROR,
+                GeneralExceptionMapper::toResponseApiException));
+        return map;
+    }
+
+    private static void addBadApiCall(
+            @Nonnull final Map<Class<?>, Mapping> map,
+            @Nonnull final Class<? extends Throwable> exception,
+            @Nonnull final StatusType status) {
+        assert map != null;
+        assert exception != null;
+        assert status != null;
+        map.put(exception, new Mapping(status, Level.INFO, GeneralExceptionMapper::toResponseBadApiCall));
     }
 
     @Nonnull
     private static Response toResponseBadApiCall(
+            @Nonnull final Mapping mapping,
             @Nonnull final Logger log,
-            @Nonnull final StatusType status,
             @Nonnull final Throwable exception) {
+        assert mapping != null;
         assert log != null;
-        assert status != null;
         assert exception != null;
 
         final ExceptionDTO exceptionDTO = new ExceptionDTO(exception, UTCTime.now());
-        log.info(createLogMessage("toResponseBadApiCall: Bad API call", exception, exceptionDTO, status));
+        logClientError(mapping, log, "toResponseBadApiCall: Bad API call", exception, exceptionDTO);
 
         // Explicitly set media type, to overwrite media content type.
-        return status(status).entity(exceptionDTO).
+        return status(mapping.status).entity(exceptionDTO).
                 type(MediaType.APPLICATION_JSON_TYPE).
                 build();
     }
 
     @Nonnull
-    private static Response toResponseBadApiCall(
+    private static Response toResponseServiceUnavailable(
+            @Nonnull final Mapping mapping,
             @Nonnull final Logger log,
-            final int statusCode,
             @Nonnull final Throwable exception) {
+        assert mapping != null;
         assert log != null;
-        assert exception != null;
+        assert exception instanceof ApiServiceUnavailableException;
         final ExceptionDTO exceptionDTO = new ExceptionDTO(exception, UTCTime.now());
-        log.info(createLogMessage("toResponseBadApiCall: Bad API call", exception, exceptionDTO, statusCode));
-        return status(statusCode).entity(exceptionDTO).
+        logClientError(mapping, log, "toResponseServiceUnavailable: Service unavailable", exception, exceptionDTO);
+        return status(mapping.status).entity(exceptionDTO).
+                header(HttpHeaders.RETRY_AFTER, ((ApiServiceUnavailableException) exception).getRetryAfterSecs()).
+                type(MediaType.APPLICATION_JSON_TYPE).
+                build();
+    }
+
+    @Nonnull
+    private static Response toResponseTooManyRequests(
+            @Nonnull final Mapping mapping,
+            @Nonnull final Logger log,
+            @Nonnull final Throwable exception) {
+        assert mapping != null;
+        assert log != null;
+        assert exception instanceof ApiTooManyRequestsException;
+        final ExceptionDTO exceptionDTO = new ExceptionDTO(exception, UTCTime.now());
+        logClientError(mapping, log, "toResponseTooManyRequests: Too many requests", exception, exceptionDTO);
+        return status(mapping.status).entity(exceptionDTO).
+                header(HttpHeaders.RETRY_AFTER, ((ApiTooManyRequestsException) exception).getRetryAfterSecs()).
                 type(MediaType.APPLICATION_JSON_TYPE).
                 build();
     }
 
     @Nonnull
     private static Response toResponseApiValidationError(
+            @Nonnull final Mapping mapping,
             @Nonnull final Logger log,
-            @Nonnull final ApiBadRequestException exception) {
+            @Nonnull final Throwable exception) {
+        assert mapping != null;
         assert log != null;
-        assert exception != null;
-        final Status status = Status.BAD_REQUEST;
+        assert exception instanceof ApiBadRequestException;
         final ExceptionDTO exceptionDTO = new ExceptionDTO(
-                ExceptionDTO.API_ERROR_MESSAGE, UTCTime.now(), exception.getErrors());
-        log.info(
-                createLogMessage("toResponseApiValidationError: API validation error", exception, exceptionDTO, status));
-        return status(status).entity(exceptionDTO).
+                ExceptionDTO.API_ERROR_MESSAGE, UTCTime.now(), ((ApiBadRequestException) exception).getErrors());
+        logClientError(mapping, log, "toResponseApiValidationError: API validation error", exception, exceptionDTO);
+        return status(mapping.status).entity(exceptionDTO).
                 type(MediaType.APPLICATION_JSON_TYPE).
                 build();
     }
 
     @Nonnull
     private static Response toResponseApiException(
-            @Nonnull final Level level,
+            @Nonnull final Mapping mapping,
             @Nonnull final Logger log,
             @Nonnull final Throwable exception) {
-        assert level != null;
+        assert mapping != null;
         assert log != null;
         assert exception != null;
-        final Status status = Status.INTERNAL_SERVER_ERROR;
         final ExceptionDTO exceptionDTO = new ExceptionDTO(
                 ExceptionDTO.DEFAULT_MESSAGE, UTCTime.now());
-        final String message =
-                createLogMessage("toResponseApiException: API exception", exception, exceptionDTO, status);
-        if (level == Level.WARN) {
+        final String message = createLogMessage("toResponseApiException: API exception", exception, exceptionDTO,
+                mapping.status, 0);
+        if (mapping.level == Level.WARN) {
             log.warn(message, exception);
         } else {
             log.error(message, exception);
         }
-        return status(status).entity(exceptionDTO).
+        return status(mapping.status).entity(exceptionDTO).
                 type(MediaType.APPLICATION_JSON_TYPE).
                 build();
     }
 
-
     @Nonnull
-    private static String createLogMessage(
+    private static Response toResponseCause(
+            @Nonnull final Mapping mapping,
+            @Nonnull final Logger log,
+            @Nonnull final Throwable exception) {
+        assert mapping != null;
+        assert log != null;
+        assert exception != null;
+
+        //noinspection ObjectEquality
+        if ((exception.getCause() != null) && (exception.getCause() != exception)) {
+
+            /**
+             * Call toResponse again, with the cause of the exception.
+             */
+            //noinspection TailRecursion
+            return toResponse(log, exception.getCause());
+        }
+        return toResponseApiException(mapping, log, exception);
+    }
+
+    /**
+     * Log a client error, if INFO is enabled and the rate limit of the mapping allows it. The message is only formatted
+     * if it is actually logged.
+     */
+    private static void logClientError(
+            @Nonnull final Mapping mapping,
+            @Nonnull final Logger log,
             @Nonnull final String prefix,
             @Nonnull final Throwable exception,
-            @Nonnull final ExceptionDTO exceptionDTO,
-            @Nonnull final StatusType status) {
+            @Nonnull final ExceptionDTO exceptionDTO) {
+        assert mapping != null;
+        assert log != null;
         assert prefix != null;
         assert exception != null;
         assert exceptionDTO != null;
-        assert status != null;
-        if (verboseMode) {
-            return String.format(LOG_MESSAGE_TEMPLATE_VERBOSE, prefix, exceptionDTO.getReference(), status,
-                    status.getStatusCode(), exception.getMessage(), exceptionDTO.getTime());
-        } else {
-            return String.format(LOG_MESSAGE_TEMPLATE_COMPACT, status, status.getStatusCode(), exception.getMessage());
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        final int suppressed = mapping.acquireLogPermit(maxClientErrorLogsPerSecond);
+        if (suppressed >= 0) {
+            log.info(createLogMessage(prefix, exception, exceptionDTO, mapping.status, suppressed));
         }
     }
 
@@ -337,15 +439,85 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
             @Nonnull final String prefix,
             @Nonnull final Throwable exception,
             @Nonnull final ExceptionDTO exceptionDTO,
-            final int statusCode) {
+            @Nonnull final StatusType status,
+            final int suppressed) {
         assert prefix != null;
         assert exception != null;
         assert exceptionDTO != null;
+        assert status != null;
+        final StringBuilder sb = new StringBuilder();
         if (verboseMode) {
-            return String.format(LOG_MESSAGE_TEMPLATE_VERBOSE, prefix, exceptionDTO.getReference(), "status", statusCode,
-                    exception.getMessage(), exceptionDTO.getTime());
-        } else {
-            return String.format(LOG_MESSAGE_TEMPLATE_COMPACT, "status", statusCode, exception.getMessage());
+            sb.append(prefix).append(": reference=").append(exceptionDTO.getReference()).append(", ");
+        }
+        sb.append(status).append('(').append(status.getStatusCode()).append("): ").append(exception.getMessage());
+        if (verboseMode) {
+            sb.append(", time=").append(exceptionDTO.getTime());
+        }
+        if (suppressed > 0) {
+            sb.append(" (").append(suppressed).append(" similar messages suppressed)");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Creates the response for an exception.
+     */
+    @FunctionalInterface
+    private interface ResponseFactory {
+
+        @Nonnull
+        Response create(@Nonnull Mapping mapping, @Nonnull Logger log, @Nonnull Throwable exception);
+    }
+
+    /**
+     * Mapping of an exception class to a status, log level and response factory. The mapping also holds the log rate
+     * limit state of the exceptions it maps.
+     */
+    private static final class Mapping {
+        @Nonnull
+        private final StatusType status;
+        @Nonnull
+        private final Level level;
+        @Nonnull
+        private final ResponseFactory factory;
+
+        @Nonnull
+        private final AtomicLong logSecond = new AtomicLong();
+        @Nonnull
+        private final AtomicInteger logCount = new AtomicInteger();
+        @Nonnull
+        private final AtomicInteger suppressedCount = new AtomicInteger();
+
+        private Mapping(
+                @Nonnull final StatusType status,
+                @Nonnull final Level level,
+                @Nonnull final ResponseFactory factory) {
+            assert status != null;
+            assert level != null;
+            assert factory != null;
+            this.status = status;
+            this.level = level;
+            this.factory = factory;
+        }
+
+        /**
+         * Acquire a permit to log a message.
+         *
+         * @param maxPerSecond Maximum number of messages per second.
+         * @return Number of messages suppressed since the last logged message, or -1 if this message should be
+         * suppressed.
+         */
+        private int acquireLogPermit(final int maxPerSecond) {
+            final long second = System.currentTimeMillis() / 1000;
+            final long current = logSecond.get();
+            if ((second != current) && logSecond.compareAndSet(current, second)) {
+                logCount.set(0);
+            }
+            if (logCount.incrementAndGet() > maxPerSecond) {
+                suppressedCount.incrementAndGet();
+                return -1;
+            }
+            return suppressedCount.getAndSet(0);
         }
     }
 
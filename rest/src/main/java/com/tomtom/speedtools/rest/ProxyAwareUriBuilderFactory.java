@@ -15,6 +15,8 @@
  */
 package com.tomtom.speedtools.rest;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.tomtom.speedtools.rest.security.ContextHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +29,12 @@ import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Factory to create proxy aware {@link UriBuilder}'s. Proxy aware means that the returned {@link UriBuilder} will be
@@ -69,6 +77,17 @@ import java.util.Arrays;
  * there are other reverse-proxies in the path between the TomTom front-proxy and the application within the
  * data-center, then they must not contribute to this list!</li></ul>
  *
+ * Instead of {@code X-Https} and {@code X-Forwarded-Host}, the front-proxy may also provide the scheme in the {@code
+ * X-Forwarded-Proto} header, or the scheme and host in the standard {@code Forwarded} header (RFC 7239), using the
+ * {@code proto} and {@code host} parameters of its last element. Clients can send these headers too, and a front-proxy
+ * which only sets the headers above does not remove them. Therefore, by default, they are only used if {@code X-Https}
+ * (for the scheme) or {@code X-Forwarded-Host} (for the host) is absent. They take precedence only if the factory is
+ * created with {@link #ProxyAwareUriBuilderFactory(boolean)}, which must only be used if the front-proxy sets (or
+ * removes) them. The {@code X-Original-URI} header is always required.
+ *
+ * The base {@link UriBuilder} is computed once for every distinct combination of these headers and the request path,
+ * and kept in a bounded cache shared by all instances of this factory.
+ *
  * If those headers are absent, then the factory will fall back to create a {@link UriBuilder} initialised with the
  * scheme, authority and path prefix of the application server. URIs returned to clients in front of the front-proxies
  * will not be able to access those URIs, but it will allow clients inside the data-center to function correctly (e.g.
@@ -86,6 +105,15 @@ public class ProxyAwareUriBuilderFactory {
     private static final String HEADER_NAME_X_FORWARDED_HOST = "X-Forwarded-Host";
     @Nonnull
     private static final String HEADER_NAME_X_ORIGINAL_URI = "X-Original-URI";
+    @Nonnull
+    private static final String HEADER_NAME_X_FORWARDED_PROTO = "X-Forwarded-Proto";
+    @Nonnull
+    private static final String HEADER_NAME_FORWARDED = "Forwarded";
+
+    @Nonnull
+    private static final String FORWARDED_PARAM_PROTO = "proto";
+    @Nonnull
+    private static final String FORWARDED_PARAM_HOST = "host";
 
     @Nonnull
     private static final String HEADER_VALUE_X_HTTPS_TRUE = "on";
@@ -95,6 +123,20 @@ public class ProxyAwareUriBuilderFactory {
     @Nonnull
     private static final String SCHEME_HTTPS = "https";
 
+    /**
+     * Maximum number of base {@link UriBuilder}'s in the cache.
+     */
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    /**
+     * Cache of base {@link UriBuilder}'s, keyed by the proxy headers and the request path. The cached builders are
+     * never modified; only clones are returned to callers. Failures are not cached, so they are logged on every call.
+     */
+    @Nonnull
+    private static final Cache<List<String>, UriBuilder> baseUriBuilderCache = CacheBuilder.newBuilder().
+            maximumSize(MAX_CACHE_SIZE).
+            build();
+
     /**
      * Error message used by {@link #newInstance()}, to prevent duplication in multiple catch clauses. Placeholder is to
      * be substituted with {@link UriInfo#getRequestUri()}.
@@ -111,6 +153,7 @@ public class ProxyAwareUriBuilderFactory {
     private final HttpServletRequest httpServletRequest;
     @Nonnull
     private final UriInfo uriInfo;
+    private final boolean preferForwardedHeaders;
 
     /**
      * Caches the {@link UriBuilder} specific to this request context.
@@ -128,7 +171,23 @@ public class ProxyAwareUriBuilderFactory {
      *                          resource method.
      */
     public ProxyAwareUriBuilderFactory() {
-        this(ContextHelper.getContextData(HttpServletRequest.class), ContextHelper.getContextData(UriInfo.class));
+        this(false);
+    }
+
+    /**
+     * Constructs a new {@link ProxyAwareUriBuilderFactory} that is initialised with the current request context, like
+     * {@link #ProxyAwareUriBuilderFactory()}.
+     *
+     * @param preferForwardedHeaders True if the {@code Forwarded} and {@code X-Forwarded-Proto} headers take precedence
+     *                               over the {@code X-Https} and {@code X-Forwarded-Host} headers. Only use this if the
+     *                               front-proxy sets (or removes) these headers, because clients can send them as
+     *                               well.
+     * @throws RuntimeException In case this constructor is not accessed on the thread that is used to call the JAX-RS
+     *                          resource method.
+     */
+    public ProxyAwareUriBuilderFactory(final boolean preferForwardedHeaders) {
+        this(ContextHelper.getContextData(HttpServletRequest.class), ContextHelper.getContextData(UriInfo.class),
+                preferForwardedHeaders);
     }
 
     /**
@@ -140,11 +199,27 @@ public class ProxyAwareUriBuilderFactory {
     ProxyAwareUriBuilderFactory(
             @Nonnull final HttpServletRequest httpServletRequest,
             @Nonnull final UriInfo uriInfo) {
+        this(httpServletRequest, uriInfo, false);
+    }
+
+    /**
+     * Package-private constructor for use by unit tests.
+     *
+     * @param httpServletRequest     The current request.
+     * @param uriInfo                The {@link UriInfo} object of the current request context.
+     * @param preferForwardedHeaders True if the {@code Forwarded} and {@code X-Forwarded-Proto} headers take
+     *                               precedence.
+     */
+    ProxyAwareUriBuilderFactory(
+            @Nonnull final HttpServletRequest httpServletRequest,
+            @Nonnull final UriInfo uriInfo,
+            final boolean preferForwardedHeaders) {
         assert httpServletRequest != null;
         assert uriInfo != null;
 
         this.httpServletRequest = httpServletRequest;
         this.uriInfo = uriInfo;
+        this.preferForwardedHeaders = preferForwardedHeaders;
     }
 
     /**
@@ -166,22 +241,43 @@ public class ProxyAwareUriBuilderFactory {
     @Nonnull
     public UriBuilder newInstance() {
         if (baseUriBuilder == null) {
-            @Nonnull UriBuilder uriBuilder;
-            try {
-                @Nonnull final String scheme = getScheme();
-                @Nonnull final String authority = getAuthority();
-                @Nonnull final String[] pathPrefix = getPathPrefix();
-
-                @Nonnull final URI baseUri = new URI(scheme, authority, null, null, null);
-
-                uriBuilder = UriBuilder.fromUri(baseUri);
 
-                for (final String segment : pathPrefix) {
-                    uriBuilder.path(segment);
+            // Headers which are not used are left out of the key, so clients cannot flood the cache with them.
+            @Nullable final String xHttpsHeaderValue = httpServletRequest.getHeader(HEADER_NAME_X_HTTPS);
+            @Nullable final String xForwardedHostHeaderValue =
+                    httpServletRequest.getHeader(HEADER_NAME_X_FORWARDED_HOST);
+            final boolean useForwardedProto = preferForwardedHeaders || (xHttpsHeaderValue == null);
+            final boolean useForwardedHost = preferForwardedHeaders || (xForwardedHostHeaderValue == null);
+            @Nonnull final List<String> key = Arrays.asList(
+                    Boolean.toString(preferForwardedHeaders),
+                    (useForwardedProto || useForwardedHost) ? getJoinedHeaders(HEADER_NAME_FORWARDED) : null,
+                    useForwardedProto ? getJoinedHeaders(HEADER_NAME_X_FORWARDED_PROTO) : null,
+                    xHttpsHeaderValue,
+                    xForwardedHostHeaderValue,
+                    httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI),
+                    uriInfo.getRequestUri().getPath());
+            @Nullable UriBuilder uriBuilder = baseUriBuilderCache.getIfPresent(key);
+            if (uriBuilder == null) {
+                try {
+                    @Nonnull final Map<String, String> forwarded = getForwarded(key.get(1));
+                    @Nonnull final String scheme = useForwardedProto ? getScheme(forwarded, key.get(2)) :
+                            getScheme(Collections.emptyMap(), null);
+                    @Nonnull final String authority = useForwardedHost ? getAuthority(forwarded) :
+                            getAuthority(Collections.emptyMap());
+                    @Nonnull final String[] pathPrefix = getPathPrefix();
+
+                    @Nonnull final URI baseUri = new URI(scheme, authority, null, null, null);
+
+                    uriBuilder = UriBuilder.fromUri(baseUri);
+
+                    for (final String segment : pathPrefix) {
+                        uriBuilder.path(segment);
+                    }
+                    baseUriBuilderCache.put(key, uriBuilder);
+                } catch (final HeaderMissingException | InvalidHeaderValueException | URISyntaxException e) {
+                    LOG.error(NEW_INSTANCE_ERROR_MESSAGE, uriInfo.getRequestUri(), e);
+                    uriBuilder = UriBuilder.fromUri(uriInfo.getBaseUri());
                 }
-            } catch (final HeaderMissingException | InvalidHeaderValueException | URISyntaxException e) {
-                LOG.error(NEW_INSTANCE_ERROR_MESSAGE, uriInfo.getRequestUri(), e);
-                uriBuilder = UriBuilder.fromUri(uriInfo.getBaseUri());
             }
 
             baseUriBuilder = uriBuilder;
@@ -194,12 +290,35 @@ public class ProxyAwareUriBuilderFactory {
      * Returns the scheme used by the current request to the front-proxy, or will throw an exception if front-proxy is
      * configured incorrectly, or client has bypassed front-proxy.
      *
+     * The scheme is taken from the {@code Forwarded} header, the {@code X-Forwarded-Proto} header or the {@code
+     * X-Https} header, in that order.
+     *
+     * @param forwarded                  Parameters of the last element of the {@code Forwarded} header. Empty if
+     *                                   absent or not to be used.
+     * @param xForwardedProtoHeaderValue All {@code X-Forwarded-Proto} header lines, joined, or null if absent or not
+     *                                   to be used.
      * @return The scheme of the current request.
-     * @throws HeaderMissingException In case the front-proxy is configured incorrectly or client bypassed the
-     *                                front-proxy.
+     * @throws HeaderMissingException      In case the front-proxy is configured incorrectly or client bypassed the
+     *                                     front-proxy.
+     * @throws InvalidHeaderValueException In case the scheme is not HTTP or HTTPS.
      */
     @Nonnull
-    private String getScheme() throws HeaderMissingException {
+    private String getScheme(
+            @Nonnull final Map<String, String> forwarded,
+            @Nullable final String xForwardedProtoHeaderValue)
+            throws HeaderMissingException, InvalidHeaderValueException {
+        assert forwarded != null;
+        final String forwardedProto = forwarded.get(FORWARDED_PARAM_PROTO);
+        if (forwardedProto != null) {
+            return checkScheme(HEADER_NAME_FORWARDED, forwardedProto);
+        }
+
+        // Like X-Forwarded-Host, X-Forwarded-Proto may be a list, of which the last value is used.
+        if (xForwardedProtoHeaderValue != null) {
+            return checkScheme(HEADER_NAME_X_FORWARDED_PROTO,
+                    xForwardedProtoHeaderValue.substring(xForwardedProtoHeaderValue.lastIndexOf(',') + 1));
+        }
+
         @Nonnull final String xHttpsHeaderValue = getHeader(HEADER_NAME_X_HTTPS);
         if (HEADER_VALUE_X_HTTPS_TRUE.equals(xHttpsHeaderValue.trim())) {
             return SCHEME_HTTPS;
@@ -208,17 +327,50 @@ public class ProxyAwareUriBuilderFactory {
         return SCHEME_HTTP;
     }
 
+    /**
+     * Returns the scheme in lower case, if it is HTTP or HTTPS.
+     *
+     * @param headerName Header the scheme was taken from.
+     * @param scheme     Scheme.
+     * @return The scheme, in lower case.
+     * @throws InvalidHeaderValueException In case the scheme is not HTTP or HTTPS.
+     */
+    @Nonnull
+    private static String checkScheme(
+            @Nonnull final String headerName,
+            @Nonnull final String scheme) throws InvalidHeaderValueException {
+        assert headerName != null;
+        assert scheme != null;
+        @Nonnull final String result = scheme.trim().toLowerCase(Locale.US);
+        if (!SCHEME_HTTP.equals(result) && !SCHEME_HTTPS.equals(result)) {
+            LOG.error("checkScheme: scheme \"{}\" in header {} is invalid.", scheme, headerName);
+            throw new InvalidHeaderValueException(headerName, "Invalid scheme \"" + scheme + "\".");
+        }
+        return result;
+    }
+
     /**
      * Returns the authority used by the current request to the front-proxy, or will throw an exception if front-proxy
      * is configured incorrectly, or client has bypassed front-proxy.
      *
+     * The authority is taken from the {@code Forwarded} header or the {@code X-Forwarded-Host} header, in that order.
+     *
+     * @param forwarded Parameters of the last element of the {@code Forwarded} header. Empty if absent or not to be
+     *                  used.
      * @return The authority of the current request.
      * @throws HeaderMissingException      In case the front-proxy is configured incorrectly or client bypassed the
      *                                     front-proxy.
      * @throws InvalidHeaderValueException In case the required header is present but contains an invalid value.
      */
     @Nonnull
-    private String getAuthority() throws HeaderMissingException, InvalidHeaderValueException {
+    private String getAuthority(@Nonnull final Map<String, String> forwarded)
+            throws HeaderMissingException, InvalidHeaderValueException {
+        assert forwarded != null;
+        final String forwardedHost = forwarded.get(FORWARDED_PARAM_HOST);
+        if (forwardedHost != null) {
+            return checkAuthority(HEADER_NAME_FORWARDED, forwardedHost.trim(), forwardedHost);
+        }
+
         @Nonnull final String xForwardedHostHeaderValue = getHeader(HEADER_NAME_X_FORWARDED_HOST);
 
         if (xForwardedHostHeaderValue.trim().isEmpty()) {
@@ -246,22 +398,112 @@ public class ProxyAwareUriBuilderFactory {
                     "Last host in list \"" + xForwardedHostHeaderValue + "\" must not be empty.");
         }
 
-        // Check validity of authority
+        return checkAuthority(HEADER_NAME_X_FORWARDED_HOST, proxyHost, xForwardedHostHeaderValue);
+    }
+
+    /**
+     * Checks the validity of an authority.
+     *
+     * @param headerName  Header the authority was taken from.
+     * @param proxyHost   Authority.
+     * @param headerValue Value of the header.
+     * @return The authority.
+     * @throws InvalidHeaderValueException In case the authority is invalid.
+     */
+    @Nonnull
+    private static String checkAuthority(
+            @Nonnull final String headerName,
+            @Nonnull final String proxyHost,
+            @Nonnull final String headerValue) throws InvalidHeaderValueException {
+        assert headerName != null;
+        assert proxyHost != null;
+        assert headerValue != null;
         try {
             @Nonnull final URI proxyHostUri = new URI(proxyHost);
             proxyHostUri.parseServerAuthority();
         } catch (final URISyntaxException e) {
             LOG.error(
-                    "getAuthority: host \"" + proxyHost + "\" in header " + HEADER_NAME_X_FORWARDED_HOST + " is invalid.",
+                    "checkAuthority: host \"" + proxyHost + "\" in header " + headerName + " is invalid.",
                     e);
-            throw new InvalidHeaderValueException(HEADER_NAME_X_FORWARDED_HOST,
-                    "Invalid host \"" + xForwardedHostHeaderValue + "\".",
+            throw new InvalidHeaderValueException(headerName,
+                    "Invalid host \"" + headerValue + "\".",
                     e);
         }
 
         return proxyHost;
     }
 
+    /**
+     * Returns the parameters of the last element of a {@code Forwarded} header (RFC 7239), such as
+     * <pre>{@code
+     * for=192.0.2.43, for="[2001:db8:cafe::17]";proto=https;host=www.tomtomtaxi.com
+     * }</pre>
+     * Parameter names are returned in lower case and quoted values are unquoted. The last element is the one added by
+     * the front-proxy, just like the last host in {@code X-Forwarded-Host}.
+     *
+     * @param headerValue Value of all {@code Forwarded} header lines, joined, or null if the header is absent.
+     * @return Parameters of the last element. Empty if the header is absent or empty.
+     */
+    @Nonnull
+    private static Map<String, String> getForwarded(@Nullable final String headerValue) {
+        @Nonnull final Map<String, String> result = new HashMap<>();
+        if (headerValue == null) {
+            return result;
+        }
+
+        // Find the start of the last element, skipping commas in quoted strings.
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i < headerValue.length(); ++i) {
+            final char c = headerValue.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if ((c == '\\') && quoted) {
+                ++i;
+            } else if ((c == ',') && !quoted) {
+                start = i + 1;
+            }
+        }
+
+        // Parse the name=value pairs of the last element.
+        @Nonnull final StringBuilder name = new StringBuilder();
+        @Nonnull final StringBuilder value = new StringBuilder();
+        boolean inValue = false;
+        quoted = false;
+        for (int i = start; i <= headerValue.length(); ++i) {
+            final char c = (i < headerValue.length()) ? headerValue.charAt(i) : ';';
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                } else if ((c == '\\') && ((i + 1) < headerValue.length())) {
+                    ++i;
+                    value.append(headerValue.charAt(i));
+                } else {
+                    value.append(c);
+                }
+            } else if (c == ';') {
+                final String paramName = name.toString().trim().toLowerCase(Locale.US);
+                if (inValue && !paramName.isEmpty()) {
+                    result.put(paramName, value.toString().trim());
+                }
+                name.setLength(0);
+                value.setLength(0);
+                inValue = false;
+            } else if (inValue) {
+                if (c == '"') {
+                    quoted = true;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '=') {
+                inValue = true;
+            } else {
+                name.append(c);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the path prefix of the external URI.
      *
@@ -376,6 +618,28 @@ public class ProxyAwareUriBuilderFactory {
         return headerValue;
     }
 
+    /**
+     * Returns all lines of a header, joined into a single comma-separated list. Proxies may add their own header line
+     * rather than appending to an existing one, so only reading the first line would return the value sent by the
+     * client, rather than the value added by the front-proxy.
+     *
+     * @param headerName The name of the header.
+     * @return The joined header lines, or null if the header is not present.
+     */
+    @Nullable
+    private String getJoinedHeaders(@Nonnull final String headerName) {
+        assert headerName != null;
+        final Enumeration<String> headerValues = httpServletRequest.getHeaders(headerName);
+        if ((headerValues == null) || !headerValues.hasMoreElements()) {
+            return null;
+        }
+        @Nonnull final StringBuilder sb = new StringBuilder(headerValues.nextElement());
+        while (headerValues.hasMoreElements()) {
+            sb.append(',').append(headerValues.nextElement());
+        }
+        return sb.toString();
+    }
+
     /**
      * Made package private for unit test.
      */
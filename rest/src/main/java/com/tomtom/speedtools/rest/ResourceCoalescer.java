@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import akka.dispatch.Futures;
+import akka.dispatch.OnComplete;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces identical concurrent requests for a resource, to be used with {@link ResourceProcessor#process(String,
+ * ResourceCoalescer, String, Logger, javax.ws.rs.container.AsyncResponse, ResourceHandler)}.
+ *
+ * Requests with the same key share a single call to {@link ResourceHandler#process()}: the first request calls the
+ * handler and all requests with the same key that arrive before its {@link Future} completes receive the same result.
+ * If a TTL is configured, the result is also shared with requests that arrive within the TTL after completion. Failures
+ * are never shared after completion.
+ *
+ * Coalescing is opt-in: only use it for resources without side effects (normally GET resources) and whose result
+ * depends on the request key only, so not on the caller's identity or headers. The handlers must return their result
+ * in the {@link Future}, rather than setting the response themselves, because the result is shared.
+ */
+public final class ResourceCoalescer {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceCoalescer.class);
+
+    private final long ttlNanos;
+    @Nonnull
+    private final ExecutionContext executionContext;
+    @Nonnull
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+    @Nonnull
+    private final ConcurrentLinkedQueue<Flight> expiryQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Create a request coalescer.
+     *
+     * @param ttlMsecs         Time in msecs a successful result is shared after completion, &gt;= 0. Use 0 to share
+     *                         results only between requests that are in-flight at the same time.
+     * @param executionContext Execution context for completion callbacks.
+     */
+    public ResourceCoalescer(
+            final long ttlMsecs,
+            @Nonnull final ExecutionContext executionContext) {
+        assert ttlMsecs >= 0 : ttlMsecs;
+        assert executionContext != null;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMsecs);
+        this.executionContext = executionContext;
+    }
+
+    /**
+     * Create a normalized request key from the request path and query parameters. The query parameters are sorted by
+     * name, so their order in the request does not matter.
+     *
+     * @param uriInfo URI info of the request.
+     * @return Request key.
+     */
+    @Nonnull
+    public static String createKey(@Nonnull final UriInfo uriInfo) {
+        assert uriInfo != null;
+        return createKey(uriInfo.getPath(), uriInfo.getQueryParameters());
+    }
+
+    /**
+     * Create a normalized request key from a request path and query parameters. The query parameters are sorted by
+     * name; the order of values of a single parameter is kept.
+     *
+     * @param path            Request path.
+     * @param queryParameters Decoded query parameters.
+     * @return Request key.
+     */
+    @Nonnull
+    public static String createKey(
+            @Nonnull final String path,
+            @Nonnull final MultivaluedMap<String, String> queryParameters) {
+        assert path != null;
+        assert queryParameters != null;
+        final StringBuilder sb = new StringBuilder(path);
+        char separator = '?';
+        for (final Map.Entry<String, List<String>> parameter : new TreeMap<>(queryParameters).entrySet()) {
+            for (final String value : parameter.getValue()) {
+                sb.append(separator);
+                appendEscaped(sb, parameter.getKey());
+                sb.append('=');
+                appendEscaped(sb, value);
+                separator = '&';
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the result for a request key, calling the handler only if no identical request is in-flight (or within
+     * its TTL).
+     *
+     * @param key     Normalized request key, see {@link #createKey(UriInfo)}.
+     * @param handler Handler to call if the request needs to be processed.
+     * @return Future with the (shared) result of the handler.
+     */
+    @Nonnull
+    public Future<Object> process(
+            @Nonnull final String key,
+            @Nonnull final ResourceHandler handler) {
+        assert key != null;
+        assert handler != null;
+        final long now = System.nanoTime();
+        purgeExpired(now);
+
+        Flight flight;
+        while (true) {
+            final Flight existing = flights.get(key);
+            if ((existing != null) && !existing.isExpired(now)) {
+                LOG.trace("process: coalesced request, key={}", key);
+                return existing.promise.future();
+            }
+            flight = new Flight(key);
+            final boolean isLeader = (existing == null) ?
+                    (flights.putIfAbsent(key, flight) == null) :
+                    flights.replace(key, existing, flight);
+            if (isLeader) {
+                break;
+            }
+        }
+
+        // This request is the leader: call the handler and share its result.
+        final Flight leader = flight;
+        try {
+            @SuppressWarnings("unchecked") final Future<Object> future = (Future<Object>) handler.process();
+            future.onComplete(new OnComplete<Object>() {
+                @SuppressWarnings("ParameterNameDiffersFromOverriddenParameter")
+                @Override
+                public void onComplete(
+                        @Nullable final Throwable failure,
+                        @Nullable final Object success) {
+                    complete(leader, failure);
+                }
+            }, executionContext);
+            leader.promise.completeWith(future);
+        } catch (final Throwable e) {
+            complete(leader, e);
+            leader.promise.failure(e);
+        }
+        return leader.promise.future();
+    }
+
+    /**
+     * Return the number of requests that are in-flight or within their TTL.
+     *
+     * @return Number of requests.
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private void complete(@Nonnull final Flight flight, @Nullable final Throwable failure) {
+        assert flight != null;
+        if ((failure != null) || (ttlNanos == 0)) {
+            flights.remove(flight.key, flight);
+        } else {
+            flight.expiresAt = System.nanoTime() + ttlNanos;
+            flight.completed = true;
+            expiryQueue.add(flight);
+        }
+    }
+
+    private void purgeExpired(final long now) {
+        // Flights complete in order of expiry, so only the head of the queue needs to be checked.
+        Flight flight = expiryQueue.peek();
+        while ((flight != null) && flight.isExpired(now)) {
+            if (expiryQueue.remove(flight)) {
+                flights.remove(flight.key, flight);
+            }
+            flight = expiryQueue.peek();
+        }
+    }
+
+    private static void appendEscaped(@Nonnull final StringBuilder sb, @Nonnull final String value) {
+        assert sb != null;
+        assert value != null;
+        for (int i = 0; i < value.length(); ++i) {
+            final char ch = value.charAt(i);
+            if ((ch == '%') || (ch == '&') || (ch == '=')) {
+                sb.append('%').append(Character.forDigit(ch >> 4, 16)).append(Character.forDigit(ch & 15, 16));
+            } else {
+                sb.append(ch);
+            }
+        }
+    }
+
+    private static final class Flight {
+        @Nonnull
+        private final String key;
+        @Nonnull
+        private final Promise<Object> promise = Futures.promise();
+
+        // Expiry time in nanos, only valid once the flight completed successfully.
+        private volatile long expiresAt = 0;
+        private volatile boolean completed = false;
+
+        private Flight(@Nonnull final String key) {
+            assert key != null;
+            this.key = key;
+        }
+
+        private boolean isExpired(final long now) {
+            return completed && ((now - expiresAt) >= 0);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.tomtom.speedtools.apivalidation.exceptions.ApiServiceUnavailableException;
+import com.tomtom.speedtools.metrics.MultiMetricsCollector;
+import com.tomtom.speedtools.metrics.MultiMetricsData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor for a group of API resources, to be used with {@link ResourceProcessor#process(String,
+ * ResourceExecutor, Logger, javax.ws.rs.container.AsyncResponse, ResourceHandler)}.
+ *
+ * Resource handlers of a group are executed on a fixed number of threads of their own, so a burst of slow handlers in
+ * one group cannot starve the Akka dispatcher or the handlers of other groups.
+ *
+ * Requests are admitted only if the queue of waiting handlers is not full and handlers did not recently have to wait
+ * longer than the configured maximum queue latency. Otherwise, the request is rejected immediately with an {@link
+ * ApiServiceUnavailableException}, which maps to "503 Service Unavailable" with a "Retry-After" header. The latency
+ * check only applies while handlers are actually queued, so admission resumes as soon as the queue has drained.
+ *
+ * The queue depth, queue latency and number of rejected requests are available as metrics.
+ */
+public final class ResourceExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceExecutor.class);
+
+    /**
+     * Weight of a new queue latency sample in the moving average, as a shift: 1/8th.
+     */
+    private static final int LATENCY_SMOOTHING_SHIFT = 3;
+
+    @Nonnull
+    private final String name;
+    private final int maxQueueSize;
+    private final long maxQueueLatencyMsecs;
+    private final int retryAfterSecs;
+    @Nonnull
+    private final ThreadPoolExecutor executor;
+    @Nonnull
+    private final AtomicLong rejectedCount = new AtomicLong();
+    @Nonnull
+    private final MultiMetricsCollector queueDepthMetrics = MultiMetricsCollector.all();
+    @Nonnull
+    private final MultiMetricsCollector queueLatencyMetrics = MultiMetricsCollector.all();
+    @Nonnull
+    private final MultiMetricsCollector rejectedMetrics = MultiMetricsCollector.all();
+
+    // Moving average of the time handlers waited in the queue.
+    private volatile long avgQueueLatencyMsecs = 0;
+
+    /**
+     * Create a bounded executor for a group of resources.
+     *
+     * @param name                 Name of the group; used for thread names and logging.
+     * @param nrThreads            Number of threads to execute resource handlers on, &gt; 0.
+     * @param maxQueueSize         Maximum number of handlers waiting for a thread, &gt; 0.
+     * @param maxQueueLatencyMsecs Maximum (average) time handlers may wait for a thread, in msecs, &gt; 0.
+     * @param retryAfterSecs       Number of seconds after which clients may retry rejected requests, &gt;= 0.
+     */
+    public ResourceExecutor(
+            @Nonnull final String name,
+            final int nrThreads,
+            final int maxQueueSize,
+            final long maxQueueLatencyMsecs,
+            final int retryAfterSecs) {
+        assert name != null;
+        assert nrThreads > 0 : nrThreads;
+        assert maxQueueSize > 0 : maxQueueSize;
+        assert maxQueueLatencyMsecs > 0 : maxQueueLatencyMsecs;
+        assert retryAfterSecs >= 0 : retryAfterSecs;
+        this.name = name;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueLatencyMsecs = maxQueueLatencyMsecs;
+        this.retryAfterSecs = retryAfterSecs;
+        this.executor = new ThreadPoolExecutor(
+                nrThreads, nrThreads,                           // Fixed size pool.
+                0, TimeUnit.MILLISECONDS,                       // No keep-alive.
+                new ArrayBlockingQueue<>(maxQueueSize),         // Bounded work queue.
+                new ThreadFactoryBuilder().setNameFormat("resource-" + name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Execute a task, or reject it if the executor is saturated.
+     *
+     * @param task Task to execute.
+     * @throws ApiServiceUnavailableException If the task was not admitted.
+     */
+    public void execute(@Nonnull final Runnable task) {
+        assert task != null;
+        final int queueDepth = executor.getQueue().size();
+        queueDepthMetrics.addValue(queueDepth);
+        if ((queueDepth > 0) && (avgQueueLatencyMsecs > maxQueueLatencyMsecs)) {
+            throw reject("queue latency " + avgQueueLatencyMsecs + " msecs exceeds " + maxQueueLatencyMsecs + " msecs");
+        }
+        final long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                final long latencyMsecs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt);
+                final long avg = avgQueueLatencyMsecs;
+                avgQueueLatencyMsecs = avg + ((latencyMsecs - avg) >> LATENCY_SMOOTHING_SHIFT);
+                queueLatencyMetrics.addValue(latencyMsecs);
+                task.run();
+            });
+        } catch (final RejectedExecutionException ignored) {
+            throw reject(executor.isShutdown() ? "executor is shut down" : ("queue is full, size=" + maxQueueSize));
+        }
+    }
+
+    @Nonnull
+    private ApiServiceUnavailableException reject(@Nonnull final String reason) {
+        assert reason != null;
+        rejectedCount.incrementAndGet();
+        rejectedMetrics.addValue(1);
+        LOG.debug("execute: request rejected, executor={}, reason={}", name, reason);
+        return new ApiServiceUnavailableException("Service overloaded: " + name, retryAfterSecs);
+    }
+
+    /**
+     * Shut down the executor. Handlers that were already admitted are still executed.
+     */
+    public void shutdown() {
+        LOG.debug("shutdown: executor={}", name);
+        executor.shutdown();
+    }
+
+    /**
+     * Wait until all admitted handlers have been executed, after {@link #shutdown()}.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of timeout.
+     * @return True if all handlers were executed, false if the timeout expired first.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit) throws InterruptedException {
+        assert unit != null;
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the current number of handlers waiting for a thread.
+     *
+     * @return Queue depth.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Return the moving average of the time handlers waited for a thread.
+     *
+     * @return Queue latency in msecs.
+     */
+    public long getQueueLatencyMsecs() {
+        return avgQueueLatencyMsecs;
+    }
+
+    /**
+     * Return the total number of rejected requests.
+     *
+     * @return Number of rejected requests.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Return the queue depth, sampled at every request.
+     *
+     * @return Queue depth metrics.
+     */
+    @Nonnull
+    public MultiMetricsData getQueueDepthMetrics() {
+        return queueDepthMetrics;
+    }
+
+    /**
+     * Return the time handlers waited for a thread, in msecs.
+     *
+     * @return Queue latency metrics.
+     */
+    @Nonnull
+    public MultiMetricsData getQueueLatencyMetrics() {
+        return queueLatencyMetrics;
+    }
+
+    /**
+     * Return the rejected requests; every rejection counts as 1.
+     *
+     * @return Rejection metrics.
+     */
+    @Nonnull
+    public MultiMetricsData getRejectedMetrics() {
+        return rejectedMetrics;
+    }
+}
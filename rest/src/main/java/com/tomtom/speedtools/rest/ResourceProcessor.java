@@ -19,6 +19,7 @@ package com.tomtom.speedtools.rest;
 import akka.dispatch.Futures;
 import akka.dispatch.OnComplete;
 import com.tomtom.speedtools.apivalidation.exceptions.ApiException;
+import com.tomtom.speedtools.apivalidation.exceptions.ApiServiceUnavailableException;
 import org.jboss.resteasy.spi.AsynchronousResponse;
 import org.slf4j.Logger;
 import scala.concurrent.Future;
@@ -28,19 +29,40 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * Processes API resources. It uses the reactor to call resources inside the Akka system.
+ *
+ * The processor keeps track of the requests in flight, so they can be drained on shutdown (see {@link Shutdown}): after
+ * {@link #startDrain()}, new requests are answered with "503 Service Unavailable" and {@link #awaitDrained(long,
+ * TimeUnit)} waits for the requests in flight to complete.
  */
 public final class ResourceProcessor {
 
+    /**
+     * Retry-After for requests which are rejected while draining.
+     */
+    private static final int DRAIN_RETRY_AFTER_SECS = 1;
+
     /**
      * The {@link Reactor}, needed to schedule Futures in.
      */
     @Nonnull
     private final Reactor reactor;
 
+    @Nonnull
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    @Nonnull
+    private final AtomicInteger drainCompletedCount = new AtomicInteger();
+    @Nonnull
+    private final AtomicInteger drainRejectedCount = new AtomicInteger();
+    @Nonnull
+    private final Object drainMonitor = new Object();
+    private volatile boolean draining = false;
+
     @Inject
     public ResourceProcessor(
             @Nonnull final Reactor reactor) {
@@ -48,6 +70,69 @@ public final class ResourceProcessor {
         this.reactor = reactor;
     }
 
+    /**
+     * Stop admitting requests. Requests which arrive after this call are answered with "503 Service Unavailable".
+     */
+    public void startDrain() {
+        draining = true;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Wait until all requests in flight have completed, or the timeout expires. Call {@link #startDrain()} first.
+     *
+     * @param timeout Timeout.
+     * @param unit    Unit of timeout.
+     * @return True if all requests completed, false if the timeout expired.
+     * @throws InterruptedException If the thread was interrupted.
+     */
+    public boolean awaitDrained(
+            final long timeout,
+            @Nonnull final TimeUnit unit) throws InterruptedException {
+        assert unit != null;
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (drainMonitor) {
+            while (inFlightCount.get() > 0) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drainMonitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of requests in flight: admitted, but whose handler has not completed yet.
+     *
+     * @return Number of requests.
+     */
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    /**
+     * Return the number of requests which completed after {@link #startDrain()}.
+     *
+     * @return Number of requests.
+     */
+    public int getDrainCompletedCount() {
+        return drainCompletedCount.get();
+    }
+
+    /**
+     * Return the number of requests which were rejected after {@link #startDrain()}.
+     *
+     * @return Number of requests.
+     */
+    public int getDrainRejectedCount() {
+        return drainRejectedCount.get();
+    }
+
     /**
      * Process an API resource. The actual resource handling is delegated to an {@link ResourceHandler}, which is an
      * interface with an implementation for each individual resource.
@@ -59,7 +144,6 @@ public final class ResourceProcessor {
      * @param handler  Handler that actually calculates the REST response. If the handler returns a non-null value in
      *                 the future success, it will be wrapped in an "200 OK" response.
      */
-    @SuppressWarnings("InstanceofCatchParameter")
     public void process(
             @Nonnull final String name,
             @Nonnull final Logger log,
@@ -76,79 +160,242 @@ public final class ResourceProcessor {
          * Note that the Future call() closure has access to the parameter values above.
          */
         log.debug("process (WEB): handler={}", name);
+        if (!admit(name, log, response)) {
+            return;
+        }
+        final EndpointTimer timer = EndpointTimer.current();
         Futures.future(() -> {
+                    processHandler(name, timer, log, response, handler);
 
-                    /**
-                     * Catch exceptions to map them to proper HTTP status code.
-                     */
-                    try {
+                    //noinspection ConstantConditions
+                    return null;
+                },
 
-                        /**
-                         * Call the actual resource handler. The call to "process()" returns a {@link Future},
-                         * which is scheduled asynchronously for execution. The {@link Future} will hold a specific response.
-                         * As this is a generic resource processor, the response is passed as an {@link Object} here.
-                         */
-                        @SuppressWarnings("unchecked") final Future<Object> future = (Future<Object>) handler.process();
+                /**
+                 * Execute Future in reactor context.
+                 */
+                reactor.getExecutionContext());
+    }
 
-                        /**
-                         * If the {@link Future} completes, the {@link OnComplete}.onComplete is called,
-                         * which passes the result of the {@link Future} into the {@link AsyncResponse} object,
-                         * which will be passed bac to the caller of the resource.
-                         */
-                        //noinspection unchecked
-                        future.onComplete(new OnComplete<Object>() {
+    /**
+     * Process an API resource on a bounded executor, rather than on the reactor execution context. If the executor is
+     * saturated, the request is not processed and the response is set to "503 Service Unavailable" immediately.
+     *
+     * @param name     Name of processor; used for logging purposes.
+     * @param executor Executor of the group of resources this resource belongs to.
+     * @param log      Logger of caller, so log message appear to come from the caller, which makes more sense than from
+     *                 this generic class.
+     * @param response Asynchronous rest response object.
+     * @param handler  Handler that actually calculates the REST response. If the handler returns a non-null value in
+     *                 the future success, it will be wrapped in an "200 OK" response.
+     */
+    public void process(
+            @Nonnull final String name,
+            @Nonnull final ResourceExecutor executor,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response,
+            @Nonnull final ResourceHandler handler) {
+        assert executor != null;
+        assert response != null;
+        assert log != null;
+        assert handler != null;
 
-                            /**
-                             * This function is called whenever the {@link Future} completes, dies or times out.
-                             *
-                             * @param failure Exception in case something went wrong, null if OK.
-                             * @param success Result of {@link Future} computation. If the handler set the response itself,
-                             *              it should pass null as a value. This can be used, for example,
-                             *              for a handler to set a specific HTTP status code,
-                             *              other than this processor would.
-                             */
-                            @SuppressWarnings("ParameterNameDiffersFromOverriddenParameter")
-                            @Override
-                            public void onComplete(
-                                    @Nullable final Throwable failure,
-                                    @Nullable final Object success) {
+        log.debug("process (WEB): handler={}, executor={}", name, executor.getName());
+        if (!admit(name, log, response)) {
+            return;
+        }
+        final EndpointTimer timer = EndpointTimer.current();
+        try {
+            executor.execute(() -> processHandler(name, timer, log, response, handler));
+        } catch (final ApiServiceUnavailableException e) {
+            response.resume(GeneralExceptionMapper.toResponse(log, e));
+            completed();
+        }
+    }
 
-                                if (failure != null) {
-                                    log.info("process: resource exception, handler=" + name, failure);
-                                    response.resume(GeneralExceptionMapper.toResponse(log, failure));
-                                } else if (success != null) {
-                                    response.resume(Response.ok(success).build());
-                                } else {
+    /**
+     * Process an API resource, coalescing it with identical concurrent requests. Requests with the same key share a
+     * single call to the handler and receive the same result. See {@link ResourceCoalescer} for the restrictions on
+     * resources that can be coalesced.
+     *
+     * @param name      Name of processor; used for logging purposes.
+     * @param coalescer Coalescer of the resource.
+     * @param key       Normalized request key, see {@link ResourceCoalescer#createKey(javax.ws.rs.core.UriInfo)}.
+     * @param log       Logger of caller, so log message appear to come from the caller, which makes more sense than
+     *                  from this generic class.
+     * @param response  Asynchronous rest response object.
+     * @param handler   Handler that actually calculates the REST response. It must return a non-null value in the
+     *                  future success, which will be wrapped in an "200 OK" response.
+     */
+    public void process(
+            @Nonnull final String name,
+            @Nonnull final ResourceCoalescer coalescer,
+            @Nonnull final String key,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response,
+            @Nonnull final ResourceHandler handler) {
+        assert coalescer != null;
+        assert key != null;
+        assert response != null;
+        assert log != null;
+        assert handler != null;
 
-                                    /**
-                                     * Response was already set by resource handler.
-                                     * Do nothing.
-                                     */
-                                    assert true;
-                                }
-                            }
-                        }, reactor.getExecutionContext());
-                    } catch (final Throwable e) {
-                        if (((e instanceof RuntimeException) || (e instanceof Error)) &&
-                                !(e instanceof ApiException)) {
-                            // Something went wrong, probably a bug in the code.
-                            log.error("process: exception encountered, handler={}", name, e);
-                        } else {
-                            // Some-one is firing requests that cause errors.
-                            log.info("process: exception encountered, handler={}, exception={}",
-                                    name, e.getMessage());
-                        }
-                        response.resume(GeneralExceptionMapper.toResponse(log, e));
-                    }
+        log.debug("process (WEB): handler={}, key={}", name, key);
+        if (!admit(name, log, response)) {
+            return;
+        }
+        final EndpointTimer timer = EndpointTimer.current();
+        Futures.future(() -> {
+                    processHandler(name, timer, log, response, () -> coalescer.process(key, handler));
 
                     //noinspection ConstantConditions
                     return null;
                 },
+                reactor.getExecutionContext());
+    }
+
+    /**
+     * Call the handler and resume the response when its future completes.
+     *
+     * @param timer Timer of the request, to record the queue and handler times, or null if metrics are not collected
+     *              (see {@link EndpointMetricsFilter}).
+     */
+    @SuppressWarnings("InstanceofCatchParameter")
+    private void processHandler(
+            @Nonnull final String name,
+            @Nullable final EndpointTimer timer,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response,
+            @Nonnull final ResourceHandler handler) {
+        assert response != null;
+        assert log != null;
+        assert handler != null;
+
+        if (timer != null) {
+            timer.handlerStarted();
+        }
+
+        /**
+         * Catch exceptions to map them to proper HTTP status code.
+         */
+        try {
+
+            /**
+             * Call the actual resource handler. The call to "process()" returns a {@link Future},
+             * which is scheduled asynchronously for execution. The {@link Future} will hold a specific response.
+             * As this is a generic resource processor, the response is passed as an {@link Object} here.
+             */
+            @SuppressWarnings("unchecked") final Future<Object> future = (Future<Object>) handler.process();
+
+            /**
+             * If the {@link Future} completes, the {@link OnComplete}.onComplete is called,
+             * which passes the result of the {@link Future} into the {@link AsyncResponse} object,
+             * which will be passed bac to the caller of the resource.
+             */
+            //noinspection unchecked
+            future.onComplete(new OnComplete<Object>() {
 
                 /**
-                 * Execute Future in reactor context.
+                 * This function is called whenever the {@link Future} completes, dies or times out.
+                 *
+                 * @param failure Exception in case something went wrong, null if OK.
+                 * @param success Result of {@link Future} computation. If the handler set the response itself,
+                 *              it should pass null as a value. This can be used, for example,
+                 *              for a handler to set a specific HTTP status code,
+                 *              other than this processor would.
                  */
-                reactor.getExecutionContext());
+                @SuppressWarnings("ParameterNameDiffersFromOverriddenParameter")
+                @Override
+                public void onComplete(
+                        @Nullable final Throwable failure,
+                        @Nullable final Object success) {
+                    if (timer != null) {
+                        timer.handlerCompleted();
+                    }
+
+                    try {
+                        if (failure != null) {
+                            log.info("process: resource exception, handler=" + name, failure);
+                            response.resume(GeneralExceptionMapper.toResponse(log, failure));
+                        } else if (success != null) {
+                            response.resume(Response.ok(success).build());
+                        } else {
+
+                            /**
+                             * Response was already set by resource handler.
+                             * Do nothing.
+                             */
+                            assert true;
+                        }
+                    } finally {
+                        completed();
+                    }
+                }
+            }, reactor.getExecutionContext());
+        } catch (final Throwable e) {
+            if (timer != null) {
+                timer.handlerCompleted();
+            }
+            if (((e instanceof RuntimeException) || (e instanceof Error)) &&
+                    !(e instanceof ApiException)) {
+                // Something went wrong, probably a bug in the code.
+                log.error("process: exception encountered, handler={}", name, e);
+            } else {
+                // Some-one is firing requests that cause errors.
+                log.info("process: exception encountered, handler={}, exception={}",
+                        name, e.getMessage());
+            }
+            try {
+                response.resume(GeneralExceptionMapper.toResponse(log, e));
+            } finally {
+                completed();
+            }
+        }
+    }
+
+    /**
+     * Admit a request, unless the processor is draining. A rejected request is answered with "503 Service
+     * Unavailable". Every admitted request must call {@link #completed()} when it is done.
+     *
+     * @return True if admitted.
+     */
+    private boolean admit(
+            @Nonnull final String name,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response) {
+        assert name != null;
+        assert log != null;
+        assert response != null;
+
+        // Increment first, so a request is either rejected or seen by awaitDrained().
+        inFlightCount.incrementAndGet();
+        if (draining) {
+            release();
+            drainRejectedCount.incrementAndGet();
+            log.debug("process: shutting down, rejected handler={}", name);
+            response.resume(GeneralExceptionMapper.toResponse(log,
+                    new ApiServiceUnavailableException("Service is shutting down", DRAIN_RETRY_AFTER_SECS)));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called when an admitted request is done.
+     */
+    private void completed() {
+        if (draining) {
+            drainCompletedCount.incrementAndGet();
+        }
+        release();
+    }
+
+    private void release() {
+        if ((inFlightCount.decrementAndGet() == 0) && draining) {
+            synchronized (drainMonitor) {
+                drainMonitor.notifyAll();
+            }
+        }
     }
 
     /**
@@ -160,7 +407,8 @@ public final class ResourceProcessor {
      * @param response Asynchronous rest response object.
      * @param handler  Handler that actually calculates the REST response. If the handler returns a non-null value in
      *                 the future success, it will be wrapped in an "200 OK" response.
-     * @deprecated Replaced by {@link #process(String, Logger, AsyncResponse, ResourceHandler)}.
+     * @deprecated Replaced by {@link #process(String, Logger, AsyncResponse, ResourceHandler)}. Requests processed
+     * by this method are not drained on shutdown.
      */
     @Deprecated
     @SuppressWarnings("InstanceofCatchParameter")
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of serialized responses, used by the {@link ResponseCacheFilter}. Responses are keyed by request path, query
+ * parameters and the values of the vary headers, and are stored as serialized bytes with a strong ETag, together with
+ * the response headers that need to be replayed.
+ *
+ * Write paths (such as DAO methods) that change the data of cached resources should invalidate the affected paths with
+ * {@link #invalidate(String)} or {@link #invalidateAll()}. Responses that were being computed while an invalidation
+ * took place are not stored, so a cached response is never older than the last invalidation.
+ *
+ * This class is thread-safe.
+ */
+public final class ResponseCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+
+    public static final long DEFAULT_MAX_SIZE_BYTES = 64L * 1024 * 1024;
+    @Nonnull
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.standardMinutes(5);
+    @Nonnull
+    public static final List<String> DEFAULT_VARY_HEADERS = Collections.unmodifiableList(Arrays.asList(
+            "Accept", "Accept-Language"));
+
+    /**
+     * Default cache, used by the {@link ResponseCacheFilter} when it is registered through web.xml.
+     */
+    @Nonnull
+    private static final ResponseCache DEFAULT_INSTANCE =
+            new ResponseCache(DEFAULT_MAX_SIZE_BYTES, DEFAULT_TIME_TO_LIVE, DEFAULT_VARY_HEADERS);
+
+    @Nonnull
+    private final Cache<String, Entry> entries;
+    @Nonnull
+    private final List<String> varyHeaders;
+    @Nonnull
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a response cache.
+     *
+     * @param maxSizeBytes Maximum total size of cached responses, in bytes.
+     * @param timeToLive   Time a response is cached after it was stored.
+     * @param varyHeaders  Request headers that are part of the cache key.
+     */
+    public ResponseCache(
+            final long maxSizeBytes,
+            @Nonnull final Duration timeToLive,
+            @Nonnull final List<String> varyHeaders) {
+        super();
+        assert maxSizeBytes >= 0 : maxSizeBytes;
+        assert timeToLive != null;
+        assert varyHeaders != null;
+        this.varyHeaders = Collections.unmodifiableList(varyHeaders);
+        this.entries = CacheBuilder.newBuilder().
+                maximumWeight(maxSizeBytes).
+                weigher((final String key, final Entry value) -> key.length() + value.getBytes().length).
+                expireAfterWrite(timeToLive.getMillis(), TimeUnit.MILLISECONDS).
+                build();
+    }
+
+    @Nonnull
+    public static ResponseCache getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    @Nonnull
+    public List<String> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    /**
+     * Create the cache key of a request.
+     *
+     * @param path            Request path.
+     * @param queryParameters Decoded query parameters.
+     * @param headers         Request headers.
+     * @return Cache key.
+     */
+    @Nonnull
+    public String createKey(
+            @Nonnull final String path,
+            @Nonnull final MultivaluedMap<String, String> queryParameters,
+            @Nonnull final MultivaluedMap<String, String> headers) {
+        assert path != null;
+        assert queryParameters != null;
+        assert headers != null;
+        final StringBuilder sb = new StringBuilder(ResourceCoalescer.createKey(path, queryParameters));
+        for (final String varyHeader : varyHeaders) {
+            sb.append('\n');
+            final List<String> values = headers.get(varyHeader);
+            if (values != null) {
+                sb.append(String.join(",", values));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the current generation of the cache, which is incremented on every invalidation. Pass it to {@link
+     * #put(String, long, MediaType, Map, byte[])} to prevent storing responses that were computed before an
+     * invalidation.
+     *
+     * @return Generation.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Get a cached response.
+     *
+     * @param key Cache key.
+     * @return Cached response, or null if not cached.
+     */
+    @Nullable
+    public Entry get(@Nonnull final String key) {
+        assert key != null;
+        return entries.getIfPresent(key);
+    }
+
+    /**
+     * Store a response, unless the cache was invalidated since the response computation started.
+     *
+     * @param key        Cache key.
+     * @param generation Generation of the cache when the computation of the response started.
+     * @param mediaType  Media type of the response.
+     * @param headers    Response headers to replay, other than the ETag and content type and length.
+     * @param bytes      Serialized response.
+     * @return Stored response, with its ETag.
+     */
+    @Nonnull
+    public Entry put(
+            @Nonnull final String key,
+            final long generation,
+            @Nullable final MediaType mediaType,
+            @Nonnull final Map<String, List<String>> headers,
+            @Nonnull final byte[] bytes) {
+        assert key != null;
+        assert headers != null;
+        assert bytes != null;
+        final Entry entry = new Entry(bytes, mediaType, copyHeaders(headers), createEntityTag(bytes));
+        if (generation == this.generation.get()) {
+            entries.put(key, entry);
+
+            // Do not keep responses that were invalidated during the put.
+            if (generation != this.generation.get()) {
+                entries.asMap().remove(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Invalidate all cached responses of a path and its sub-paths.
+     *
+     * @param path Path, for example "/users" or "/users/123".
+     */
+    public void invalidate(@Nonnull final String path) {
+        assert path != null;
+        generation.incrementAndGet();
+        entries.asMap().keySet().removeIf(key -> key.startsWith(path) &&
+                ((key.length() == path.length()) || isPathSeparator(key.charAt(path.length()))));
+        LOG.debug("invalidate: path={}", path);
+    }
+
+    /**
+     * Invalidate all cached responses.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.invalidateAll();
+        LOG.debug("invalidateAll");
+    }
+
+    /**
+     * Return the number of cached responses.
+     *
+     * @return Number of cached responses.
+     */
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Create a strong ETag for a serialized response, using a fast non-cryptographic hash.
+     *
+     * @param bytes Serialized response.
+     * @return ETag.
+     */
+    @Nonnull
+    public static EntityTag createEntityTag(@Nonnull final byte[] bytes) {
+        assert bytes != null;
+        return new EntityTag(Hashing.murmur3_128().hashBytes(bytes).toString());
+    }
+
+    @Nonnull
+    private static Map<String, List<String>> copyHeaders(@Nonnull final Map<String, List<String>> headers) {
+        assert headers != null;
+        if (headers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, List<String>> copy = new LinkedHashMap<>(headers.size());
+        for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
+            copy.put(header.getKey(), Collections.unmodifiableList(new ArrayList<>(header.getValue())));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static boolean isPathSeparator(final char ch) {
+        return (ch == '/') || (ch == '?') || (ch == '\n');
+    }
+
+    /**
+     * Cached response.
+     */
+    public static final class Entry {
+        @Nonnull
+        private final byte[] bytes;
+        @Nullable
+        private final MediaType mediaType;
+        @Nonnull
+        private final Map<String, List<String>> headers;
+        @Nonnull
+        private final EntityTag entityTag;
+
+        private Entry(
+                @Nonnull final byte[] bytes,
+                @Nullable final MediaType mediaType,
+                @Nonnull final Map<String, List<String>> headers,
+                @Nonnull final EntityTag entityTag) {
+            assert bytes != null;
+            assert headers != null;
+            assert entityTag != null;
+            this.bytes = bytes;
+            this.mediaType = mediaType;
+            this.headers = headers;
+            this.entityTag = entityTag;
+        }
+
+        @Nonnull
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        @Nullable
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Return the response headers to replay, other than the ETag and content type and length.
+         *
+         * @return Unmodifiable map of header names to values.
+         */
+        @Nonnull
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        @Nonnull
+        public EntityTag getEntityTag() {
+            return entityTag;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * This filter caches the serialized responses of GET requests to resources marked with {@link CachedResponse}, in a
+ * {@link ResponseCache}. Cached responses are returned without invoking the resource or serializing the entity again.
+ * Responses carry a strong ETag, and requests with a matching "If-None-Match" header are answered with "304 Not
+ * Modified". The response headers set by the resource are stored with the response and replayed on every hit, and
+ * stored and cached responses carry a "Vary" header with the vary headers of the cache.
+ *
+ * The filter uses the default {@link ResponseCache} and is enabled by adding it to web.xml
+ *
+ * <pre>
+ *   &lt;context-param&gt;
+ *     &lt;param-name&gt;resteasy.providers&lt;/param-name&gt;
+ *     &lt;param-value&gt;com.tomtom.speedtools.rest.ResponseCacheFilter&lt;/param-value&gt;
+ *   &lt;/context-param&gt;
+ * </pre>
+ */
+@Provider
+@CachedResponse
+public class ResponseCacheFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCacheFilter.class);
+
+    private static final String PROPERTY_KEY = ResponseCacheFilter.class.getName() + ".key";
+    private static final String PROPERTY_GENERATION = ResponseCacheFilter.class.getName() + ".generation";
+    private static final String PROPERTY_STORE = ResponseCacheFilter.class.getName() + ".store";
+    private static final String PROPERTY_HEADERS = ResponseCacheFilter.class.getName() + ".headers";
+
+    // Response headers which are not replayed: they are set from the cache entry, or are specific to one response.
+    @Nonnull
+    private static final Set<String> EXCLUDED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        EXCLUDED_HEADERS.addAll(Arrays.asList(HttpHeaders.ETAG, HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH,
+                HttpHeaders.DATE, HttpHeaders.SET_COOKIE, "Connection", "Transfer-Encoding"));
+    }
+
+    @Nonnull
+    private final ResponseCache cache;
+
+    public ResponseCacheFilter() {
+        this(ResponseCache.getDefault());
+    }
+
+    public ResponseCacheFilter(@Nonnull final ResponseCache cache) {
+        super();
+        assert cache != null;
+        this.cache = cache;
+        LOG.debug("ResponseCacheFilter: created response cache filter");
+    }
+
+    @Override
+    public void filter(@Nonnull final ContainerRequestContext requestContext) {
+        assert requestContext != null;
+        if (!HttpMethod.GET.equals(requestContext.getMethod())) {
+            return;
+        }
+        final UriInfo uriInfo = requestContext.getUriInfo();
+        final String key = cache.createKey(uriInfo.getPath(), uriInfo.getQueryParameters(),
+                requestContext.getHeaders());
+        final ResponseCache.Entry entry = cache.get(key);
+        if (entry == null) {
+
+            // Not cached: have the response stored when it is serialized.
+            requestContext.setProperty(PROPERTY_KEY, key);
+            requestContext.setProperty(PROPERTY_GENERATION, cache.getGeneration());
+        } else if (matches(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), entry.getEntityTag())) {
+            LOG.trace("filter: not modified, key={}", key);
+            requestContext.abortWith(replayHeaders(Response.notModified(entry.getEntityTag()), entry).build());
+        } else {
+            LOG.trace("filter: cached, key={}", key);
+            requestContext.abortWith(replayHeaders(Response.ok(entry.getBytes(), entry.getMediaType()).
+                    tag(entry.getEntityTag()), entry).build());
+        }
+    }
+
+    @Override
+    public void filter(
+            @Nonnull final ContainerRequestContext requestContext,
+            @Nonnull final ContainerResponseContext responseContext) {
+        assert requestContext != null;
+        assert responseContext != null;
+
+        // Only store successful responses of resources which did not set their own ETag.
+        if ((requestContext.getProperty(PROPERTY_KEY) != null) &&
+                (responseContext.getStatus() == Status.OK.getStatusCode()) &&
+                responseContext.hasEntity() &&
+                (responseContext.getEntityTag() == null)) {
+            requestContext.setProperty(PROPERTY_STORE, Boolean.TRUE);
+            final List<String> varyHeaders = cache.getVaryHeaders();
+            if (!varyHeaders.isEmpty()) {
+                responseContext.getHeaders().add(HttpHeaders.VARY, String.join(", ", varyHeaders));
+            }
+            requestContext.setProperty(PROPERTY_HEADERS, getReplayedHeaders(responseContext.getStringHeaders()));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(@Nonnull final WriterInterceptorContext context) throws IOException {
+        assert context != null;
+        final Object key = context.getProperty(PROPERTY_KEY);
+        final Object generation = context.getProperty(PROPERTY_GENERATION);
+        final Object headers = context.getProperty(PROPERTY_HEADERS);
+        if ((context.getProperty(PROPERTY_STORE) == null) || !(key instanceof String) ||
+                !(generation instanceof Long) || !(headers instanceof Map)) {
+            context.proceed();
+            return;
+        }
+
+        // Serialize into a buffer, so the ETag header can be added before the body is sent.
+        final OutputStream entityStream = context.getOutputStream();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        context.setOutputStream(buffer);
+        try {
+            context.proceed();
+        } finally {
+            context.setOutputStream(entityStream);
+        }
+        @SuppressWarnings("unchecked")
+        final ResponseCache.Entry entry = cache.put((String) key, (Long) generation, context.getMediaType(),
+                (Map<String, List<String>>) headers, buffer.toByteArray());
+        context.getHeaders().putSingle(HttpHeaders.ETAG, entry.getEntityTag());
+        buffer.writeTo(entityStream);
+    }
+
+    /**
+     * Get the response headers which must be stored with a cached response, to be replayed on cache hits.
+     *
+     * @param headers Response headers.
+     * @return Headers to replay.
+     */
+    @Nonnull
+    static Map<String, List<String>> getReplayedHeaders(@Nonnull final MultivaluedMap<String, String> headers) {
+        assert headers != null;
+        final Map<String, List<String>> replayedHeaders = new LinkedHashMap<>();
+        for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!EXCLUDED_HEADERS.contains(header.getKey()) && !header.getValue().isEmpty()) {
+                replayedHeaders.put(header.getKey(), header.getValue());
+            }
+        }
+        return replayedHeaders.isEmpty() ? Collections.emptyMap() : replayedHeaders;
+    }
+
+    @Nonnull
+    private static ResponseBuilder replayHeaders(
+            @Nonnull final ResponseBuilder builder,
+            @Nonnull final ResponseCache.Entry entry) {
+        assert builder != null;
+        assert entry != null;
+        for (final Map.Entry<String, List<String>> header : entry.getHeaders().entrySet()) {
+            for (final String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Check if an "If-None-Match" header matches an ETag, using the weak comparison prescribed by RFC 7232.
+     *
+     * @param ifNoneMatch Value of the "If-None-Match" header, may be null.
+     * @param entityTag   ETag of the current response.
+     * @return True if the header matches the ETag.
+     */
+    static boolean matches(@Nullable final String ifNoneMatch, @Nonnull final EntityTag entityTag) {
+        assert entityTag != null;
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        final String opaqueTag = '"' + entityTag.getValue() + '"';
+        for (final String tag : ifNoneMatch.split(",")) {
+            final String trimmed = tag.trim();
+            if ("*".equals(trimmed) || opaqueTag.equals(trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tomtom.speedtools.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * This class provides the binary Smile and CBOR encodings for RestEasy. The encodings are selected by regular content
+ * negotiation: clients which send "Accept: application/x-jackson-smile" or "Accept: application/cbor" receive a binary
+ * response, whereas clients (like browsers) which accept JSON keep getting plain JSON from the
+ * {@link RestEasyJacksonContextResolver}.
+ *
+ * The binary mappers use the same configuration and custom serializers as the JSON mapper, so resources do not need to
+ * be changed. The provider is enabled by adding it to web.xml
+ *
+ * <pre>
+ *   &lt;context-param&gt;
+ *     &lt;param-name&gt;resteasy.providers&lt;/param-name&gt;
+ *     &lt;param-value&gt;com.tomtom.speedtools.rest.RestEasyJacksonBinaryProvider&lt;/param-value&gt;
+ *   &lt;/context-param&gt;
+ * </pre>
+ *
+ * Note that resources need to list the binary media types in their @Produces/@Consumes annotations (next to
+ * application/json) to have them selected.
+ */
+@Provider
+@Produces({RestEasyJacksonBinaryProvider.APPLICATION_SMILE, RestEasyJacksonBinaryProvider.APPLICATION_CBOR})
+@Consumes({RestEasyJacksonBinaryProvider.APPLICATION_SMILE, RestEasyJacksonBinaryProvider.APPLICATION_CBOR})
+public class RestEasyJacksonBinaryProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+    private static final Logger LOG = LoggerFactory.getLogger(RestEasyJacksonBinaryProvider.class);
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE_TYPE = MediaType.valueOf(APPLICATION_SMILE);
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(APPLICATION_CBOR);
+
+    public RestEasyJacksonBinaryProvider() {
+        LOG.debug("RestEasyJacksonBinaryProvider: created RestEasy binary provider");
+    }
+
+    @Override
+    public boolean isReadable(
+            @Nonnull final Class<?> type,
+            @Nullable final Type genericType,
+            @Nullable final Annotation[] annotations,
+            @Nullable final MediaType mediaType) {
+        return (getMapper(mediaType) != null) && isMappable(type);
+    }
+
+    @Nonnull
+    @Override
+    public Object readFrom(
+            @Nonnull final Class<Object> type,
+            @Nullable final Type genericType,
+            @Nullable final Annotation[] annotations,
+            @Nullable final MediaType mediaType,
+            @Nullable final MultivaluedMap<String, String> httpHeaders,
+            @Nonnull final InputStream entityStream) throws IOException {
+        assert type != null;
+        assert entityStream != null;
+        final ObjectMapper mapper = getMapper(mediaType);
+        assert mapper != null : "Not readable: " + mediaType;
+        final Type valueType = (genericType == null) ? type : genericType;
+        return mapper.readValue(entityStream, mapper.getTypeFactory().constructType(valueType));
+    }
+
+    @Override
+    public boolean isWriteable(
+            @Nonnull final Class<?> type,
+            @Nullable final Type genericType,
+            @Nullable final Annotation[] annotations,
+            @Nullable final MediaType mediaType) {
+        return (getMapper(mediaType) != null) && isMappable(type);
+    }
+
+    @Override
+    public long getSize(
+            @Nonnull final Object t,
+            @Nullable final Class<?> type,
+            @Nullable final Type genericType,
+            @Nullable final Annotation[] annotations,
+            @Nullable final MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(
+            @Nonnull final Object t,
+            @Nonnull final Class<?> type,
+            @Nullable final Type genericType,
+            @Nullable final Annotation[] annotations,
+            @Nullable final MediaType mediaType,
+            @Nullable final MultivaluedMap<String, Object> httpHeaders,
+            @Nonnull final OutputStream entityStream) throws IOException {
+        assert t != null;
+        assert type != null;
+        assert entityStream != null;
+        final ObjectMapper mapper = getMapper(mediaType);
+        assert mapper != null : "Not writeable: " + mediaType;
+
+        // The entity stream is owned by the container and must not be closed by the generator.
+        mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(entityStream, t);
+    }
+
+    /**
+     * Return the mapper for a specific media type.
+     *
+     * @param mediaType Media type.
+     * @return Smile or CBOR mapper, or null if the media type is not a binary Jackson type.
+     */
+    @Nullable
+    public static ObjectMapper getMapper(@Nullable final MediaType mediaType) {
+        if ((mediaType == null) || mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+            return null;
+        }
+        if (APPLICATION_SMILE_TYPE.isCompatible(mediaType)) {
+            return Json.getCurrentSmileObjectMapper();
+        }
+        if (APPLICATION_CBOR_TYPE.isCompatible(mediaType)) {
+            return Json.getCurrentCborObjectMapper();
+        }
+        return null;
+    }
+
+    private static boolean isMappable(@Nonnull final Class<?> type) {
+        assert type != null;
+
+        // Leave raw streams and bytes to the built-in RestEasy providers.
+        return !(InputStream.class.isAssignableFrom(type) ||
+                OutputStream.class.isAssignableFrom(type) ||
+                byte[].class.equals(type) ||
+                String.class.equals(type));
+    }
+}
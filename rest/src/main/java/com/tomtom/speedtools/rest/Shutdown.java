@@ -18,29 +18,80 @@ package com.tomtom.speedtools.rest;
 
 import akka.actor.ActorSystem;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * This class implements an event listener for the servlet context (defined in web.xml).
+ *
+ * When the context is destroyed, the service is shut down gracefully:
+ *
+ * <ol>
+ * <li>the {@link ResourceProcessor} stops admitting requests, and waits for the requests in flight to complete, for at
+ * most the drain timeout;</li>
+ * <li>the drain hooks are run, for example to flush queues of traces or metrics;</li>
+ * <li>the actor system is terminated.</li>
+ * </ol>
+ *
+ * The drain timeout defaults to {@link #DEFAULT_DRAIN_TIMEOUT_MS} and can be set in web.xml
+ *
+ * <pre>
+ *   &lt;context-param&gt;
+ *     &lt;param-name&gt;speedtools.shutdown.drainTimeoutMs&lt;/param-name&gt;
+ *     &lt;param-value&gt;30000&lt;/param-value&gt;
+ *   &lt;/context-param&gt;
+ * </pre>
  */
 @WebListener
 public class Shutdown implements ServletContextListener {
     private static final Logger LOG = LoggerFactory.getLogger(Shutdown.class);
 
+    public static final String PARAM_DRAIN_TIMEOUT_MS = "speedtools.shutdown.drainTimeoutMs";
+    public static final long DEFAULT_DRAIN_TIMEOUT_MS = 30000;
+
     private static final long WAIT_TIMEOUT_MS = 10000;
 
+    @Nonnull
+    private static final List<Runnable> drainHooks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Add a hook which is run after the requests in flight have been drained, before the actor system is terminated.
+     * For example, to flush traces:
+     *
+     * <pre>{@code
+     * Shutdown.addDrainHook(() -> TracerFactory.awaitTracesProcessed(5000));
+     * }</pre>
+     *
+     * @param hook Hook.
+     */
+    public static void addDrainHook(@Nonnull final Runnable hook) {
+        assert hook != null;
+        drainHooks.add(hook);
+    }
+
+    public static void removeDrainHook(@Nonnull final Runnable hook) {
+        assert hook != null;
+        drainHooks.remove(hook);
+    }
+
     @Override
     public void contextInitialized(@Nullable final ServletContextEvent sce) {
         LOG.info("contextInitialized: context initialized");
     }
 
-    @SuppressWarnings("WaitNotInLoop")
     @Override
     public void contextDestroyed(@Nullable final ServletContextEvent sce) {
         LOG.info("contextDestroyed: context destroyed");
@@ -49,11 +100,31 @@ public class Shutdown implements ServletContextListener {
         final Injector injector = InjectorRegistry.getInjector();
         if (injector != null) {
 
+            // Drain requests in flight.
+            if (injector.getExistingBinding(Key.get(ResourceProcessor.class)) != null) {
+                drain(injector.getInstance(ResourceProcessor.class), getDrainTimeoutMs(sce));
+            }
+
+            // Run drain hooks.
+            for (final Runnable hook : drainHooks) {
+                try {
+                    hook.run();
+                } catch (final RuntimeException e) {
+                    LOG.warn("contextDestroyed: drain hook failed: ", e);
+                }
+            }
+
             // Stop Akka.
             LOG.info("contextDestroyed: shutting down Akka");
             try {
                 final ActorSystem actorSystem = injector.getInstance(ActorSystem.class);
                 actorSystem.terminate();
+                Await.ready(actorSystem.whenTerminated(), Duration.create(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            } catch (final InterruptedException e) {
+                LOG.warn("contextDestroyed: interrupted while shutting down Akka");
+                Thread.currentThread().interrupt();
+            } catch (final TimeoutException e) {
+                LOG.warn("contextDestroyed: Akka did not shut down within {} msecs", WAIT_TIMEOUT_MS);
             } catch (final RuntimeException e) {
                 LOG.warn("contextDestroyed: shut down of Akka failed: ", e);
                 throw e;
@@ -63,4 +134,42 @@ public class Shutdown implements ServletContextListener {
             InjectorRegistry.clear();
         }
     }
+
+    /**
+     * Stop admitting requests and wait for the requests in flight to complete. Logs a summary of the requests that
+     * completed, were rejected, or were still in flight (and will be aborted) at the deadline.
+     *
+     * @param processor Resource processor.
+     * @param timeoutMs Drain timeout in msecs.
+     */
+    static void drain(
+            @Nonnull final ResourceProcessor processor,
+            final long timeoutMs) {
+        assert processor != null;
+        assert timeoutMs >= 0 : timeoutMs;
+        LOG.info("drain: draining {} requests in flight, timeout={} msecs", processor.getInFlightCount(), timeoutMs);
+        final long start = System.nanoTime();
+        processor.startDrain();
+        try {
+            processor.awaitDrained(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ignored) {
+            LOG.warn("drain: interrupted while draining");
+            Thread.currentThread().interrupt();
+        }
+        LOG.info("drain: drained in {} msecs, completed={}, rejected={}, aborted={}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), processor.getDrainCompletedCount(),
+                processor.getDrainRejectedCount(), processor.getInFlightCount());
+    }
+
+    private static long getDrainTimeoutMs(@Nullable final ServletContextEvent sce) {
+        final String value = (sce == null) ? null : sce.getServletContext().getInitParameter(PARAM_DRAIN_TIMEOUT_MS);
+        if (value != null) {
+            try {
+                return Math.max(0, Long.parseLong(value.trim()));
+            } catch (final NumberFormatException ignored) {
+                LOG.warn("getDrainTimeoutMs: invalid value for {}: {}", PARAM_DRAIN_TIMEOUT_MS, value);
+            }
+        }
+        return DEFAULT_DRAIN_TIMEOUT_MS;
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tomtom.speedtools.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Streams a large collection as a JSON response, without materializing the collection or the response body in memory.
+ * Entities are pulled from a cursor one at a time, mapped to their DTO and written to the response immediately.
+ *
+ * Because the next entity is only pulled after the previous one has been written, a slow client slows down reading
+ * the cursor (back-pressure), rather than causing the collection to be buffered. The output is flushed after every
+ * {@code flushInterval} elements, so clients receive the elements in chunks.
+ *
+ * Example, streaming a MongoDB cursor:
+ * <pre>{@code
+ * final DBCursor cursor = collection.find(query.toDBObject());
+ * response.resume(new StreamingJsonOutput<>(cursor,
+ *         dbObject -> new FooDTO(mapper.fromDb(dbObject)), Format.NDJSON, 100).toResponse());
+ * }</pre>
+ *
+ * The cursor is closed after the output is written if it implements {@link AutoCloseable}. The output can be written
+ * only once. Note that the response status is sent before the first element is read, so errors while streaming can
+ * only be signaled by aborting the response (which leaves an incomplete JSON array, or an incomplete last line).
+ *
+ * @param <T> Entity type.
+ */
+public final class StreamingJsonOutput<T> implements StreamingOutput {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingJsonOutput.class);
+
+    /**
+     * Media type of newline-delimited JSON.
+     */
+    @Nonnull
+    public static final MediaType APPLICATION_NDJSON_TYPE = new MediaType("application", "x-ndjson");
+
+    /**
+     * Output format.
+     */
+    public enum Format {
+
+        /**
+         * Standard JSON array of elements.
+         */
+        JSON_ARRAY,
+
+        /**
+         * Newline-delimited JSON: every element is written on a separate line.
+         */
+        NDJSON
+    }
+
+    @Nonnull
+    private final Iterator<? extends T> cursor;
+    @Nonnull
+    private final Function<? super T, ?> mapper;
+    @Nonnull
+    private final Format format;
+    private final int flushInterval;
+    @Nonnull
+    private final AtomicBoolean written = new AtomicBoolean(false);
+
+    /**
+     * Create a streaming JSON output.
+     *
+     * @param cursor        Cursor to pull the entities from. Closed after writing if it is {@link AutoCloseable}.
+     * @param mapper        Maps an entity to the DTO which is serialized.
+     * @param format        Output format.
+     * @param flushInterval Number of elements after which the output is flushed, &gt;= 0. Use 0 to flush only at
+     *                      the end.
+     */
+    public StreamingJsonOutput(
+            @Nonnull final Iterator<? extends T> cursor,
+            @Nonnull final Function<? super T, ?> mapper,
+            @Nonnull final Format format,
+            final int flushInterval) {
+        assert cursor != null;
+        assert mapper != null;
+        assert format != null;
+        assert flushInterval >= 0 : flushInterval;
+        this.cursor = cursor;
+        this.mapper = mapper;
+        this.format = format;
+        this.flushInterval = flushInterval;
+    }
+
+    @Nonnull
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Return the media type of the output.
+     *
+     * @return {@link MediaType#APPLICATION_JSON_TYPE} or {@link #APPLICATION_NDJSON_TYPE}.
+     */
+    @Nonnull
+    public MediaType getMediaType() {
+        return (format == Format.NDJSON) ? APPLICATION_NDJSON_TYPE : MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    /**
+     * Create a 200 response that streams this output.
+     *
+     * @return Response.
+     */
+    @Nonnull
+    public Response toResponse() {
+        return Response.ok(this, getMediaType()).build();
+    }
+
+    @Override
+    public void write(@Nonnull final OutputStream output) throws IOException {
+        assert output != null;
+        if (!written.compareAndSet(false, true)) {
+            throw new IllegalStateException("Output can only be written once");
+        }
+        int count = 0;
+        try {
+
+            // Flushing is controlled by the flush interval, not by the writer.
+            final ObjectWriter writer = Json.getCurrentJsonObjectMapper().writer().
+                    without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = writer.getFactory().createGenerator(output)) {
+
+                // The container owns the output stream. Elements are separated by newlines (NDJSON) or commas only.
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                if (format == Format.JSON_ARRAY) {
+                    generator.writeStartArray();
+                }
+                while (cursor.hasNext()) {
+                    writer.writeValue(generator, mapper.apply(cursor.next()));
+                    if (format == Format.NDJSON) {
+                        generator.writeRaw('\n');
+                    }
+                    ++count;
+                    if ((flushInterval > 0) && ((count % flushInterval) == 0)) {
+                        generator.flush();
+                    }
+                }
+                if (format == Format.JSON_ARRAY) {
+                    generator.writeEndArray();
+                }
+            }
+            output.flush();
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn("write: Streaming aborted after {} elements, error={}", count, e.getMessage());
+            throw e;
+        } finally {
+            close();
+        }
+    }
+
+    private void close() {
+        if (cursor instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) cursor).close();
+            } catch (final Exception e) {
+                LOG.warn("close: Cannot close cursor", e);
+            }
+        }
+    }
+}
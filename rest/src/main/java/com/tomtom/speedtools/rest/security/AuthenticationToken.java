@@ -31,6 +31,10 @@ import java.util.UUID;
  * Authentication tokens are used to authenticate a device which needs to use an API, if you do not wish to send
  * username and password credentials.
  *
+ * The token hash is either a legacy, hex-encoded salted SHA-1 hash (with the salt stored separately), or an encoded
+ * hash produced by a {@link CredentialHasher} (with an empty salt, as the salt is part of the encoded hash). Use a
+ * {@link CredentialVerifier} to verify plaintext tokens and upgrade legacy hashes.
+ *
  * Constructor: {@link #AuthenticationToken}
  */
 public final class AuthenticationToken extends Credential {
@@ -58,7 +62,8 @@ public final class AuthenticationToken extends Credential {
      * @param tokenHash                  Hashed authentication token. Cannot be empty. Must be a hex-encoded string (see
      *                                   {@link HexString#getHexByteArray(String)} for further requirements on
      *                                   hex-encoded values). A good value would be, for example, new
-     *                                   Uid().toHexString().
+     *                                   Uid().toHexString(). Can also be an encoded hash produced by a
+     *                                   {@link CredentialHasher}.
      * @param salt                       The salt used to hash this authentication token. Cannot be {@code null}, but
      *                                   can be the empty string. If not empty, must be a hex-encoded string (see {@link
      *                                   HexString#getHexByteArray(String)} for further requirements on non-empty salt
@@ -75,7 +80,9 @@ public final class AuthenticationToken extends Credential {
         assert expiry != null;
         assert tokenHash != null;
         assert !tokenHash.isEmpty();
-        assert HexString.getHexByteArray(tokenHash) != null; // Ensure tokenHash is a valid hex string.
+        //noinspection ConstantConditions
+        assert CredentialVerifier.isEncodedHash(tokenHash) ||
+                (HexString.getHexByteArray(tokenHash) != null); // Ensure tokenHash is a valid hex string.
         assert salt != null;
         //noinspection ConstantConditions
         assert salt.isEmpty() || (HexString.getHexByteArray(salt) != null); // Ensure tokenHash is a valid hex string.
@@ -166,6 +173,42 @@ public final class AuthenticationToken extends Credential {
         return new AuthenticationTokenHolder(authenticationToken, plaintextToken);
     }
 
+    /**
+     * Generates a new authentication token, like {@link #generateAuthenticationToken()}, but stores the token hash
+     * produced by the given {@link CredentialHasher}, rather than a salted SHA-1 hash.
+     *
+     * @param hasher Hasher to hash the plaintext token with.
+     * @return Holder object containing both the newly created {@code AuthenticationToken} as well as the plaintext
+     * token.
+     */
+    @Nonnull
+    public static AuthenticationTokenHolder generateAuthenticationToken(@Nonnull final CredentialHasher hasher) {
+        assert hasher != null;
+        final String plaintextToken = UUID.randomUUID().toString().toUpperCase();
+
+        final AuthenticationToken authenticationToken =
+                new AuthenticationToken(
+                        UTCTime.now(),
+                        TOKEN_LIFETIME,
+                        hasher.hash(normalizePlaintextToken(plaintextToken)),
+                        "");
+
+        return new AuthenticationTokenHolder(authenticationToken, plaintextToken);
+    }
+
+    /**
+     * Normalize a plaintext token before it is hashed. Tokens are case insensitive, so they are converted to upper
+     * case.
+     *
+     * @param plaintextToken Plaintext token.
+     * @return Normalized plaintext token.
+     */
+    @Nonnull
+    static String normalizePlaintextToken(@Nonnull final String plaintextToken) {
+        assert plaintextToken != null;
+        return plaintextToken.toUpperCase();
+    }
+
     /**
      * Hashes the passed in token and returns the hashed token. If {@code salt} is given, then this salt will be used
      * during hashing, otherwise, salt will be generated on the spot while hashing.
@@ -183,7 +226,7 @@ public final class AuthenticationToken extends Credential {
     private static SHA1Hash hashToken(@Nonnull final String plaintextToken, @Nullable final String salt) {
         assert plaintextToken != null;
 
-        final String plaintextTokenToHash = plaintextToken.toUpperCase();
+        final String plaintextTokenToHash = normalizePlaintextToken(plaintextToken);
 
         if (salt == null) {
             return SHA1Hash.saltedHash(plaintextTokenToHash);
@@ -259,6 +302,20 @@ public final class AuthenticationToken extends Credential {
                 hashToken(plaintextToken, salt).toString(), salt);
     }
 
+    /**
+     * Sets an encoded hash produced by a {@link CredentialHasher}. The salt is cleared, as it is part of the encoded
+     * hash.
+     *
+     * @param encodedHash Encoded hash.
+     * @return New immutable object.
+     */
+    @Nonnull
+    public AuthenticationToken withHashedToken(@Nonnull final String encodedHash) {
+        assert CredentialVerifier.isEncodedHash(encodedHash);
+        return new AuthenticationToken(credentialUpdateTime, credentialStatus, credentialStatusUpdateTime, expiry,
+                encodedHash, "");
+    }
+
     /**
      * Setter for {@link #getSalt}.
      *
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest.security;
+
+import com.tomtom.speedtools.json.Json;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter per client key, used by the {@link RateLimitFeature}.
+ *
+ * Every client has a bucket of {@code burst} tokens, which is refilled at {@code ratePerSec} tokens per second. A
+ * request takes one token, and is denied if the bucket is empty.
+ *
+ * The bucket of a client is a single {@link AtomicLong}, holding the time at which the bucket will be full again
+ * (the "theoretical arrival time" of the generic cell rate algorithm, which is equivalent to a token bucket). Taking a
+ * token is a single compare-and-set, so no locks are used. The buckets are spread over a number of shards, and the
+ * shards are swept for idle buckets one at a time, after every {@link #SWEEP_INTERVAL} requests. A bucket is idle if it
+ * has been full for longer than the idle time, so evicting it does not change the rate limit of its client. (A request
+ * which takes a token while its bucket is being evicted may, rarely, not be counted.)
+ */
+public final class ClientRateLimiter {
+    public static final double DEFAULT_RATE_PER_SEC = 10.0;
+    public static final int DEFAULT_BURST = 20;
+    public static final long DEFAULT_IDLE_MSECS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Number of requests after which a shard is swept for idle buckets.
+     */
+    public static final int SWEEP_INTERVAL = 1024;
+
+    private static final int NR_SHARDS = 64;     // Must be a power of 2.
+    private static final long NANOS_PER_SEC = TimeUnit.SECONDS.toNanos(1);
+
+    private final double ratePerSec;
+    private final int burst;
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final long idleNanos;
+    @Nonnull
+    private final ConcurrentHashMap<String, AtomicLong>[] shards;
+    @Nonnull
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Create a rate limiter.
+     *
+     * @param ratePerSec Sustained number of requests per second per client, &gt; 0.
+     * @param burst      Maximum number of requests a client can make at once, &gt; 0.
+     * @param idleMsecs  Time in msecs after which the bucket of an inactive client is evicted, &gt;= 0.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ClientRateLimiter(
+            final double ratePerSec,
+            final int burst,
+            final long idleMsecs) {
+        assert ratePerSec > 0.0 : ratePerSec;
+        assert burst > 0 : burst;
+        assert idleMsecs >= 0 : idleMsecs;
+        this.ratePerSec = ratePerSec;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, Math.round(NANOS_PER_SEC / ratePerSec));
+        this.capacityNanos = intervalNanos * burst;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMsecs);
+        this.shards = new ConcurrentHashMap[NR_SHARDS];
+        for (int i = 0; i < NR_SHARDS; ++i) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public ClientRateLimiter() {
+        this(DEFAULT_RATE_PER_SEC, DEFAULT_BURST, DEFAULT_IDLE_MSECS);
+    }
+
+    public double getRatePerSec() {
+        return ratePerSec;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Take a token from the bucket of a client.
+     *
+     * @param key Client key.
+     * @return Result, which tells whether the request is allowed.
+     */
+    @Nonnull
+    public Result tryAcquire(@Nonnull final String key) {
+        assert key != null;
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    /**
+     * Package private for unit tests.
+     */
+    @Nonnull
+    Result tryAcquire(
+            @Nonnull final String key,
+            final long nowNanos) {
+        assert key != null;
+        final long count = requests.incrementAndGet();
+        if ((count % SWEEP_INTERVAL) == 0) {
+            sweep((int) ((count / SWEEP_INTERVAL) % NR_SHARDS), nowNanos);
+        }
+
+        final AtomicLong bucket = getShard(key).computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        while (true) {
+            final long tat = bucket.get();
+            final long base = ((tat - nowNanos) > 0) ? tat : nowNanos;
+            final long newTat = base + intervalNanos;
+            final long waitNanos = newTat - nowNanos;
+            if (waitNanos > capacityNanos) {
+                return new Result(false, burst, 0, toSecs(base - nowNanos), toSecs(waitNanos - capacityNanos));
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                final int remaining = (int) ((capacityNanos - waitNanos) / intervalNanos);
+                return new Result(true, burst, remaining, toSecs(waitNanos), 0);
+            }
+        }
+    }
+
+    /**
+     * Return the number of client buckets.
+     *
+     * @return Number of buckets.
+     */
+    public int size() {
+        int size = 0;
+        for (final ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            size = size + shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Remove all idle buckets. This happens automatically, so it is normally not needed to call this method.
+     */
+    public void evictIdle() {
+        final long now = System.nanoTime();
+        for (int i = 0; i < NR_SHARDS; ++i) {
+            sweep(i, now);
+        }
+    }
+
+    private void sweep(
+            final int shard,
+            final long nowNanos) {
+        shards[shard].values().removeIf(bucket -> (nowNanos - bucket.get()) > idleNanos);
+    }
+
+    @Nonnull
+    private ConcurrentHashMap<String, AtomicLong> getShard(@Nonnull final String key) {
+        final int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (NR_SHARDS - 1)];
+    }
+
+    private static int toSecs(final long nanos) {
+        return (int) ((nanos + NANOS_PER_SEC - 1) / NANOS_PER_SEC);
+    }
+
+    /**
+     * Result of {@link #tryAcquire(String)}.
+     */
+    public static final class Result {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final int resetSecs;
+        private final int retryAfterSecs;
+
+        private Result(
+                final boolean allowed,
+                final int limit,
+                final int remaining,
+                final int resetSecs,
+                final int retryAfterSecs) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetSecs = resetSecs;
+            this.retryAfterSecs = retryAfterSecs;
+        }
+
+        /**
+         * Return whether the request is allowed.
+         *
+         * @return True if allowed.
+         */
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        /**
+         * Return the maximum number of requests a client can make at once (the burst size).
+         *
+         * @return Limit.
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * Return the number of requests the client can still make at once.
+         *
+         * @return Remaining requests, &gt;= 0.
+         */
+        public int getRemaining() {
+            return remaining;
+        }
+
+        /**
+         * Return the number of seconds until the bucket of the client is full again.
+         *
+         * @return Number of seconds, &gt;= 0.
+         */
+        public int getResetSecs() {
+            return resetSecs;
+        }
+
+        /**
+         * Return the number of seconds after which a denied request may be retried.
+         *
+         * @return Number of seconds, &gt;= 0. 0 if the request is allowed.
+         */
+        public int getRetryAfterSecs() {
+            return retryAfterSecs;
+        }
+
+        @Override
+        @Nonnull
+        public String toString() {
+            return Json.toStringJson(this);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Interface for hashing credentials, such as passwords and authentication tokens, for storage.
+ *
+ * A hasher produces self-describing encoded hashes of the form "$algorithm$parameters$salt$hash", so the hash can be
+ * verified later, even after the cost parameters of the hasher have been changed. Encoded hashes always start with
+ * {@link #ENCODED_HASH_PREFIX}, which distinguishes them from legacy, hex-encoded hashes.
+ */
+public interface CredentialHasher {
+
+    /**
+     * Prefix of encoded hashes.
+     */
+    char ENCODED_HASH_PREFIX = '$';
+
+    /**
+     * Algorithm identifier, used in the encoded hash.
+     *
+     * @return Algorithm identifier, such as "pbkdf2-sha256".
+     */
+    @Nonnull
+    String getAlgorithm();
+
+    /**
+     * Hash a plaintext credential, using a newly generated salt.
+     *
+     * @param plaintext Plaintext credential.
+     * @return Encoded hash, including algorithm, cost parameters and salt.
+     */
+    @Nonnull
+    String hash(@Nonnull String plaintext);
+
+    /**
+     * Verify a plaintext credential against an encoded hash produced by this hasher.
+     *
+     * @param plaintext   Plaintext credential.
+     * @param encodedHash Encoded hash.
+     * @return True if the plaintext matches the hash. False if it doesn't, or if the hash was not produced by this
+     * hasher.
+     */
+    boolean verify(@Nonnull String plaintext, @Nonnull String encodedHash);
+
+    /**
+     * Return whether an encoded hash should be replaced by a new hash. This is the case if the hash was produced by
+     * another algorithm or with weaker cost parameters than the current ones.
+     *
+     * @param encodedHash Encoded hash.
+     * @return True if the credential should be rehashed on the next successful verification.
+     */
+    boolean needsRehash(@Nonnull String encodedHash);
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.tomtom.speedtools.checksums.SHA1Hash;
+import com.tomtom.speedtools.crypto.Crypto;
+import com.tomtom.speedtools.crypto.DigestPool;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Verifies plaintext credentials against stored {@link AuthenticationToken}s and {@link Password}s.
+ *
+ * Credentials hashed with a {@link CredentialHasher} are verified by that hasher. Legacy credentials are verified with
+ * their original scheme: salted SHA-1 ({@link SHA1Hash}) for authentication tokens and SHA-256 ({@link Crypto#hash})
+ * for passwords. When a legacy credential, or a credential with outdated cost parameters, is verified successfully,
+ * the result contains an upgraded credential which the caller should store (rehash-on-login).
+ *
+ * Strong hashes are deliberately slow. To keep repeated authentications with the same token cheap, successful
+ * verifications are remembered in a bounded cache with a limited lifetime. The cache is keyed by the stored hash and
+ * holds a SHA-256 fingerprint of the stored hash and the plaintext, never the plaintext itself. A cache hit costs a
+ * single SHA-256 computation.
+ *
+ * This class is thread-safe.
+ */
+public final class CredentialVerifier {
+    private static final Logger LOG = LoggerFactory.getLogger(CredentialVerifier.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    @Nonnull
+    public static final Duration DEFAULT_CACHE_TIME_TO_LIVE = Duration.standardMinutes(5);
+
+    @Nonnull
+    private final CredentialHasher hasher;
+    @Nonnull
+    private final Cache<String, byte[]> verified;
+
+    /**
+     * Create a verifier.
+     *
+     * @param hasher          Hasher for new and upgraded credentials.
+     * @param maxCacheSize    Maximum number of cached verifications, &gt;= 0. Use 0 to disable the cache.
+     * @param cacheTimeToLive Time a verification is cached after it was computed.
+     */
+    public CredentialVerifier(
+            @Nonnull final CredentialHasher hasher,
+            final int maxCacheSize,
+            @Nonnull final Duration cacheTimeToLive) {
+        super();
+        assert hasher != null;
+        assert maxCacheSize >= 0 : maxCacheSize;
+        assert cacheTimeToLive != null;
+        this.hasher = hasher;
+        this.verified = CacheBuilder.newBuilder().
+                maximumSize(maxCacheSize).
+                expireAfterWrite(cacheTimeToLive.getMillis(), TimeUnit.MILLISECONDS).
+                build();
+    }
+
+    public CredentialVerifier(@Nonnull final CredentialHasher hasher) {
+        this(hasher, DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TIME_TO_LIVE);
+    }
+
+    @Nonnull
+    public CredentialHasher getHasher() {
+        return hasher;
+    }
+
+    /**
+     * Verify a plaintext token against an authentication token. This does not check the validity period of the token.
+     *
+     * @param authenticationToken Stored authentication token.
+     * @param plaintextToken      Plaintext token, as presented by the client.
+     * @return Verification result, with an upgraded token if the stored hash should be replaced.
+     */
+    @Nonnull
+    public Result<AuthenticationToken> verify(
+            @Nonnull final AuthenticationToken authenticationToken,
+            @Nonnull final String plaintextToken) {
+        assert authenticationToken != null;
+        assert plaintextToken != null;
+
+        final String normalized = AuthenticationToken.normalizePlaintextToken(plaintextToken);
+        final String storedHash = authenticationToken.getTokenHash();
+        final boolean legacy = !isEncodedHash(storedHash);
+        if (!isVerified(storedHash, normalized, () -> legacy ?
+                equalsConstantTime(storedHash,
+                        SHA1Hash.saltedHash(normalized, authenticationToken.getSalt()).toString()) :
+                hasher.verify(normalized, storedHash))) {
+            return Result.notVerified();
+        }
+        if (legacy || hasher.needsRehash(storedHash)) {
+            LOG.debug("verify: Upgrading authentication token hash to {}", hasher.getAlgorithm());
+            return Result.verified(authenticationToken.withHashedToken(hasher.hash(normalized)));
+        }
+        return Result.verified(null);
+    }
+
+    /**
+     * Verify a plaintext password against a stored password.
+     *
+     * @param password          Stored password.
+     * @param plaintextPassword Plaintext password.
+     * @return Verification result, with an upgraded password if the stored hash should be replaced.
+     */
+    @Nonnull
+    public Result<Password> verify(@Nonnull final Password password, @Nonnull final String plaintextPassword) {
+        assert password != null;
+        assert plaintextPassword != null;
+
+        final String storedHash = password.getHash();
+        final boolean legacy = !isEncodedHash(storedHash);
+        if (!isVerified(storedHash, plaintextPassword, () -> legacy ?
+                (!plaintextPassword.isEmpty() && equalsConstantTime(storedHash, Crypto.hash(plaintextPassword))) :
+                hasher.verify(plaintextPassword, storedHash))) {
+            return Result.notVerified();
+        }
+        if (legacy || hasher.needsRehash(storedHash)) {
+            LOG.debug("verify: Upgrading password hash to {}", hasher.getAlgorithm());
+            return Result.verified(password.withHash(hasher.hash(plaintextPassword)));
+        }
+        return Result.verified(null);
+    }
+
+    /**
+     * Remove a cached verification, for example when a token is revoked. Note that revoked credentials are
+     * otherwise accepted until the cached verification expires.
+     *
+     * @param storedHash Stored hash of the credential.
+     */
+    public void invalidate(@Nonnull final String storedHash) {
+        assert storedHash != null;
+        verified.invalidate(storedHash);
+    }
+
+    /**
+     * Remove all cached verifications.
+     */
+    public void invalidateAll() {
+        verified.invalidateAll();
+    }
+
+    /**
+     * Return whether a hash is an encoded hash, produced by a {@link CredentialHasher}, rather than a legacy hash.
+     *
+     * @param hash Stored hash.
+     * @return True if the hash is an encoded hash.
+     */
+    public static boolean isEncodedHash(@Nonnull final String hash) {
+        assert hash != null;
+        return !hash.isEmpty() && (hash.charAt(0) == CredentialHasher.ENCODED_HASH_PREFIX);
+    }
+
+    private boolean isVerified(
+            @Nonnull final String storedHash,
+            @Nonnull final String plaintext,
+            @Nonnull final BooleanSupplier verification) {
+        assert storedHash != null;
+        assert plaintext != null;
+        assert verification != null;
+
+        final byte[] fingerprint = fingerprint(storedHash, plaintext);
+        final byte[] cached = verified.getIfPresent(storedHash);
+        if ((cached != null) && MessageDigest.isEqual(cached, fingerprint)) {
+            return true;
+        }
+        if (!verification.getAsBoolean()) {
+            return false;
+        }
+        verified.put(storedHash, fingerprint);
+        return true;
+    }
+
+    @Nonnull
+    private static byte[] fingerprint(@Nonnull final String storedHash, @Nonnull final String plaintext) {
+        assert storedHash != null;
+        assert plaintext != null;
+        try {
+            final MessageDigest digest = DigestPool.getSHA256Digest();
+            digest.update(storedHash.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(plaintext.getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (final NoSuchAlgorithmException e) {
+            LOG.error("fingerprint: Cannot get message digest, algorithm={}", DigestPool.SHA256_ALGORITHM, e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean equalsConstantTime(@Nonnull final String expected, @Nonnull final String actual) {
+        assert expected != null;
+        assert actual != null;
+        return MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Result of a verification. (Immutable)
+     *
+     * @param <T> Credential type.
+     */
+    public static final class Result<T extends Credential> {
+        private final boolean verified;
+        @Nullable
+        private final T upgradedCredential;
+
+        private Result(final boolean verified, @Nullable final T upgradedCredential) {
+            this.verified = verified;
+            this.upgradedCredential = upgradedCredential;
+        }
+
+        @Nonnull
+        private static <T extends Credential> Result<T> verified(@Nullable final T upgradedCredential) {
+            return new Result<>(true, upgradedCredential);
+        }
+
+        @Nonnull
+        private static <T extends Credential> Result<T> notVerified() {
+            return new Result<>(false, null);
+        }
+
+        /**
+         * Return whether the plaintext credential matched the stored credential.
+         *
+         * @return True if verified.
+         */
+        public boolean isVerified() {
+            return verified;
+        }
+
+        /**
+         * Return the credential with an upgraded hash, which should replace the stored credential. Only available
+         * for verified credentials.
+         *
+         * @return Upgraded credential, or null if the stored credential is up-to-date (or was not verified).
+         */
+        @Nullable
+        public T getUpgradedCredential() {
+            return upgradedCredential;
+        }
+    }
+}
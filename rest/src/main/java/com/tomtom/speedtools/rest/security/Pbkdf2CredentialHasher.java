@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import com.tomtom.speedtools.checksums.HexString;
+import com.tomtom.speedtools.crypto.DigestPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Credential hasher based on PBKDF2 with HMAC-SHA256 (RFC 8018). The cost is tuned by the number of iterations.
+ *
+ * Encoded hashes have the form "$pbkdf2-sha256$iterations$salt$hash", with salt and hash hex-encoded.
+ */
+public final class Pbkdf2CredentialHasher implements CredentialHasher {
+    private static final Logger LOG = LoggerFactory.getLogger(Pbkdf2CredentialHasher.class);
+
+    @Nonnull
+    public static final String ALGORITHM = "pbkdf2-sha256";
+
+    /**
+     * Default number of iterations, following the OWASP recommendation for PBKDF2-HMAC-SHA256.
+     */
+    public static final int DEFAULT_ITERATIONS = 600000;
+
+    @Nonnull
+    private static final String KEY_FACTORY_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH_BITS = 256;
+    private static final int NR_OF_FIELDS = 5;
+
+    private final int iterations;
+
+    /**
+     * Create a hasher.
+     *
+     * @param iterations Number of PBKDF2 iterations, &gt; 0. Higher is more secure, but slower.
+     */
+    public Pbkdf2CredentialHasher(final int iterations) {
+        super();
+        assert iterations > 0 : iterations;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Create a hasher with {@link #DEFAULT_ITERATIONS}.
+     */
+    public Pbkdf2CredentialHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Nonnull
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Nonnull
+    @Override
+    public String hash(@Nonnull final String plaintext) {
+        assert plaintext != null;
+        final byte[] salt = new byte[SALT_LENGTH];
+        try {
+            DigestPool.getSHA1PRNGRandom().nextBytes(salt);
+        } catch (final NoSuchAlgorithmException e) {
+            LOG.error("hash: Cannot generate salt, algorithm={}", DigestPool.SHA1PRNG_ALGORITHM, e);
+            throw new IllegalStateException(e);
+        }
+        final byte[] key = deriveKey(plaintext, salt, iterations);
+        return ENCODED_HASH_PREFIX + ALGORITHM + ENCODED_HASH_PREFIX + iterations + ENCODED_HASH_PREFIX +
+                HexString.getHexString(salt) + ENCODED_HASH_PREFIX + HexString.getHexString(key);
+    }
+
+    @Override
+    public boolean verify(@Nonnull final String plaintext, @Nonnull final String encodedHash) {
+        assert plaintext != null;
+        assert encodedHash != null;
+        final String[] fields = parse(encodedHash);
+        if (fields == null) {
+            return false;
+        }
+        try {
+            final int hashIterations = Integer.parseInt(fields[2]);
+            final byte[] salt = HexString.getHexByteArray(fields[3]);
+            final byte[] expected = HexString.getHexByteArray(fields[4]);
+            final byte[] actual = deriveKey(plaintext, salt, hashIterations);
+
+            // Compare in constant time.
+            return MessageDigest.isEqual(expected, actual);
+        } catch (final IllegalArgumentException ignored) {
+            LOG.warn("verify: Malformed {} hash", ALGORITHM);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(@Nonnull final String encodedHash) {
+        assert encodedHash != null;
+        final String[] fields = parse(encodedHash);
+        if (fields == null) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(fields[2]) < iterations;
+        } catch (final NumberFormatException ignored) {
+            return true;
+        }
+    }
+
+    /**
+     * Split an encoded hash in its fields.
+     *
+     * @param encodedHash Encoded hash.
+     * @return Fields ("", algorithm, iterations, salt, hash), or null if this is not a hash of this hasher.
+     */
+    @Nullable
+    private static String[] parse(@Nonnull final String encodedHash) {
+        assert encodedHash != null;
+        final String[] fields = encodedHash.split("\\" + ENCODED_HASH_PREFIX);
+        if ((fields.length != NR_OF_FIELDS) || !fields[0].isEmpty() || !ALGORITHM.equals(fields[1]) ||
+                fields[3].isEmpty() || fields[4].isEmpty()) {
+            return null;
+        }
+        return fields;
+    }
+
+    @Nonnull
+    private static byte[] deriveKey(@Nonnull final String plaintext, @Nonnull final byte[] salt, final int iterations) {
+        assert plaintext != null;
+        assert salt != null;
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Invalid number of iterations: " + iterations);
+        }
+        final PBEKeySpec spec = new PBEKeySpec(plaintext.toCharArray(), salt, iterations, KEY_LENGTH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(KEY_FACTORY_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (final GeneralSecurityException e) {
+            LOG.error("deriveKey: Cannot derive key, algorithm={}", KEY_FACTORY_ALGORITHM, e);
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
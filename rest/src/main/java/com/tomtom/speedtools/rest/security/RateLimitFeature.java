@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest.security;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * This class adds rate limiting per client to all resources, see {@link RateLimitFilter}. By default, a client can
+ * make {@link ClientRateLimiter#DEFAULT_BURST} requests at once and {@link ClientRateLimiter#DEFAULT_RATE_PER_SEC}
+ * requests per second sustained.
+ *
+ * <strong>Warning:</strong> clients without a principal or valid API key are identified by their remote IP address.
+ * Behind a front-proxy (see {@link com.tomtom.speedtools.rest.ProxyAwareUriBuilderFactory}), that is the address of the
+ * proxy, so all such clients share a single bucket and, with the default limits, together get only {@link
+ * ClientRateLimiter#DEFAULT_RATE_PER_SEC} requests per second. In that case, set limits which suit the total anonymous
+ * traffic, or override {@link RateLimitFilter#getClientKey(javax.ws.rs.container.ContainerRequestContext)} to identify
+ * clients by a header set by the proxy.
+ *
+ * The feature is enabled by adding it to web.xml
+ *
+ * <pre>
+ *   &lt;context-param&gt;
+ *     &lt;param-name&gt;resteasy.providers&lt;/param-name&gt;
+ *     &lt;param-value&gt;com.tomtom.speedtools.rest.security.RateLimitFeature&lt;/param-value&gt;
+ *   &lt;/context-param&gt;
+ * </pre>
+ *
+ * To use other limits, or to identify clients by their (validated) API key, register a subclass which calls {@link
+ * #RateLimitFeature(RateLimitFilter)} instead.
+ */
+@Provider
+public class RateLimitFeature implements Feature {
+
+    @Nonnull
+    private final RateLimitFilter filter;
+
+    public RateLimitFeature() {
+        this(new RateLimitFilter(new ClientRateLimiter()));
+    }
+
+    protected RateLimitFeature(@Nonnull final RateLimitFilter filter) {
+        super();
+        assert filter != null;
+        this.filter = filter;
+    }
+
+    @Override
+    public boolean configure(@Nonnull final FeatureContext context) {
+
+        // Rate limit after authentication, so clients can be identified by their principal.
+        context.register(filter, Priorities.AUTHORIZATION);
+        return true;
+    }
+}
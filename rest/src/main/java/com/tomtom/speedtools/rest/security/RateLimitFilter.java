@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.tomtom.speedtools.rest.security;
+
+import com.tomtom.speedtools.apivalidation.exceptions.ApiTooManyRequestsException;
+import com.tomtom.speedtools.rest.GeneralExceptionMapper;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.SecurityContext;
+import java.security.Principal;
+import java.util.function.Predicate;
+
+/**
+ * This filter rate limits requests per client, using a {@link ClientRateLimiter}. It is registered by the {@link
+ * RateLimitFeature}.
+ *
+ * Clients are identified by the authenticated principal of the request if there is one, otherwise by their API key
+ * header if the key is valid, otherwise by their remote IP address. API keys are only used after they have been
+ * validated (see {@link #isValidApiKey(String)}): otherwise clients could bypass the limit by sending a new key with
+ * every request, or exhaust the limit of another client by sending its key. By default, no API key is valid.
+ *
+ * Denied requests get a "429 Too Many Requests" response with a "Retry-After" header. All responses get the
+ * "RateLimit-Limit", "RateLimit-Remaining" and "RateLimit-Reset" headers.
+ */
+public class RateLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    public static final String DEFAULT_API_KEY_HEADER = "X-Api-Key";
+
+    public static final String HEADER_RATE_LIMIT_LIMIT = "RateLimit-Limit";
+    public static final String HEADER_RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+    public static final String HEADER_RATE_LIMIT_RESET = "RateLimit-Reset";
+
+    private static final String PROPERTY_RESULT = RateLimitFilter.class.getName() + ".result";
+
+    @Nonnull
+    private final ClientRateLimiter limiter;
+    @Nonnull
+    private final String apiKeyHeader;
+    @Nonnull
+    private final Predicate<String> apiKeyValidator;
+
+    /**
+     * Create a rate limit filter.
+     *
+     * @param limiter         Rate limiter.
+     * @param apiKeyHeader    Name of the header which holds the API key of the client.
+     * @param apiKeyValidator Returns true if an API key is valid (authenticated). Invalid keys are not used to
+     *                        identify clients.
+     */
+    public RateLimitFilter(
+            @Nonnull final ClientRateLimiter limiter,
+            @Nonnull final String apiKeyHeader,
+            @Nonnull final Predicate<String> apiKeyValidator) {
+        super();
+        assert limiter != null;
+        assert apiKeyHeader != null;
+        assert apiKeyValidator != null;
+        this.limiter = limiter;
+        this.apiKeyHeader = apiKeyHeader;
+        this.apiKeyValidator = apiKeyValidator;
+    }
+
+    /**
+     * Create a rate limit filter which identifies clients by their principal or remote IP address only.
+     *
+     * @param limiter Rate limiter.
+     */
+    public RateLimitFilter(@Nonnull final ClientRateLimiter limiter) {
+        this(limiter, DEFAULT_API_KEY_HEADER, apiKey -> false);
+    }
+
+    @Override
+    public void filter(@Nonnull final ContainerRequestContext requestContext) {
+        assert requestContext != null;
+        final String key = getClientKey(requestContext);
+        final ClientRateLimiter.Result result = limiter.tryAcquire(key);
+        requestContext.setProperty(PROPERTY_RESULT, result);
+        if (!result.isAllowed()) {
+            LOG.debug("filter: rate limit exceeded, key={}", key);
+            requestContext.abortWith(GeneralExceptionMapper.toResponse(LOG,
+                    new ApiTooManyRequestsException("Rate limit exceeded", result.getRetryAfterSecs())));
+        }
+    }
+
+    @Override
+    public void filter(
+            @Nonnull final ContainerRequestContext requestContext,
+            @Nonnull final ContainerResponseContext responseContext) {
+        assert requestContext != null;
+        assert responseContext != null;
+        final Object result = requestContext.getProperty(PROPERTY_RESULT);
+        if (result instanceof ClientRateLimiter.Result) {
+            final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+            headers.putSingle(HEADER_RATE_LIMIT_LIMIT, ((ClientRateLimiter.Result) result).getLimit());
+            headers.putSingle(HEADER_RATE_LIMIT_REMAINING, ((ClientRateLimiter.Result) result).getRemaining());
+            headers.putSingle(HEADER_RATE_LIMIT_RESET, ((ClientRateLimiter.Result) result).getResetSecs());
+        }
+    }
+
+    /**
+     * Return the key which identifies the client of a request. Override this method to identify clients differently,
+     * for example by their session.
+     *
+     * Note that the remote address is the address of the front-proxy, if there is one. Forwarded headers are not used,
+     * because clients can set them to bypass the rate limit.
+     *
+     * @param requestContext Request.
+     * @return Client key.
+     */
+    @Nonnull
+    protected String getClientKey(@Nonnull final ContainerRequestContext requestContext) {
+        assert requestContext != null;
+        final SecurityContext securityContext = requestContext.getSecurityContext();
+        final Principal principal = (securityContext == null) ? null : securityContext.getUserPrincipal();
+        if (principal != null) {
+            return "principal:" + principal.getName();
+        }
+        final String apiKey = requestContext.getHeaderString(apiKeyHeader);
+        if ((apiKey != null) && !apiKey.isEmpty() && isValidApiKey(apiKey)) {
+            return "key:" + apiKey;
+        }
+        final String remoteAddr = getRemoteAddr();
+        return "ip:" + ((remoteAddr == null) ? "" : remoteAddr);
+    }
+
+    /**
+     * Return whether an API key is valid, so it can be used to identify the client. Override this method, or pass a
+     * validator to the constructor, to validate API keys.
+     *
+     * @param apiKey API key, not empty.
+     * @return True if the API key is valid.
+     */
+    protected boolean isValidApiKey(@Nonnull final String apiKey) {
+        assert apiKey != null;
+        return apiKeyValidator.test(apiKey);
+    }
+
+    @Nullable
+    private static String getRemoteAddr() {
+        final HttpServletRequest request = ResteasyProviderFactory.getContextData(HttpServletRequest.class);
+        return (request == null) ? null : request.getRemoteAddr();
+    }
+}
@@ -18,21 +18,34 @@ package com.tomtom.speedtools.rest.security;
 import javax.annotation.Nonnull;
 import javax.ws.rs.core.SecurityContext;
 import java.security.Principal;
+import java.util.Collections;
+import java.util.Set;
 
 public final class SecurityContextImpl implements SecurityContext {
     @Nonnull
     private final Principal principal;
     @Nonnull
     private final String authenticationScheme;
+    @Nonnull
+    private final Set<String> roles;
 
     public SecurityContextImpl(
             @Nonnull final Principal principal,
-            @Nonnull final String authenticationScheme) {
+            @Nonnull final String authenticationScheme,
+            @Nonnull final Set<String> roles) {
         assert principal != null;
         assert authenticationScheme != null;
+        assert roles != null;
 
         this.principal = principal;
         this.authenticationScheme = authenticationScheme;
+        this.roles = roles;
+    }
+
+    public SecurityContextImpl(
+            @Nonnull final Principal principal,
+            @Nonnull final String authenticationScheme) {
+        this(principal, authenticationScheme, Collections.emptySet());
     }
 
     @Override
@@ -44,7 +57,7 @@ public final class SecurityContextImpl implements SecurityContext {
     @Override
     public boolean isUserInRole(@Nonnull final String role) {
         assert role != null;
-        return false;
+        return roles.contains(role);
     }
 
     @Override
@@ -15,6 +15,7 @@
  */
 package com.tomtom.speedtools.rest.security;
 
+import com.tomtom.speedtools.apivalidation.exceptions.ApiForbiddenException;
 import com.tomtom.speedtools.apivalidation.exceptions.ApiUnauthorizedException;
 
 import javax.annotation.Nonnull;
@@ -76,4 +77,27 @@ public class SecurityHelper {
         }
         return principalName;
     }
+
+    /**
+     * Return the principal name, or throw an ApiUnauthorizedException if the user was not logged in, or an
+     * ApiForbiddenException if the user does not have the given role. The roles are taken from the security context,
+     * which carries them from the session (or stateless session token), so no session lookup is needed.
+     *
+     * @param securityContext Security context.
+     * @param role            Required role.
+     * @return Principal name.
+     */
+    @Nonnull
+    public static String getPrincipalNameInRoleOrThrow(
+            @Nonnull final SecurityContext securityContext,
+            @Nonnull final String role) {
+        assert securityContext != null;
+        assert role != null;
+
+        final String principalName = getPrincipalNameOrThrow(securityContext);
+        if (!securityContext.isUserInRole(role)) {
+            throw new ApiForbiddenException("User does not have the required role: " + role);
+        }
+        return principalName;
+    }
 }
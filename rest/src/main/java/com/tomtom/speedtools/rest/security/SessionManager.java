@@ -20,11 +20,16 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import javax.ws.rs.core.SecurityContext;
 import java.io.Serializable;
 import java.security.Principal;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * The session manager is the central place to start and terminate sessions, and create a {@link SecurityContext} for
@@ -38,6 +43,13 @@ import java.security.Principal;
  * <em>However</em>, the session manager guarantees that any data set in the session is set atomically, so that the
  * session can never contain mixed data from invocations by multiple concurrent calls. For more information, see the
  * JavaDoc of each method in question.
+ *
+ * If the session manager is created with a {@link SessionTokenCodec}, it runs in stateless mode: no {@link
+ * HttpSession} is used at all. Instead, the session data is encoded in a signed (and optionally encrypted) token, which
+ * is sent to the client as a cookie and a response header, and which the client presents with every request, as a
+ * cookie or as a request header. Any node can verify the token without a session lookup, so clients are not pinned to
+ * a node. Note that stateless sessions cannot be revoked on the server: terminating the session only clears the cookie
+ * and the token remains valid until it expires.
  */
 public class SessionManager {
     private static final Logger LOG = LoggerFactory.getLogger(SessionManager.class);
@@ -56,12 +68,32 @@ public class SessionManager {
     @Nonnull
     private static final String SESSION_DATA_KEY = "com.tomtom.speedtools.rest.security.SESSIONDATA";
 
+    /**
+     * The name of the cookie and header that carry the token in stateless mode.
+     */
+    @Nonnull
+    public static final String SESSION_TOKEN_COOKIE_NAME = "SPEEDTOOLS_SESSION";
+    @Nonnull
+    public static final String SESSION_TOKEN_HEADER_NAME = "X-Session-Token";
+
     /**
      * The current servlet request.
      */
     @Nonnull
     private final HttpServletRequest httpServletRequest;
 
+    /**
+     * The current servlet response; only used in stateless mode.
+     */
+    @Nullable
+    private final HttpServletResponse httpServletResponse;
+
+    /**
+     * The token codec; null if not in stateless mode.
+     */
+    @Nullable
+    private final SessionTokenCodec sessionTokenCodec;
+
     /**
      * Constructs a new {@code SessionManager} that is initialised with the current request context. <em>Note</em> that
      * the constructor must be called on the same thread that called the current JAX-RS resource, otherwise
@@ -75,15 +107,45 @@ public class SessionManager {
         this(ContextHelper.getContextData(HttpServletRequest.class));
     }
 
+    /**
+     * Constructs a new {@code SessionManager} in stateless mode, that is initialised with the current request context.
+     * The same threading restrictions apply as for {@link #SessionManager()}.
+     *
+     * @param sessionTokenCodec Codec for the session tokens.
+     * @throws RuntimeException In case this constructor is not accessed on the thread that is used to call the JAX-RS
+     *                          resource method.
+     */
+    public SessionManager(@Nonnull final SessionTokenCodec sessionTokenCodec) {
+        this(ContextHelper.getContextData(HttpServletRequest.class),
+                ContextHelper.getContextData(HttpServletResponse.class), sessionTokenCodec);
+    }
+
     /**
      * Package-private constructor for use by unit tests.
      *
      * @param httpServletRequest The current request.
      */
     SessionManager(@Nonnull final HttpServletRequest httpServletRequest) {
+        this(httpServletRequest, null, null);
+    }
+
+    /**
+     * Package-private constructor for use by unit tests.
+     *
+     * @param httpServletRequest  The current request.
+     * @param httpServletResponse The current response, must be non-null in stateless mode.
+     * @param sessionTokenCodec   The token codec for stateless mode, or null for {@link HttpSession} based sessions.
+     */
+    SessionManager(
+            @Nonnull final HttpServletRequest httpServletRequest,
+            @Nullable final HttpServletResponse httpServletResponse,
+            @Nullable final SessionTokenCodec sessionTokenCodec) {
         assert httpServletRequest != null;
+        assert (sessionTokenCodec == null) || (httpServletResponse != null);
 
         this.httpServletRequest = httpServletRequest;
+        this.httpServletResponse = httpServletResponse;
+        this.sessionTokenCodec = sessionTokenCodec;
     }
 
     /**
@@ -108,7 +170,23 @@ public class SessionManager {
     public String startWebSession(@Nonnull final Principal principal) {
         assert principal != null;
 
-        return startSession(principal, AUTHENTICATION_SCHEME_USERNAME);
+        return startSession(principal, AUTHENTICATION_SCHEME_USERNAME, Collections.emptySet());
+    }
+
+    /**
+     * Starts a new web session for the given {@code principal}, with the given roles. See {@link
+     * #startWebSession(Principal)}.
+     *
+     * @param principal The {@link Principal} for which to create a session.
+     * @param roles     The roles of the principal, see {@link SecurityContext#isUserInRole(String)}.
+     * @return The session ID of the created session.
+     */
+    @Nonnull
+    public String startWebSession(@Nonnull final Principal principal, @Nonnull final Set<String> roles) {
+        assert principal != null;
+        assert roles != null;
+
+        return startSession(principal, AUTHENTICATION_SCHEME_USERNAME, roles);
     }
 
     /**
@@ -133,7 +211,23 @@ public class SessionManager {
     public String startAppSession(@Nonnull final Principal principal) {
         assert principal != null;
 
-        return startSession(principal, AUTHENTICATION_SCHEME_APPTOKEN);
+        return startSession(principal, AUTHENTICATION_SCHEME_APPTOKEN, Collections.emptySet());
+    }
+
+    /**
+     * Starts a new app session for the given {@code principal}, with the given roles. See {@link
+     * #startAppSession(Principal)}.
+     *
+     * @param principal The {@link Principal} for which to create a session.
+     * @param roles     The roles of the principal, see {@link SecurityContext#isUserInRole(String)}.
+     * @return The session ID of the created session.
+     */
+    @Nonnull
+    public String startAppSession(@Nonnull final Principal principal, @Nonnull final Set<String> roles) {
+        assert principal != null;
+        assert roles != null;
+
+        return startSession(principal, AUTHENTICATION_SCHEME_APPTOKEN, roles);
     }
 
     /**
@@ -143,6 +237,14 @@ public class SessionManager {
      * request while this method is terminating the current session.
      */
     public void terminateSession() {
+        if (sessionTokenCodec != null) {
+
+            // Stateless sessions cannot be revoked: remove the token from the client.
+            assert httpServletResponse != null;
+            httpServletResponse.addCookie(createTokenCookie("", 0));
+            return;
+        }
+
         // Check whether there actually is an ongoing session.
         @Nullable final HttpSession httpSession = getCurrentSession();
         if (httpSession == null) {
@@ -169,6 +271,10 @@ public class SessionManager {
      */
     @Nullable
     public String getCurrentSessionId() {
+        if (sessionTokenCodec != null) {
+            @Nullable final SessionToken sessionToken = getSessionToken(httpServletRequest, sessionTokenCodec);
+            return (sessionToken == null) ? null : sessionToken.getSessionId();
+        }
 
         // Get the current session. Return {@code null} if there is no ongoing session.
         @Nullable final HttpSession httpSession = getCurrentSession();
@@ -219,11 +325,39 @@ public class SessionManager {
         }
 
         final SecurityContext securityContext =
-                new SecurityContextImpl(new PrincipalImpl(sessionData.getUserId()), sessionData.getAuthenticationScheme());
+                new SecurityContextImpl(new PrincipalImpl(sessionData.getUserId()), sessionData.getAuthenticationScheme(),
+                        sessionData.getRoles());
 
         return securityContext;
     }
 
+    /**
+     * Creates the {@link SecurityContext} for the current session, like the method without token codec. If a token
+     * codec is given, the session is taken from the session token in the request, without any server-side session
+     * lookup.
+     *
+     * @param httpServletRequest The current request.
+     * @param sessionTokenCodec  The token codec for stateless mode, or null for {@link HttpSession} based sessions.
+     * @return If a user is authenticated in this session, then a {@link SecurityContext} is returned. Returns {@code
+     * null} otherwise.
+     */
+    @Nullable
+    public static SecurityContext createSecurityContextForSession(
+            @Nonnull final HttpServletRequest httpServletRequest,
+            @Nullable final SessionTokenCodec sessionTokenCodec) {
+        assert httpServletRequest != null;
+
+        if (sessionTokenCodec == null) {
+            return createSecurityContextForSession(httpServletRequest);
+        }
+        @Nullable final SessionToken sessionToken = getSessionToken(httpServletRequest, sessionTokenCodec);
+        if (sessionToken == null) {
+            return null;
+        }
+        return new SecurityContextImpl(new PrincipalImpl(sessionToken.getUserId()),
+                sessionToken.getAuthenticationScheme(), sessionToken.getRoles());
+    }
+
     /**
      * Starts a new session of the given {@code authenticationScheme} for the given {@code principal} in the current
      * servlet request. A potentially existing session is terminated first to prevent session fixation attacks.
@@ -241,20 +375,27 @@ public class SessionManager {
      *
      * @param principal            The {@link Principal} for which to create a session.
      * @param authenticationScheme The authentication scheme of the session to create.
+     * @param roles                The roles of the principal.
      * @return The session ID of the created session.
      */
     @Nonnull
     private String startSession(
             @Nonnull final Principal principal,
-            @Nonnull final String authenticationScheme) {
+            @Nonnull final String authenticationScheme,
+            @Nonnull final Set<String> roles) {
         assert principal != null;
         assert authenticationScheme != null;
+        assert roles != null;
+
+        if (sessionTokenCodec != null) {
+            return startStatelessSession(principal, authenticationScheme, roles, sessionTokenCodec);
+        }
 
         @Nonnull final HttpSession httpSession = createNewSession();
         try {
             // Set authenticated user ID and authentication scheme on session. Throws an {@link IllegalStateException}
             // in case the session has been concurrently invalidated before the session data could be set.
-            @Nonnull final String userId = setSessionData(httpSession, principal, authenticationScheme);
+            @Nonnull final String userId = setSessionData(httpSession, principal, authenticationScheme, roles);
             @Nonnull final String sessionId = getSessionId(httpSession);
             LOG.debug("startSession: created new session for user with ID {}. Session ID is {}", userId, sessionId);
 
@@ -271,6 +412,79 @@ public class SessionManager {
         }
     }
 
+    /**
+     * Starts a new stateless session: a new session token is created and sent to the client, as a cookie and as a
+     * response header. A new session ID is generated for every session, so session fixation is not possible.
+     *
+     * @param principal            The {@link Principal} for which to create a session.
+     * @param authenticationScheme The authentication scheme of the session to create.
+     * @param roles                The roles of the principal.
+     * @param sessionTokenCodec    The token codec.
+     * @return The session ID of the created session.
+     */
+    @Nonnull
+    private String startStatelessSession(
+            @Nonnull final Principal principal,
+            @Nonnull final String authenticationScheme,
+            @Nonnull final Set<String> roles,
+            @Nonnull final SessionTokenCodec sessionTokenCodec) {
+        assert principal != null;
+        assert authenticationScheme != null;
+        assert roles != null;
+        assert sessionTokenCodec != null;
+        assert httpServletResponse != null;
+
+        final SessionToken sessionToken = sessionTokenCodec.createToken(principal.getName(), authenticationScheme, roles);
+        final String encodedToken = sessionTokenCodec.encode(sessionToken);
+        httpServletResponse.addCookie(createTokenCookie(encodedToken,
+                (int) sessionTokenCodec.getTimeToLive().getStandardSeconds()));
+        httpServletResponse.setHeader(SESSION_TOKEN_HEADER_NAME, encodedToken);
+        LOG.debug("startStatelessSession: created new session for user with ID {}. Session ID is {}",
+                sessionToken.getUserId(), sessionToken.getSessionId());
+        return sessionToken.getSessionId();
+    }
+
+    /**
+     * Returns the session token of the current request, taken from the request header or, if absent, the cookie.
+     *
+     * @param httpServletRequest The current request.
+     * @param sessionTokenCodec  The token codec.
+     * @return The valid session token, or {@code null} if the request does not carry a valid token.
+     */
+    @Nullable
+    private static SessionToken getSessionToken(
+            @Nonnull final HttpServletRequest httpServletRequest,
+            @Nonnull final SessionTokenCodec sessionTokenCodec) {
+        assert httpServletRequest != null;
+        assert sessionTokenCodec != null;
+
+        @Nullable String encodedToken = httpServletRequest.getHeader(SESSION_TOKEN_HEADER_NAME);
+        if (encodedToken == null) {
+            @Nullable final Cookie[] cookies = httpServletRequest.getCookies();
+            if (cookies != null) {
+                for (final Cookie cookie : cookies) {
+                    if (SESSION_TOKEN_COOKIE_NAME.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                        encodedToken = cookie.getValue();
+                        break;
+                    }
+                }
+            }
+        }
+        return (encodedToken == null) ? null : sessionTokenCodec.decode(encodedToken);
+    }
+
+    @Nonnull
+    private Cookie createTokenCookie(@Nonnull final String value, final int maxAgeSecs) {
+        assert value != null;
+
+        final Cookie cookie = new Cookie(SESSION_TOKEN_COOKIE_NAME, value);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(httpServletRequest.isSecure());
+        cookie.setMaxAge(maxAgeSecs);
+        return cookie;
+    }
+
     /**
      * Returns the current session, even if there is <em>no user authenticated</em> in the current session. Returns
      * {@code null} if there is no current session.
@@ -342,6 +556,7 @@ public class SessionManager {
      * @param httpSession          The session to set the session data on.
      * @param principal            The {@link Principal} from which to take the user ID.
      * @param authenticationScheme The authentication scheme to set on the session.
+     * @param roles                The roles to set on the session.
      * @return The user ID that was set in the session.
      * @throws IllegalStateException Throws an {@link IllegalStateException} in case the session has been invalidated
      *                               before this method could set the session data.
@@ -350,13 +565,15 @@ public class SessionManager {
     private static String setSessionData(
             @Nonnull final HttpSession httpSession,
             @Nonnull final Principal principal,
-            @Nonnull final String authenticationScheme) throws IllegalStateException {
+            @Nonnull final String authenticationScheme,
+            @Nonnull final Set<String> roles) throws IllegalStateException {
         assert httpSession != null;
         assert principal != null;
         assert authenticationScheme != null;
+        assert roles != null;
 
         @Nonnull final String userId = principal.getName();
-        final SessionData sessionData = new SessionData(userId, authenticationScheme);
+        final SessionData sessionData = new SessionData(userId, authenticationScheme, roles);
 
         /**
          * Throws an {@link IllegalStateException} in case session has already been invalidated. Don't catch it to allow
@@ -448,6 +665,15 @@ public class SessionManager {
         @Nonnull
         private final String authenticationScheme;
 
+        /**
+         * The roles of the authenticated user. May be null for session data serialized by a previous version of this
+         * class, which did not have roles.
+         *
+         * @serial
+         */
+        @Nullable
+        private final LinkedHashSet<String> roles;
+
         /**
          * Constructs a session data object.
          *
@@ -455,15 +681,33 @@ public class SessionManager {
          *
          * @param userId               The user ID of the user authenticated in this session.
          * @param authenticationScheme The authentication scheme of this session.
+         * @param roles                The roles of the user in this session.
          */
         SessionData(
                 @Nonnull final String userId,
-                @Nonnull final String authenticationScheme) {
+                @Nonnull final String authenticationScheme,
+                @Nonnull final Set<String> roles) {
             assert userId != null;
             assert authenticationScheme != null;
+            assert roles != null;
 
             this.userId = userId;
             this.authenticationScheme = authenticationScheme;
+            this.roles = new LinkedHashSet<>(roles);
+        }
+
+        /**
+         * Constructs a session data object without roles.
+         *
+         * Made package private for unit test.
+         *
+         * @param userId               The user ID of the user authenticated in this session.
+         * @param authenticationScheme The authentication scheme of this session.
+         */
+        SessionData(
+                @Nonnull final String userId,
+                @Nonnull final String authenticationScheme) {
+            this(userId, authenticationScheme, Collections.emptySet());
         }
 
         /**
@@ -489,5 +733,17 @@ public class SessionManager {
         String getAuthenticationScheme() {
             return authenticationScheme;
         }
+
+        /**
+         * Returns the roles of the user in this session.
+         *
+         * Made package private for unit test.
+         *
+         * @return The roles.
+         */
+        @Nonnull
+        Set<String> getRoles() {
+            return (roles == null) ? Collections.emptySet() : Collections.unmodifiableSet(roles);
+        }
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import com.google.common.base.Objects;
+import com.tomtom.speedtools.json.Json;
+import org.joda.time.DateTime;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Contents of a stateless session token, as encoded by the {@link SessionTokenCodec}: the authenticated user, the
+ * authentication scheme and roles of the session, and the expiry time of the token.
+ */
+public final class SessionToken {
+    @Nonnull
+    private final String sessionId;
+    @Nonnull
+    private final String userId;
+    @Nonnull
+    private final String authenticationScheme;
+    @Nonnull
+    private final Set<String> roles;
+    @Nonnull
+    private final DateTime expires;
+
+    /**
+     * Create a session token.
+     *
+     * @param sessionId            Random ID of the session.
+     * @param userId               ID of the authenticated user.
+     * @param authenticationScheme Authentication scheme of the session.
+     * @param roles                Roles of the user in the session.
+     * @param expires              Expiry time of the token.
+     */
+    public SessionToken(
+            @Nonnull final String sessionId,
+            @Nonnull final String userId,
+            @Nonnull final String authenticationScheme,
+            @Nonnull final Set<String> roles,
+            @Nonnull final DateTime expires) {
+        super();
+        assert sessionId != null;
+        assert userId != null;
+        assert authenticationScheme != null;
+        assert roles != null;
+        assert expires != null;
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.authenticationScheme = authenticationScheme;
+        this.roles = Collections.unmodifiableSet(new LinkedHashSet<>(roles));
+        this.expires = expires;
+    }
+
+    @Nonnull
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    @Nonnull
+    public String getUserId() {
+        return userId;
+    }
+
+    @Nonnull
+    public String getAuthenticationScheme() {
+        return authenticationScheme;
+    }
+
+    @Nonnull
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    @Nonnull
+    public DateTime getExpires() {
+        return expires;
+    }
+
+    /**
+     * Return whether the token has expired.
+     *
+     * @param now Current time.
+     * @return True if the token has expired.
+     */
+    public boolean isExpired(@Nonnull final DateTime now) {
+        assert now != null;
+        return !now.isBefore(expires);
+    }
+
+    public boolean canEqual(@Nonnull final Object obj) {
+        assert obj != null;
+        return obj instanceof SessionToken;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        boolean eq;
+        if (this == obj) {
+            eq = true;
+        } else if ((obj != null) && (obj instanceof SessionToken)) {
+            final SessionToken that = (SessionToken) obj;
+            eq = that.canEqual(this);
+            eq = eq && sessionId.equals(that.sessionId);
+            eq = eq && userId.equals(that.userId);
+            eq = eq && authenticationScheme.equals(that.authenticationScheme);
+            eq = eq && roles.equals(that.roles);
+            eq = eq && expires.isEqual(that.expires);
+        } else {
+            eq = false;
+        }
+        return eq;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(sessionId, userId, authenticationScheme, roles, expires.getMillis());
+    }
+
+    @Override
+    public String toString() {
+        return Json.toStringJson(this);
+    }
+}
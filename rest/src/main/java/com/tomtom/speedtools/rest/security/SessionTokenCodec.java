@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import com.tomtom.speedtools.crypto.DigestPool;
+import com.tomtom.speedtools.time.UTCTime;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes {@link SessionToken}s into strings that can be handed to clients as a cookie or header, and decodes them
+ * again, so sessions do not need any server-side state.
+ *
+ * A token has the format "keyId.body.signature". The body holds the token contents, optionally encrypted with
+ * AES-GCM, and the signature is an HMAC-SHA256 over the key ID and body. Signing and encryption keys are derived from
+ * a secret per key ID. New tokens use the current key, while tokens signed with any of the other configured keys are
+ * still accepted. To rotate keys, add a new secret, make it current, and remove the old secret once all tokens signed
+ * with it have expired.
+ *
+ * This class is thread-safe.
+ */
+public final class SessionTokenCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTokenCodec.class);
+
+    public static final int MIN_SECRET_LENGTH = 16;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String CIPHER_KEY_ALGORITHM = "AES";
+    private static final int CIPHER_KEY_LENGTH = 16;
+    private static final int CIPHER_IV_LENGTH = 12;
+    private static final int CIPHER_TAG_LENGTH_BITS = 128;
+    private static final int SESSION_ID_LENGTH = 16;
+    private static final char SEPARATOR = '.';
+
+    private static final byte FORMAT_PLAIN = 1;
+    private static final byte FORMAT_ENCRYPTED = 2;
+
+    @Nonnull
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    @Nonnull
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    @Nonnull
+    private final String currentKeyId;
+    @Nonnull
+    private final Map<String, Keys> keys;
+    @Nonnull
+    private final Duration timeToLive;
+    private final boolean encrypted;
+
+    /**
+     * Create a session token codec.
+     *
+     * @param currentKeyId ID of the key to sign (and encrypt) new tokens with. Must be one of the keys of secrets.
+     * @param secrets      Secrets per key ID, each at least {@link #MIN_SECRET_LENGTH} bytes. Key IDs must not contain
+     *                     '.'.
+     * @param timeToLive   Time new tokens are valid.
+     * @param encrypted    True if new tokens should be encrypted, so clients cannot read their contents.
+     */
+    public SessionTokenCodec(
+            @Nonnull final String currentKeyId,
+            @Nonnull final Map<String, byte[]> secrets,
+            @Nonnull final Duration timeToLive,
+            final boolean encrypted) {
+        super();
+        assert currentKeyId != null;
+        assert secrets != null;
+        assert secrets.containsKey(currentKeyId) : currentKeyId;
+        assert timeToLive != null;
+        final Map<String, Keys> derivedKeys = new HashMap<>();
+        for (final Map.Entry<String, byte[]> secret : secrets.entrySet()) {
+            assert secret.getKey().indexOf(SEPARATOR) < 0 : secret.getKey();
+            assert secret.getValue().length >= MIN_SECRET_LENGTH : secret.getKey();
+            derivedKeys.put(secret.getKey(), new Keys(secret.getValue()));
+        }
+        this.currentKeyId = currentKeyId;
+        this.keys = Collections.unmodifiableMap(derivedKeys);
+        this.timeToLive = timeToLive;
+        this.encrypted = encrypted;
+    }
+
+    @Nonnull
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Create a new token for a session, with a random session ID, which expires after the time to live.
+     *
+     * @param userId               ID of the authenticated user.
+     * @param authenticationScheme Authentication scheme of the session.
+     * @param roles                Roles of the user in the session.
+     * @return New token.
+     */
+    @Nonnull
+    public SessionToken createToken(
+            @Nonnull final String userId,
+            @Nonnull final String authenticationScheme,
+            @Nonnull final Set<String> roles) {
+        assert userId != null;
+        assert authenticationScheme != null;
+        assert roles != null;
+        final byte[] sessionId = new byte[SESSION_ID_LENGTH];
+        try {
+            DigestPool.getSHA1PRNGRandom().nextBytes(sessionId);
+        } catch (final NoSuchAlgorithmException e) {
+            LOG.error("createToken: Cannot generate session ID, algorithm={}", DigestPool.SHA1PRNG_ALGORITHM, e);
+            throw new IllegalStateException(e);
+        }
+
+        // Tokens store the expiry time in seconds.
+        final DateTime expires = UTCTime.now().plus(timeToLive).withMillisOfSecond(0);
+        return new SessionToken(BASE64_ENCODER.encodeToString(sessionId), userId, authenticationScheme, roles,
+                expires);
+    }
+
+    /**
+     * Encode a token into a signed (and optionally encrypted) string, using the current key.
+     *
+     * @param token Token.
+     * @return Encoded token.
+     */
+    @Nonnull
+    public String encode(@Nonnull final SessionToken token) {
+        assert token != null;
+        final Keys currentKeys = keys.get(currentKeyId);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(token.getExpires().getMillis() / 1000);
+            out.writeUTF(token.getSessionId());
+            out.writeUTF(token.getUserId());
+            out.writeUTF(token.getAuthenticationScheme());
+            out.writeShort(token.getRoles().size());
+            for (final String role : token.getRoles()) {
+                out.writeUTF(role);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] contents = bytes.toByteArray();
+        final byte[] body;
+        try {
+            if (encrypted) {
+                final byte[] iv = new byte[CIPHER_IV_LENGTH];
+                DigestPool.getSHA1PRNGRandom().nextBytes(iv);
+                final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+                cipher.init(Cipher.ENCRYPT_MODE, currentKeys.cipherKey, new GCMParameterSpec(CIPHER_TAG_LENGTH_BITS, iv));
+                final byte[] cipherText = cipher.doFinal(contents);
+                body = new byte[1 + iv.length + cipherText.length];
+                body[0] = FORMAT_ENCRYPTED;
+                System.arraycopy(iv, 0, body, 1, iv.length);
+                System.arraycopy(cipherText, 0, body, 1 + iv.length, cipherText.length);
+            } else {
+                body = new byte[1 + contents.length];
+                body[0] = FORMAT_PLAIN;
+                System.arraycopy(contents, 0, body, 1, contents.length);
+            }
+            final String signed = currentKeyId + SEPARATOR + BASE64_ENCODER.encodeToString(body);
+            return signed + SEPARATOR + BASE64_ENCODER.encodeToString(sign(currentKeys, signed));
+        } catch (final GeneralSecurityException e) {
+            LOG.error("encode: Cannot encode session token", e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decode a token. Tokens with an unknown key, an invalid signature, or which have expired are rejected.
+     *
+     * @param encodedToken Encoded token, as presented by the client.
+     * @return Token, or null if the token is invalid or has expired.
+     */
+    @Nullable
+    public SessionToken decode(@Nonnull final String encodedToken) {
+        assert encodedToken != null;
+        final int bodyStart = encodedToken.indexOf(SEPARATOR);
+        final int signatureStart = encodedToken.lastIndexOf(SEPARATOR);
+        if ((bodyStart < 0) || (signatureStart == bodyStart)) {
+            LOG.debug("decode: Malformed session token");
+            return null;
+        }
+        final Keys tokenKeys = keys.get(encodedToken.substring(0, bodyStart));
+        if (tokenKeys == null) {
+            LOG.debug("decode: Session token signed with unknown key");
+            return null;
+        }
+        try {
+            final String signed = encodedToken.substring(0, signatureStart);
+            final byte[] signature = BASE64_DECODER.decode(encodedToken.substring(signatureStart + 1));
+
+            // Compare in constant time.
+            if (!MessageDigest.isEqual(sign(tokenKeys, signed), signature)) {
+                LOG.debug("decode: Session token has invalid signature");
+                return null;
+            }
+            final byte[] body = BASE64_DECODER.decode(encodedToken.substring(bodyStart + 1, signatureStart));
+            final byte[] contents;
+            if ((body.length > (1 + CIPHER_IV_LENGTH)) && (body[0] == FORMAT_ENCRYPTED)) {
+                final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+                cipher.init(Cipher.DECRYPT_MODE, tokenKeys.cipherKey,
+                        new GCMParameterSpec(CIPHER_TAG_LENGTH_BITS, body, 1, CIPHER_IV_LENGTH));
+                contents = cipher.doFinal(body, 1 + CIPHER_IV_LENGTH, body.length - 1 - CIPHER_IV_LENGTH);
+            } else if ((body.length > 1) && (body[0] == FORMAT_PLAIN)) {
+                contents = new byte[body.length - 1];
+                System.arraycopy(body, 1, contents, 0, contents.length);
+            } else {
+                LOG.debug("decode: Session token has unknown format");
+                return null;
+            }
+            final SessionToken token = readToken(contents);
+            if (token.isExpired(UTCTime.now())) {
+                LOG.debug("decode: Session token has expired, expires={}", token.getExpires());
+                return null;
+            }
+            return token;
+        } catch (final GeneralSecurityException | IOException | IllegalArgumentException e) {
+            LOG.debug("decode: Session token cannot be decoded, exception={}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Nonnull
+    private static SessionToken readToken(@Nonnull final byte[] contents) throws IOException {
+        assert contents != null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents))) {
+            final DateTime expires = new DateTime(in.readLong() * 1000, DateTimeZone.UTC);
+            final String sessionId = in.readUTF();
+            final String userId = in.readUTF();
+            final String authenticationScheme = in.readUTF();
+            final int nrRoles = in.readUnsignedShort();
+            final Set<String> roles = new LinkedHashSet<>();
+            for (int i = 0; i < nrRoles; ++i) {
+                roles.add(in.readUTF());
+            }
+            return new SessionToken(sessionId, userId, authenticationScheme, roles, expires);
+        }
+    }
+
+    @Nonnull
+    private static byte[] sign(@Nonnull final Keys keys, @Nonnull final String signed)
+            throws GeneralSecurityException {
+        assert keys != null;
+        assert signed != null;
+        final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(keys.macKey);
+        return mac.doFinal(signed.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Signing and encryption keys, derived from a single secret.
+     */
+    private static final class Keys {
+        @Nonnull
+        private final SecretKeySpec macKey;
+        @Nonnull
+        private final SecretKeySpec cipherKey;
+
+        private Keys(@Nonnull final byte[] secret) {
+            assert secret != null;
+            try {
+                final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+                this.macKey = new SecretKeySpec(mac.doFinal("sign".getBytes(StandardCharsets.UTF_8)), MAC_ALGORITHM);
+                this.cipherKey = new SecretKeySpec(mac.doFinal("encrypt".getBytes(StandardCharsets.UTF_8)),
+                        0, CIPHER_KEY_LENGTH, CIPHER_KEY_ALGORITHM);
+            } catch (final GeneralSecurityException e) {
+                LOG.error("Keys: Cannot derive keys, algorithm={}", MAC_ALGORITHM, e);
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import com.tomtom.speedtools.metrics.MultiMetricsData.Period;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import java.util.List;
+
+public class EndpointMetricsTest {
+    private static final Logger LOG = LoggerFactory.getLogger(EndpointMetricsTest.class);
+
+    @Path("/users/")
+    public interface UserResource {
+
+        @GET
+        @Path("{id}/name")
+        String getName(String id);
+
+        @POST
+        void create(String user);
+    }
+
+    public static class UserResourceImpl implements UserResource {
+
+        @Override
+        public String getName(final String id) {
+            return id;
+        }
+
+        @Override
+        public void create(final String user) {
+            // Empty.
+        }
+    }
+
+    @Test
+    public void testCreateTemplate() throws NoSuchMethodException {
+        LOG.info("testCreateTemplate");
+        Assert.assertEquals("GET /users/{id}/name", EndpointMetricsFilter.createTemplate(UserResourceImpl.class,
+                UserResourceImpl.class.getMethod("getName", String.class)));
+        Assert.assertEquals("GET /users/{id}/name", EndpointMetricsFilter.createTemplate(UserResourceImpl.class,
+                UserResource.class.getMethod("getName", String.class)));
+        Assert.assertEquals("POST /users", EndpointMetricsFilter.createTemplate(UserResourceImpl.class,
+                UserResourceImpl.class.getMethod("create", String.class)));
+        Assert.assertEquals("* /", EndpointMetricsFilter.createTemplate(Object.class,
+                Object.class.getMethod("toString")));
+    }
+
+    @Test
+    public void testTimer() {
+        LOG.info("testTimer");
+        final EndpointMetrics metrics = new EndpointMetrics();
+        Assert.assertNull(metrics.get("GET /a"));
+
+        // Resource using the resource processor.
+        final EndpointTimer timer1 = new EndpointTimer(metrics.getOrCreate("GET /a"), System.nanoTime());
+        timer1.handlerStarted();
+        timer1.handlerCompleted();
+        timer1.responseAvailable();
+        timer1.serialized(2000000);
+
+        // Resource not using the resource processor.
+        final EndpointTimer timer2 = new EndpointTimer(metrics.getOrCreate("GET /a"), System.nanoTime());
+        timer2.responseAvailable();
+
+        final EndpointMetrics.Endpoint endpoint = metrics.get("GET /a");
+        Assert.assertNotNull(endpoint);
+        Assert.assertEquals(1, endpoint.getQueueTimeMetrics().getLastMinute().getCount());
+        Assert.assertEquals(2, endpoint.getHandlerTimeMetrics().getLastMinute().getCount());
+        Assert.assertEquals(1, endpoint.getSerializationTimeMetrics().getLastMinute().getCount());
+        Assert.assertEquals(2.0f, endpoint.getSerializationTimeMetrics().getLastMinute().getAvg(), 0.001f);
+    }
+
+    @Test
+    public void testResource() {
+        LOG.info("testResource");
+        final EndpointMetrics metrics = new EndpointMetrics();
+        final EndpointTimer timer = new EndpointTimer(metrics.getOrCreate("GET /b"), System.nanoTime());
+        timer.responseAvailable();
+        metrics.getOrCreate("GET /a");
+
+        final List<EndpointMetricsResource.EndpointDTO> endpoints =
+                new EndpointMetricsResource(metrics).getEndpoints(Period.LAST_MINUTE);
+        Assert.assertEquals(2, endpoints.size());
+        Assert.assertEquals("GET /a", endpoints.get(0).getTemplate());
+        Assert.assertEquals(0, endpoints.get(0).getRequests());
+        Assert.assertNull(endpoints.get(0).getHandlerTime().getAvg());
+        Assert.assertEquals("GET /b", endpoints.get(1).getTemplate());
+        Assert.assertEquals(1, endpoints.get(1).getRequests());
+        Assert.assertEquals(1.0f / 60, endpoints.get(1).getRequestsPerSecond(), 0.0001f);
+        Assert.assertNotNull(endpoints.get(1).getHandlerTime().getAvg());
+        Assert.assertEquals(0, endpoints.get(1).getQueueTime().getCount());
+    }
+}
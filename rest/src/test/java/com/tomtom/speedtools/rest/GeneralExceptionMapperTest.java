@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.tomtom.speedtools.apivalidation.exceptions.ApiNotFoundException;
+import com.tomtom.speedtools.apivalidation.exceptions.ApiServiceUnavailableException;
+import com.tomtom.speedtools.apivalidation.exceptions.ApiTooManyRequestsException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+public class GeneralExceptionMapperTest {
+    private static final Logger LOG = LoggerFactory.getLogger(GeneralExceptionMapperTest.class);
+
+    private static final class SpecificNotFoundException extends javax.ws.rs.NotFoundException {
+    }
+
+    private static final class CustomException extends Exception {
+    }
+
+    @Test
+    public void testStatus() {
+        LOG.info("testStatus");
+        final GeneralExceptionMapper mapper = new GeneralExceptionMapper();
+        Assert.assertEquals(Status.OK.getStatusCode(), mapper.toResponse(null).getStatus());
+        Assert.assertEquals(Status.NOT_FOUND.getStatusCode(),
+                mapper.toResponse(new ApiNotFoundException("x")).getStatus());
+        Assert.assertEquals(Status.NOT_FOUND.getStatusCode(),
+                mapper.toResponse(new SpecificNotFoundException()).getStatus());
+        Assert.assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                mapper.toResponse(new IllegalStateException()).getStatus());
+        Assert.assertEquals(Status.BAD_REQUEST.getStatusCode(),
+                mapper.toResponse(new JsonMappingException("x", new javax.ws.rs.BadRequestException())).getStatus());
+        Assert.assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                mapper.toResponse(new JsonMappingException("x")).getStatus());
+
+        final Response response = mapper.toResponse(new ApiServiceUnavailableException(5));
+        Assert.assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatus());
+        Assert.assertEquals("5", String.valueOf(response.getMetadata().getFirst(HttpHeaders.RETRY_AFTER)));
+
+        final Response tooMany = mapper.toResponse(new ApiTooManyRequestsException(3));
+        Assert.assertEquals(Status.TOO_MANY_REQUESTS.getStatusCode(), tooMany.getStatus());
+        Assert.assertEquals("3", String.valueOf(tooMany.getMetadata().getFirst(HttpHeaders.RETRY_AFTER)));
+    }
+
+    @Test
+    public void testCustomException() {
+        LOG.info("testCustomException");
+        final GeneralExceptionMapper mapper = new GeneralExceptionMapper();
+        Assert.assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                mapper.toResponse(new CustomException()).getStatus());
+        GeneralExceptionMapper.addCustomException(CustomException.class, false, Status.CONFLICT);
+        try {
+            Assert.assertEquals(Status.CONFLICT.getStatusCode(), mapper.toResponse(new CustomException()).getStatus());
+        } finally {
+            GeneralExceptionMapper.removeCustomException(CustomException.class);
+        }
+        Assert.assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                mapper.toResponse(new CustomException()).getStatus());
+    }
+
+    @Test
+    public void testClientErrorLogRateLimit() {
+        LOG.info("testClientErrorLogRateLimit");
+        final Logger log = Mockito.mock(Logger.class);
+        Mockito.when(log.isInfoEnabled()).thenReturn(true);
+        GeneralExceptionMapper.setMaxClientErrorLogsPerSecond(0);
+        try {
+            for (int i = 0; i < 10; ++i) {
+                Assert.assertEquals(Status.NOT_FOUND.getStatusCode(), GeneralExceptionMapper.toResponse(log,
+                        new javax.ws.rs.NotFoundException()).getStatus());
+            }
+        } finally {
+            GeneralExceptionMapper.setMaxClientErrorLogsPerSecond(
+                    GeneralExceptionMapper.DEFAULT_MAX_CLIENT_ERROR_LOGS_PER_SECOND);
+        }
+        Mockito.verify(log, Mockito.never()).info(Mockito.anyString());
+    }
+}
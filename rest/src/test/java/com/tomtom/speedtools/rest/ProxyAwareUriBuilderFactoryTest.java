@@ -32,6 +32,8 @@ import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
@@ -387,6 +389,104 @@ public class ProxyAwareUriBuilderFactoryTest {
         assertThat(uri, is(internalBaseUri));
     }
 
+    @Test
+    public void testNewInstanceForwarded() throws URISyntaxException {
+        LOG.info("testNewInstanceForwarded");
+
+        when(httpServletRequest.getHeaders("Forwarded")).thenReturn(Collections.enumeration(Collections.singletonList(
+                "for=192.0.2.43;host=other.proxy.com, for=\"[2001:db8:cafe::17]\";Proto=HTTPS;host=\"unittest.tomtomtaxi.com\"")));
+        when(httpServletRequest.getHeader(HEADER_NAME_X_HTTPS)).thenReturn("off");
+        when(httpServletRequest.getHeader(HEADER_NAME_X_FORWARDED_HOST)).thenReturn("some.proxy.com");
+        when(httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI)).thenReturn(HEADER_VALUE_X_ORIGINAL_URI);
+        when(uriInfo.getRequestUri()).thenReturn(internalUri);
+
+        final URI uri = new ProxyAwareUriBuilderFactory(httpServletRequest, uriInfo, true).newInstance().build();
+
+        assertThat(uri, is(referenceExternalBaseUri));
+    }
+
+    @Test
+    public void testNewInstanceLegacyHeadersWinByDefault() throws URISyntaxException {
+        LOG.info("testNewInstanceLegacyHeadersWinByDefault");
+
+        // Headers sent by the client, which are not removed by a front-proxy that only sets the legacy headers.
+        when(httpServletRequest.getHeaders("Forwarded")).thenReturn(
+                Collections.enumeration(Collections.singletonList("proto=http;host=evil.example.com")));
+        when(httpServletRequest.getHeaders("X-Forwarded-Proto")).thenReturn(
+                Collections.enumeration(Collections.singletonList("ftp")));
+        when(httpServletRequest.getHeader(HEADER_NAME_X_HTTPS)).thenReturn(HEADER_VALUE_X_HTTPS_TRUE);
+        when(httpServletRequest.getHeader(HEADER_NAME_X_FORWARDED_HOST)).thenReturn(HEADER_VALUE_X_FORWARDED_HOST);
+        when(httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI)).thenReturn(HEADER_VALUE_X_ORIGINAL_URI);
+        when(uriInfo.getRequestUri()).thenReturn(internalUri);
+
+        final URI uri = impl.newInstance().build();
+
+        assertThat(uri, is(referenceExternalBaseUri));
+    }
+
+    @Test
+    public void testNewInstanceForwardedMultipleLines() throws URISyntaxException {
+        LOG.info("testNewInstanceForwardedMultipleLines");
+
+        // The first line is sent by the client, the last line is added by the front-proxy.
+        when(httpServletRequest.getHeaders("Forwarded")).thenReturn(Collections.enumeration(Arrays.asList(
+                "proto=http;host=evil.example.com", "for=192.0.2.43;proto=https;host=unittest.tomtomtaxi.com")));
+        when(httpServletRequest.getHeader("Forwarded")).thenReturn("proto=http;host=evil.example.com");
+        when(httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI)).thenReturn(HEADER_VALUE_X_ORIGINAL_URI);
+        when(uriInfo.getRequestUri()).thenReturn(internalUri);
+
+        final URI uri = impl.newInstance().build();
+
+        assertThat(uri, is(referenceExternalBaseUri));
+    }
+
+    @Test
+    public void testNewInstanceXForwardedProto() throws URISyntaxException {
+        LOG.info("testNewInstanceXForwardedProto");
+
+        when(httpServletRequest.getHeaders("X-Forwarded-Proto")).thenReturn(
+                Collections.enumeration(Arrays.asList("http", "https")));
+        when(httpServletRequest.getHeader(HEADER_NAME_X_FORWARDED_HOST)).thenReturn(HEADER_VALUE_X_FORWARDED_HOST);
+        when(httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI)).thenReturn(HEADER_VALUE_X_ORIGINAL_URI);
+        when(uriInfo.getRequestUri()).thenReturn(internalUri);
+
+        final URI uri = impl.newInstance().build();
+
+        assertThat(uri, is(referenceExternalBaseUri));
+    }
+
+    @Test
+    public void testNewInstanceFallbackInvalidForwardedProto() throws URISyntaxException {
+        LOG.info("testNewInstanceFallbackInvalidForwardedProto: IMPORTANT - the following test case should log 2 errors");
+
+        when(httpServletRequest.getHeaders("Forwarded")).thenReturn(
+                Collections.enumeration(Collections.singletonList("proto=ftp;host=unittest.tomtomtaxi.com")));
+        when(httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI)).thenReturn(HEADER_VALUE_X_ORIGINAL_URI);
+        when(uriInfo.getRequestUri()).thenReturn(internalUri);
+        when(uriInfo.getBaseUri()).thenReturn(internalBaseUri);
+
+        final URI uri = impl.newInstance().build();
+
+        assertThat(uri, is(internalBaseUri));
+    }
+
+    @Test
+    public void testNewInstanceCached() throws URISyntaxException {
+        LOG.info("testNewInstanceCached");
+
+        when(httpServletRequest.getHeader(HEADER_NAME_X_HTTPS)).thenReturn(HEADER_VALUE_X_HTTPS_TRUE);
+        when(httpServletRequest.getHeader(HEADER_NAME_X_FORWARDED_HOST)).thenReturn(HEADER_VALUE_X_FORWARDED_HOST);
+        when(httpServletRequest.getHeader(HEADER_NAME_X_ORIGINAL_URI)).thenReturn(HEADER_VALUE_X_ORIGINAL_URI);
+        when(uriInfo.getRequestUri()).thenReturn(internalUri);
+
+        // Modifying a returned builder must not affect the cached builder.
+        impl.newInstance().path("x");
+        new ProxyAwareUriBuilderFactory(httpServletRequest, uriInfo).newInstance().path("y");
+        final URI uri = new ProxyAwareUriBuilderFactory(httpServletRequest, uriInfo).newInstance().build();
+
+        assertThat(uri, is(referenceExternalBaseUri));
+    }
+
     @SuppressWarnings("ProhibitedExceptionDeclared")
     @Test
     public void testGetLongestSuffixStartIndex1LongerThan2() throws Throwable {
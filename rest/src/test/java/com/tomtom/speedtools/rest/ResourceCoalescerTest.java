@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import akka.dispatch.Futures;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.Await;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+import scala.concurrent.duration.Duration;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResourceCoalescerTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceCoalescerTest.class);
+
+    private static final Duration TIMEOUT = Duration.create(10, TimeUnit.SECONDS);
+
+    @Test
+    public void testCreateKey() {
+        LOG.info("testCreateKey");
+        final MultivaluedMap<String, String> params1 = new MultivaluedHashMap<>();
+        params1.add("b", "2");
+        params1.add("a", "1");
+        params1.add("a", "x&y=z");
+        final MultivaluedMap<String, String> params2 = new MultivaluedHashMap<>();
+        params2.add("a", "1");
+        params2.add("a", "x&y=z");
+        params2.add("b", "2");
+        Assert.assertEquals("/p?a=1&a=x%26y%3dz&b=2", ResourceCoalescer.createKey("/p", params1));
+        Assert.assertEquals(ResourceCoalescer.createKey("/p", params1), ResourceCoalescer.createKey("/p", params2));
+        Assert.assertEquals("/p", ResourceCoalescer.createKey("/p", new MultivaluedHashMap<>()));
+    }
+
+    @Test
+    public void testInFlight() throws Exception {
+        LOG.info("testInFlight");
+        final ResourceCoalescer coalescer = new ResourceCoalescer(0, ExecutionContext.global());
+        final AtomicInteger calls = new AtomicInteger();
+        final Promise<String> promise = Futures.promise();
+        final ResourceHandler handler = () -> {
+            calls.incrementAndGet();
+            return promise.future();
+        };
+        final Future<Object> future1 = coalescer.process("/a", handler);
+        final Future<Object> future2 = coalescer.process("/a", handler);
+        final Future<Object> future3 = coalescer.process("/b", handler);
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(2, coalescer.size());
+
+        promise.success("result");
+        Assert.assertEquals("result", Await.result(future1, TIMEOUT));
+        Assert.assertEquals("result", Await.result(future2, TIMEOUT));
+        Assert.assertEquals("result", Await.result(future3, TIMEOUT));
+        waitUntilEmpty(coalescer);
+
+        // Without TTL, completed results are not shared.
+        Assert.assertEquals("result", Await.result(coalescer.process("/a", handler), TIMEOUT));
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        LOG.info("testTtl");
+        final ResourceCoalescer coalescer = new ResourceCoalescer(200, ExecutionContext.global());
+        final AtomicInteger calls = new AtomicInteger();
+        final ResourceHandler handler = () -> Futures.successful(calls.incrementAndGet());
+        Assert.assertEquals(1, Await.result(coalescer.process("/a", handler), TIMEOUT));
+        Assert.assertEquals(1, Await.result(coalescer.process("/a", handler), TIMEOUT));
+        Assert.assertEquals(1, calls.get());
+
+        Thread.sleep(300);
+        Assert.assertEquals(2, Await.result(coalescer.process("/a", handler), TIMEOUT));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        LOG.info("testFailure");
+        final ResourceCoalescer coalescer = new ResourceCoalescer(10000, ExecutionContext.global());
+        final AtomicInteger calls = new AtomicInteger();
+        final ResourceHandler failing = () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException();
+        };
+        try {
+            Await.result(coalescer.process("/a", failing), TIMEOUT);
+            Assert.fail();
+        } catch (final IllegalStateException ignored) {
+            // Expected.
+        }
+        Assert.assertEquals(0, coalescer.size());
+
+        // Failures are not shared after completion.
+        final ResourceHandler failed = () -> {
+            calls.incrementAndGet();
+            return Futures.failed(new IllegalArgumentException());
+        };
+        try {
+            Await.result(coalescer.process("/a", failed), TIMEOUT);
+            Assert.fail();
+        } catch (final IllegalArgumentException ignored) {
+            // Expected.
+        }
+        waitUntilEmpty(coalescer);
+        Assert.assertEquals("ok", Await.result(coalescer.process("/a", () -> Futures.successful("ok")), TIMEOUT));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testProcess() {
+        LOG.info("testProcess");
+        final Reactor reactor = Mockito.mock(Reactor.class);
+        Mockito.when(reactor.getExecutionContext()).thenReturn(ExecutionContext.global());
+        final ResourceProcessor processor = new ResourceProcessor(reactor);
+        final ResourceCoalescer coalescer = new ResourceCoalescer(10000, ExecutionContext.global());
+        final AtomicInteger calls = new AtomicInteger();
+        final Promise<String> promise = Futures.promise();
+        final ResourceHandler handler = () -> {
+            calls.incrementAndGet();
+            return promise.future();
+        };
+        final AsyncResponse response1 = Mockito.mock(AsyncResponse.class);
+        final AsyncResponse response2 = Mockito.mock(AsyncResponse.class);
+        processor.process("test", coalescer, "/a", LOG, response1, handler);
+        processor.process("test", coalescer, "/a", LOG, response2, handler);
+        promise.success("result");
+
+        final ArgumentCaptor<Response> captor1 = ArgumentCaptor.forClass(Response.class);
+        final ArgumentCaptor<Response> captor2 = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(response1, Mockito.timeout(10000)).resume(captor1.capture());
+        Mockito.verify(response2, Mockito.timeout(10000)).resume(captor2.capture());
+        Assert.assertEquals("result", captor1.getValue().getEntity());
+        Assert.assertEquals("result", captor2.getValue().getEntity());
+        Assert.assertEquals(1, calls.get());
+    }
+
+    private static void waitUntilEmpty(final ResourceCoalescer coalescer) throws InterruptedException {
+        // Completion callbacks run asynchronously.
+        for (int i = 0; (i < 1000) && (coalescer.size() > 0); ++i) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, coalescer.size());
+    }
+}
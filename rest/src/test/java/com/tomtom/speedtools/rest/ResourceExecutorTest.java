@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import akka.dispatch.Futures;
+import com.tomtom.speedtools.apivalidation.exceptions.ApiServiceUnavailableException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.ExecutionContext;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ResourceExecutorTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceExecutorTest.class);
+
+    @Test
+    public void testQueueFull() throws InterruptedException {
+        LOG.info("testQueueFull");
+        final ResourceExecutor executor = new ResourceExecutor("test", 1, 1, 10000, 5);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        final Runnable task = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException ignored) {
+                // Ignored.
+            }
+            done.countDown();
+        };
+        executor.execute(task);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.execute(task);
+        Assert.assertEquals(1, executor.getQueueDepth());
+        try {
+            executor.execute(task);
+            Assert.fail();
+        } catch (final ApiServiceUnavailableException e) {
+            Assert.assertEquals(5, e.getRetryAfterSecs());
+        }
+        Assert.assertEquals(1, executor.getRejectedCount());
+        Assert.assertEquals(1, executor.getRejectedMetrics().getLastMinute().getCount());
+        Assert.assertEquals(3, executor.getQueueDepthMetrics().getLastMinute().getCount());
+
+        release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.getQueueLatencyMetrics().getLastMinute().getCount());
+        try {
+            executor.execute(task);
+            Assert.fail();
+        } catch (final ApiServiceUnavailableException ignored) {
+            Assert.assertEquals(2, executor.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void testQueueLatency() throws InterruptedException {
+        LOG.info("testQueueLatency");
+        final ResourceExecutor executor = new ResourceExecutor("test", 1, 100, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable block = () -> {
+            try {
+                release.await();
+            } catch (final InterruptedException ignored) {
+                // Ignored.
+            }
+        };
+
+        // Build up a queue latency well over the maximum.
+        for (int i = 0; i < 10; ++i) {
+            executor.execute(block);
+        }
+        Thread.sleep(200);
+        release.countDown();
+        while (executor.getQueueDepth() > 0) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(executor.getQueueLatencyMsecs() > 1);
+
+        // The queue is empty, so requests are admitted.
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release2 = new CountDownLatch(1);
+        executor.execute(() -> {
+            blocked.countDown();
+            try {
+                release2.await();
+            } catch (final InterruptedException ignored) {
+                // Ignored.
+            }
+        });
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        executor.execute(block);
+
+        // Now a request is queued and the latency is too high: fail fast.
+        try {
+            executor.execute(block);
+            Assert.fail();
+        } catch (final ApiServiceUnavailableException ignored) {
+            Assert.assertEquals(1, executor.getRejectedCount());
+        }
+        release2.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testProcessRejected() throws InterruptedException {
+        LOG.info("testProcessRejected");
+        final Reactor reactor = Mockito.mock(Reactor.class);
+        Mockito.when(reactor.getExecutionContext()).thenReturn(ExecutionContext.global());
+        final ResourceProcessor processor = new ResourceProcessor(reactor);
+        final ResourceExecutor executor = new ResourceExecutor("test", 1, 1, 10000, 7);
+
+        // Process one request normally.
+        final AsyncResponse ok = Mockito.mock(AsyncResponse.class);
+        processor.process("ok", executor, LOG, ok, () -> Futures.successful("ok"));
+        final ArgumentCaptor<Response> okCaptor = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(ok, Mockito.timeout(10000)).resume(okCaptor.capture());
+        Assert.assertEquals(200, okCaptor.getValue().getStatus());
+
+        // Reject requests after the executor was shut down.
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        final AsyncResponse rejected = Mockito.mock(AsyncResponse.class);
+        processor.process("rejected", executor, LOG, rejected, () -> Futures.successful("not ok"));
+        final ArgumentCaptor<Response> rejectedCaptor = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(rejected).resume(rejectedCaptor.capture());
+        Assert.assertEquals(503, rejectedCaptor.getValue().getStatus());
+        Assert.assertEquals("7", rejectedCaptor.getValue().getHeaderString(HttpHeaders.RETRY_AFTER));
+    }
+}
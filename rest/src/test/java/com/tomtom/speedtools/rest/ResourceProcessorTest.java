@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import akka.dispatch.ExecutionContexts;
+import akka.dispatch.Futures;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.Promise;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ResourceProcessorTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceProcessorTest.class);
+
+    private ExecutorService executorService;
+    private ResourceProcessor processor;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newCachedThreadPool();
+        final Reactor reactor = Mockito.mock(Reactor.class);
+        Mockito.when(reactor.getExecutionContext()).thenReturn(ExecutionContexts.fromExecutorService(executorService));
+        processor = new ResourceProcessor(reactor);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testDrain() throws InterruptedException {
+        LOG.info("testDrain");
+        final Promise<String> promise = Futures.promise();
+        final AsyncResponse response1 = Mockito.mock(AsyncResponse.class);
+        processor.process("test", LOG, response1, promise::future);
+        Assert.assertEquals(1, processor.getInFlightCount());
+        Assert.assertFalse(processor.isDraining());
+
+        processor.startDrain();
+        Assert.assertTrue(processor.isDraining());
+
+        // New requests are rejected.
+        final AsyncResponse response2 = Mockito.mock(AsyncResponse.class);
+        processor.process("test", LOG, response2, promise::future);
+        final ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(response2).resume(captor.capture());
+        Assert.assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), captor.getValue().getStatus());
+        Assert.assertEquals(1, processor.getDrainRejectedCount());
+
+        // Requests in flight are waited for.
+        Assert.assertFalse(processor.awaitDrained(50, TimeUnit.MILLISECONDS));
+        promise.success("done");
+        Assert.assertTrue(processor.awaitDrained(10, TimeUnit.SECONDS));
+        Mockito.verify(response1).resume(Mockito.any(Response.class));
+        Assert.assertEquals(0, processor.getInFlightCount());
+        Assert.assertEquals(1, processor.getDrainCompletedCount());
+    }
+}
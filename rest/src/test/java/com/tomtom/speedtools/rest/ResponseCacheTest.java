@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ResponseCacheTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCacheTest.class);
+
+    private static final byte[] BODY = "{\"name\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testCache() {
+        LOG.info("testCache");
+        final ResponseCache cache = new ResponseCache(1024 * 1024, Duration.standardMinutes(1),
+                Collections.singletonList("Accept"));
+        final MultivaluedMap<String, String> json = new MultivaluedHashMap<>();
+        json.add("Accept", "application/json");
+        final MultivaluedMap<String, String> xml = new MultivaluedHashMap<>();
+        xml.add("Accept", "application/xml");
+        final MultivaluedMap<String, String> query = new MultivaluedHashMap<>();
+        query.add("q", "1");
+        final String key1 = cache.createKey("/users", query, json);
+        final String key2 = cache.createKey("/users", query, xml);
+        final String key3 = cache.createKey("/users/1", new MultivaluedHashMap<>(), json);
+        final String key4 = cache.createKey("/usersx", new MultivaluedHashMap<>(), json);
+        Assert.assertNotEquals(key1, key2);
+
+        final ResponseCache.Entry entry = cache.put(key1, cache.getGeneration(), MediaType.APPLICATION_JSON_TYPE,
+                Collections.emptyMap(), BODY);
+        Assert.assertEquals(ResponseCache.createEntityTag(BODY), entry.getEntityTag());
+        Assert.assertFalse(entry.getEntityTag().isWeak());
+        Assert.assertSame(entry, cache.get(key1));
+        Assert.assertNull(cache.get(key2));
+        cache.put(key2, cache.getGeneration(), MediaType.APPLICATION_XML_TYPE, Collections.emptyMap(), BODY);
+        cache.put(key3, cache.getGeneration(), MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap(), BODY);
+        cache.put(key4, cache.getGeneration(), MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap(), BODY);
+        Assert.assertEquals(4, cache.size());
+
+        // Invalidate a path and its sub-paths only.
+        cache.invalidate("/users");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotNull(cache.get(key4));
+
+        // Responses computed before an invalidation are not stored.
+        final long generation = cache.getGeneration();
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+        cache.put(key1, generation, MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap(), BODY);
+        Assert.assertNull(cache.get(key1));
+    }
+
+    @Test
+    public void testMatches() {
+        LOG.info("testMatches");
+        final EntityTag tag = new EntityTag("abc");
+        Assert.assertFalse(ResponseCacheFilter.matches(null, tag));
+        Assert.assertTrue(ResponseCacheFilter.matches("\"abc\"", tag));
+        Assert.assertTrue(ResponseCacheFilter.matches("W/\"abc\"", tag));
+        Assert.assertTrue(ResponseCacheFilter.matches("\"x\", \"abc\"", tag));
+        Assert.assertTrue(ResponseCacheFilter.matches("*", tag));
+        Assert.assertFalse(ResponseCacheFilter.matches("\"abcd\"", tag));
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        LOG.info("testFilter");
+        final ResponseCache cache = new ResponseCache(1024 * 1024, Duration.standardMinutes(1),
+                ResponseCache.DEFAULT_VARY_HEADERS);
+        final ResponseCacheFilter filter = new ResponseCacheFilter(cache);
+        final Map<String, Object> properties = new HashMap<>();
+
+        // First request: resource is invoked and response is stored.
+        final ContainerRequestContext request1 = createRequest(properties, null);
+        filter.filter(request1);
+        Mockito.verify(request1, Mockito.never()).abortWith(Mockito.any());
+        final MultivaluedMap<String, Object> responseHeaders = new MultivaluedHashMap<>();
+        responseHeaders.add(HttpHeaders.CACHE_CONTROL, "max-age=60");
+        responseHeaders.add(HttpHeaders.CONTENT_LANGUAGE, "en");
+        responseHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        responseHeaders.add("X-Custom", "a");
+        responseHeaders.add("X-Custom", "b");
+        final ContainerResponseContext response1 = Mockito.mock(ContainerResponseContext.class);
+        Mockito.when(response1.getStatus()).thenReturn(200);
+        Mockito.when(response1.hasEntity()).thenReturn(true);
+        Mockito.when(response1.getHeaders()).thenReturn(responseHeaders);
+        Mockito.when(response1.getStringHeaders()).thenAnswer(i -> {
+            final MultivaluedMap<String, String> stringHeaders = new MultivaluedHashMap<>();
+            responseHeaders.forEach((name, values) ->
+                    values.forEach(value -> stringHeaders.add(name, value.toString())));
+            return stringHeaders;
+        });
+        filter.filter(request1, response1);
+        Assert.assertEquals("Accept, Accept-Language", responseHeaders.getFirst(HttpHeaders.VARY));
+
+        final AtomicReference<OutputStream> stream = new AtomicReference<>(new ByteArrayOutputStream());
+        final ByteArrayOutputStream entityStream = (ByteArrayOutputStream) stream.get();
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        final WriterInterceptorContext writer = Mockito.mock(WriterInterceptorContext.class);
+        Mockito.when(writer.getProperty(Mockito.anyString())).thenAnswer(i -> properties.get(i.<String>getArgument(0)));
+        Mockito.when(writer.getOutputStream()).thenAnswer(i -> stream.get());
+        Mockito.doAnswer(i -> {
+            stream.set(i.getArgument(0));
+            return null;
+        }).when(writer).setOutputStream(Mockito.any());
+        Mockito.doAnswer(i -> {
+            stream.get().write(BODY);
+            return null;
+        }).when(writer).proceed();
+        Mockito.when(writer.getMediaType()).thenReturn(MediaType.APPLICATION_JSON_TYPE);
+        Mockito.when(writer.getHeaders()).thenReturn(headers);
+        filter.aroundWriteTo(writer);
+        Assert.assertArrayEquals(BODY, entityStream.toByteArray());
+        final EntityTag tag = ResponseCache.createEntityTag(BODY);
+        Assert.assertEquals(tag, headers.getFirst(HttpHeaders.ETAG));
+        Assert.assertEquals(1, cache.size());
+
+        // Second request: served from the cache.
+        properties.clear();
+        final ContainerRequestContext request2 = createRequest(properties, null);
+        filter.filter(request2);
+        final ArgumentCaptor<Response> captor2 = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(request2).abortWith(captor2.capture());
+        Assert.assertEquals(200, captor2.getValue().getStatus());
+        Assert.assertArrayEquals(BODY, (byte[]) captor2.getValue().getEntity());
+        Assert.assertEquals(tag, captor2.getValue().getEntityTag());
+        assertReplayedHeaders(captor2.getValue());
+        Assert.assertEquals(1, captor2.getValue().getStringHeaders().get(HttpHeaders.CONTENT_TYPE).size());
+
+        // Third request: not modified.
+        final ContainerRequestContext request3 = createRequest(properties, '"' + tag.getValue() + '"');
+        filter.filter(request3);
+        final ArgumentCaptor<Response> captor3 = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(request3).abortWith(captor3.capture());
+        Assert.assertEquals(304, captor3.getValue().getStatus());
+        Assert.assertFalse(captor3.getValue().hasEntity());
+        assertReplayedHeaders(captor3.getValue());
+    }
+
+    private static void assertReplayedHeaders(final Response response) {
+        final MultivaluedMap<String, String> headers = response.getStringHeaders();
+        Assert.assertEquals(Collections.singletonList("max-age=60"), headers.get(HttpHeaders.CACHE_CONTROL));
+        Assert.assertEquals(Collections.singletonList("en"), headers.get(HttpHeaders.CONTENT_LANGUAGE));
+        Assert.assertEquals(Arrays.asList("a", "b"), headers.get("X-Custom"));
+        Assert.assertEquals(Collections.singletonList("Accept, Accept-Language"), headers.get(HttpHeaders.VARY));
+    }
+
+    private static ContainerRequestContext createRequest(final Map<String, Object> properties, final String ifNoneMatch) {
+        final UriInfo uriInfo = Mockito.mock(UriInfo.class);
+        Mockito.when(uriInfo.getPath()).thenReturn("/users");
+        Mockito.when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.add("Accept", "application/json");
+        final ContainerRequestContext request = Mockito.mock(ContainerRequestContext.class);
+        Mockito.when(request.getMethod()).thenReturn("GET");
+        Mockito.when(request.getUriInfo()).thenReturn(uriInfo);
+        Mockito.when(request.getHeaders()).thenReturn(headers);
+        Mockito.when(request.getHeaderString(HttpHeaders.IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+        Mockito.when(request.getProperty(Mockito.anyString())).thenAnswer(i -> properties.get(i.<String>getArgument(0)));
+        Mockito.doAnswer(i -> properties.put(i.getArgument(0), i.getArgument(1))).
+                when(request).setProperty(Mockito.anyString(), Mockito.any());
+        return request;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class StreamingJsonOutputTest {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingJsonOutputTest.class);
+
+    public static final class ValueDTO {
+        @Nonnull
+        private final String value;
+
+        public ValueDTO(@Nonnull final String value) {
+            this.value = value;
+        }
+
+        @Nonnull
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private static final class Cursor implements Iterator<Integer>, AutoCloseable {
+        @Nonnull
+        private final Iterator<Integer> iterator;
+        private boolean closed = false;
+
+        private Cursor(@Nonnull final List<Integer> values) {
+            this.iterator = values.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Integer next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class CountingOutputStream extends ByteArrayOutputStream {
+        private int flushes = 0;
+
+        @Override
+        public void flush() {
+            ++flushes;
+        }
+    }
+
+    @Test
+    public void testJsonArray() throws IOException {
+        LOG.info("testJsonArray");
+        final Cursor cursor = new Cursor(Arrays.asList(1, 2, 3));
+        final StreamingJsonOutput<Integer> output = new StreamingJsonOutput<>(cursor,
+                value -> new ValueDTO(String.valueOf(value)), StreamingJsonOutput.Format.JSON_ARRAY, 0);
+        Assert.assertEquals(MediaType.APPLICATION_JSON_TYPE, output.getMediaType());
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        output.write(stream);
+        Assert.assertEquals("[{\"value\":\"1\"},{\"value\":\"2\"},{\"value\":\"3\"}]",
+                new String(stream.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertTrue(cursor.closed);
+
+        final ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        new StreamingJsonOutput<>(Collections.<Integer>emptyIterator(), value -> value,
+                StreamingJsonOutput.Format.JSON_ARRAY, 0).write(empty);
+        Assert.assertEquals("[]", new String(empty.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNdjson() throws IOException {
+        LOG.info("testNdjson");
+        final Cursor cursor = new Cursor(Arrays.asList(1, 2, 3, 4, 5));
+        final StreamingJsonOutput<Integer> output = new StreamingJsonOutput<>(cursor,
+                value -> new ValueDTO(String.valueOf(value)), StreamingJsonOutput.Format.NDJSON, 2);
+        Assert.assertEquals(StreamingJsonOutput.APPLICATION_NDJSON_TYPE, output.getMediaType());
+        final CountingOutputStream stream = new CountingOutputStream();
+        output.write(stream);
+        Assert.assertEquals("{\"value\":\"1\"}\n{\"value\":\"2\"}\n{\"value\":\"3\"}\n{\"value\":\"4\"}\n{\"value\":\"5\"}\n",
+                new String(stream.toByteArray(), StandardCharsets.UTF_8));
+
+        // Flushed after elements 2 and 4, and at the end.
+        Assert.assertTrue(stream.flushes >= 3);
+        Assert.assertTrue(cursor.closed);
+    }
+
+    @Test
+    public void testMapperFailure() {
+        LOG.info("testMapperFailure");
+        final Cursor cursor = new Cursor(Arrays.asList(1, 2));
+        final StreamingJsonOutput<Integer> output = new StreamingJsonOutput<>(cursor,
+                value -> {
+                    throw new IllegalStateException();
+                }, StreamingJsonOutput.Format.NDJSON, 1);
+        try {
+            output.write(new ByteArrayOutputStream());
+            Assert.fail();
+        } catch (final IllegalStateException | IOException ignored) {
+            // OK.
+        }
+        Assert.assertTrue(cursor.closed);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClientRateLimiterTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ClientRateLimiterTest.class);
+
+    private static final long SEC = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstAndRefill() {
+        LOG.info("testBurstAndRefill");
+        final ClientRateLimiter limiter = new ClientRateLimiter(2.0, 3, 0);
+        final long now = 1000 * SEC;
+        for (int i = 0; i < 3; ++i) {
+            final ClientRateLimiter.Result result = limiter.tryAcquire("a", now);
+            Assert.assertTrue(result.isAllowed());
+            Assert.assertEquals(3, result.getLimit());
+            Assert.assertEquals(2 - i, result.getRemaining());
+        }
+        final ClientRateLimiter.Result denied = limiter.tryAcquire("a", now);
+        Assert.assertFalse(denied.isAllowed());
+        Assert.assertEquals(0, denied.getRemaining());
+        Assert.assertEquals(1, denied.getRetryAfterSecs());
+        Assert.assertEquals(2, denied.getResetSecs());
+
+        // Other clients are not affected.
+        Assert.assertTrue(limiter.tryAcquire("b", now).isAllowed());
+
+        // One token is added every 0.5 seconds.
+        Assert.assertTrue(limiter.tryAcquire("a", now + (SEC / 2)).isAllowed());
+        Assert.assertFalse(limiter.tryAcquire("a", now + (SEC / 2)).isAllowed());
+        Assert.assertEquals(2, limiter.tryAcquire("a", now + (10 * SEC)).getRemaining());
+    }
+
+    @Test
+    public void testEviction() {
+        LOG.info("testEviction");
+        final ClientRateLimiter limiter = new ClientRateLimiter(1000.0, 10, 0);
+        final long now = System.nanoTime();
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertTrue(limiter.tryAcquire("key" + i, now).isAllowed());
+        }
+        Assert.assertEquals(1000, limiter.size());
+
+        // Buckets are full again after 1 msec, and are evicted after that.
+        final long later = now + TimeUnit.MILLISECONDS.toNanos(10);
+        for (int i = 0; i < (ClientRateLimiter.SWEEP_INTERVAL * 64); ++i) {
+            limiter.tryAcquire("other", later);
+        }
+        Assert.assertEquals(1, limiter.size());
+    }
+
+    @Test
+    public void testFilter() {
+        LOG.info("testFilter");
+        final RateLimitFilter filter = new RateLimitFilter(new ClientRateLimiter(1.0, 1, 0),
+                RateLimitFilter.DEFAULT_API_KEY_HEADER, "secret"::equals);
+        final ContainerRequestContext request = Mockito.mock(ContainerRequestContext.class);
+        Mockito.when(request.getHeaderString(RateLimitFilter.DEFAULT_API_KEY_HEADER)).thenReturn("secret");
+
+        filter.filter(request);
+        Mockito.verify(request, Mockito.never()).abortWith(Mockito.any(Response.class));
+        filter.filter(request);
+        final ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        Mockito.verify(request).abortWith(captor.capture());
+        Assert.assertEquals(Status.TOO_MANY_REQUESTS.getStatusCode(), captor.getValue().getStatus());
+        Assert.assertEquals("1", String.valueOf(captor.getValue().getMetadata().getFirst(HttpHeaders.RETRY_AFTER)));
+
+        final ArgumentCaptor<Object> result = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(request, Mockito.times(2)).setProperty(Mockito.anyString(), result.capture());
+        Mockito.when(request.getProperty(Mockito.anyString())).thenReturn(result.getValue());
+        final ContainerResponseContext response = Mockito.mock(ContainerResponseContext.class);
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        Mockito.when(response.getHeaders()).thenReturn(headers);
+        filter.filter(request, response);
+        Assert.assertEquals(1, headers.getFirst(RateLimitFilter.HEADER_RATE_LIMIT_LIMIT));
+        Assert.assertEquals(0, headers.getFirst(RateLimitFilter.HEADER_RATE_LIMIT_REMAINING));
+        Assert.assertEquals(1, headers.getFirst(RateLimitFilter.HEADER_RATE_LIMIT_RESET));
+    }
+
+    @Test
+    public void testFilterInvalidApiKeys() {
+        LOG.info("testFilterInvalidApiKeys");
+        final RateLimitFilter filter = new RateLimitFilter(new ClientRateLimiter(1.0, 1, 0),
+                RateLimitFilter.DEFAULT_API_KEY_HEADER, "secret"::equals);
+        final ContainerRequestContext request = Mockito.mock(ContainerRequestContext.class);
+
+        // Rotating invalid keys does not give a new bucket: all requests are limited by remote address.
+        final AtomicInteger counter = new AtomicInteger();
+        Mockito.when(request.getHeaderString(RateLimitFilter.DEFAULT_API_KEY_HEADER)).thenAnswer(
+                invocation -> "random" + counter.incrementAndGet());
+        filter.filter(request);
+        filter.filter(request);
+        filter.filter(request);
+        Mockito.verify(request, Mockito.times(2)).abortWith(Mockito.any(Response.class));
+
+        // A valid key has its own bucket.
+        final ContainerRequestContext valid = Mockito.mock(ContainerRequestContext.class);
+        Mockito.when(valid.getHeaderString(RateLimitFilter.DEFAULT_API_KEY_HEADER)).thenReturn("secret");
+        filter.filter(valid);
+        Mockito.verify(valid, Mockito.never()).abortWith(Mockito.any(Response.class));
+
+        // By default, no key is valid.
+        final RateLimitFilter defaultFilter = new RateLimitFilter(new ClientRateLimiter(1.0, 1, 0));
+        final ContainerRequestContext other = Mockito.mock(ContainerRequestContext.class);
+        Mockito.when(other.getHeaderString(RateLimitFilter.DEFAULT_API_KEY_HEADER)).thenAnswer(
+                invocation -> "random" + counter.incrementAndGet());
+        defaultFilter.filter(other);
+        defaultFilter.filter(other);
+        Mockito.verify(other).abortWith(Mockito.any(Response.class));
+    }
+}
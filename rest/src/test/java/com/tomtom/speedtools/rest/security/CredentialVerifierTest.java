@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import com.tomtom.speedtools.crypto.Crypto;
+import com.tomtom.speedtools.rest.security.AuthenticationToken.AuthenticationTokenHolder;
+import com.tomtom.speedtools.rest.security.CredentialVerifier.Result;
+import com.tomtom.speedtools.time.UTCTime;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CredentialVerifierTest {
+    private static final Logger LOG = LoggerFactory.getLogger(CredentialVerifierTest.class);
+
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void testPbkdf2Hasher() {
+        LOG.info("testPbkdf2Hasher");
+        final Pbkdf2CredentialHasher hasher = new Pbkdf2CredentialHasher(ITERATIONS);
+        final String hash1 = hasher.hash("secret");
+        final String hash2 = hasher.hash("secret");
+        Assert.assertTrue(hash1.startsWith("$pbkdf2-sha256$1000$"));
+        Assert.assertNotEquals(hash1, hash2);
+        Assert.assertTrue(hasher.verify("secret", hash1));
+        Assert.assertTrue(hasher.verify("secret", hash2));
+        Assert.assertFalse(hasher.verify("Secret", hash1));
+        Assert.assertFalse(hasher.verify("secret", "$pbkdf2-sha256$x$00$00"));
+        Assert.assertFalse(hasher.verify("secret", "abcdef"));
+        Assert.assertFalse(hasher.needsRehash(hash1));
+        Assert.assertTrue(new Pbkdf2CredentialHasher(ITERATIONS * 2).needsRehash(hash1));
+        Assert.assertTrue(new Pbkdf2CredentialHasher(ITERATIONS * 2).verify("secret", hash1));
+        Assert.assertTrue(hasher.needsRehash("abcdef"));
+    }
+
+    @Test
+    public void testVerifyToken() {
+        LOG.info("testVerifyToken");
+        final CredentialVerifier verifier = new CredentialVerifier(new Pbkdf2CredentialHasher(ITERATIONS));
+        final AuthenticationTokenHolder holder =
+                AuthenticationToken.generateAuthenticationToken(verifier.getHasher());
+        final AuthenticationToken token = holder.getAuthenticationToken();
+        Assert.assertTrue(CredentialVerifier.isEncodedHash(token.getTokenHash()));
+        Assert.assertEquals("", token.getSalt());
+
+        final Result<AuthenticationToken> result1 = verifier.verify(token, holder.getPlaintextToken());
+        Assert.assertTrue(result1.isVerified());
+        Assert.assertNull(result1.getUpgradedCredential());
+
+        // Tokens are case insensitive. The second verification is served from the cache.
+        final Result<AuthenticationToken> result2 = verifier.verify(token, holder.getPlaintextToken().toLowerCase());
+        Assert.assertTrue(result2.isVerified());
+        Assert.assertFalse(verifier.verify(token, "wrong").isVerified());
+
+        verifier.invalidate(token.getTokenHash());
+        Assert.assertTrue(verifier.verify(token, holder.getPlaintextToken()).isVerified());
+    }
+
+    @Test
+    public void testUpgradeLegacyToken() {
+        LOG.info("testUpgradeLegacyToken");
+        final CredentialVerifier verifier = new CredentialVerifier(new Pbkdf2CredentialHasher(ITERATIONS));
+        final AuthenticationTokenHolder holder = AuthenticationToken.generateAuthenticationToken();
+        final AuthenticationToken legacy = holder.getAuthenticationToken();
+        Assert.assertFalse(CredentialVerifier.isEncodedHash(legacy.getTokenHash()));
+
+        Assert.assertFalse(verifier.verify(legacy, "wrong").isVerified());
+        final Result<AuthenticationToken> result = verifier.verify(legacy, holder.getPlaintextToken());
+        Assert.assertTrue(result.isVerified());
+        final AuthenticationToken upgraded = result.getUpgradedCredential();
+        Assert.assertNotNull(upgraded);
+        Assert.assertTrue(CredentialVerifier.isEncodedHash(upgraded.getTokenHash()));
+        Assert.assertEquals(legacy.getExpiry(), upgraded.getExpiry());
+
+        final Result<AuthenticationToken> result2 = verifier.verify(upgraded, holder.getPlaintextToken());
+        Assert.assertTrue(result2.isVerified());
+        Assert.assertNull(result2.getUpgradedCredential());
+    }
+
+    @Test
+    public void testUpgradeLegacyPassword() {
+        LOG.info("testUpgradeLegacyPassword");
+        final CredentialVerifier verifier = new CredentialVerifier(new Pbkdf2CredentialHasher(ITERATIONS), 0,
+                Duration.ZERO);
+        final Password legacy = new Password(UTCTime.now(), Crypto.hash("password"));
+        Assert.assertFalse(verifier.verify(legacy, "Password").isVerified());
+        final Result<Password> result = verifier.verify(legacy, "password");
+        Assert.assertTrue(result.isVerified());
+        final Password upgraded = result.getUpgradedCredential();
+        Assert.assertNotNull(upgraded);
+        Assert.assertTrue(verifier.verify(upgraded, "password").isVerified());
+        Assert.assertNull(verifier.verify(upgraded, "password").getUpgradedCredential());
+        Assert.assertFalse(verifier.verify(upgraded, "Password").isVerified());
+
+        // Stronger cost parameters trigger a rehash.
+        final CredentialVerifier stronger = new CredentialVerifier(new Pbkdf2CredentialHasher(ITERATIONS * 2));
+        Assert.assertNotNull(stronger.verify(upgraded, "password").getUpgradedCredential());
+    }
+}
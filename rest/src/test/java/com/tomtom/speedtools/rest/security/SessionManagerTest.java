@@ -17,8 +17,10 @@
 package com.tomtom.speedtools.rest.security;
 
 import com.tomtom.speedtools.domain.Uid;
+import org.joda.time.Duration;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -27,11 +29,15 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import javax.ws.rs.core.SecurityContext;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.Collections;
 
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
@@ -342,6 +348,61 @@ public class SessionManagerTest {
         verify(httpServletRequest).getSession(false);
     }
 
+    /**
+     * A stateless session must not use the {@link HttpSession} at all, and the security context must be created from
+     * the token presented by the client, as a header or as a cookie.
+     */
+    @Test
+    public void testStatelessSession() {
+        LOG.info("testStatelessSession");
+
+        final SessionTokenCodec codec = new SessionTokenCodec("k1",
+                Collections.singletonMap("k1", "secret for stateless sessions".getBytes(StandardCharsets.UTF_8)),
+                Duration.standardHours(1), true);
+        final HttpServletResponse httpServletResponse = Mockito.mock(HttpServletResponse.class);
+        final SessionManager stateless = new SessionManager(httpServletRequest, httpServletResponse, codec);
+
+        final String sessionId = stateless.startWebSession(principal, Collections.singleton("admin"));
+        final ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+        final ArgumentCaptor<String> header = ArgumentCaptor.forClass(String.class);
+        verify(httpServletResponse).addCookie(cookie.capture());
+        verify(httpServletResponse).setHeader(eq(SessionManager.SESSION_TOKEN_HEADER_NAME), header.capture());
+        assertThat(cookie.getValue().getName(), is(SessionManager.SESSION_TOKEN_COOKIE_NAME));
+        assertThat(cookie.getValue().getValue(), is(header.getValue()));
+        assertThat(cookie.getValue().isHttpOnly(), is(true));
+
+        // Present the token as a cookie.
+        Mockito.when(httpServletRequest.getCookies()).thenReturn(new Cookie[]{cookie.getValue()});
+        assertThat(stateless.getCurrentSessionId(), is(sessionId));
+        final SecurityContext securityContext =
+                SessionManager.createSecurityContextForSession(httpServletRequest, codec);
+        assert securityContext != null;
+        assertThat(securityContext.getUserPrincipal().getName(), is(REFERENCE_PERSON_ID));
+        assertThat(securityContext.getAuthenticationScheme(), is(SessionManager.AUTHENTICATION_SCHEME_USERNAME));
+        assertThat(securityContext.isUserInRole("admin"), is(true));
+        assertThat(securityContext.isUserInRole("other"), is(false));
+        assertThat(SecurityHelper.getPrincipalNameInRoleOrThrow(securityContext, "admin"), is(REFERENCE_PERSON_ID));
+
+        // Present the token as a header.
+        Mockito.when(httpServletRequest.getCookies()).thenReturn(null);
+        Mockito.when(httpServletRequest.getHeader(SessionManager.SESSION_TOKEN_HEADER_NAME)).
+                thenReturn(header.getValue());
+        assertThat(SessionManager.createSecurityContextForSession(httpServletRequest, codec), is(notNullValue()));
+
+        // Invalid tokens are ignored.
+        Mockito.when(httpServletRequest.getHeader(SessionManager.SESSION_TOKEN_HEADER_NAME)).thenReturn("k1.x.y");
+        assertThat(SessionManager.createSecurityContextForSession(httpServletRequest, codec), is(nullValue()));
+        assertThat(stateless.getCurrentSessionId(), is(nullValue()));
+
+        // Terminating the session clears the cookie.
+        stateless.terminateSession();
+        verify(httpServletResponse, Mockito.times(2)).addCookie(cookie.capture());
+        assertThat(cookie.getValue().getMaxAge(), is(0));
+
+        verify(httpServletRequest, Mockito.never()).getSession();
+        verify(httpServletRequest, Mockito.never()).getSession(Mockito.anyBoolean());
+    }
+
     /**
      * {@link SessionManager.SessionData} must be serializable so that session state can be replicated amongst multiple
      * application container nodes.
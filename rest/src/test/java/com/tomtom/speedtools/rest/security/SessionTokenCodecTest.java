@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2021, TomTom (http://tomtom.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tomtom.speedtools.rest.security;
+
+import com.tomtom.speedtools.time.UTCTime;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class SessionTokenCodecTest {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTokenCodecTest.class);
+
+    private static final byte[] SECRET1 = "first secret for signing tokens".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SECRET2 = "second secret for signing tokens".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testRoundTrip() {
+        LOG.info("testRoundTrip");
+        for (final boolean encrypted : new boolean[]{false, true}) {
+            final SessionTokenCodec codec = new SessionTokenCodec("k1", Collections.singletonMap("k1", SECRET1),
+                    Duration.standardHours(1), encrypted);
+            final SessionToken token = codec.createToken("user-1", SessionManager.AUTHENTICATION_SCHEME_USERNAME,
+                    new HashSet<>(Arrays.asList("admin", "user")));
+            Assert.assertFalse(token.isExpired(UTCTime.now()));
+            final String encoded = codec.encode(token);
+            Assert.assertTrue(encoded.startsWith("k1."));
+
+            // Only plain tokens can be read by clients.
+            final String body = new String(Base64.getUrlDecoder().decode(encoded.split("\\.")[1]),
+                    StandardCharsets.ISO_8859_1);
+            Assert.assertEquals(!encrypted, body.contains("user-1"));
+            Assert.assertEquals(token, codec.decode(encoded));
+
+            // Every token gets a new session ID.
+            Assert.assertNotEquals(token.getSessionId(), codec.createToken("user-1",
+                    SessionManager.AUTHENTICATION_SCHEME_USERNAME, Collections.emptySet()).getSessionId());
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        LOG.info("testInvalid");
+        final SessionTokenCodec codec = new SessionTokenCodec("k1", Collections.singletonMap("k1", SECRET1),
+                Duration.standardHours(1), true);
+        final String encoded = codec.encode(codec.createToken("user-1", SessionManager.AUTHENTICATION_SCHEME_APPTOKEN,
+                Collections.emptySet()));
+        Assert.assertNotNull(codec.decode(encoded));
+        Assert.assertNull(codec.decode(""));
+        Assert.assertNull(codec.decode("k1"));
+        Assert.assertNull(codec.decode("k1.abc"));
+        Assert.assertNull(codec.decode("k2" + encoded.substring(2)));
+        Assert.assertNull(codec.decode(encoded.substring(0, encoded.length() - 2)));
+
+        // Flip a character of the body.
+        final int i = encoded.indexOf('.') + 5;
+        final char flipped = (encoded.charAt(i) == 'A') ? 'B' : 'A';
+        Assert.assertNull(codec.decode(encoded.substring(0, i) + flipped + encoded.substring(i + 1)));
+
+        // Tokens signed with another secret are rejected.
+        final SessionTokenCodec other = new SessionTokenCodec("k1", Collections.singletonMap("k1", SECRET2),
+                Duration.standardHours(1), true);
+        Assert.assertNull(other.decode(encoded));
+
+        // Expired tokens are rejected.
+        final SessionTokenCodec expired = new SessionTokenCodec("k1", Collections.singletonMap("k1", SECRET1),
+                Duration.standardHours(-1), true);
+        Assert.assertNull(expired.decode(expired.encode(expired.createToken("user-1",
+                SessionManager.AUTHENTICATION_SCHEME_APPTOKEN, Collections.emptySet()))));
+    }
+
+    @Test
+    public void testKeyRotation() {
+        LOG.info("testKeyRotation");
+        final SessionTokenCodec codec1 = new SessionTokenCodec("k1", Collections.singletonMap("k1", SECRET1),
+                Duration.standardHours(1), false);
+        final Map<String, byte[]> secrets = new HashMap<>();
+        secrets.put("k1", SECRET1);
+        secrets.put("k2", SECRET2);
+        final SessionTokenCodec codec2 = new SessionTokenCodec("k2", secrets, Duration.standardHours(1), false);
+        final SessionToken token = codec1.createToken("user-1", SessionManager.AUTHENTICATION_SCHEME_USERNAME,
+                Collections.singleton("admin"));
+
+        // Old tokens are still accepted, new tokens use the new key.
+        Assert.assertEquals(token, codec2.decode(codec1.encode(token)));
+        final String encoded = codec2.encode(token);
+        Assert.assertTrue(encoded.startsWith("k2."));
+        Assert.assertNull(codec1.decode(encoded));
+    }
+}
@@ -30,6 +30,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -64,6 +65,7 @@ public class TracerFactory implements InvocationHandler {
     private static final Logger LOG = LoggerFactory.getLogger(TracerFactory.class);
 
     private static final int QUEUE_CAPACITY = 15000;
+    private static final long AWAIT_POLL_MSECS = 10;
     @Nonnull
     private static final Object[] EMPTY_OBJECT_ARRAY = {};
 
@@ -146,6 +148,28 @@ public class TracerFactory implements InvocationHandler {
         queue.clear();
     }
 
+    /**
+     * Wait until the queued traces have been taken by the trace handler thread, for example before shutting down.
+     * Unlike {@link #flushTraces()}, this does not discard traces.
+     *
+     * @param timeoutMsecs Max. time to wait in msecs.
+     * @return True if the queue is empty, false if not (the timeout expired, or tracing is disabled so the queue is
+     * not processed).
+     */
+    public static boolean awaitTracesProcessed(final long timeoutMsecs) {
+        assert timeoutMsecs >= 0 : timeoutMsecs;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMsecs);
+        while (!queue.isEmpty() && isEnabled() && ((deadline - System.nanoTime()) > 0)) {
+            try {
+                Thread.sleep(AWAIT_POLL_MSECS);
+            } catch (final InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return queue.isEmpty();
+    }
+
     /**
      * Return whether event logging is enabled or not.
      *